@@ -2,32 +2,45 @@ package com.netflix.exhibitor.core;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Closeables;
 import com.netflix.curator.framework.CuratorFramework;
 import com.netflix.curator.framework.CuratorFrameworkFactory;
 import com.netflix.curator.retry.ExponentialBackoffRetry;
 import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.activity.ActivityLogStore;
 import com.netflix.exhibitor.core.activity.ActivityQueue;
+import com.netflix.exhibitor.core.activity.EventPublisher;
+import com.netflix.exhibitor.core.activity.ExecutorFactory;
+import com.netflix.exhibitor.core.activity.QueueGroups;
+import com.netflix.exhibitor.core.activity.ThreadingModes;
 import com.netflix.exhibitor.core.backup.BackupManager;
 import com.netflix.exhibitor.core.backup.BackupProvider;
+import com.netflix.exhibitor.core.config.ConfigDelta;
 import com.netflix.exhibitor.core.config.ConfigListener;
 import com.netflix.exhibitor.core.config.ConfigManager;
 import com.netflix.exhibitor.core.config.ConfigProvider;
 import com.netflix.exhibitor.core.config.IntConfigs;
 import com.netflix.exhibitor.core.controlpanel.ControlPanelValues;
 import com.netflix.exhibitor.core.index.IndexCache;
+import com.netflix.exhibitor.core.metrics.MetricsCollector;
 import com.netflix.exhibitor.core.processes.ProcessMonitor;
 import com.netflix.exhibitor.core.processes.ProcessOperations;
 import com.netflix.exhibitor.core.processes.StandardProcessOperations;
+import com.netflix.exhibitor.core.remote.RemoteClient;
+import com.netflix.exhibitor.core.remote.RemoteResponseCache;
 import com.netflix.exhibitor.core.rest.UITab;
 import com.netflix.exhibitor.core.state.CleanupManager;
+import com.netflix.exhibitor.core.state.FourLetterWordClient;
 import com.netflix.exhibitor.core.state.ManifestVersion;
 import com.netflix.exhibitor.core.state.MonitorRunningInstance;
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -43,8 +56,15 @@ import java.util.concurrent.atomic.AtomicReference;
 public class Exhibitor implements Closeable
 {
     private final ActivityLog               log;
-    private final ActivityQueue             activityQueue = new ActivityQueue();
+    private final ActivityLogStore          activityLogStore;
+    private final EventPublisher            eventPublisher;
+    private final ActivityQueue             activityQueue;
+    private final ExecutorFactory           executorFactory;
+    private final FourLetterWordClient      fourLetterWordClient;
+    private final RemoteClient              remoteClient;
+    private final RemoteResponseCache       remoteResponseCache = new RemoteResponseCache(RemoteResponseCache.DEFAULT_TTL_MS);
     private final MonitorRunningInstance    monitorRunningInstance;
+    private final MetricsCollector          metricsCollector;
     private final Collection<UITab>         additionalUITabs;
     private final ProcessOperations         processOperations;
     private final CleanupManager            cleanupManager;
@@ -66,13 +86,29 @@ public class Exhibitor implements Closeable
         STOPPED
     }
 
+    /**
+     * Startup arguments. The constructor takes the required values - the optional ones have chained
+     * setters, e.g. <code>new Arguments(...).threadingMode(ThreadingModes.VIRTUAL).remoteGzip(true)</code>
+     */
     public static class Arguments
     {
         private final int       connectionTimeOutMs;
         private final int       logWindowSizeLines;
         private final int       configCheckMs;
         private final String    thisJVMHostname;
-
+        private Map<QueueGroups, Integer> queueWorkerCounts = null;
+        private ThreadingModes  threadingMode = ThreadingModes.PLATFORM;
+        private File            activityLogDirectory = null;
+        private int             remoteConnectTimeoutMs = RemoteClient.DEFAULT_CONNECT_TIMEOUT_MS;
+        private int             remoteReadTimeoutMs = RemoteClient.DEFAULT_READ_TIMEOUT_MS;
+        private boolean         remoteGzip = false;
+
+        /**
+         * @param connectionTimeOutMs timeout for ZK connections
+         * @param logWindowSizeLines max lines of logging to keep in memory
+         * @param thisJVMHostname hostname of this JVM
+         * @param configCheckMs period to check the config
+         */
         public Arguments(int connectionTimeOutMs, int logWindowSizeLines, String thisJVMHostname, int configCheckMs)
         {
             this.connectionTimeOutMs = connectionTimeOutMs;
@@ -80,6 +116,58 @@ public class Exhibitor implements Closeable
             this.thisJVMHostname = thisJVMHostname;
             this.configCheckMs = configCheckMs;
         }
+
+        /**
+         * @param queueWorkerCounts workers for each activity queue group or null for the defaults
+         * @return this
+         */
+        public Arguments queueWorkerCounts(Map<QueueGroups, Integer> queueWorkerCounts)
+        {
+            this.queueWorkerCounts = (queueWorkerCounts != null) ? ImmutableMap.copyOf(queueWorkerCounts) : null;
+            return this;
+        }
+
+        /**
+         * @param threadingMode threads to use for blocking background work
+         * @return this
+         */
+        public Arguments threadingMode(ThreadingModes threadingMode)
+        {
+            this.threadingMode = Preconditions.checkNotNull(threadingMode, "threadingMode cannot be null");
+            return this;
+        }
+
+        /**
+         * @param activityLogDirectory directory to persist the activity log to or null to only keep it in memory
+         * @return this
+         */
+        public Arguments activityLogDirectory(File activityLogDirectory)
+        {
+            this.activityLogDirectory = activityLogDirectory;
+            return this;
+        }
+
+        /**
+         * @param remoteConnectTimeoutMs connect timeout for calls to other Exhibitor instances
+         * @param remoteReadTimeoutMs read timeout for calls to other Exhibitor instances
+         * @return this
+         */
+        public Arguments remoteTimeouts(int remoteConnectTimeoutMs, int remoteReadTimeoutMs)
+        {
+            this.remoteConnectTimeoutMs = remoteConnectTimeoutMs;
+            this.remoteReadTimeoutMs = remoteReadTimeoutMs;
+            return this;
+        }
+
+        /**
+         * @param remoteGzip if true, ask other Exhibitor instances for compressed responses
+         * @return this
+         */
+        public Arguments remoteGzip(boolean remoteGzip)
+        {
+            this.remoteGzip = remoteGzip;
+            return this;
+        }
     }
 
     /**
@@ -113,18 +201,25 @@ public class Exhibitor implements Closeable
         System.out.println(getVersion());
 
         this.arguments = arguments;
-        log = new ActivityLog(arguments.logWindowSizeLines);
+        activityLogStore = (arguments.activityLogDirectory != null) ? new ActivityLogStore(arguments.activityLogDirectory) : null;
+        log = new ActivityLog(arguments.logWindowSizeLines, activityLogStore);
+        eventPublisher = new EventPublisher(log);
+        executorFactory = new ExecutorFactory(arguments.threadingMode);
+        activityQueue = new ActivityQueue(arguments.queueWorkerCounts, executorFactory);
+        fourLetterWordClient = new FourLetterWordClient();
+        remoteClient = new RemoteClient(arguments.remoteConnectTimeoutMs, arguments.remoteReadTimeoutMs, RemoteClient.DEFAULT_MAX_CONNECTIONS_PER_HOST, arguments.remoteGzip);
         this.configManager = new ConfigManager(this, configProvider, arguments.configCheckMs);
         this.additionalUITabs = (additionalUITabs != null) ? ImmutableList.copyOf(additionalUITabs) : ImmutableList.<UITab>of();
         this.processOperations = new StandardProcessOperations(this);
         monitorRunningInstance = new MonitorRunningInstance(this);
+        metricsCollector = new MetricsCollector(this);
         cleanupManager = new CleanupManager(this);
-        indexCache = new IndexCache(log);
         processMonitor = new ProcessMonitor(this);
 
         controlPanelValues = new ControlPanelValues();
 
         this.backupManager = new BackupManager(this, backupProvider);
+        indexCache = new IndexCache(log, backupManager);
     }
 
     public String   getVersion()
@@ -140,6 +235,22 @@ public class Exhibitor implements Closeable
         return log;
     }
 
+    /**
+     * @return the persistent activity log or null if it isn't enabled
+     */
+    public ActivityLogStore getActivityLogStore()
+    {
+        return activityLogStore;
+    }
+
+    /**
+     * @return publisher of state/config changes and log appends
+     */
+    public EventPublisher getEventPublisher()
+    {
+        return eventPublisher;
+    }
+
     /**
      * @return cache of indexed log files
      */
@@ -160,6 +271,7 @@ public class Exhibitor implements Closeable
         activityQueue.start();
         configManager.start();
         monitorRunningInstance.start();
+        metricsCollector.start();
         cleanupManager.start();
         backupManager.start();
 
@@ -168,8 +280,13 @@ public class Exhibitor implements Closeable
                 new ConfigListener()
                 {
                     @Override
-                    public void configUpdated()
+                    public void configUpdated(ConfigDelta delta)
                     {
+                        eventPublisher.publish(EventPublisher.Type.CONFIG, null);
+                        if ( !delta.isChanged(IntConfigs.CLIENT_PORT) )
+                        {
+                            return; // the connection doesn't depend on anything else
+                        }
                         try
                         {
                             resetLocalConnection();
@@ -193,9 +310,14 @@ public class Exhibitor implements Closeable
         Closeables.closeQuietly(backupManager);
         Closeables.closeQuietly(cleanupManager);
         Closeables.closeQuietly(monitorRunningInstance);
+        Closeables.closeQuietly(metricsCollector);
         Closeables.closeQuietly(configManager);
         Closeables.closeQuietly(activityQueue);
+        Closeables.closeQuietly(executorFactory);
+        Closeables.closeQuietly(fourLetterWordClient);
+        Closeables.closeQuietly(remoteClient);
         closeLocalConnection();
+        Closeables.closeQuietly(activityLogStore);
     }
 
     /**
@@ -216,6 +338,38 @@ public class Exhibitor implements Closeable
         return activityQueue;
     }
 
+    /**
+     * @return factory for the executors used for blocking background work
+     */
+    public ExecutorFactory getExecutorFactory()
+    {
+        return executorFactory;
+    }
+
+    /**
+     * @return shared client for sending four letter words to ZooKeeper servers
+     */
+    public FourLetterWordClient getFourLetterWordClient()
+    {
+        return fourLetterWordClient;
+    }
+
+    /**
+     * @return shared client for calls to the other Exhibitor instances
+     */
+    public RemoteClient getRemoteClient()
+    {
+        return remoteClient;
+    }
+
+    /**
+     * @return short lived cache of responses from the other Exhibitor instances
+     */
+    public RemoteResponseCache getRemoteResponseCache()
+    {
+        return remoteResponseCache;
+    }
+
     public ProcessOperations getProcessOperations()
     {
         return processOperations;
@@ -288,6 +442,14 @@ public class Exhibitor implements Closeable
         return monitorRunningInstance;
     }
 
+    /**
+     * @return collected ZooKeeper metrics
+     */
+    public MetricsCollector getMetricsCollector()
+    {
+        return metricsCollector;
+    }
+
     private synchronized void closeLocalConnection()
     {
         Closeables.closeQuietly(localConnection);
@@ -0,0 +1,232 @@
+package com.netflix.exhibitor.core.activity;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Returned when an activity is queued. Tracks the activity from when it's queued until it completes
+ */
+public class ActivityHandle
+{
+    private final ActivityQueue     queue;
+    private final QueueGroups       group;
+    private final Activity          activity;
+    private final long              id;
+    private final long              queuedTime = System.currentTimeMillis();
+    private final CountDownLatch    doneLatch = new CountDownLatch(1);
+
+    // all guarded by sync
+    private Status                  status = Status.QUEUED;
+    private long                    startTime = 0;
+    private long                    endTime = 0;
+    private Thread                  worker = null;
+    private boolean                 cancelRequested = false;
+    private final List<Activity>    coalesced = Lists.newArrayList();
+
+    public enum Status
+    {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED
+    }
+
+    ActivityHandle(ActivityQueue queue, QueueGroups group, Activity activity, long id)
+    {
+        this.queue = queue;
+        this.group = group;
+        this.activity = activity;
+        this.id = id;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public QueueGroups getGroup()
+    {
+        return group;
+    }
+
+    /**
+     * Return a display name for the activity - the key of keyed activities otherwise the class name
+     *
+     * @return name
+     */
+    public String getName()
+    {
+        String      key = (activity instanceof KeyedActivity) ? ((KeyedActivity)activity).getKey() : null;
+        if ( key != null )
+        {
+            return key;
+        }
+        String      name = activity.getClass().getSimpleName();
+        return (name.length() > 0) ? name : activity.getClass().getName();
+    }
+
+    public synchronized Status getStatus()
+    {
+        return status;
+    }
+
+    public synchronized boolean isDone()
+    {
+        return (status != Status.QUEUED) && (status != Status.RUNNING);
+    }
+
+    public long getQueuedTime()
+    {
+        return queuedTime;
+    }
+
+    /**
+     * @return time the activity started running or 0
+     */
+    public synchronized long getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * @return time the activity completed or 0
+     */
+    public synchronized long getEndTime()
+    {
+        return endTime;
+    }
+
+    /**
+     * Return the progress of the activity if it reports it (see {@link ProgressActivity})
+     *
+     * @return 0 - 100 or -1 if not known
+     */
+    public int getPercentDone()
+    {
+        switch ( getStatus() )
+        {
+            case QUEUED:
+            {
+                return 0;
+            }
+
+            case RUNNING:
+            {
+                return (activity instanceof ProgressActivity) ? ((ProgressActivity)activity).getPercentDone() : -1;
+            }
+
+            default:
+            {
+                return 100;
+            }
+        }
+    }
+
+    /**
+     * Cancel the activity. A queued activity is removed from the queue. A running activity's
+     * worker thread is interrupted - it's up to the activity to respond to the interruption
+     *
+     * @return false if the activity had already completed
+     */
+    public boolean cancel()
+    {
+        synchronized(this)
+        {
+            if ( isDone() )
+            {
+                return false;
+            }
+            cancelRequested = true;
+            if ( worker != null )
+            {
+                // interrupted while holding the lock so that the interrupt can't leak into the worker's next activity
+                worker.interrupt();
+                return true;
+            }
+        }
+
+        // if a worker has just taken the activity, start() will see the cancel request instead
+        queue.cancel(this);
+        return true;
+    }
+
+    /**
+     * Wait for the activity to complete
+     *
+     * @param time max time to wait
+     * @param unit time unit
+     * @return true if completed
+     * @throws InterruptedException if interrupted
+     */
+    public boolean await(long time, TimeUnit unit) throws InterruptedException
+    {
+        return doneLatch.await(time, unit);
+    }
+
+    Activity                    getActivity()
+    {
+        return activity;
+    }
+
+    synchronized void           addCoalesced(Activity activity)
+    {
+        coalesced.add(activity);
+    }
+
+    /**
+     * Called by the worker before running the activity
+     *
+     * @param thread the worker
+     * @return false if the activity has been cancelled and must not run
+     */
+    synchronized boolean        start(Thread thread)
+    {
+        if ( cancelRequested )
+        {
+            return false;
+        }
+        status = Status.RUNNING;
+        startTime = System.currentTimeMillis();
+        worker = thread;
+        return true;
+    }
+
+    /**
+     * Mark the activity as done
+     *
+     * @param wasSuccessful result of the activity
+     * @return activities that were coalesced into this one - the caller must complete them
+     */
+    List<Activity>              finish(boolean wasSuccessful)
+    {
+        List<Activity>      result;
+        synchronized(this)
+        {
+            status = cancelRequested ? Status.CANCELLED : (wasSuccessful ? Status.SUCCEEDED : Status.FAILED);
+            endTime = System.currentTimeMillis();
+            worker = null;
+            result = ImmutableList.copyOf(coalesced);
+        }
+        doneLatch.countDown();
+        queue.finished(this);
+        return result;
+    }
+
+    /**
+     * Mark the activity as cancelled before it ran
+     *
+     * @return activities that were coalesced into this one - the caller must complete them
+     */
+    List<Activity>              finishCancelled()
+    {
+        synchronized(this)
+        {
+            cancelRequested = true;
+        }
+        return finish(false);
+    }
+}
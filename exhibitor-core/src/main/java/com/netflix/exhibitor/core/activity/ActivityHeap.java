@@ -0,0 +1,135 @@
+package com.netflix.exhibitor.core.activity;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A binary heap of activities where each holder knows its position. This makes removal
+ * O(log n) instead of the linear scan that {@link java.util.PriorityQueue#remove(Object)} needs.
+ * Not thread safe.
+ */
+class ActivityHeap
+{
+    private final Comparator<ActivityHolder> comparator;
+    private ActivityHolder[] heap = new ActivityHolder[16];
+    private int size = 0;
+
+    ActivityHeap(Comparator<ActivityHolder> comparator)
+    {
+        this.comparator = comparator;
+    }
+
+    boolean             isEmpty()
+    {
+        return size == 0;
+    }
+
+    int                 size()
+    {
+        return size;
+    }
+
+    ActivityHolder      peek()
+    {
+        return (size > 0) ? heap[0] : null;
+    }
+
+    void                add(ActivityHolder holder)
+    {
+        if ( size == heap.length )
+        {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        holder.heap = this;
+        siftUp(size++, holder);
+    }
+
+    ActivityHolder      poll()
+    {
+        ActivityHolder      head = peek();
+        if ( head != null )
+        {
+            removeAt(0);
+        }
+        return head;
+    }
+
+    /**
+     * Remove the given holder if it's in this heap
+     *
+     * @param holder the holder
+     * @return true if it was removed
+     */
+    boolean             remove(ActivityHolder holder)
+    {
+        if ( holder.heap != this )
+        {
+            return false;
+        }
+        removeAt(holder.heapIndex);
+        return true;
+    }
+
+    private void        removeAt(int index)
+    {
+        ActivityHolder      removed = heap[index];
+        removed.heap = null;
+        removed.heapIndex = -1;
+
+        ActivityHolder      last = heap[--size];
+        heap[size] = null;
+        if ( index < size )
+        {
+            siftDown(index, last);
+            if ( heap[index] == last )
+            {
+                siftUp(index, last);
+            }
+        }
+    }
+
+    private void        siftUp(int index, ActivityHolder holder)
+    {
+        while ( index > 0 )
+        {
+            int                 parentIndex = (index - 1) >>> 1;
+            ActivityHolder      parent = heap[parentIndex];
+            if ( comparator.compare(holder, parent) >= 0 )
+            {
+                break;
+            }
+            set(index, parent);
+            index = parentIndex;
+        }
+        set(index, holder);
+    }
+
+    private void        siftDown(int index, ActivityHolder holder)
+    {
+        int     half = size >>> 1;
+        while ( index < half )
+        {
+            int                 childIndex = (index << 1) + 1;
+            ActivityHolder      child = heap[childIndex];
+            int                 rightIndex = childIndex + 1;
+            if ( (rightIndex < size) && (comparator.compare(child, heap[rightIndex]) > 0) )
+            {
+                childIndex = rightIndex;
+                child = heap[childIndex];
+            }
+            if ( comparator.compare(holder, child) <= 0 )
+            {
+                break;
+            }
+            set(index, child);
+            index = childIndex;
+        }
+        set(index, holder);
+    }
+
+    private void        set(int index, ActivityHolder holder)
+    {
+        heap[index] = holder;
+        holder.heapIndex = index;
+    }
+}
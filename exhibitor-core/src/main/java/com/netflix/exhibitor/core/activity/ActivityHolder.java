@@ -0,0 +1,50 @@
+package com.netflix.exhibitor.core.activity;
+
+import java.util.Comparator;
+
+/**
+ * A queued activity. The deadline is computed once when queued so that heap comparisons don't need the clock
+ */
+class ActivityHolder
+{
+    final Activity          activity;
+    final ActivityPriority  priority;
+    final long              endMs;
+    final long              sequence;
+
+    // guarded by the owning group's lock
+    ActivityHeap            heap = null;
+    int                     heapIndex = -1;
+    ActivityHandle          handle = null;
+
+    static final Comparator<ActivityHolder>     DEADLINE_ORDER = new Comparator<ActivityHolder>()
+    {
+        @Override
+        public int compare(ActivityHolder holder1, ActivityHolder holder2)
+        {
+            if ( holder1.endMs != holder2.endMs )
+            {
+                return (holder1.endMs < holder2.endMs) ? -1 : 1;
+            }
+            return (holder1.sequence < holder2.sequence) ? -1 : ((holder1.sequence == holder2.sequence) ? 0 : 1);
+        }
+    };
+
+    static final Comparator<ActivityHolder>     PRIORITY_ORDER = new Comparator<ActivityHolder>()
+    {
+        @Override
+        public int compare(ActivityHolder holder1, ActivityHolder holder2)
+        {
+            int     diff = holder1.priority.compareTo(holder2.priority);
+            return (diff != 0) ? diff : DEADLINE_ORDER.compare(holder1, holder2);
+        }
+    };
+
+    ActivityHolder(Activity activity, ActivityPriority priority, long endMs, long sequence)
+    {
+        this.activity = activity;
+        this.priority = priority;
+        this.endMs = endMs;
+        this.sequence = sequence;
+    }
+}
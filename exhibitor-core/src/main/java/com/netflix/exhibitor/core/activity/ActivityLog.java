@@ -1,8 +1,5 @@
 package com.netflix.exhibitor.core.activity;
 
-import com.google.common.base.Function;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,31 +10,82 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.Date;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Logging abstraction. Logs using the standard logging but keeps a window in memory
- * as well for display purposes
+ * as well for display purposes. The window is a fixed size ring buffer - each entry gets a
+ * monotonically increasing sequence number so that readers can fetch just the entries they haven't seen
  */
 public class ActivityLog
 {
-    private final Queue<Message>    queue = new ConcurrentLinkedQueue<Message>();
-    private final int               windowSizeLines;
+    private final AtomicReferenceArray<Entry>   ring;
+    private final AtomicLong                    nextSequence;
+    private final long                          firstSequence;
+    private final ActivityLogStore              store;
+    private final AtomicInteger                 waiterCount = new AtomicInteger(0);
+    private final Object                        waiterLock = new Object();
+    private final List<Runnable>                appendListeners = new CopyOnWriteArrayList<Runnable>();
 
     private static final Logger     log = LoggerFactory.getLogger(ActivityLog.class);
 
-    private static class Message
+    /**
+     * A line of the window
+     */
+    public static class Entry
     {
-        final Date      date = new Date();
-        final String    text;
-        final Type      type;
+        private final long      sequence;
+        private final long      time;
+        private final String    text;
+        private final Type      type;
+
+        private volatile String formattedDate = null;  // formatted on first display and then reused
 
-        private Message(String text, Type type)
+        Entry(long sequence, long time, String text, Type type)
         {
+            this.sequence = sequence;
+            this.time = time;
             this.text = text;
             this.type = type;
         }
+
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        public long getTime()
+        {
+            return time;
+        }
+
+        public String getText()
+        {
+            return text;
+        }
+
+        public Type getType()
+        {
+            return type;
+        }
+
+        /**
+         * @return the time formatted for display
+         */
+        public String getFormattedDate()
+        {
+            String      localFormattedDate = formattedDate;
+            if ( localFormattedDate == null )
+            {
+                localFormattedDate = new Date(time).toString();
+                formattedDate = localFormattedDate;
+            }
+            return localFormattedDate;
+        }
     }
 
     /**
@@ -45,29 +93,124 @@ public class ActivityLog
      */
     public ActivityLog(int windowSizeLines)
     {
-        this.windowSizeLines = windowSizeLines;
+        this(windowSizeLines, null);
+    }
+
+    /**
+     * @param windowSizeLines max lines to keep in memory
+     * @param store if not null, all entries are also written to this store. Sequence numbers continue from
+     *              the last entry in the store
+     */
+    public ActivityLog(int windowSizeLines, ActivityLogStore store)
+    {
+        this.store = store;
+        ring = new AtomicReferenceArray<Entry>(Math.max(1, windowSizeLines));
+        firstSequence = (store != null) ? store.getNextSequence() : 0;
+        nextSequence = new AtomicLong(firstSequence);
+    }
+
+    /**
+     * Add a listener that is called (on the adding thread) after each entry is added. Listeners
+     * must be quick and must not log
+     *
+     * @param listener the listener
+     */
+    public void         addAppendListener(Runnable listener)
+    {
+        appendListeners.add(listener);
     }
 
     /**
      * Return the current window lines
      *
      * @param separator line separator
-     * @return lines
+     * @return lines - newest first
      */
-    public List<String> toDisplayList(final String separator)
+    public List<String> toDisplayList(String separator)
     {
-        Iterable<String> transformed = Iterables.transform
-        (
-            queue,
-            new Function<Message, String>()
+        List<Entry>     entries = getEntriesAfter(-1, Integer.MAX_VALUE);
+        List<String>    lines = Lists.newArrayListWithCapacity(entries.size());
+        for ( int i = entries.size() - 1; i >= 0; --i )
+        {
+            Entry       entry = entries.get(i);
+            lines.add(entry.getFormattedDate() + separator + entry.getType() + separator + entry.getText());
+        }
+        return lines;
+    }
+
+    /**
+     * Return the sequence number of the most recently added entry
+     *
+     * @return sequence - less than the first sequence (-1 without a store) if nothing has been logged
+     */
+    public long         getLastSequence()
+    {
+        return nextSequence.get() - 1;
+    }
+
+    /**
+     * Return the entries in the window that come after the given sequence number
+     *
+     * @param afterSequence sequence of the last entry the caller has seen or -1 for the whole window
+     * @param maxEntries max entries to return - if there are more, the newest are returned
+     * @return entries, oldest first. The sequence of the last entry is the caller's next <code>afterSequence</code>
+     */
+    public List<Entry>  getEntriesAfter(long afterSequence, int maxEntries)
+    {
+        long            end = nextSequence.get();
+        long            start = Math.max(afterSequence + 1, end - Math.min(ring.length(), Math.max(0, maxEntries)));
+        start = Math.max(start, firstSequence);
+
+        List<Entry>     entries = Lists.newArrayListWithCapacity((int)Math.max(0, end - start));
+        for ( long sequence = start; sequence < end; ++sequence )
+        {
+            Entry       entry = ring.get(slot(sequence));
+            if ( (entry == null) || (entry.sequence < sequence) )
+            {
+                break;  // claimed but not yet written - stop so that the caller doesn't skip past it
+            }
+            if ( entry.sequence == sequence )  // otherwise it has already been overwritten by a newer entry
+            {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Same as {@link #getEntriesAfter(long, int)} but if there are no new entries, waits for one to be added
+     *
+     * @param afterSequence sequence of the last entry the caller has seen or -1 for the whole window
+     * @param maxEntries max entries to return - if there are more, the newest are returned
+     * @param maxWait max time to wait
+     * @param unit time unit
+     * @return entries, oldest first - empty if none were added in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<Entry>  waitForEntriesAfter(long afterSequence, int maxEntries, long maxWait, TimeUnit unit) throws InterruptedException
+    {
+        long        waitUntilMs = System.currentTimeMillis() + unit.toMillis(maxWait);
+        waiterCount.incrementAndGet();
+        try
+        {
+            synchronized(waiterLock)
             {
-                public String apply(Message message)
+                for(;;)
                 {
-                    return message.date + separator + message.type + separator + message.text;
+                    long        remainingMs = waitUntilMs - System.currentTimeMillis();
+                    if ( (getLastSequence() > afterSequence) || (remainingMs <= 0) )
+                    {
+                        break;
+                    }
+                    waiterLock.wait(remainingMs);
                 }
             }
-        );
-        return Lists.reverse(ImmutableList.copyOf(transformed));
+        }
+        finally
+        {
+            waiterCount.decrementAndGet();
+        }
+        return getEntriesAfter(afterSequence, maxEntries);
     }
 
     /**
@@ -143,14 +286,41 @@ public class ActivityLog
             queueMessage += " (" + exceptionMessage + ")";
         }
 
-        while ( queue.size() > windowSizeLines )  // NOTE: due to concurrency, this may make the queue shorter than MAX - that's OK (and in some cases longer)
+        long            sequence = nextSequence.getAndIncrement();
+        Entry           entry = new Entry(sequence, System.currentTimeMillis(), queueMessage, type);
+        int             slot = slot(sequence);
+        for(;;)
         {
-            queue.remove();
+            // a slow writer must not overwrite a newer entry that has wrapped around into the same slot
+            Entry       current = ring.get(slot);
+            if ( ((current != null) && (current.sequence > sequence)) || ring.compareAndSet(slot, current, entry) )
+            {
+                break;
+            }
+        }
+        if ( waiterCount.get() > 0 )
+        {
+            synchronized(waiterLock)
+            {
+                waiterLock.notifyAll();
+            }
+        }
+        if ( store != null )
+        {
+            store.append(entry);
+        }
+        for ( Runnable listener : appendListeners )
+        {
+            listener.run();
         }
-        queue.add(new Message(queueMessage, type));
         type.log(message, exception);
     }
 
+    private int         slot(long sequence)
+    {
+        return (int)(sequence % ring.length());
+    }
+
     private String getExceptionMessage(Throwable exception)
     {
         StringWriter        out = new StringWriter();
@@ -0,0 +1,687 @@
+package com.netflix.exhibitor.core.activity;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ *     Append-only on-disk store for {@link ActivityLog} entries so that history survives restarts and
+ *     bursts that overflow the in-memory window. Entries are written to fixed size, memory-mapped segment
+ *     files. When a segment fills up a new one is started and the oldest segments beyond the max are deleted.
+ * </p>
+ *
+ * <p>
+ *     Each segment has a sparse index of (sequence, time, offset) - one point every {@link #INDEX_INTERVAL_BYTES} -
+ *     so that a time range query only scans the part of the segment it needs. The index is written next to the
+ *     segment when the segment is closed and rebuilt by scanning if it's missing (i.e. after a crash).
+ * </p>
+ *
+ * <p>
+ *     Each record has a CRC of everything after the length and checksum. A record with a bad length, type or CRC
+ *     (a torn write or corruption) ends the segment - both when it's scanned on open and when it's queried.
+ * </p>
+ *
+ * <p>
+ *     {@link #append(ActivityLog.Entry)} only queues the entry - a single writer thread writes them in batches.
+ *     If the writer falls too far behind, entries are dropped (and counted) rather than blocking the caller.
+ * </p>
+ */
+public class ActivityLogStore implements Closeable
+{
+    private static final Logger log = LoggerFactory.getLogger(ActivityLogStore.class);
+
+    private final File                          directory;
+    private final int                           segmentSize;
+    private final int                           maxSegments;
+    private final List<Segment>                 segments = new CopyOnWriteArrayList<Segment>();
+    private final BlockingQueue<ActivityLog.Entry>  queue = new LinkedBlockingQueue<ActivityLog.Entry>(MAX_QUEUED);
+    private final AtomicLong                    droppedCount = new AtomicLong(0);
+    private final long                          nextSequence;
+    private final Thread                        writerThread;
+
+    // only accessed by the writer (or by close() once the writer has stopped)
+    private Segment                             activeSegment;
+    private MappedByteBuffer                    activeBuffer;
+
+    public static final int         DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+    public static final int         DEFAULT_MAX_SEGMENTS = 32;
+
+    private static final int        MAX_QUEUED = 10000;
+    private static final int        MAX_BATCH = 1000;
+    private static final int        INDEX_INTERVAL_BYTES = 4096;
+    private static final int        CRC_OFFSET = 4;
+    private static final int        SEQUENCE_OFFSET = 8;                  // the CRC covers everything from here to the end of the record
+    private static final int        TIME_OFFSET = 16;
+    private static final int        TYPE_OFFSET = 24;
+    private static final int        RECORD_HEADER_SIZE = 25;              // length, CRC, sequence, time, type
+    private static final long       QUERY_SLACK_MS = 1000;                 // concurrent adds can be written slightly out of time order
+    private static final String     SEGMENT_PREFIX = "activity-";
+    private static final String     SEGMENT_SUFFIX = ".log";
+    private static final String     INDEX_SUFFIX = ".idx";
+
+    private static final ActivityLog.Type[] TYPES = ActivityLog.Type.values();
+
+    private static final ActivityLog.Entry  STOP_MARKER = new ActivityLog.Entry(-1, 0, "", ActivityLog.Type.INFO);
+
+    /**
+     * A segment file and its sparse index
+     */
+    private static class Segment
+    {
+        final File          file;
+        final long          firstSequence;
+
+        // written by the writer, read by queries
+        volatile int        size = 0;
+        volatile long       lastSequence = -1;
+        volatile long       firstTime = Long.MAX_VALUE;
+        volatile long       lastTime = Long.MIN_VALUE;
+        volatile long[]     indexTimes = new long[16];
+        volatile int[]      indexOffsets = new int[16];
+        volatile int        indexCount = 0;
+        volatile ByteBuffer readBuffer = null;      // shared by queries - a shared mapping sees the writer's records
+
+        Segment(File file, long firstSequence)
+        {
+            this.file = file;
+            this.firstSequence = firstSequence;
+        }
+
+        File        getIndexFile()
+        {
+            return new File(file.getParentFile(), file.getName() + INDEX_SUFFIX);
+        }
+
+        /**
+         * @return read only mapping of the segment - mapped once and then reused
+         * @throws IOException errors
+         */
+        ByteBuffer  getReadBuffer() throws IOException
+        {
+            ByteBuffer      buffer = readBuffer;
+            if ( buffer == null )
+            {
+                // racing queries may both map it - harmless
+                buffer = map(file, FileChannel.MapMode.READ_ONLY);
+                readBuffer = buffer;
+            }
+            return buffer;
+        }
+
+        void        recordWritten(long sequence, long time, int offset, int length)
+        {
+            if ( (indexCount == 0) || (offset >= (indexOffsets[indexCount - 1] + INDEX_INTERVAL_BYTES)) )
+            {
+                if ( indexCount == indexTimes.length )
+                {
+                    indexTimes = Arrays.copyOf(indexTimes, indexCount * 2);
+                    indexOffsets = Arrays.copyOf(indexOffsets, indexCount * 2);
+                }
+                indexTimes[indexCount] = time;
+                indexOffsets[indexCount] = offset;
+                ++indexCount;
+            }
+            firstTime = Math.min(firstTime, time);
+            lastTime = Math.max(lastTime, time);
+            lastSequence = Math.max(lastSequence, sequence);
+            size = offset + length;     // publishes the record to queries
+        }
+
+        /**
+         * @param fromTime start of the range
+         * @return offset to start scanning at for the given time
+         */
+        int         findOffset(long fromTime)
+        {
+            int         localCount = indexCount;
+            long[]      localTimes = indexTimes;
+            int[]       localOffsets = indexOffsets;
+            int         low = 0;
+            int         high = localCount - 1;
+            int         result = 0;
+            while ( low <= high )
+            {
+                int     mid = (low + high) >>> 1;
+                if ( (localTimes[mid] + QUERY_SLACK_MS) < fromTime )
+                {
+                    result = localOffsets[mid];
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid - 1;
+                }
+            }
+            return result;
+        }
+
+        void        writeIndex() throws IOException
+        {
+            DataOutputStream    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexFile())));
+            try
+            {
+                out.writeInt(size);
+                out.writeLong(lastSequence);
+                out.writeLong(firstTime);
+                out.writeLong(lastTime);
+                out.writeInt(indexCount);
+                for ( int i = 0; i < indexCount; ++i )
+                {
+                    out.writeLong(indexTimes[i]);
+                    out.writeInt(indexOffsets[i]);
+                }
+            }
+            finally
+            {
+                Closeables.closeQuietly(out);
+            }
+        }
+
+        boolean     readIndex()
+        {
+            File                indexFile = getIndexFile();
+            if ( !indexFile.exists() )
+            {
+                return false;
+            }
+
+            DataInputStream     in = null;
+            try
+            {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+                int         localSize = in.readInt();
+                long        localLastSequence = in.readLong();
+                long        localFirstTime = in.readLong();
+                long        localLastTime = in.readLong();
+                int         count = in.readInt();
+                long[]      times = new long[Math.max(16, count)];
+                int[]       offsets = new int[Math.max(16, count)];
+                for ( int i = 0; i < count; ++i )
+                {
+                    times[i] = in.readLong();
+                    offsets[i] = in.readInt();
+                }
+
+                indexTimes = times;
+                indexOffsets = offsets;
+                indexCount = count;
+                firstTime = localFirstTime;
+                lastTime = localLastTime;
+                lastSequence = localLastSequence;
+                size = localSize;
+                return true;
+            }
+            catch ( IOException e )
+            {
+                log.warn("Could not read activity log index - it will be rebuilt: " + indexFile, e);
+                return false;
+            }
+            finally
+            {
+                Closeables.closeQuietly(in);
+            }
+        }
+    }
+
+    /**
+     * @param directory where to keep the segments
+     * @throws IOException errors
+     */
+    public ActivityLogStore(File directory) throws IOException
+    {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * @param directory where to keep the segments
+     * @param segmentSize size of each segment file in bytes
+     * @param maxSegments max segments to keep - the oldest are deleted
+     * @throws IOException errors
+     */
+    public ActivityLogStore(File directory, int segmentSize, int maxSegments) throws IOException
+    {
+        this.directory = directory;
+        this.segmentSize = Math.max(segmentSize, INDEX_INTERVAL_BYTES);
+        this.maxSegments = Math.max(maxSegments, 1);
+        if ( !directory.exists() && !directory.mkdirs() )
+        {
+            throw new IOException("Could not make: " + directory);
+        }
+
+        openSegments();
+        Segment     last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        nextSequence = (last != null) ? Math.max(last.firstSequence, last.lastSequence + 1) : 0;
+        if ( last != null )
+        {
+            // keep appending to the newest segment. Its index is rewritten when it's closed
+            activeSegment = last;
+            activeBuffer = map(last.file, FileChannel.MapMode.READ_WRITE);
+            activeBuffer.position(last.size);
+            clearTail(activeBuffer);
+            if ( last.getIndexFile().exists() && !last.getIndexFile().delete() )
+            {
+                log.warn("Could not delete: " + last.getIndexFile());
+            }
+        }
+
+        writerThread = new ThreadFactoryBuilder().setNameFormat("activity-log-store-%d").setDaemon(true).build().newThread
+        (
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    runWriter();
+                }
+            }
+        );
+        writerThread.start();
+    }
+
+    /**
+     * @return the sequence number the next entry should have - one past the last stored entry
+     */
+    public long getNextSequence()
+    {
+        return nextSequence;
+    }
+
+    /**
+     * @return number of entries that were dropped because the writer fell behind
+     */
+    public long getDroppedCount()
+    {
+        return droppedCount.get();
+    }
+
+    /**
+     * Return stored entries in the given time range
+     *
+     * @param fromTime start of the range (inclusive)
+     * @param toTime end of the range (inclusive)
+     * @param types types to return or null for all
+     * @param maxEntries max entries to return
+     * @return entries, oldest first
+     * @throws IOException errors
+     */
+    public List<ActivityLog.Entry> query(long fromTime, long toTime, Collection<ActivityLog.Type> types, int maxEntries) throws IOException
+    {
+        List<ActivityLog.Entry>     entries = Lists.newArrayList();
+        for ( Segment segment : segments )
+        {
+            if ( (segment.size == 0) || (segment.lastTime < fromTime) || (segment.firstTime > toTime) )
+            {
+                continue;
+            }
+
+            ByteBuffer      buffer;
+            try
+            {
+                buffer = segment.getReadBuffer();
+            }
+            catch ( IOException e )
+            {
+                continue;   // deleted by rotation since the list was read
+            }
+
+            int             end = segment.size;
+            int             offset = segment.findOffset(fromTime);
+            for(;;)
+            {
+                int         length = getRecordLength(buffer, offset, end);
+                if ( length < 0 )
+                {
+                    break;
+                }
+                long        sequence = buffer.getLong(offset + SEQUENCE_OFFSET);
+                long        time = buffer.getLong(offset + TIME_OFFSET);
+                if ( (time - QUERY_SLACK_MS) > toTime )
+                {
+                    break;
+                }
+
+                ActivityLog.Type    type = TYPES[buffer.get(offset + TYPE_OFFSET)];
+                if ( (time >= fromTime) && (time <= toTime) && ((types == null) || types.contains(type)) )
+                {
+                    // only records that are returned are read in full - so that's where the CRC is checked
+                    byte[]      checked = getCheckedBytes(buffer, offset, length);
+                    if ( checked == null )
+                    {
+                        log.warn("Corrupt activity log record at " + offset + " in: " + segment.file);
+                        break;
+                    }
+                    entries.add(new ActivityLog.Entry(sequence, time, new String(checked, RECORD_HEADER_SIZE - SEQUENCE_OFFSET, length - RECORD_HEADER_SIZE, Charsets.UTF_8), type));
+                    if ( entries.size() >= maxEntries )
+                    {
+                        return entries;
+                    }
+                }
+                offset += length;
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        // interrupting a write would close the segment's channel - so the writer is asked to stop instead
+        if ( !queue.offer(STOP_MARKER) )
+        {
+            writerThread.interrupt();
+        }
+        try
+        {
+            writerThread.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        // write whatever the writer didn't get to
+        List<ActivityLog.Entry>     remaining = Lists.newArrayList();
+        queue.drainTo(remaining);
+        write(remaining);
+
+        if ( activeSegment != null )
+        {
+            activeBuffer.force();
+            activeSegment.writeIndex();
+        }
+    }
+
+    void            append(ActivityLog.Entry entry)
+    {
+        if ( !queue.offer(entry) )
+        {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    private void    runWriter()
+    {
+        List<ActivityLog.Entry>     batch = Lists.newArrayList();
+        try
+        {
+            boolean     done = false;
+            while ( !done )
+            {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                done = batch.remove(STOP_MARKER);
+                write(batch);
+                batch.clear();
+            }
+        }
+        catch ( InterruptedException dummy )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( Throwable e )
+        {
+            log.error("Activity log store writer failed - entries will no longer be stored", e);
+        }
+    }
+
+    private void    write(List<ActivityLog.Entry> batch)
+    {
+        // concurrent adders can queue entries slightly out of order
+        Collections.sort
+        (
+            batch,
+            new Comparator<ActivityLog.Entry>()
+            {
+                @Override
+                public int compare(ActivityLog.Entry entry1, ActivityLog.Entry entry2)
+                {
+                    return (entry1.getSequence() < entry2.getSequence()) ? -1 : ((entry1.getSequence() == entry2.getSequence()) ? 0 : 1);
+                }
+            }
+        );
+
+        for ( ActivityLog.Entry entry : batch )
+        {
+            try
+            {
+                writeEntry(entry);
+            }
+            catch ( IOException e )
+            {
+                droppedCount.incrementAndGet();
+                log.error("Could not store activity log entry", e);
+            }
+        }
+    }
+
+    private void    writeEntry(ActivityLog.Entry entry) throws IOException
+    {
+        byte[]      text = entry.getText().getBytes(Charsets.UTF_8);
+        int         maxText = segmentSize - RECORD_HEADER_SIZE - 4;     // leave room for the end marker
+        if ( text.length > maxText )
+        {
+            text = Arrays.copyOf(text, maxText);
+        }
+        int         length = RECORD_HEADER_SIZE + text.length;
+
+        if ( (activeSegment == null) || ((activeBuffer.position() + length + 4) > segmentSize) )
+        {
+            rotate(entry.getSequence());
+        }
+
+        ByteBuffer  checked = ByteBuffer.allocate(length - SEQUENCE_OFFSET);
+        checked.putLong(entry.getSequence());
+        checked.putLong(entry.getTime());
+        checked.put((byte)entry.getType().ordinal());
+        checked.put(text);
+
+        int         offset = activeBuffer.position();
+        activeBuffer.putInt(length);
+        activeBuffer.putInt(getCrc(checked.array()));
+        activeBuffer.put(checked.array());
+        activeSegment.recordWritten(entry.getSequence(), entry.getTime(), offset, length);
+    }
+
+    private void    rotate(long firstSequence) throws IOException
+    {
+        if ( activeSegment != null )
+        {
+            activeBuffer.force();
+            activeSegment.writeIndex();
+        }
+
+        Segment             segment = new Segment(new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX)), firstSequence);
+        RandomAccessFile    file = new RandomAccessFile(segment.file, "rw");
+        try
+        {
+            file.setLength(segmentSize);
+        }
+        finally
+        {
+            Closeables.closeQuietly(file);
+        }
+        try
+        {
+            activeBuffer = map(segment.file, FileChannel.MapMode.READ_WRITE);
+        }
+        catch ( IOException e )
+        {
+            if ( !segment.file.delete() )
+            {
+                log.warn("Could not delete: " + segment.file);
+            }
+            throw e;
+        }
+        activeSegment = segment;
+        segments.add(segment);
+
+        while ( segments.size() > maxSegments )
+        {
+            Segment     oldest = segments.remove(0);
+            if ( !oldest.file.delete() || (oldest.getIndexFile().exists() && !oldest.getIndexFile().delete()) )
+            {
+                log.warn("Could not delete activity log segment: " + oldest.file);
+            }
+        }
+    }
+
+    private void    openSegments() throws IOException
+    {
+        File[]          files = directory.listFiles();
+        List<Segment>   found = Lists.newArrayList();
+        for ( File file : (files != null) ? files : new File[0] )
+        {
+            String      name = file.getName();
+            if ( name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX) )
+            {
+                try
+                {
+                    found.add(new Segment(file, Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+                }
+                catch ( NumberFormatException ignore )
+                {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort
+        (
+            found,
+            new Comparator<Segment>()
+            {
+                @Override
+                public int compare(Segment segment1, Segment segment2)
+                {
+                    return (segment1.firstSequence < segment2.firstSequence) ? -1 : ((segment1.firstSequence == segment2.firstSequence) ? 0 : 1);
+                }
+            }
+        );
+
+        for ( Segment segment : found )
+        {
+            if ( !segment.readIndex() )
+            {
+                scan(segment);
+            }
+        }
+        segments.addAll(found);
+    }
+
+    private void    scan(Segment segment) throws IOException
+    {
+        ByteBuffer          buffer = segment.getReadBuffer();
+        int                 offset = 0;
+        for(;;)
+        {
+            int         length = getRecordLength(buffer, offset, buffer.capacity());
+            if ( (length < 0) || (getCheckedBytes(buffer, offset, length) == null) )
+            {
+                break;  // end marker, a torn write or corruption
+            }
+            segment.recordWritten(buffer.getLong(offset + SEQUENCE_OFFSET), buffer.getLong(offset + TIME_OFFSET), offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * @param buffer segment
+     * @param offset offset of the record
+     * @param end end of the readable part of the segment
+     * @return the record's length or -1 if its length or type isn't valid
+     */
+    private static int getRecordLength(ByteBuffer buffer, int offset, int end)
+    {
+        if ( (offset + RECORD_HEADER_SIZE) > end )
+        {
+            return -1;
+        }
+        int         length = buffer.getInt(offset);
+        if ( (length < RECORD_HEADER_SIZE) || (length > (end - offset)) )
+        {
+            return -1;
+        }
+        int         type = buffer.get(offset + TYPE_OFFSET);
+        if ( (type < 0) || (type >= TYPES.length) )
+        {
+            return -1;
+        }
+        return length;
+    }
+
+    /**
+     * @param buffer segment
+     * @param offset offset of the record
+     * @param length the record's length
+     * @return the CRC covered bytes of the record or null if the CRC doesn't match
+     */
+    private static byte[] getCheckedBytes(ByteBuffer buffer, int offset, int length)
+    {
+        byte[]      checked = new byte[length - SEQUENCE_OFFSET];
+        ByteBuffer  duplicate = buffer.duplicate();
+        duplicate.position(offset + SEQUENCE_OFFSET);
+        duplicate.get(checked);
+        return (getCrc(checked) == buffer.getInt(offset + CRC_OFFSET)) ? checked : null;
+    }
+
+    private static int getCrc(byte[] bytes)
+    {
+        CRC32       crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int)crc.getValue();
+    }
+
+    /**
+     * After a crash there can be a partly written record past the last complete one. Zero everything
+     * from the buffer's position to the end so that it can't be read back as part of a later record
+     */
+    private static void clearTail(ByteBuffer buffer)
+    {
+        ByteBuffer      tail = buffer.duplicate();
+        byte[]          zeros = new byte[INDEX_INTERVAL_BYTES];
+        while ( tail.hasRemaining() )
+        {
+            tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+        }
+    }
+
+    private static MappedByteBuffer map(File file, FileChannel.MapMode mode) throws IOException
+    {
+        RandomAccessFile    randomAccessFile = new RandomAccessFile(file, (mode == FileChannel.MapMode.READ_ONLY) ? "r" : "rw");
+        try
+        {
+            // the mapping stays valid after the file is closed
+            return randomAccessFile.getChannel().map(mode, 0, randomAccessFile.length());
+        }
+        finally
+        {
+            Closeables.closeQuietly(randomAccessFile);
+        }
+    }
+}
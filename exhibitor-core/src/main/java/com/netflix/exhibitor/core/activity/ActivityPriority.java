@@ -0,0 +1,12 @@
+package com.netflix.exhibitor.core.activity;
+
+/**
+ * Priority of an activity within its queue group. Of the activities that are due, higher
+ * priorities run first. Activities of the same priority run in the order they became due
+ */
+public enum ActivityPriority
+{
+    HIGH,
+    NORMAL,
+    LOW
+}
@@ -1,90 +1,93 @@
 package com.netflix.exhibitor.core.activity;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.Delayed;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A queue for activities
+ * A queue for activities. Each {@link QueueGroups} has its own workers and its own lock. Adding,
+ * replacing and cancelling are O(log n). Queued activities are tracked via {@link ActivityHandle}s - the
+ * most recently completed ones are kept for display
  */
 public class ActivityQueue implements Closeable
 {
     private static final Logger log = LoggerFactory.getLogger(ActivityQueue.class);
 
-    private final ExecutorService               service = Executors.newCachedThreadPool();
-    private final Map<QueueGroups, DelayQueue<ActivityHolder>> queues;
+    private final ExecutorService               service;
+    private final Map<QueueGroups, GroupQueue>  queues;
+    private final Map<QueueGroups, Integer>     workerCounts;
+    private final AtomicLong                    sequence = new AtomicLong(0);
+    private final ConcurrentMap<Long, ActivityHandle>       activeHandles = Maps.newConcurrentMap();
+    private final Map<QueueGroups, Deque<ActivityHandle>>   recentHandles;
+    private volatile boolean                    isOpen = true;
 
-    private static class ActivityHolder implements Delayed
-    {
-        private final Activity      activity;
-        private final long          endMs;
-
-        private ActivityHolder(Activity activity, long delayMs)
-        {
-            this.activity = activity;
-            endMs = System.currentTimeMillis() + delayMs;
-        }
+    private static final int        MAX_RECENT_PER_GROUP = 20;
 
+    private static final Comparator<ActivityHandle>     ID_ORDER = new Comparator<ActivityHandle>()
+    {
         @Override
-        public long getDelay(TimeUnit unit)
+        public int compare(ActivityHandle handle1, ActivityHandle handle2)
         {
-            return unit.convert(endMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            return (handle1.getId() < handle2.getId()) ? -1 : ((handle1.getId() == handle2.getId()) ? 0 : 1);
         }
+    };
 
-        @Override
-        // Note: this class has a natural ordering that is inconsistent with equals
-        public int compareTo(Delayed rhs)
-        {
-            if ( rhs == this )
-            {
-                return 0;
-            }
-
-            long    diff = getDelay(TimeUnit.MILLISECONDS) - rhs.getDelay(TimeUnit.MILLISECONDS);
-            return (diff == 0) ? 0 : ((diff < 0) ? -1 : 1);
-        }
-
-        @Override
-        public boolean equals(Object o)
-        {
-            if ( this == o )
-            {
-                return true;
-            }
-            if ( o == null || getClass() != o.getClass() )
-            {
-                return false;
-            }
-
-            ActivityHolder rhs = (ActivityHolder)o;
-            return activity == rhs.activity;    // ID comparison on purpose
-        }
+    public ActivityQueue()
+    {
+        this(null);
+    }
 
-        @Override
-        public int hashCode()
-        {
-            int result = activity.hashCode();
-            result = 31 * result + (int)(endMs ^ (endMs >>> 32));
-            return result;
-        }
+    /**
+     * @param workerCounts number of workers for each group - groups that aren't in the map (or a null map)
+     *                     get {@link QueueGroups#getDefaultWorkerCount()}. Serial groups always get one worker
+     */
+    public ActivityQueue(Map<QueueGroups, Integer> workerCounts)
+    {
+        this(workerCounts, new ExecutorFactory());
     }
 
-    public ActivityQueue()
+    /**
+     * @param workerCounts number of workers for each group - groups that aren't in the map (or a null map)
+     *                     get {@link QueueGroups#getDefaultWorkerCount()}. Serial groups always get one worker
+     * @param executorFactory creates the worker threads
+     */
+    public ActivityQueue(Map<QueueGroups, Integer> workerCounts, ExecutorFactory executorFactory)
     {
-        ImmutableMap.Builder<QueueGroups, DelayQueue<ActivityHolder>>   builder = ImmutableMap.builder();
+        service = executorFactory.newExecutor("activity-queue");
+
+        ImmutableMap.Builder<QueueGroups, GroupQueue>   builder = ImmutableMap.builder();
+        ImmutableMap.Builder<QueueGroups, Integer>      countsBuilder = ImmutableMap.builder();
+        ImmutableMap.Builder<QueueGroups, Deque<ActivityHandle>>    recentBuilder = ImmutableMap.builder();
         for ( QueueGroups group : QueueGroups.values() )
         {
-            builder.put(group, new DelayQueue<ActivityHolder>());
+            builder.put(group, new GroupQueue(this, group));
+            recentBuilder.put(group, new ArrayDeque<ActivityHandle>());
+
+            Integer     count = (workerCounts != null) ? workerCounts.get(group) : null;
+            if ( group.isSerial() && (count != null) && (count != 1) )
+            {
+                log.warn(String.format("Queue group %s is serial - ignoring worker count of %d", group, count));
+            }
+            countsBuilder.put(group, group.isSerial() ? 1 : Math.max(1, (count != null) ? count : group.getDefaultWorkerCount()));
         }
         queues = builder.build();
+        this.workerCounts = countsBuilder.build();
+        recentHandles = recentBuilder.build();
     }
 
     /**
@@ -94,96 +97,333 @@ public class ActivityQueue implements Closeable
     {
         for ( QueueGroups group : QueueGroups.values() )
         {
-            final DelayQueue<ActivityHolder>      thisQueue = queues.get(group);
-            service.submit
-            (
-                new Runnable()
-                {
-                    @Override
-                    public void run()
+            final GroupQueue        thisQueue = queues.get(group);
+            for ( int i = 0; i < workerCounts.get(group); ++i )
+            {
+                service.submit
+                (
+                    new Runnable()
                     {
-                        try
+                        @Override
+                        public void run()
                         {
-                            while ( !Thread.currentThread().isInterrupted() )
+                            try
                             {
-                                ActivityHolder holder = thisQueue.take();
-                                try
-                                {
-                                    Boolean result = holder.activity.call();
-                                    holder.activity.completed((result != null) && result);
-                                }
-                                catch ( Throwable e )
+                                while ( isOpen && !Thread.currentThread().isInterrupted() )
                                 {
-                                    log.error("Unhandled exception in background task", e);
+                                    ActivityHolder  holder = thisQueue.take();
+                                    boolean         result = false;
+                                    try
+                                    {
+                                        if ( holder.handle.start(Thread.currentThread()) )
+                                        {
+                                            Boolean     callResult = holder.activity.call();
+                                            result = (callResult != null) && callResult;
+                                            holder.activity.completed(result);
+                                        }
+                                        else
+                                        {
+                                            completeCancelled(holder.activity);
+                                        }
+                                    }
+                                    catch ( Throwable e )
+                                    {
+                                        log.error("Unhandled exception in background task", e);
+                                    }
+                                    thisQueue.finished(holder);
+                                    List<Activity>  coalesced = holder.handle.finish(result);
+
+                                    // a cancel can't interrupt the worker once the handle has finished - clear any interrupt it left
+                                    // behind so that it doesn't hit the next activity. close() is detected via isOpen instead
+                                    Thread.interrupted();
+                                    complete(coalesced, result);
                                 }
                             }
-                        }
-                        catch ( InterruptedException dummy )
-                        {
-                            Thread.currentThread().interrupt();
+                            catch ( InterruptedException dummy )
+                            {
+                                Thread.currentThread().interrupt();
+                            }
                         }
                     }
-                }
-            );
+                );
+            }
         }
     }
 
+    /**
+     * Return the number of workers for the given group
+     *
+     * @param group the group
+     * @return worker count
+     */
+    public int      getWorkerCount(QueueGroups group)
+    {
+        return workerCounts.get(group);
+    }
+
     /**
      * Add an activity to the given queue
      *
-     * @param group the queue - all activities within a queue are executed serially
+     * @param group the queue - activities within a serial queue are executed one at a time
      * @param activity the activity
+     * @return handle for the activity - if coalesced into a queued or running {@link KeyedActivity} with the same key, the handle of that activity
      */
-    public synchronized void     add(QueueGroups group, Activity activity)
+    public ActivityHandle add(QueueGroups group, Activity activity)
     {
-        add(group, activity, 0, TimeUnit.MILLISECONDS);
+        return add(group, activity, ActivityPriority.NORMAL, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Add an activity to the given queue with the given priority
+     *
+     * @param group the queue - activities within a serial queue are executed one at a time
+     * @param activity the activity
+     * @param priority the priority
+     * @return handle for the activity - if coalesced into a queued or running {@link KeyedActivity} with the same key, the handle of that activity
+     */
+    public ActivityHandle add(QueueGroups group, Activity activity, ActivityPriority priority)
+    {
+        return add(group, activity, priority, 0, TimeUnit.MILLISECONDS);
     }
 
     /**
      * Add an activity to the given queue that executes after a specified delay
      *
-     * @param group the queue - all activities within a queue are executed serially
+     * @param group the queue - activities within a serial queue are executed one at a time
      * @param activity the activity
      * @param delay the delay
      * @param unit the delay unit
+     * @return handle for the activity - if coalesced into a queued or running {@link KeyedActivity} with the same key, the handle of that activity
+     */
+    public ActivityHandle add(QueueGroups group, Activity activity, long delay, TimeUnit unit)
+    {
+        return add(group, activity, ActivityPriority.NORMAL, delay, unit);
+    }
+
+    /**
+     * Add an activity to the given queue that executes after a specified delay
+     *
+     * @param group the queue - activities within a serial queue are executed one at a time
+     * @param activity the activity
+     * @param priority the priority
+     * @param delay the delay
+     * @param unit the delay unit
+     * @return handle for the activity - if coalesced into a queued or running {@link KeyedActivity} with the same key, the handle of that activity
+     */
+    public ActivityHandle add(QueueGroups group, Activity activity, ActivityPriority priority, long delay, TimeUnit unit)
+    {
+        return queues.get(group).offer(newHolder(activity, priority, delay, unit), false);
+    }
+
+    /**
+     * Remove the given activity from the given queue. Has no effect on an activity that is already running.
+     * The activity and any activities that were coalesced into it are completed as unsuccessful
+     *
+     * @param group the queue
+     * @param activity the activity
+     * @return true if the activity was queued
+     */
+    public boolean  cancel(QueueGroups group, Activity activity)
+    {
+        List<ActivityHandle>    removed = queues.get(group).cancel(activity);
+        if ( removed == null )
+        {
+            return false;
+        }
+        completeCancelled(activity);
+        for ( ActivityHandle handle : removed )
+        {
+            complete(handle.finishCancelled(), false);
+        }
+        return true;
+    }
+
+    /**
+     * Return the handles of the queued and running activities followed by the most recently completed ones
+     *
+     * @return handles ordered by id within each part
+     */
+    public List<ActivityHandle> getHandles()
+    {
+        List<ActivityHandle>    active = Lists.newArrayList(activeHandles.values());
+        Collections.sort(active, ID_ORDER);
+
+        List<ActivityHandle>    recent = Lists.newArrayList();
+        for ( Deque<ActivityHandle> deque : recentHandles.values() )
+        {
+            synchronized(deque)
+            {
+                recent.addAll(deque);
+            }
+        }
+        Collections.sort(recent, ID_ORDER);
+
+        active.addAll(recent);
+        return active;
+    }
+
+    /**
+     * Return the handle with the given id if it's active or recent
+     *
+     * @param id handle id
+     * @return handle or null
+     */
+    public ActivityHandle getHandle(long id)
+    {
+        ActivityHandle      handle = activeHandles.get(id);
+        if ( handle == null )
+        {
+            for ( ActivityHandle recent : getHandles() )
+            {
+                if ( recent.getId() == id )
+                {
+                    return recent;
+                }
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * Return the number of activities waiting in the given queue
+     *
+     * @param group the queue
+     * @return count
      */
-    public synchronized void     add(QueueGroups group, Activity activity, long delay, TimeUnit unit)
+    public int      getQueuedCount(QueueGroups group)
     {
-        ActivityHolder  holder = new ActivityHolder(activity, TimeUnit.MILLISECONDS.convert(delay, unit));
-        queues.get(group).offer(holder);
+        return queues.get(group).size();
     }
 
     @Override
     public void close() throws IOException
     {
+        isOpen = false;
         service.shutdownNow();
     }
 
     /**
      * Replace the given activity in the given queue. If not in the queue, adds it to the queue.
      *
-     * @param group the queue - all activities within a queue are executed serially
+     * @param group the queue - activities within a serial queue are executed one at a time
      * @param activity the activity
+     * @return handle for the activity - the handle of the replaced entry if there was one
      */
-    public synchronized void     replace(QueueGroups group, Activity activity)
+    public ActivityHandle replace(QueueGroups group, Activity activity)
     {
-        replace(group, activity, 0, TimeUnit.MILLISECONDS);
+        return replace(group, activity, ActivityPriority.NORMAL, 0, TimeUnit.MILLISECONDS);
     }
 
     /**
      * Replace the given activity in the given queue. If not in the queue, adds it to the queue. The activity
      * runs after the specified delay (the delay of the previous entry, if any, is ignored)
      *
-     * @param group the queue - all activities within a queue are executed serially
+     * @param group the queue - activities within a serial queue are executed one at a time
      * @param activity the activity
      * @param delay the delay
      * @param unit the delay unit
+     * @return handle for the activity - the handle of the replaced entry if there was one
      */
-    public synchronized void     replace(QueueGroups group, Activity activity, long delay, TimeUnit unit)
+    public ActivityHandle replace(QueueGroups group, Activity activity, long delay, TimeUnit unit)
+    {
+        return replace(group, activity, ActivityPriority.NORMAL, delay, unit);
+    }
+
+    /**
+     * Replace the given activity in the given queue. If not in the queue, adds it to the queue. The activity
+     * runs after the specified delay with the given priority (the delay and priority of the previous entry, if any, are ignored)
+     *
+     * @param group the queue - activities within a serial queue are executed one at a time
+     * @param activity the activity
+     * @param priority the priority
+     * @param delay the delay
+     * @param unit the delay unit
+     * @return handle for the activity - the handle of the replaced entry if there was one
+     */
+    public ActivityHandle replace(QueueGroups group, Activity activity, ActivityPriority priority, long delay, TimeUnit unit)
+    {
+        return queues.get(group).offer(newHolder(activity, priority, delay, unit), true);
+    }
+
+    ActivityHandle  newHandle(QueueGroups group, Activity activity, long id)
+    {
+        ActivityHandle      handle = new ActivityHandle(this, group, activity, id);
+        activeHandles.put(id, handle);
+        return handle;
+    }
+
+    void            cancel(ActivityHandle handle)
+    {
+        if ( queues.get(handle.getGroup()).cancel(handle) )
+        {
+            completeCancelled(handle.getActivity());
+            complete(handle.finishCancelled(), false);
+        }
+    }
+
+    void            finished(ActivityHandle handle)
+    {
+        activeHandles.remove(handle.getId());
+
+        Deque<ActivityHandle>   deque = recentHandles.get(handle.getGroup());
+        synchronized(deque)
+        {
+            if ( handle.getActivity() instanceof RepeatingActivity.Execution )
+            {
+                // repeating activities are re-queued after every execution - only keep the latest of each
+                Iterator<ActivityHandle>    iterator = deque.iterator();
+                while ( iterator.hasNext() )
+                {
+                    if ( iterator.next().getActivity() == handle.getActivity() )
+                    {
+                        iterator.remove();
+                    }
+                }
+            }
+            deque.addLast(handle);
+            while ( deque.size() > MAX_RECENT_PER_GROUP )
+            {
+                deque.removeFirst();
+            }
+        }
+    }
+
+    private void    completeCancelled(Activity activity)
+    {
+        try
+        {
+            activity.completed(false);
+            if ( activity instanceof RepeatingActivity.Execution )
+            {
+                ((RepeatingActivity.Execution)activity).cancelled();
+            }
+        }
+        catch ( Throwable e )
+        {
+            log.error("Unhandled exception completing cancelled task", e);
+        }
+    }
+
+    private void    complete(List<Activity> coalesced, boolean result)
+    {
+        if ( coalesced != null )
+        {
+            for ( Activity activity : coalesced )
+            {
+                try
+                {
+                    activity.completed(result);
+                }
+                catch ( Throwable e )
+                {
+                    log.error("Unhandled exception completing coalesced task", e);
+                }
+            }
+        }
+    }
+
+    private ActivityHolder newHolder(Activity activity, ActivityPriority priority, long delay, TimeUnit unit)
     {
-        ActivityHolder  holder = new ActivityHolder(activity, TimeUnit.MILLISECONDS.convert(delay, unit));
-        DelayQueue<ActivityHolder> queue = queues.get(group);
-        queue.remove(holder);
-        queue.offer(holder);
+        return new ActivityHolder(activity, priority, System.currentTimeMillis() + TimeUnit.MILLISECONDS.convert(delay, unit), sequence.getAndIncrement());
     }
 }
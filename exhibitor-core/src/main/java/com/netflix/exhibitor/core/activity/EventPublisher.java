@@ -0,0 +1,192 @@
+package com.netflix.exhibitor.core.activity;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes instance state transitions and config changes and wakes subscribers when either those or
+ * {@link ActivityLog} entries arrive. Subscribers long-poll with the last sequences they've seen so
+ * one publisher serves any number of them and each poll only costs the new entries
+ */
+public class EventPublisher
+{
+    private final ActivityLog       log;
+    private final Event[]           ring;
+    private final AtomicInteger     waiterCount = new AtomicInteger(0);
+
+    private long                    nextSequence = 0;   // guarded by sync
+
+    private static final int        DEFAULT_WINDOW_SIZE = 100;
+
+    /**
+     * Event types
+     */
+    public enum Type
+    {
+        /**
+         * The instance state changed - the data is the state description
+         */
+        INSTANCE_STATE,
+
+        /**
+         * The config changed
+         */
+        CONFIG
+    }
+
+    public static class Event
+    {
+        private final long      sequence;
+        private final long      time = System.currentTimeMillis();
+        private final Type      type;
+        private final String    data;
+
+        private Event(long sequence, Type type, String data)
+        {
+            this.sequence = sequence;
+            this.type = type;
+            this.data = data;
+        }
+
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        public long getTime()
+        {
+            return time;
+        }
+
+        public Type getType()
+        {
+            return type;
+        }
+
+        /**
+         * @return event specific data or null
+         */
+        public String getData()
+        {
+            return data;
+        }
+    }
+
+    public EventPublisher(ActivityLog log)
+    {
+        this(log, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param log the log - subscribers are woken when entries are added to it
+     * @param windowSize number of events to keep
+     */
+    public EventPublisher(ActivityLog log, int windowSize)
+    {
+        this.log = log;
+        ring = new Event[Math.max(1, windowSize)];
+        log.addAppendListener
+        (
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    wakeWaiters();
+                }
+            }
+        );
+    }
+
+    /**
+     * Publish an event
+     *
+     * @param type event type
+     * @param data event specific data or null
+     */
+    public synchronized void publish(Type type, String data)
+    {
+        long        sequence = nextSequence++;
+        ring[(int)(sequence % ring.length)] = new Event(sequence, type, data);
+        notifyAll();
+    }
+
+    /**
+     * @return sequence of the most recent event or -1
+     */
+    public synchronized long getLastSequence()
+    {
+        return nextSequence - 1;
+    }
+
+    /**
+     * Return the events in the window that come after the given sequence
+     *
+     * @param afterSequence sequence of the last event the caller has seen or -1
+     * @return events, oldest first
+     */
+    public synchronized List<Event> getEventsAfter(long afterSequence)
+    {
+        long            start = Math.max(Math.max(afterSequence + 1, nextSequence - ring.length), 0);
+        List<Event>     events = Lists.newArrayList();
+        for ( long sequence = start; sequence < nextSequence; ++sequence )
+        {
+            events.add(ring[(int)(sequence % ring.length)]);
+        }
+        return events;
+    }
+
+    /**
+     * Wait until the log or the events have moved on from the given sequences. Sequences that are
+     * ahead of the current ones (i.e. the subscriber saw a previous instance) also count as a change
+     *
+     * @param logSequence last log sequence the caller has seen
+     * @param eventSequence last event sequence the caller has seen
+     * @param maxWait max time to wait
+     * @param unit time unit
+     * @return true if there was a change, false if timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean waitForChange(long logSequence, long eventSequence, long maxWait, TimeUnit unit) throws InterruptedException
+    {
+        long        waitUntilMs = System.currentTimeMillis() + unit.toMillis(maxWait);
+        waiterCount.incrementAndGet();
+        try
+        {
+            synchronized(this)
+            {
+                for(;;)
+                {
+                    if ( (log.getLastSequence() != logSequence) || (getLastSequence() != eventSequence) )
+                    {
+                        return true;
+                    }
+                    long        remainingMs = waitUntilMs - System.currentTimeMillis();
+                    if ( remainingMs <= 0 )
+                    {
+                        return false;
+                    }
+                    wait(remainingMs);
+                }
+            }
+        }
+        finally
+        {
+            waiterCount.decrementAndGet();
+        }
+    }
+
+    private void wakeWaiters()
+    {
+        // log appends are frequent - only take the lock if someone is waiting
+        if ( waiterCount.get() > 0 )
+        {
+            synchronized(this)
+            {
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.netflix.exhibitor.core.activity;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the executors used for blocking work (activity queue workers, process stream readers, remote
+ * calls). In {@link ThreadingModes#VIRTUAL} mode each task gets its own virtual thread. Virtual threads are
+ * accessed via reflection so that Exhibitor still builds and runs on older JDKs
+ */
+public class ExecutorFactory implements Closeable
+{
+    private static final Logger log = LoggerFactory.getLogger(ExecutorFactory.class);
+
+    private final ThreadingModes                mode;
+
+    private ScheduledExecutorService    scheduler = null;   // guarded by sync
+    private boolean                     isOpen = true;      // guarded by sync
+
+    private static final Method     ofVirtualMethod;
+    private static final Method     builderNameMethod;
+    private static final Method     builderFactoryMethod;
+    private static final Method     newThreadPerTaskExecutorMethod;
+    static
+    {
+        Method      localOfVirtual = null;
+        Method      localBuilderName = null;
+        Method      localBuilderFactory = null;
+        Method      localNewThreadPerTaskExecutor = null;
+        try
+        {
+            localOfVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?>    builderClass = Class.forName("java.lang.Thread$Builder");
+            localBuilderName = builderClass.getMethod("name", String.class, long.class);
+            localBuilderFactory = builderClass.getMethod("factory");
+            localNewThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        }
+        catch ( Exception ignore )
+        {
+            localOfVirtual = null;  // virtual threads aren't supported by this JDK
+        }
+        ofVirtualMethod = localOfVirtual;
+        builderNameMethod = localBuilderName;
+        builderFactoryMethod = localBuilderFactory;
+        newThreadPerTaskExecutorMethod = localNewThreadPerTaskExecutor;
+    }
+
+    /**
+     * @return true if this JDK supports virtual threads
+     */
+    public static boolean isVirtualSupported()
+    {
+        return ofVirtualMethod != null;
+    }
+
+    public ExecutorFactory()
+    {
+        this(ThreadingModes.PLATFORM);
+    }
+
+    /**
+     * @param mode requested mode - {@link ThreadingModes#VIRTUAL} falls back to {@link ThreadingModes#PLATFORM}
+     *             if the JDK doesn't support virtual threads
+     */
+    public ExecutorFactory(ThreadingModes mode)
+    {
+        if ( (mode == ThreadingModes.VIRTUAL) && !isVirtualSupported() )
+        {
+            log.warn("Virtual threads are not supported by this JDK (" + System.getProperty("java.version") + ") - using platform threads");
+            mode = ThreadingModes.PLATFORM;
+        }
+        this.mode = mode;
+    }
+
+    /**
+     * @return the mode in effect
+     */
+    public ThreadingModes getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * Return an executor for blocking tasks. In virtual mode each task runs on a new virtual thread. Otherwise
+     * the executor is a cached thread pool
+     *
+     * @param name thread name prefix
+     * @return executor - the caller must shut it down
+     */
+    public ExecutorService newExecutor(String name)
+    {
+        if ( mode == ThreadingModes.VIRTUAL )
+        {
+            try
+            {
+                Object          builder = builderNameMethod.invoke(ofVirtualMethod.invoke(null), name + "-", 0L);
+                ThreadFactory   factory = (ThreadFactory)builderFactoryMethod.invoke(builder);
+                return (ExecutorService)newThreadPerTaskExecutorMethod.invoke(null, factory);
+            }
+            catch ( Exception e )
+            {
+                log.error("Could not create virtual thread executor - using platform threads", e);
+            }
+        }
+        return Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat(name + "-%d").build());
+    }
+
+    /**
+     * Return a shared scheduler for short periodic tasks (e.g. progress reporting). Tasks must not block
+     *
+     * @return scheduler - do not shut it down
+     */
+    public synchronized ScheduledExecutorService getScheduler()
+    {
+        Preconditions.checkState(isOpen, "closed");
+        if ( scheduler == null )
+        {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("exhibitor-scheduler-%d").setDaemon(true).build());
+        }
+        return scheduler;
+    }
+
+    /**
+     * Run the given tasks concurrently and wait for them. The tasks are scoped to the call - any that
+     * haven't completed when the timeout elapses are cancelled and no task outlives the call
+     *
+     * @param name thread name prefix
+     * @param tasks the tasks
+     * @param timeout max time to wait
+     * @param unit time unit
+     * @return futures in task order - all are done (check {@link Future#isCancelled()} for timed out tasks)
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public <T> List<Future<T>> invokeAll(String name, Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        if ( tasks.isEmpty() )
+        {
+            return Lists.newArrayList();
+        }
+
+        ExecutorService     executor = newExecutor(name);
+        try
+        {
+            return executor.invokeAll(tasks, timeout, unit);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        isOpen = false;
+        if ( scheduler != null )
+        {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.netflix.exhibitor.core.activity;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The activities of one queue group. Activities wait in a deadline ordered heap until due and are then
+ * moved to a priority ordered heap. Holders are also indexed by activity so that replace/cancel are
+ * O(log n). Each group has its own lock so groups never contend with each other. {@link KeyedActivity}s
+ * are tracked by key from when they're queued until they finish running.
+ */
+class GroupQueue
+{
+    private final ActivityQueue                         queue;
+    private final QueueGroups                           group;
+    private final ReentrantLock                         lock = new ReentrantLock();
+    private final Condition                             changed = lock.newCondition();
+    private final ActivityHeap                          delayed = new ActivityHeap(ActivityHolder.DEADLINE_ORDER);
+    private final ActivityHeap                          due = new ActivityHeap(ActivityHolder.PRIORITY_ORDER);
+    private final Map<Activity, List<ActivityHolder>>   holders = Maps.newIdentityHashMap();
+    private final Map<String, ActivityHolder>           keys = Maps.newHashMap();
+
+    GroupQueue(ActivityQueue queue, QueueGroups group)
+    {
+        this.queue = queue;
+        this.group = group;
+    }
+
+    /**
+     * @param holder activity to queue
+     * @param replace if true, any existing queued instances of the activity are removed first and the new
+     *                instance takes over the handle of the removed one
+     * @return the handle - if the activity was coalesced into an existing one with the same key, the existing handle
+     */
+    ActivityHandle      offer(ActivityHolder holder, boolean replace)
+    {
+        lock.lock();
+        try
+        {
+            ActivityHandle      handle = null;
+            if ( replace )
+            {
+                for ( ActivityHandle removed : removeAll(holder.activity) )
+                {
+                    if ( handle == null )
+                    {
+                        handle = removed;
+                    }
+                    else
+                    {
+                        // the activity was queued more than once - fold the extras into the surviving handle
+                        for ( Activity activity : removed.finishCancelled() )
+                        {
+                            handle.addCoalesced(activity);
+                        }
+                    }
+                }
+            }
+
+            String      key = getKey(holder.activity);
+            if ( key != null )
+            {
+                ActivityHolder  existing = keys.get(key);
+                if ( existing != null )
+                {
+                    if ( existing.activity != holder.activity )
+                    {
+                        existing.handle.addCoalesced(holder.activity);
+                    }
+                    if ( (handle != null) && (handle != existing.handle) )
+                    {
+                        for ( Activity activity : handle.finishCancelled() )
+                        {
+                            existing.handle.addCoalesced(activity);
+                        }
+                    }
+                    return existing.handle;
+                }
+                keys.put(key, holder);
+            }
+
+            holder.handle = (handle != null) ? handle : queue.newHandle(group, holder.activity, holder.sequence);
+            doOffer(holder);
+            return holder.handle;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the activity from the queue
+     *
+     * @param activity the activity
+     * @return handles of the removed instances - the caller must finish them. Null if the activity wasn't queued
+     */
+    List<ActivityHandle> cancel(Activity activity)
+    {
+        lock.lock();
+        try
+        {
+            List<ActivityHandle>    removed = removeAll(activity);
+            return removed.isEmpty() ? null : removed;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the instance of an activity with the given handle from the queue
+     *
+     * @param handle the handle
+     * @return true if it was queued - the caller must finish the handle. False if a worker has already taken it
+     */
+    boolean             cancel(ActivityHandle handle)
+    {
+        lock.lock();
+        try
+        {
+            List<ActivityHolder>    list = holders.get(handle.getActivity());
+            if ( list == null )
+            {
+                return false;
+            }
+
+            boolean                 found = false;
+            Iterator<ActivityHolder> iterator = list.iterator();
+            while ( iterator.hasNext() )
+            {
+                ActivityHolder      holder = iterator.next();
+                if ( holder.handle == handle )
+                {
+                    iterator.remove();
+                    remove(holder);
+                    found = true;
+                }
+            }
+            if ( list.isEmpty() )
+            {
+                holders.remove(handle.getActivity());
+            }
+            return found;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called when an activity returned by {@link #take()} has finished
+     *
+     * @param holder the holder
+     */
+    void                finished(ActivityHolder holder)
+    {
+        String      key = getKey(holder.activity);
+        if ( key == null )
+        {
+            return;
+        }
+
+        lock.lock();
+        try
+        {
+            if ( keys.get(key) == holder )
+            {
+                keys.remove(key);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    int                 size()
+    {
+        lock.lock();
+        try
+        {
+            return delayed.size() + due.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    ActivityHolder      take() throws InterruptedException
+    {
+        lock.lockInterruptibly();
+        try
+        {
+            for(;;)
+            {
+                long        now = System.currentTimeMillis();
+                while ( !delayed.isEmpty() && (delayed.peek().endMs <= now) )
+                {
+                    due.add(delayed.poll());
+                }
+
+                ActivityHolder  holder = due.poll();
+                if ( holder != null )
+                {
+                    unIndex(holder);
+                    if ( !due.isEmpty() || !delayed.isEmpty() )
+                    {
+                        // let another worker have the rest - or take over waiting for the next deadline
+                        changed.signal();
+                    }
+                    return holder;
+                }
+
+                if ( delayed.isEmpty() )
+                {
+                    changed.await();
+                }
+                else
+                {
+                    changed.await(delayed.peek().endMs - now, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void        doOffer(ActivityHolder holder)
+    {
+        List<ActivityHolder>    list = holders.get(holder.activity);
+        if ( list == null )
+        {
+            list = Lists.newArrayListWithCapacity(1);
+            holders.put(holder.activity, list);
+        }
+        list.add(holder);
+
+        delayed.add(holder);
+        if ( delayed.peek() == holder )
+        {
+            changed.signal();   // only a new earliest deadline changes what the workers are waiting for
+        }
+    }
+
+    private List<ActivityHandle> removeAll(Activity activity)
+    {
+        List<ActivityHolder>    list = holders.remove(activity);
+        List<ActivityHandle>    handles = Lists.newArrayList();
+        if ( list != null )
+        {
+            for ( ActivityHolder holder : list )
+            {
+                remove(holder);
+                handles.add(holder.handle);
+            }
+        }
+        return handles;
+    }
+
+    private void        remove(ActivityHolder holder)
+    {
+        if ( !delayed.remove(holder) )
+        {
+            due.remove(holder);
+        }
+
+        String      key = getKey(holder.activity);
+        if ( (key != null) && (keys.get(key) == holder) )
+        {
+            keys.remove(key);
+        }
+    }
+
+    private static String getKey(Activity activity)
+    {
+        return (activity instanceof KeyedActivity) ? ((KeyedActivity)activity).getKey() : null;
+    }
+
+    private void        unIndex(ActivityHolder holder)
+    {
+        List<ActivityHolder>    list = holders.get(holder.activity);
+        if ( list != null )
+        {
+            list.remove(holder);
+            if ( list.isEmpty() )
+            {
+                holders.remove(holder.activity);
+            }
+        }
+    }
+}
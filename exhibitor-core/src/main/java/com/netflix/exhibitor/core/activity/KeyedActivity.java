@@ -0,0 +1,16 @@
+package com.netflix.exhibitor.core.activity;
+
+/**
+ * An activity that identifies the work it does. While a keyed activity is queued or running, another
+ * activity with the same key added to the same group is coalesced into it: the new activity is not run
+ * but its {@link #completed(boolean)} is called with the result of the existing one.
+ */
+public interface KeyedActivity extends Activity
+{
+    /**
+     * Return the key for this activity
+     *
+     * @return key or null to never coalesce
+     */
+    public String   getKey();
+}
@@ -0,0 +1,14 @@
+package com.netflix.exhibitor.core.activity;
+
+/**
+ * An activity that can report how far along it is
+ */
+public interface ProgressActivity extends Activity
+{
+    /**
+     * Return the progress of the activity
+     *
+     * @return 0 - 100
+     */
+    public int      getPercentDone();
+}
@@ -1,11 +1,53 @@
 package com.netflix.exhibitor.core.activity;
 
 /**
- * The support queue groups. The names are meaningless
- * except as a hint as to what the queues are used for
+ * The supported queue groups. Each group has its own workers so that slow work in
+ * one group never delays another
  */
 public enum QueueGroups
 {
-    MAIN,
-    IO
+    /**
+     * Instance control and ZNode changes - serial so that activities run one at a time in the order queued
+     */
+    MAIN(true, 1),
+
+    /**
+     * Backups, restores and log cleanup
+     */
+    IO(false, 2),
+
+    /**
+     * Instance health checks and config polling
+     */
+    HEALTH_CHECK(false, 2),
+
+    /**
+     * Long running work such as building log indexes
+     */
+    BULK(false, 1)
+    ;
+
+    private final boolean   serial;
+    private final int       defaultWorkerCount;
+
+    private QueueGroups(boolean serial, int defaultWorkerCount)
+    {
+        this.serial = serial;
+        this.defaultWorkerCount = defaultWorkerCount;
+    }
+
+    /**
+     * Return true if activities in this group must run one at a time. Serial groups always have one worker
+     *
+     * @return true/false
+     */
+    public boolean isSerial()
+    {
+        return serial;
+    }
+
+    public int getDefaultWorkerCount()
+    {
+        return defaultWorkerCount;
+    }
 }
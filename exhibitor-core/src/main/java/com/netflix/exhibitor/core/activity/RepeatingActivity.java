@@ -11,25 +11,63 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class RepeatingActivity implements Closeable
 {
-    private final QueueGroups   group;
-    private final AtomicBoolean isStarted = new AtomicBoolean(false);
-    private final Activity      activity;
-    private final AtomicLong    timePeriodMs;
-    private final ActivityQueue queue;
+    private final QueueGroups       group;
+    private final ActivityPriority  priority;
+    private final AtomicBoolean     isStarted = new AtomicBoolean(false);
+    private final AtomicBoolean     isRunning = new AtomicBoolean(false);
+    private final AtomicBoolean     runNowRequested = new AtomicBoolean(false);
+    private final Activity          activity;
+    private final AtomicLong        timePeriodMs;
+    private final ActivityQueue     queue;
+
+    /**
+     * Marks the executions queued by a repeating activity
+     */
+    interface Execution extends Activity
+    {
+        /**
+         * Called when a queued execution is cancelled before it runs. Executions re-queue themselves
+         * when they run so this queues the next one - otherwise a cancel would stop the activity for good
+         */
+        void cancelled();
+    }
+
+    /**
+     * @param log the log
+     * @param queue the queue to add to
+     * @param group the queue group
+     * @param actualActivity the repeating activity
+     * @param timePeriodMs the period between executions
+     */
+    public RepeatingActivity(ActivityLog log, ActivityQueue queue, QueueGroups group, Activity actualActivity, long timePeriodMs)
+    {
+        this(log, queue, group, ActivityPriority.NORMAL, actualActivity, timePeriodMs);
+    }
 
     /**
      * @param log the log
      * @param queue the queue to add to
      * @param group the queue group
+     * @param priority priority of each execution
      * @param actualActivity the repeating activity
      * @param timePeriodMs the period between executions
      */
-    public RepeatingActivity(final ActivityLog log, ActivityQueue queue, QueueGroups group, final Activity actualActivity, long timePeriodMs)
+    public RepeatingActivity(final ActivityLog log, ActivityQueue queue, QueueGroups group, ActivityPriority priority, final Activity actualActivity, long timePeriodMs)
     {
         this.queue = queue;
         this.group = group;
-        this.activity = new Activity()
+        this.priority = priority;
+        this.activity = new Execution()
         {
+            @Override
+            public void cancelled()
+            {
+                if ( isStarted.get() )
+                {
+                    reQueue();
+                }
+            }
+
             @Override
             public void completed(boolean wasSuccessful)
             {
@@ -42,6 +80,8 @@ public class RepeatingActivity implements Closeable
                 boolean     result = false;
                 if ( isStarted.get() )
                 {
+                    isRunning.set(true);
+                    runNowRequested.set(false);
                     try
                     {
                         result = actualActivity.call();
@@ -50,6 +90,10 @@ public class RepeatingActivity implements Closeable
                     {
                         log.add(ActivityLog.Type.ERROR, "Unhandled exception in repeating activity - re-queueing", e);
                     }
+                    finally
+                    {
+                        isRunning.set(false);
+                    }
                     reQueue();
                 }
                 return result;
@@ -81,14 +125,53 @@ public class RepeatingActivity implements Closeable
     public void setTimePeriodMs(long newTimePeriodMs)
     {
         timePeriodMs.set(newTimePeriodMs);
-        queue.replace(group, activity, timePeriodMs.get(), TimeUnit.MILLISECONDS);
+        queue.replace(group, activity, priority, timePeriodMs.get(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Change the time period between executions from within the activity. The new period
+     * is used when the activity is re-queued after the current execution.
+     *
+     * @param newTimePeriodMs new time period
+     */
+    public void setNextTimePeriodMs(long newTimePeriodMs)
+    {
+        timePeriodMs.set(newTimePeriodMs);
+    }
+
+    /**
+     * @return the current time period between executions
+     */
+    public long getTimePeriodMs()
+    {
+        return timePeriodMs.get();
+    }
+
+    /**
+     * Execute as soon as possible instead of waiting for the time period. If an execution
+     * is in progress, the next one is queued without delay when it finishes.
+     */
+    public void runNow()
+    {
+        if ( !isStarted.get() )
+        {
+            return;
+        }
+
+        runNowRequested.set(true);
+        if ( !isRunning.get() )
+        {
+            queue.replace(group, activity, priority, 0, TimeUnit.MILLISECONDS);
+        }
     }
 
     private void reQueue()
     {
+        long        delay = runNowRequested.getAndSet(false) ? 0 : timePeriodMs.get();
         if ( timePeriodMs.get() > 0 )
         {
-            queue.add(group, activity, timePeriodMs.get(), TimeUnit.MILLISECONDS);
+            // replace, not add, so that a runNow() racing with this execution can't leave two instances queued
+            queue.replace(group, activity, priority, delay, TimeUnit.MILLISECONDS);
         }
     }
 }
@@ -0,0 +1,17 @@
+package com.netflix.exhibitor.core.activity;
+
+/**
+ * How Exhibitor runs its blocking background work - see {@link ExecutorFactory}
+ */
+public enum ThreadingModes
+{
+    /**
+     * Ordinary (platform) threads - works on every JDK
+     */
+    PLATFORM,
+
+    /**
+     * Virtual threads - only on JDKs that support them (21+). Falls back to {@link #PLATFORM} on older JDKs
+     */
+    VIRTUAL
+}
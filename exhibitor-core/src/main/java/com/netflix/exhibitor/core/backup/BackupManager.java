@@ -1,36 +1,45 @@
 package com.netflix.exhibitor.core.backup;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.netflix.exhibitor.core.Exhibitor;
 import com.netflix.exhibitor.core.activity.Activity;
 import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.activity.ActivityPriority;
 import com.netflix.exhibitor.core.activity.QueueGroups;
 import com.netflix.exhibitor.core.activity.RepeatingActivity;
+import com.netflix.exhibitor.core.config.ConfigDelta;
 import com.netflix.exhibitor.core.config.ConfigListener;
 import com.netflix.exhibitor.core.config.EncodedConfigParser;
 import com.netflix.exhibitor.core.config.InstanceConfig;
 import com.netflix.exhibitor.core.config.IntConfigs;
 import com.netflix.exhibitor.core.config.StringConfigs;
 import com.netflix.exhibitor.core.controlpanel.ControlPanelTypes;
+import com.netflix.exhibitor.core.index.LogSourceRestorer;
 import com.netflix.exhibitor.core.index.ZooKeeperLogFiles;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages backups/restores
  */
-public class BackupManager implements Closeable
+public class BackupManager implements Closeable, LogSourceRestorer
 {
     private final Exhibitor exhibitor;
     private final Optional<BackupProvider> backupProvider;
     private final RepeatingActivity repeatingActivity;
     private final AtomicBoolean tempDisabled = new AtomicBoolean(false);
     private final AtomicLong lastRollCheck = new AtomicLong(0);
+    private final Map<String, Long> backedUpVersions = Maps.newConcurrentMap();
+
+    private volatile boolean backedUpVersionsLoaded = false;
 
     /**
      * @param exhibitor main instance
@@ -60,7 +69,7 @@ public class BackupManager implements Closeable
                 return true;
             }
         };
-        repeatingActivity = new RepeatingActivity(null, exhibitor.getActivityQueue(), QueueGroups.IO, activity, config.getInt(IntConfigs.BACKUP_PERIOD_MS));
+        repeatingActivity = new RepeatingActivity(null, exhibitor.getActivityQueue(), QueueGroups.IO, ActivityPriority.LOW, activity, config.getInt(IntConfigs.BACKUP_PERIOD_MS));
     }
 
     /**
@@ -76,9 +85,12 @@ public class BackupManager implements Closeable
                     new ConfigListener()
                     {
                         @Override
-                        public void configUpdated()
+                        public void configUpdated(ConfigDelta delta)
                         {
-                            repeatingActivity.setTimePeriodMs(exhibitor.getConfigManager().getConfig().getInt(IntConfigs.BACKUP_PERIOD_MS));
+                            if ( delta.isChanged(IntConfigs.BACKUP_PERIOD_MS) )
+                            {
+                                repeatingActivity.setTimePeriodMs(delta.getNew().getInt(IntConfigs.BACKUP_PERIOD_MS));
+                            }
                         }
                     }
                 );
@@ -114,6 +126,36 @@ public class BackupManager implements Closeable
         tempDisabled.set(value);    // TODO - this is too hack-y
     }
 
+    /**
+     * Returns true if the given ZK log file can be deleted without losing data that hasn't been backed up.
+     * That is: the current version of the file has been backed up or backups aren't being made. After a
+     * restart, what has been backed up is read from the provider's available backups so that purging doesn't
+     * have to wait for the first backup pass.
+     *
+     * @param log the log file
+     * @return true/false
+     * @throws Exception errors
+     */
+    public boolean  isBackedUp(File log) throws Exception
+    {
+        if ( !isActive() || !exhibitor.getControlPanelValues().isSet(ControlPanelTypes.BACKUPS) || !backupProvider.get().isValidConfig(exhibitor, getBackupConfig()) )
+        {
+            return true;
+        }
+        if ( tempDisabled.get() )
+        {
+            return false;   // a restore is in progress
+        }
+
+        if ( !backedUpVersionsLoaded )
+        {
+            loadBackedUpVersions();
+        }
+
+        Long        backedUpVersion = backedUpVersions.get(log.getName());
+        return (backedUpVersion != null) && (backedUpVersion >= log.lastModified());
+    }
+
     /**
      * Return list of available backups
      *
@@ -158,6 +200,41 @@ public class BackupManager implements Closeable
         backupProvider.get().downloadBackup(exhibitor, backup, destinationFile, getBackupConfig());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Log files are only ever appended to and each upload replaces the older version so the
+     * oldest available backup at least as new as the given date is used
+     */
+    @Override
+    public boolean restore(String backupName, long minModifiedDate, File destination) throws Exception
+    {
+        if ( !isActive() )
+        {
+            return false;
+        }
+
+        BackupMetaData      bestBackup = null;
+        for ( BackupMetaData backup : getAvailableBackups() )
+        {
+            if ( backup.getName().equals(backupName) && (backup.getModifiedDate() >= minModifiedDate) )
+            {
+                if ( (bestBackup == null) || (backup.getModifiedDate() < bestBackup.getModifiedDate()) )
+                {
+                    bestBackup = backup;
+                }
+            }
+        }
+        if ( bestBackup == null )
+        {
+            return false;
+        }
+
+        exhibitor.getLog().add(ActivityLog.Type.INFO, "Restoring log for index: " + bestBackup);
+        restore(bestBackup, destination);
+        return true;
+    }
+
     private void doBackup() throws Exception
     {
         if ( !exhibitor.getControlPanelValues().isSet(ControlPanelTypes.BACKUPS) )
@@ -179,10 +256,21 @@ public class BackupManager implements Closeable
             return;
         }
 
+        Set<String>         names = Sets.newHashSet();
+        for ( File f : zooKeeperLogFiles.getPaths() )
+        {
+            names.add(f.getName());
+        }
+        backedUpVersions.keySet().retainAll(names);
+
         for ( File f : zooKeeperLogFiles.getPaths() )
         {
             BackupMetaData metaData = new BackupMetaData(f.getName(), f.lastModified());
             BackupProvider.UploadResult result = provider.uploadBackup(exhibitor, metaData, f, config);
+            if ( result != BackupProvider.UploadResult.FAILED )
+            {
+                putBackedUpVersion(f.getName(), metaData.getModifiedDate());
+            }
             switch ( result )
             {
                 case SUCCEEDED:
@@ -208,11 +296,34 @@ public class BackupManager implements Closeable
         doRoll(config);
     }
 
+    private synchronized void loadBackedUpVersions() throws Exception
+    {
+        if ( backedUpVersionsLoaded )
+        {
+            return;
+        }
+
+        // an error here propagates so nothing is purged until the provider can be read
+        for ( BackupMetaData backup : getAvailableBackups() )
+        {
+            putBackedUpVersion(backup.getName(), backup.getModifiedDate());
+        }
+        backedUpVersionsLoaded = true;
+    }
+
+    private void putBackedUpVersion(String name, long modifiedDate)
+    {
+        // a backup pass may have recorded a newer version already
+        Long        current = backedUpVersions.get(name);
+        if ( (current == null) || (current < modifiedDate) )
+        {
+            backedUpVersions.put(name, modifiedDate);
+        }
+    }
+
     private Map<String, String> getBackupConfig()
     {
-        String              backupExtra = exhibitor.getConfigManager().getConfig().getString(StringConfigs.BACKUP_EXTRA);
-        EncodedConfigParser encodedConfigParser = new EncodedConfigParser(backupExtra);
-        return encodedConfigParser.getValues();
+        return exhibitor.getConfigManager().getSnapshot().getBackupExtra();
     }
 
     private void doRoll(Map<String, String> config) throws Exception
@@ -1,8 +1,8 @@
 package com.netflix.exhibitor.core.backup;
 
 import com.netflix.exhibitor.core.Exhibitor;
-import com.netflix.exhibitor.core.activity.Activity;
 import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.activity.KeyedActivity;
 import com.netflix.exhibitor.core.index.IndexActivity;
 import com.netflix.exhibitor.core.index.IndexerUtil;
 import java.io.File;
@@ -10,7 +10,7 @@ import java.io.File;
 /**
  * activity for pulling down a backup and indexing it
  */
-public class RestoreAndIndex implements Activity
+public class RestoreAndIndex implements KeyedActivity
 {
     private final Exhibitor exhibitor;
     private final BackupMetaData backup;
@@ -25,6 +25,12 @@ public class RestoreAndIndex implements Activity
         this.backup = backup;
     }
 
+    @Override
+    public String getKey()
+    {
+        return "restore-and-index-" + backup.getName() + "-" + backup.getModifiedDate();
+    }
+
     @Override
     public void completed(boolean wasSuccessful)
     {
@@ -48,7 +54,7 @@ public class RestoreAndIndex implements Activity
                     deleteTempFile(finalDestinationFile);
                 }
             };
-            IndexerUtil.startIndexing(exhibitor, destinationFile, listener);
+            IndexerUtil.startIndexing(exhibitor, destinationFile, backup.getName(), backup.getModifiedDate(), listener);
         }
         catch ( Exception e )
         {
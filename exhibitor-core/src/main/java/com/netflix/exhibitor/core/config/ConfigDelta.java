@@ -0,0 +1,86 @@
+package com.netflix.exhibitor.core.config;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * What changed between two config snapshots
+ */
+public class ConfigDelta
+{
+    private final ConfigSnapshot        oldSnapshot;
+    private final ConfigSnapshot        newSnapshot;
+    private final Set<StringConfigs>    changedStrings = EnumSet.noneOf(StringConfigs.class);
+    private final Set<IntConfigs>       changedInts = EnumSet.noneOf(IntConfigs.class);
+
+    /**
+     * @param oldSnapshot the previous config
+     * @param newSnapshot the new config
+     */
+    public ConfigDelta(ConfigSnapshot oldSnapshot, ConfigSnapshot newSnapshot)
+    {
+        this.oldSnapshot = oldSnapshot;
+        this.newSnapshot = newSnapshot;
+
+        for ( StringConfigs c : StringConfigs.values() )
+        {
+            if ( !oldSnapshot.getString(c).equals(newSnapshot.getString(c)) )
+            {
+                changedStrings.add(c);
+            }
+        }
+        for ( IntConfigs c : IntConfigs.values() )
+        {
+            if ( oldSnapshot.getInt(c) != newSnapshot.getInt(c) )
+            {
+                changedInts.add(c);
+            }
+        }
+    }
+
+    public ConfigSnapshot getOld()
+    {
+        return oldSnapshot;
+    }
+
+    public ConfigSnapshot getNew()
+    {
+        return newSnapshot;
+    }
+
+    public boolean isChanged(StringConfigs config)
+    {
+        return changedStrings.contains(config);
+    }
+
+    public boolean isChanged(IntConfigs config)
+    {
+        return changedInts.contains(config);
+    }
+
+    /**
+     * @return true if the parsed server list is different. Note: unlike {@link #isChanged(StringConfigs)}
+     * this ignores formatting-only changes to the spec
+     */
+    public boolean isServerListChanged()
+    {
+        return !oldSnapshot.getServerList().equals(newSnapshot.getServerList());
+    }
+
+    /**
+     * @return true if no value changed
+     */
+    public boolean isEmpty()
+    {
+        return changedStrings.isEmpty() && changedInts.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ConfigDelta{" +
+            "changedStrings=" + changedStrings +
+            ", changedInts=" + changedInts +
+            '}';
+    }
+}
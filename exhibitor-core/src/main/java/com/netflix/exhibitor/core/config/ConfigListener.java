@@ -7,6 +7,8 @@ public interface ConfigListener
 {
     /**
      * Called when the config has been updated
+     *
+     * @param delta what changed - only reset what depends on the changed values
      */
-    public void     configUpdated();
+    public void     configUpdated(ConfigDelta delta);
 }
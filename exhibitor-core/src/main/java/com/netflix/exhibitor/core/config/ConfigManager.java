@@ -15,7 +15,7 @@ public class ConfigManager implements Closeable
 {
     private final ConfigProvider provider;
     private final RepeatingActivity repeatingActivity;
-    private final AtomicReference<LoadedInstanceConfig> config = new AtomicReference<LoadedInstanceConfig>();
+    private final AtomicReference<ConfigSnapshot> snapshot = new AtomicReference<ConfigSnapshot>();
     private final Set<ConfigListener> configListeners = Sets.newSetFromMap(Maps.<ConfigListener, Boolean>newConcurrentMap());
 
     public ConfigManager(Exhibitor exhibitor, ConfigProvider provider, int checkMs) throws Exception
@@ -36,9 +36,9 @@ public class ConfigManager implements Closeable
                 return true;
             }
         };
-        repeatingActivity = new RepeatingActivity(null, exhibitor.getActivityQueue(), QueueGroups.MAIN, activity, checkMs);
+        repeatingActivity = new RepeatingActivity(null, exhibitor.getActivityQueue(), QueueGroups.HEALTH_CHECK, activity, checkMs);
 
-        config.set(provider.loadConfig());
+        snapshot.set(new ConfigSnapshot(provider.loadConfig()));
     }
 
     public void   start()
@@ -54,9 +54,17 @@ public class ConfigManager implements Closeable
 
     public InstanceConfig getConfig()
     {
-        return config.get().getConfig();
+        return snapshot.get();
     }
-    
+
+    /**
+     * @return the current config in parsed form
+     */
+    public ConfigSnapshot getSnapshot()
+    {
+        return snapshot.get();
+    }
+
     /**
      * Add a listener for config changes
      *
@@ -69,32 +77,53 @@ public class ConfigManager implements Closeable
 
     public synchronized boolean updateConfig(InstanceConfig newConfig) throws Exception
     {
-        LoadedInstanceConfig updated = provider.storeConfig(newConfig, config.get().getLastModified());
+        LoadedInstanceConfig updated = provider.storeConfig(newConfig, snapshot.get().getLastModified());
         if ( updated != null )
         {
-            config.set(updated);
-            notifyListeners();
+            setSnapshot(new ConfigSnapshot(updated));
             return true;
         }
 
         return false;
     }
 
-    private synchronized void notifyListeners()
+    private synchronized void setSnapshot(ConfigSnapshot newSnapshot)
     {
+        ConfigDelta     delta = new ConfigDelta(snapshot.getAndSet(newSnapshot), newSnapshot);
+        if ( delta.isEmpty() )
+        {
+            return;
+        }
+
         for ( ConfigListener listener : configListeners )
         {
-            listener.configUpdated();
+            listener.configUpdated(delta);
         }
     }
 
     private synchronized void doWork() throws Exception
     {
-        LoadedInstanceConfig    newConfig = provider.loadConfig();
-        if ( newConfig.getLastModified() != config.get().getLastModified() )
+        LoadedInstanceConfig    newConfig = loadIfChanged(provider, snapshot.get().getLastModified());
+        if ( (newConfig != null) && (newConfig.getLastModified() != snapshot.get().getLastModified()) )
+        {
+            setSnapshot(new ConfigSnapshot(newConfig));
+        }
+    }
+
+    /**
+     * Only do the full load when the config has changed - if the provider can tell
+     *
+     * @param provider the provider
+     * @param lastModified last modified value of the current config
+     * @return the loaded config or null if it hasn't changed
+     * @throws Exception errors
+     */
+    static LoadedInstanceConfig loadIfChanged(ConfigProvider provider, long lastModified) throws Exception
+    {
+        if ( (provider instanceof LastModifiedConfigProvider) && (((LastModifiedConfigProvider)provider).getLastModified() == lastModified) )
         {
-            config.set(newConfig);
-            notifyListeners();
+            return null;
         }
+        return provider.loadConfig();
     }
 }
@@ -0,0 +1,86 @@
+package com.netflix.exhibitor.core.config;
+
+import com.netflix.exhibitor.core.state.ServerList;
+import java.util.Map;
+
+/**
+ * Immutable, typed view of a loaded config. It is built once each time the config changes so that
+ * the server list, zoo.cfg extras, etc. aren't re-parsed from strings on every use.
+ */
+public class ConfigSnapshot implements InstanceConfig
+{
+    private final String[]              strings;
+    private final int[]                 ints;
+    private final long                  lastModified;
+    private final ServerList            serverList;
+    private final Map<String, String>   zooCfgExtra;
+    private final Map<String, String>   backupExtra;
+
+    /**
+     * @param loaded the loaded config
+     */
+    public ConfigSnapshot(LoadedInstanceConfig loaded)
+    {
+        InstanceConfig  config = loaded.getConfig();
+
+        strings = new String[StringConfigs.values().length];
+        for ( StringConfigs c : StringConfigs.values() )
+        {
+            strings[c.ordinal()] = config.getString(c);
+        }
+        ints = new int[IntConfigs.values().length];
+        for ( IntConfigs c : IntConfigs.values() )
+        {
+            ints[c.ordinal()] = config.getInt(c);
+        }
+
+        lastModified = loaded.getLastModified();
+        serverList = new ServerList(getString(StringConfigs.SERVERS_SPEC));
+        zooCfgExtra = new EncodedConfigParser(getString(StringConfigs.ZOO_CFG_EXTRA)).getValues();
+        backupExtra = new EncodedConfigParser(getString(StringConfigs.BACKUP_EXTRA)).getValues();
+    }
+
+    @Override
+    public String getString(StringConfigs config)
+    {
+        return strings[config.ordinal()];
+    }
+
+    @Override
+    public int getInt(IntConfigs config)
+    {
+        return ints[config.ordinal()];
+    }
+
+    /**
+     * @return the config's last modified value as returned by the {@link ConfigProvider}
+     */
+    public long getLastModified()
+    {
+        return lastModified;
+    }
+
+    /**
+     * @return the parsed {@link StringConfigs#SERVERS_SPEC}
+     */
+    public ServerList getServerList()
+    {
+        return serverList;
+    }
+
+    /**
+     * @return the parsed {@link StringConfigs#ZOO_CFG_EXTRA}
+     */
+    public Map<String, String> getZooCfgExtra()
+    {
+        return zooCfgExtra;
+    }
+
+    /**
+     * @return the parsed {@link StringConfigs#BACKUP_EXTRA}
+     */
+    public Map<String, String> getBackupExtra()
+    {
+        return backupExtra;
+    }
+}
@@ -63,6 +63,11 @@ public class DefaultProperties
                         return (int)TimeUnit.MILLISECONDS.convert(30, TimeUnit.SECONDS);
                     }
 
+                    case CHECK_MIN_MS:
+                    {
+                        return 0;   // unset - checks use the fixed CHECK_MS period
+                    }
+
                     case CLEANUP_PERIOD_MS:
                     {
                         return (int)TimeUnit.MILLISECONDS.convert(12, TimeUnit.HOURS);
@@ -21,10 +21,15 @@ public enum IntConfigs
     ELECTION_PORT,
 
     /**
-     * Period in ms to check that ZK is running - default: 30000
+     * Max period in ms to check that ZK is running. Checks back off to this while ZK is stably serving - default: 30000
      */
     CHECK_MS,
 
+    /**
+     * Min period in ms to check that ZK is running. Used after a state change or restart - default: 1000
+     */
+    CHECK_MIN_MS,
+
     /**
      * Period in ms to perform log cleanup - default: 12 hours
      */
@@ -43,5 +48,15 @@ public enum IntConfigs
     /**
      * Period in ms to perform backups - default: 60000
      */
-    BACKUP_PERIOD_MS
+    BACKUP_PERIOD_MS,
+
+    /**
+     * Max bytes of each ZNode's data to make searchable when indexing logs. 0 disables data searching - default: 0
+     */
+    LOG_INDEX_DATA_MAX_BYTES,
+
+    /**
+     * 1 if log indexes should only store the location of each ZNode's data in the logs instead of a copy - default: 0
+     */
+    LOG_INDEX_DATA_BY_REFERENCE
 }
@@ -0,0 +1,19 @@
+package com.netflix.exhibitor.core.config;
+
+/**
+ * Optional extension for config providers that can tell whether the stored config has changed
+ * more cheaply than loading it. Providers that only implement {@link ConfigProvider} are
+ * loaded on every config check.
+ */
+public interface LastModifiedConfigProvider extends ConfigProvider
+{
+    /**
+     * Return the last modified value of the stored config without loading it. This is called
+     * for every config check and the config is only loaded when the value differs from the
+     * loaded one - so it should be much cheaper than {@link #loadConfig()}
+     *
+     * @return last modified value in the same terms as {@link LoadedInstanceConfig#getLastModified()}
+     * @throws Exception errors
+     */
+    public long getLastModified() throws Exception;
+}
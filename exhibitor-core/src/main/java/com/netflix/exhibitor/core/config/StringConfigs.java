@@ -10,6 +10,11 @@ public enum StringConfigs
      */
     LOG_INDEX_DIRECTORY,
 
+    /**
+     * Format of new log indexes: "lucene" or "columnar" - default: lucene
+     */
+    LOG_INDEX_ENGINE,
+
     /**
      * The base director of the zookeeper installation
      */
@@ -1,8 +1,8 @@
 package com.netflix.exhibitor.core.config.filesystem;
 
 import com.google.common.io.Closeables;
-import com.netflix.exhibitor.core.config.ConfigProvider;
 import com.netflix.exhibitor.core.config.InstanceConfig;
+import com.netflix.exhibitor.core.config.LastModifiedConfigProvider;
 import com.netflix.exhibitor.core.config.LoadedInstanceConfig;
 import com.netflix.exhibitor.core.config.PropertyBasedInstanceConfig;
 import java.io.BufferedOutputStream;
@@ -17,7 +17,7 @@ import java.util.Properties;
 /**
  * Config provider that uses a properties file store locally
  */
-public class FileSystemConfigProvider implements ConfigProvider
+public class FileSystemConfigProvider implements LastModifiedConfigProvider
 {
     private final File propertiesFile;
     private final Properties defaults;
@@ -69,6 +69,13 @@ public class FileSystemConfigProvider implements ConfigProvider
         return new LoadedInstanceConfig(config, propertiesFile.lastModified());
     }
 
+    @Override
+    public long getLastModified() throws Exception
+    {
+        // a stat - no lock or parse needed
+        return propertiesFile.lastModified();
+    }
+
     @Override
     public LoadedInstanceConfig storeConfig(InstanceConfig config, long compareLastModified) throws Exception
     {
@@ -5,8 +5,9 @@ import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
-import com.netflix.exhibitor.core.config.ConfigProvider;
+import com.google.common.io.Closeables;
 import com.netflix.exhibitor.core.config.InstanceConfig;
+import com.netflix.exhibitor.core.config.LastModifiedConfigProvider;
 import com.netflix.exhibitor.core.config.LoadedInstanceConfig;
 import com.netflix.exhibitor.core.config.PropertyBasedInstanceConfig;
 import com.netflix.exhibitor.core.s3.S3Client;
@@ -15,11 +16,12 @@ import com.netflix.exhibitor.core.s3.S3Credential;
 import com.netflix.exhibitor.core.s3.S3Utils;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.Properties;
 
-public class S3ConfigProvider implements ConfigProvider
+public class S3ConfigProvider implements LastModifiedConfigProvider
 {
     private final S3ConfigArguments arguments;
     private final S3Client s3Client;
@@ -45,18 +47,31 @@ public class S3ConfigProvider implements ConfigProvider
         Date        lastModified = object.getObjectMetadata().getLastModified();
 
         Properties  properties = new Properties();
-        properties.load(object.getObjectContent());
+        InputStream in = object.getObjectContent();
+        try
+        {
+            properties.load(in);
+        }
+        finally
+        {
+            Closeables.closeQuietly(in);
+        }
 
         PropertyBasedInstanceConfig config = new PropertyBasedInstanceConfig(properties, defaults);
         return new LoadedInstanceConfig(config, lastModified.getTime());
     }
 
+    @Override
+    public long getLastModified() throws Exception
+    {
+        // metadata only (HEAD) - the object is only downloaded when it has changed
+        return s3Client.getObjectMetadata(arguments.getBucket(), arguments.getKey()).getLastModified().getTime();
+    }
+
     @Override
     public LoadedInstanceConfig storeConfig(InstanceConfig config, long compareLastModified) throws Exception
     {
-        S3Object                        object = s3Client.getObject(arguments.getBucket(), arguments.getKey());
-        Date                            lastModified = object.getObjectMetadata().getLastModified();
-        if ( lastModified.getTime() != compareLastModified )
+        if ( getLastModified() != compareLastModified )
         {
             return null;    // apparently there's no atomic way to do this with S3 so this will have to do
         }
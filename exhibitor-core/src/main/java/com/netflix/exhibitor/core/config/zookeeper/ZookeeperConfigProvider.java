@@ -0,0 +1,233 @@
+package com.netflix.exhibitor.core.config.zookeeper;
+
+import com.google.common.io.Files;
+import com.netflix.curator.framework.CuratorFramework;
+import com.netflix.curator.framework.CuratorFrameworkFactory;
+import com.netflix.curator.retry.ExponentialBackoffRetry;
+import com.netflix.exhibitor.core.config.InstanceConfig;
+import com.netflix.exhibitor.core.config.LastModifiedConfigProvider;
+import com.netflix.exhibitor.core.config.LoadedInstanceConfig;
+import com.netflix.exhibitor.core.config.PropertyBasedInstanceConfig;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * <p>
+ *     Config provider that stores the config in a ZNode - either in the managed ensemble or in a separate
+ *     bootstrap ensemble. The ZNode's version is used as the last modified value so {@link #storeConfig(InstanceConfig, long)}
+ *     is a real compare-and-set. A watch is kept on the ZNode so that checking for changes doesn't need a
+ *     round trip until the ZNode actually changes.
+ * </p>
+ *
+ * <p>
+ *     Every config read from ZooKeeper is also written to a local cache file. When ZooKeeper can't be reached
+ *     (e.g. on first boot when the ensemble is the managed one and isn't running yet) the cache file is used instead.
+ *     Calls wait at most {@link #MAX_CONNECTION_TIMEOUT_MS} for a connection and aren't retried so that an
+ *     unreachable ZooKeeper doesn't hold up startup or the config checks - the next check is the retry.
+ * </p>
+ */
+public class ZookeeperConfigProvider implements LastModifiedConfigProvider, Closeable
+{
+    private final CuratorFramework client;
+    private final String path;
+    private final File cacheFile;
+    private final Properties defaults;
+
+    private volatile long version = CACHE_VERSION;
+    private volatile boolean isWatched = false;
+
+    /**
+     * Last modified value when the ZNode doesn't exist. {@link #storeConfig(InstanceConfig, long)} creates it
+     */
+    public static final long NO_NODE_VERSION = -1;
+
+    /**
+     * Last modified value when the config was read from the cache file. {@link #storeConfig(InstanceConfig, long)}
+     * creates the ZNode if it doesn't exist yet
+     */
+    public static final long CACHE_VERSION = -2;
+
+    /**
+     * Max time a call waits for a connection to ZooKeeper
+     */
+    public static final int MAX_CONNECTION_TIMEOUT_MS = 2000;
+
+    private static final int SESSION_TIMEOUT_MS = 60000;
+    private static final int RETRY_BASE_SLEEP_MS = 1000;
+    private static final int RETRY_MAX_RETRIES = 0;
+
+    private final Watcher watcher = new Watcher()
+    {
+        @Override
+        public void process(WatchedEvent event)
+        {
+            // the ZNode has changed or the connection has - either way the next check must go to ZooKeeper
+            isWatched = false;
+        }
+    };
+
+    /**
+     * @param connectString ZooKeeper connection string
+     * @param connectionTimeoutMs connection timeout - capped at {@link #MAX_CONNECTION_TIMEOUT_MS}
+     * @param path path of the ZNode that holds the config
+     * @param cacheFile local copy of the config used when ZooKeeper can't be reached
+     * @param defaults default values
+     */
+    public ZookeeperConfigProvider(String connectString, int connectionTimeoutMs, String path, File cacheFile, Properties defaults) throws IOException
+    {
+        this.path = path;
+        this.cacheFile = cacheFile;
+        this.defaults = defaults;
+        client = CuratorFrameworkFactory.newClient(connectString, SESSION_TIMEOUT_MS, Math.min(connectionTimeoutMs, MAX_CONNECTION_TIMEOUT_MS), new ExponentialBackoffRetry(RETRY_BASE_SLEEP_MS, RETRY_MAX_RETRIES));
+        client.start();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        client.close();
+    }
+
+    @Override
+    public LoadedInstanceConfig loadConfig() throws Exception
+    {
+        byte[]      bytes;
+        long        loadedVersion;
+        try
+        {
+            isWatched = true;
+            Stat    stat = new Stat();
+            bytes = client.getData().storingStatIn(stat).usingWatcher(watcher).forPath(path);
+            loadedVersion = stat.getVersion();
+            writeCache(bytes);
+        }
+        catch ( KeeperException.NoNodeException e )
+        {
+            // not stored yet - the cache (if any) seeds the config until it's saved
+            isWatched = false;
+            bytes = readCache();
+            loadedVersion = NO_NODE_VERSION;
+        }
+        catch ( Exception e )
+        {
+            // ZooKeeper can't be reached - use the cache (or the defaults if there isn't one yet)
+            isWatched = false;
+            bytes = readCache();
+            loadedVersion = CACHE_VERSION;
+        }
+        version = loadedVersion;
+
+        return new LoadedInstanceConfig(new PropertyBasedInstanceConfig(toProperties(bytes), defaults), loadedVersion);
+    }
+
+    @Override
+    public long getLastModified() throws Exception
+    {
+        if ( isWatched )
+        {
+            return version;
+        }
+
+        // set before the call so that a change that fires the watch straight away isn't lost
+        isWatched = true;
+        try
+        {
+            Stat    stat = client.checkExists().usingWatcher(watcher).forPath(path);
+            version = (stat != null) ? stat.getVersion() : NO_NODE_VERSION;
+        }
+        catch ( Exception e )
+        {
+            // ZooKeeper can't be reached - keep what we have and try again next time
+            isWatched = false;
+        }
+        return version;
+    }
+
+    @Override
+    public LoadedInstanceConfig storeConfig(InstanceConfig config, long compareLastModified) throws Exception
+    {
+        PropertyBasedInstanceConfig     propertyBasedInstanceConfig = new PropertyBasedInstanceConfig(config);
+        ByteArrayOutputStream           out = new ByteArrayOutputStream();
+        propertyBasedInstanceConfig.getProperties().store(out, "Auto-generated by Exhibitor");
+        byte[]                          bytes = out.toByteArray();
+
+        long                            newVersion;
+        try
+        {
+            if ( (compareLastModified == NO_NODE_VERSION) || (compareLastModified == CACHE_VERSION) )
+            {
+                // if the ZNode was written while the cache was in use, this fails and the next check loads it
+                client.create().creatingParentsIfNeeded().forPath(path, bytes);
+                newVersion = 0;     // a new ZNode's version is always 0
+            }
+            else
+            {
+                newVersion = client.setData().withVersion((int)compareLastModified).forPath(path, bytes).getVersion();
+            }
+        }
+        catch ( KeeperException.NodeExistsException e )
+        {
+            return null;
+        }
+        catch ( KeeperException.BadVersionException e )
+        {
+            return null;
+        }
+        catch ( KeeperException.NoNodeException e )
+        {
+            return null;
+        }
+        catch ( KeeperException.ConnectionLossException e )
+        {
+            return null;    // not stored - the caller can try again
+        }
+        catch ( KeeperException.SessionExpiredException e )
+        {
+            return null;    // not stored - the caller can try again
+        }
+
+        writeCache(bytes);
+        return new LoadedInstanceConfig(propertyBasedInstanceConfig, newVersion);
+    }
+
+    private void writeCache(byte[] bytes) throws IOException
+    {
+        // the cache is the only fallback - replace it with a rename so that a crash can't leave it half written
+        File        tempFile = File.createTempFile(cacheFile.getName() + ".new", ".tmp", cacheFile.getAbsoluteFile().getParentFile());
+        try
+        {
+            Files.write(bytes, tempFile);
+            if ( !tempFile.renameTo(cacheFile) )
+            {
+                throw new IOException("Could not rename " + tempFile + " to " + cacheFile);
+            }
+        }
+        finally
+        {
+            if ( tempFile.exists() && !tempFile.delete() )
+            {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
+    private byte[] readCache() throws IOException
+    {
+        return cacheFile.exists() ? Files.toByteArray(cacheFile) : new byte[0];
+    }
+
+    private static Properties toProperties(byte[] bytes) throws IOException
+    {
+        Properties      properties = new Properties();
+        properties.load(new ByteArrayInputStream(bytes));
+        return properties;
+    }
+}
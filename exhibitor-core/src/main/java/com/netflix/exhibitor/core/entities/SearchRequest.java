@@ -14,13 +14,14 @@ public class SearchRequest
     private int         operationType;
     private String      reuseHandle;
     private int         maxResults;
+    private String      dataContains;
 
     public SearchRequest()
     {
-        this("", "", null, null, -1, null, 0);
+        this("", "", null, null, -1, null, 0, "");
     }
 
-    public SearchRequest(String indexName, String pathPrefix, Date firstDate, Date secondDate, int operationType, String reuseHandle, int maxResults)
+    public SearchRequest(String indexName, String pathPrefix, Date firstDate, Date secondDate, int operationType, String reuseHandle, int maxResults, String dataContains)
     {
         this.indexName = indexName;
         this.pathPrefix = pathPrefix;
@@ -29,6 +30,7 @@ public class SearchRequest
         this.operationType = operationType;
         this.reuseHandle = reuseHandle;
         this.maxResults = maxResults;
+        this.dataContains = dataContains;
     }
 
     public int getMaxResults()
@@ -100,4 +102,14 @@ public class SearchRequest
     {
         this.operationType = operationType;
     }
+
+    public String getDataContains()
+    {
+        return dataContains;
+    }
+
+    public void setDataContains(String dataContains)
+    {
+        this.dataContains = dataContains;
+    }
 }
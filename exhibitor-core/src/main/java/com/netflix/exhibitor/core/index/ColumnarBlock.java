@@ -0,0 +1,94 @@
+package com.netflix.exhibitor.core.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * A decoded block of the columnar index
+ */
+class ColumnarBlock
+{
+    final int           firstDocId;
+    final int           entryCount;
+    final long[]        zxids;
+    final long[]        times;
+    final byte[]        types;
+    final int[]         pathIds;
+    final int[]         versions;
+    final int[]         dataLengths;
+    final long[]        dataOffsets;    // offsets into the data file or, for indexes that reference data, into the log sources
+    final int[][]       termIds;        // sorted term dictionary indexes for each entry or null if data isn't searchable
+
+    ColumnarBlock(int firstDocId, ColumnarFormat.BlockHeader header, byte[] bytes, boolean dataByReference, boolean hasTerms) throws IOException
+    {
+        this.firstDocId = firstDocId;
+        entryCount = header.entryCount;
+
+        DataInputStream     in = new DataInputStream(new ByteArrayInputStream(bytes));
+        zxids = readDeltas(in);
+        times = readDeltas(in);
+        types = new byte[entryCount];
+        in.readFully(types);
+        pathIds = readValues(in);
+        versions = readValues(in);
+        dataLengths = readValues(in);
+
+        if ( dataByReference )
+        {
+            dataOffsets = readDeltas(in);
+        }
+        else
+        {
+            dataOffsets = new long[entryCount];
+            long        offset = header.dataOffset;
+            for ( int i = 0; i < entryCount; ++i )
+            {
+                dataOffsets[i] = offset;
+                offset += Math.max(0, dataLengths[i]);
+            }
+        }
+
+        if ( hasTerms )
+        {
+            termIds = new int[entryCount][];
+            for ( int i = 0; i < entryCount; ++i )
+            {
+                int[]       ids = new int[(int)ColumnarFormat.readVarLong(in)];
+                int         previous = 0;
+                for ( int j = 0; j < ids.length; ++j )
+                {
+                    previous += (int)ColumnarFormat.readVarLong(in);
+                    ids[j] = previous;
+                }
+                termIds[i] = ids;
+            }
+        }
+        else
+        {
+            termIds = null;
+        }
+    }
+
+    private long[] readDeltas(DataInputStream in) throws IOException
+    {
+        long[]      values = new long[entryCount];
+        long        previous = 0;
+        for ( int i = 0; i < entryCount; ++i )
+        {
+            previous += ColumnarFormat.readVarLong(in);
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private int[] readValues(DataInputStream in) throws IOException
+    {
+        int[]       values = new int[entryCount];
+        for ( int i = 0; i < entryCount; ++i )
+        {
+            values[i] = (int)ColumnarFormat.readVarLong(in);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,281 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.CountingOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the format described in {@link ColumnarFormat}. Only the current block is held in memory
+ */
+class ColumnarEntryWriter implements EntryWriter
+{
+    private final CountingOutputStream entriesCounter;
+    private final DataOutputStream entriesOut;
+    private final OutputStream dataOut;
+    private final Map<String, Integer> pathIds = Maps.newHashMap();
+    private final List<String> paths = Lists.newArrayList();
+    private final Map<String, Integer> termIds = Maps.newHashMap();
+    private final List<String> terms = Lists.newArrayList();
+    private final List<ColumnarFormat.BlockHeader> blocks = Lists.newArrayList();
+
+    private final long[] zxids = new long[ColumnarFormat.BLOCK_SIZE];
+    private final long[] times = new long[ColumnarFormat.BLOCK_SIZE];
+    private final byte[] types = new byte[ColumnarFormat.BLOCK_SIZE];
+    private final int[] blockPathIds = new int[ColumnarFormat.BLOCK_SIZE];
+    private final int[] versions = new int[ColumnarFormat.BLOCK_SIZE];
+    private final int[] dataLengths = new int[ColumnarFormat.BLOCK_SIZE];
+    private final long[] entryOffsets = new long[ColumnarFormat.BLOCK_SIZE];
+    private final int[][] blockTermIds = new int[ColumnarFormat.BLOCK_SIZE][];
+    private final int dataIndexMaxBytes;
+    private final boolean dataByReference;
+
+    private int blockEntryCount = 0;
+    private long blockDataOffset = 0;
+    private long dataLength = 0;
+    private int entryCount = 0;
+    private boolean isOpen = true;
+
+    private static final int[] NO_TERM_IDS = new int[0];
+
+    ColumnarEntryWriter(File indexDirectory, int dataIndexMaxBytes, boolean dataByReference) throws IOException
+    {
+        this.dataIndexMaxBytes = dataIndexMaxBytes;
+        this.dataByReference = dataByReference;
+
+        OutputStream        localDataOut = dataByReference ? null : new BufferedOutputStream(new FileOutputStream(ColumnarFormat.getDataFile(indexDirectory)));
+        try
+        {
+            entriesCounter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(ColumnarFormat.getEntriesFile(indexDirectory))));
+        }
+        catch ( IOException e )
+        {
+            Closeables.closeQuietly(localDataOut);
+            throw e;
+        }
+        dataOut = localDataOut;
+        entriesOut = new DataOutputStream(entriesCounter);
+
+        entriesOut.writeInt(ColumnarFormat.MAGIC);
+        entriesOut.writeInt(ColumnarFormat.FORMAT_VERSION);
+        entriesOut.writeInt(dataIndexMaxBytes);
+        entriesOut.writeInt(dataByReference ? ColumnarFormat.FLAG_DATA_BY_REFERENCE : 0);
+    }
+
+    @Override
+    public void add(EntryTypes type, long zxid, long time, String path, int version, byte[] data, long entryOffset, int entryLength) throws IOException
+    {
+        Integer     pathId = pathIds.get(path);
+        if ( pathId == null )
+        {
+            pathId = paths.size();
+            paths.add(path);
+            pathIds.put(path, pathId);
+        }
+
+        zxids[blockEntryCount] = zxid;
+        times[blockEntryCount] = time;
+        types[blockEntryCount] = (byte)type.getId();
+        blockPathIds[blockEntryCount] = pathId;
+        versions[blockEntryCount] = version;
+        if ( dataByReference )
+        {
+            dataLengths[blockEntryCount] = (data != null) ? entryLength : -1;
+            entryOffsets[blockEntryCount] = entryOffset;
+        }
+        else if ( data != null )
+        {
+            dataLengths[blockEntryCount] = data.length;
+            dataOut.write(data);
+            dataLength += data.length;
+        }
+        else
+        {
+            dataLengths[blockEntryCount] = -1;
+        }
+        if ( dataIndexMaxBytes > 0 )
+        {
+            blockTermIds[blockEntryCount] = getTermIds(data);
+        }
+
+        ++entryCount;
+        if ( ++blockEntryCount == ColumnarFormat.BLOCK_SIZE )
+        {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if ( !isOpen )
+        {
+            return;
+        }
+        isOpen = false;
+
+        try
+        {
+            flushBlock();
+
+            long        dictionaryOffset = entriesCounter.getCount();
+            ColumnarFormat.writeVarLong(entriesOut, paths.size());
+            for ( String path : paths )
+            {
+                entriesOut.writeUTF(path);
+            }
+            ColumnarFormat.writeVarLong(entriesOut, terms.size());
+            for ( String term : terms )
+            {
+                entriesOut.writeUTF(term);
+            }
+
+            long        directoryOffset = entriesCounter.getCount();
+            entriesOut.writeInt(blocks.size());
+            for ( ColumnarFormat.BlockHeader header : blocks )
+            {
+                header.write(entriesOut);
+            }
+
+            entriesOut.writeLong(dictionaryOffset);
+            entriesOut.writeLong(directoryOffset);
+            entriesOut.writeInt(entryCount);
+            entriesOut.writeInt(ColumnarFormat.MAGIC);
+            entriesOut.flush();
+            if ( dataOut != null )
+            {
+                dataOut.flush();
+            }
+        }
+        finally
+        {
+            Closeables.closeQuietly(entriesOut);
+            Closeables.closeQuietly(dataOut);
+        }
+    }
+
+    private void flushBlock() throws IOException
+    {
+        if ( blockEntryCount == 0 )
+        {
+            return;
+        }
+
+        long        minTime = Long.MAX_VALUE;
+        long        maxTime = Long.MIN_VALUE;
+        long        minZxid = Long.MAX_VALUE;
+        long        maxZxid = Long.MIN_VALUE;
+        int         typeMask = 0;
+        long[]      pathBloom = ColumnarFormat.newPathBloom();
+        long[]      termBloom = ColumnarFormat.newTermBloom();
+        for ( int i = 0; i < blockEntryCount; ++i )
+        {
+            minTime = Math.min(minTime, times[i]);
+            maxTime = Math.max(maxTime, times[i]);
+            minZxid = Math.min(minZxid, zxids[i]);
+            maxZxid = Math.max(maxZxid, zxids[i]);
+            typeMask |= (1 << types[i]);
+            ColumnarFormat.bloomAdd(pathBloom, blockPathIds[i]);
+            if ( dataIndexMaxBytes > 0 )
+            {
+                for ( int termId : blockTermIds[i] )
+                {
+                    ColumnarFormat.bloomAdd(termBloom, termId);
+                }
+            }
+        }
+
+        ByteArrayOutputStream   bytes = new ByteArrayOutputStream();
+        DataOutputStream        out = new DataOutputStream(bytes);
+        writeDeltas(out, zxids);
+        writeDeltas(out, times);
+        out.write(types, 0, blockEntryCount);
+        writeValues(out, blockPathIds);
+        writeValues(out, versions);
+        writeValues(out, dataLengths);
+        if ( dataByReference )
+        {
+            writeDeltas(out, entryOffsets);
+        }
+        if ( dataIndexMaxBytes > 0 )
+        {
+            writeTermIds(out);
+        }
+        out.flush();
+
+        blocks.add(new ColumnarFormat.BlockHeader(entriesCounter.getCount(), bytes.size(), blockEntryCount, blockDataOffset, minTime, maxTime, minZxid, maxZxid, typeMask, pathBloom, termBloom));
+        bytes.writeTo(entriesOut);
+
+        blockDataOffset = dataLength;
+        blockEntryCount = 0;
+    }
+
+    private void writeDeltas(DataOutputStream out, long[] values) throws IOException
+    {
+        long        previous = 0;
+        for ( int i = 0; i < blockEntryCount; ++i )
+        {
+            ColumnarFormat.writeVarLong(out, values[i] - previous);
+            previous = values[i];
+        }
+    }
+
+    private void writeTermIds(DataOutputStream out) throws IOException
+    {
+        for ( int i = 0; i < blockEntryCount; ++i )
+        {
+            int[]       ids = blockTermIds[i];
+            ColumnarFormat.writeVarLong(out, ids.length);
+            int         previous = 0;
+            for ( int id : ids )
+            {
+                ColumnarFormat.writeVarLong(out, id - previous);
+                previous = id;
+            }
+        }
+    }
+
+    private int[] getTermIds(byte[] data)
+    {
+        if ( (data == null) || (data.length == 0) )
+        {
+            return NO_TERM_IDS;
+        }
+
+        Set<String>     dataTerms = DataTokenizer.tokenize(data, dataIndexMaxBytes);
+        int[]           ids = new int[dataTerms.size()];
+        int             index = 0;
+        for ( String term : dataTerms )
+        {
+            Integer     termId = termIds.get(term);
+            if ( termId == null )
+            {
+                termId = terms.size();
+                terms.add(term);
+                termIds.put(term, termId);
+            }
+            ids[index++] = termId;
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private void writeValues(DataOutputStream out, int[] values) throws IOException
+    {
+        for ( int i = 0; i < blockEntryCount; ++i )
+        {
+            ColumnarFormat.writeVarLong(out, values[i]);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.netflix.exhibitor.core.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * <p>
+ *     Layout of the columnar index. Entries are stored in log order in blocks of up to {@link #BLOCK_SIZE}
+ *     entries. Each block holds its columns one after the other:
+ * </p>
+ * <ul>
+ *     <li>zxid - first value then deltas</li>
+ *     <li>time - first value then deltas</li>
+ *     <li>type - one byte per entry</li>
+ *     <li>path - index into the path dictionary</li>
+ *     <li>version - -1 if not a SetData</li>
+ *     <li>data length - -1 if there's no data. Data is appended to {@link #DATA_FILE_NAME} in entry order
+ *     so offsets are derived from the lengths</li>
+ *     <li>if {@link #FLAG_DATA_BY_REFERENCE} is set, the data length is the length of the entry in the
+ *     source logs and an extra column holds the entry offsets (first value then deltas). There is no data file</li>
+ *     <li>if data is searchable, the entry's data terms - a count then the sorted indexes into the term
+ *     dictionary (first value then deltas)</li>
+ * </ul>
+ * <p>
+ *     All numbers are zig-zag var-ints. After the blocks come the path dictionary, the term dictionary, the
+ *     block directory (a {@link BlockHeader} per block) and a fixed size trailer pointing at them.
+ * </p>
+ */
+class ColumnarFormat
+{
+    static final String     ENTRIES_FILE_NAME = "entries.col";
+    static final String     DATA_FILE_NAME = "data.bin";
+
+    static final int        MAGIC = 0x45584349;    // "EXCI"
+    static final int        FORMAT_VERSION = 1;
+    static final int        FLAG_DATA_BY_REFERENCE = 0x01;
+    static final int        BLOCK_SIZE = 4096;
+    static final int        TRAILER_SIZE = 8 + 8 + 4 + 4;
+
+    private static final int    PATH_BLOOM_LONGS = 32;
+    private static final int    TERM_BLOOM_LONGS = 128;     // blocks have many more distinct terms than paths
+    private static final int    BLOOM_HASHES = 3;
+
+    /**
+     * Summary of a block - kept in memory so that blocks can be skipped without being read
+     */
+    static class BlockHeader
+    {
+        final long      offset;
+        final int       length;
+        final int       entryCount;
+        final long      dataOffset;
+        final long      minTime;
+        final long      maxTime;
+        final long      minZxid;
+        final long      maxZxid;
+        final int       typeMask;
+        final long[]    pathBloom;
+        final long[]    termBloom;
+
+        BlockHeader(long offset, int length, int entryCount, long dataOffset, long minTime, long maxTime, long minZxid, long maxZxid, int typeMask, long[] pathBloom, long[] termBloom)
+        {
+            this.offset = offset;
+            this.length = length;
+            this.entryCount = entryCount;
+            this.dataOffset = dataOffset;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+            this.minZxid = minZxid;
+            this.maxZxid = maxZxid;
+            this.typeMask = typeMask;
+            this.pathBloom = pathBloom;
+            this.termBloom = termBloom;
+        }
+
+        boolean     hasType(int type)
+        {
+            return (typeMask & (1 << type)) != 0;
+        }
+
+        boolean     mayHavePath(int pathId)
+        {
+            return bloomContains(pathBloom, pathId);
+        }
+
+        boolean     mayHaveTerm(int termId)
+        {
+            return bloomContains(termBloom, termId);
+        }
+
+        void        write(DataOutput out) throws IOException
+        {
+            out.writeLong(offset);
+            out.writeInt(length);
+            out.writeInt(entryCount);
+            out.writeLong(dataOffset);
+            out.writeLong(minTime);
+            out.writeLong(maxTime);
+            out.writeLong(minZxid);
+            out.writeLong(maxZxid);
+            out.writeInt(typeMask);
+            for ( long l : pathBloom )
+            {
+                out.writeLong(l);
+            }
+            for ( long l : termBloom )
+            {
+                out.writeLong(l);
+            }
+        }
+
+        static BlockHeader read(DataInput in) throws IOException
+        {
+            long        offset = in.readLong();
+            int         length = in.readInt();
+            int         entryCount = in.readInt();
+            long        dataOffset = in.readLong();
+            long        minTime = in.readLong();
+            long        maxTime = in.readLong();
+            long        minZxid = in.readLong();
+            long        maxZxid = in.readLong();
+            int         typeMask = in.readInt();
+            long[]      pathBloom = newPathBloom();
+            for ( int i = 0; i < pathBloom.length; ++i )
+            {
+                pathBloom[i] = in.readLong();
+            }
+            long[]      termBloom = newTermBloom();
+            for ( int i = 0; i < termBloom.length; ++i )
+            {
+                termBloom[i] = in.readLong();
+            }
+            return new BlockHeader(offset, length, entryCount, dataOffset, minTime, maxTime, minZxid, maxZxid, typeMask, pathBloom, termBloom);
+        }
+    }
+
+    static File         getEntriesFile(File indexDirectory)
+    {
+        return new File(indexDirectory, ENTRIES_FILE_NAME);
+    }
+
+    static File         getDataFile(File indexDirectory)
+    {
+        return new File(indexDirectory, DATA_FILE_NAME);
+    }
+
+    static long[]       newPathBloom()
+    {
+        return new long[PATH_BLOOM_LONGS];
+    }
+
+    static long[]       newTermBloom()
+    {
+        return new long[TERM_BLOOM_LONGS];
+    }
+
+    static void         bloomAdd(long[] bloom, int value)
+    {
+        int     hash1 = value * 0x9e3779b1;
+        int     hash2 = ((value ^ (value >>> 16)) * 0x85ebca6b) | 1;
+        for ( int i = 0; i < BLOOM_HASHES; ++i )
+        {
+            int     bit = (hash1 + (i * hash2)) & ((bloom.length * 64) - 1);
+            bloom[bit >>> 6] |= (1L << bit);
+        }
+    }
+
+    static boolean      bloomContains(long[] bloom, int value)
+    {
+        int     hash1 = value * 0x9e3779b1;
+        int     hash2 = ((value ^ (value >>> 16)) * 0x85ebca6b) | 1;
+        for ( int i = 0; i < BLOOM_HASHES; ++i )
+        {
+            int     bit = (hash1 + (i * hash2)) & ((bloom.length * 64) - 1);
+            if ( (bloom[bit >>> 6] & (1L << bit)) == 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void         writeVarLong(DataOutput out, long value) throws IOException
+    {
+        long    zigZag = (value << 1) ^ (value >> 63);
+        while ( (zigZag & ~0x7fL) != 0 )
+        {
+            out.writeByte((int)((zigZag & 0x7f) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.writeByte((int)zigZag);
+    }
+
+    static long         readVarLong(DataInput in) throws IOException
+    {
+        long    zigZag = 0;
+        int     shift = 0;
+        int     b;
+        do
+        {
+            b = in.readUnsignedByte();
+            zigZag |= ((long)(b & 0x7f)) << shift;
+            shift += 7;
+        } while ( (b & 0x80) != 0 );
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
+    private ColumnarFormat()
+    {
+    }
+}
@@ -0,0 +1,357 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.cache.CacheLoader;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.netflix.exhibitor.core.temp.CacheBuilder;
+import com.netflix.exhibitor.core.temp.LoadingCache;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Searches an index written by {@link ColumnarEntryWriter}. Only the path and term dictionaries and the
+ * block summaries are kept in memory - blocks are decoded on demand and softly cached
+ */
+public class ColumnarLogSearch implements LogSearch
+{
+    private final File file;
+    private final RandomAccessFile entriesFile;
+    private final RandomAccessFile dataFile;
+    private final LogSourceReader sourceReader;
+    private final String[] paths;
+    private final Map<String, Integer> termIds;
+    private final ColumnarFormat.BlockHeader[] blocks;
+    private final int entryCount;
+    private final int dataIndexMaxBytes;
+    private final boolean dataByReference;
+    private final SearchCache cache = new SearchCache();
+    private final LoadingCache<Integer, ColumnarBlock> blockCache = CacheBuilder.newBuilder()
+        .softValues()
+        .build
+        (
+            new CacheLoader<Integer, ColumnarBlock>()
+            {
+                @Override
+                public ColumnarBlock load(Integer blockIndex) throws Exception
+                {
+                    return readBlock(blockIndex);
+                }
+            }
+        );
+
+    private static class Hit
+    {
+        final int       docId;
+        final long      time;
+
+        Hit(int docId, long time)
+        {
+            this.docId = docId;
+            this.time = time;
+        }
+    }
+
+    // oldest first so that the head is the one to drop when the queue is full
+    private static final Comparator<Hit>    HIT_COMPARATOR = new Comparator<Hit>()
+    {
+        @Override
+        public int compare(Hit hit1, Hit hit2)
+        {
+            if ( hit1.time != hit2.time )
+            {
+                return (hit1.time < hit2.time) ? -1 : 1;
+            }
+            return (hit1.docId < hit2.docId) ? -1 : ((hit1.docId == hit2.docId) ? 0 : 1);
+        }
+    };
+
+    public ColumnarLogSearch(File file) throws Exception
+    {
+        this(file, null);
+    }
+
+    /**
+     * @param file the index
+     * @param restorer used to recover source logs that no longer exist or null
+     * @throws Exception errors
+     */
+    public ColumnarLogSearch(File file, LogSourceRestorer restorer) throws Exception
+    {
+        this.file = file;
+        entriesFile = new RandomAccessFile(ColumnarFormat.getEntriesFile(file), "r");
+
+        RandomAccessFile    localDataFile = null;
+        LogSourceReader     localSourceReader = null;
+        try
+        {
+            if ( (entriesFile.readInt() != ColumnarFormat.MAGIC) || (entriesFile.readInt() != ColumnarFormat.FORMAT_VERSION) )
+            {
+                throw new IOException("Not a columnar index: " + file);
+            }
+            dataIndexMaxBytes = entriesFile.readInt();
+            int     flags = entriesFile.readInt();
+            dataByReference = (flags & ColumnarFormat.FLAG_DATA_BY_REFERENCE) != 0;
+            if ( dataByReference )
+            {
+                localSourceReader = new LogSourceReader(file, LogSources.read(file), restorer);
+            }
+            else
+            {
+                localDataFile = new RandomAccessFile(ColumnarFormat.getDataFile(file), "r");
+            }
+
+            long        length = entriesFile.length();
+            entriesFile.seek(length - ColumnarFormat.TRAILER_SIZE);
+            long        dictionaryOffset = entriesFile.readLong();
+            long        directoryOffset = entriesFile.readLong();
+            entryCount = entriesFile.readInt();
+            if ( entriesFile.readInt() != ColumnarFormat.MAGIC )
+            {
+                throw new IOException("Columnar index is incomplete: " + file);
+            }
+
+            // the dictionary and directory are contiguous - read them in one go
+            DataInputStream     in = new DataInputStream(new ByteArrayInputStream(read(entriesFile.getChannel(), dictionaryOffset, (int)((length - ColumnarFormat.TRAILER_SIZE) - dictionaryOffset))));
+            paths = new String[(int)ColumnarFormat.readVarLong(in)];
+            for ( int i = 0; i < paths.length; ++i )
+            {
+                paths[i] = in.readUTF();
+            }
+            int                 termQty = (int)ColumnarFormat.readVarLong(in);
+            termIds = Maps.newHashMapWithExpectedSize(termQty);
+            for ( int i = 0; i < termQty; ++i )
+            {
+                termIds.put(in.readUTF(), i);
+            }
+
+            in = new DataInputStream(new ByteArrayInputStream(read(entriesFile.getChannel(), directoryOffset, (int)((length - ColumnarFormat.TRAILER_SIZE) - directoryOffset))));
+            blocks = new ColumnarFormat.BlockHeader[in.readInt()];
+            for ( int i = 0; i < blocks.length; ++i )
+            {
+                blocks[i] = ColumnarFormat.BlockHeader.read(in);
+            }
+        }
+        catch ( Exception e )
+        {
+            Closeables.closeQuietly(entriesFile);
+            Closeables.closeQuietly(localDataFile);
+            Closeables.closeQuietly(localSourceReader);
+            throw e;
+        }
+        dataFile = localDataFile;
+        sourceReader = localSourceReader;
+    }
+
+    @Override
+    public File getFile()
+    {
+        return file;
+    }
+
+    @Override
+    public int getDocQty()
+    {
+        return entryCount;
+    }
+
+    @Override
+    public void releaseCache(String id)
+    {
+        cache.release(id);
+    }
+
+    @Override
+    public String cacheSearch(Query query, String reuseId, int maxResults) throws IOException
+    {
+        return cache.cacheSearch(this, query, reuseId, maxResults);
+    }
+
+    @Override
+    public CachedSearch getCachedSearch(String id)
+    {
+        return cache.getCachedSearch(id, getDocQty());
+    }
+
+    @Override
+    public TopDocs search(Query query, int maxResults) throws IOException
+    {
+        ColumnarQuery.Matcher   matcher = ColumnarQuery.compile(query, this);
+        PriorityQueue<Hit>      hits = new PriorityQueue<Hit>(Math.max(1, maxResults), HIT_COMPARATOR);
+        int                     totalHits = 0;
+        for ( int blockIndex = 0; blockIndex < blocks.length; ++blockIndex )
+        {
+            if ( !matcher.mayMatch(blocks[blockIndex]) )
+            {
+                continue;
+            }
+
+            ColumnarBlock   block = getBlock(blockIndex);
+            for ( int i = 0; i < block.entryCount; ++i )
+            {
+                if ( matcher.matches(block, i) )
+                {
+                    ++totalHits;
+                    hits.add(new Hit(block.firstDocId + i, block.times[i]));
+                    if ( hits.size() > maxResults )
+                    {
+                        hits.poll();
+                    }
+                }
+            }
+        }
+
+        ScoreDoc[]      scoreDocs = new ScoreDoc[hits.size()];
+        for ( int i = scoreDocs.length - 1; i >= 0; --i )
+        {
+            scoreDocs[i] = new ScoreDoc(hits.poll().docId, Float.NaN);
+        }
+        return new TopDocs(totalHits, scoreDocs, Float.NaN);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Blocks are skipped using their summaries. i.e. date range queries only touch the blocks in the range
+     */
+    @Override
+    public SearchFacets getFacets(Query query, Date startDate, Date endDate, int bucketQty) throws IOException
+    {
+        ColumnarQuery.Matcher   matcher = ColumnarQuery.compile(query, this);
+        FacetCollector          collector = new FacetCollector(startDate.getTime(), endDate.getTime(), bucketQty);
+        for ( int blockIndex = 0; blockIndex < blocks.length; ++blockIndex )
+        {
+            if ( !matcher.mayMatch(blocks[blockIndex]) )
+            {
+                continue;
+            }
+
+            ColumnarBlock   block = getBlock(blockIndex);
+            for ( int i = 0; i < block.entryCount; ++i )
+            {
+                if ( matcher.matches(block, i) )
+                {
+                    collector.count(block.times[i], block.types[i]);
+                }
+            }
+        }
+        return collector.getFacets();
+    }
+
+    @Override
+    public SearchItem toResult(int documentId) throws IOException
+    {
+        if ( (documentId < 0) || (documentId >= entryCount) )
+        {
+            return null;
+        }
+
+        ColumnarBlock   block = getBlock(documentId / ColumnarFormat.BLOCK_SIZE);
+        int             index = documentId - block.firstDocId;
+        return new SearchItem
+        (
+            block.types[index],
+            paths[block.pathIds[index]],
+            block.versions[index],
+            new Date(block.times[index])
+        );
+    }
+
+    @Override
+    public byte[] toData(int documentId) throws IOException
+    {
+        if ( (documentId < 0) || (documentId >= entryCount) )
+        {
+            return null;
+        }
+
+        ColumnarBlock   block = getBlock(documentId / ColumnarFormat.BLOCK_SIZE);
+        return readData(block, documentId - block.firstDocId);
+    }
+
+    @Override
+    public void close()
+    {
+        Closeables.closeQuietly(entriesFile);
+        Closeables.closeQuietly(dataFile);
+        Closeables.closeQuietly(sourceReader);
+    }
+
+    String[]        getPaths()
+    {
+        return paths;
+    }
+
+    int             getDataIndexMaxBytes()
+    {
+        return dataIndexMaxBytes;
+    }
+
+    /**
+     * @param term a data term
+     * @return the term's index in the term dictionary or -1 if no entry has it
+     */
+    int             getTermId(String term)
+    {
+        Integer     termId = termIds.get(term);
+        return (termId != null) ? termId : -1;
+    }
+
+    private byte[]  readData(ColumnarBlock block, int index) throws IOException
+    {
+        int     length = block.dataLengths[index];
+        if ( length < 0 )
+        {
+            return null;
+        }
+        return dataByReference ? sourceReader.readData(block.dataOffsets[index], length) : read(dataFile.getChannel(), block.dataOffsets[index], length);
+    }
+
+    private ColumnarBlock getBlock(int blockIndex) throws IOException
+    {
+        try
+        {
+            return blockCache.get(blockIndex);
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof IOException )
+            {
+                throw (IOException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private ColumnarBlock readBlock(int blockIndex) throws IOException
+    {
+        ColumnarFormat.BlockHeader  header = blocks[blockIndex];
+        return new ColumnarBlock(blockIndex * ColumnarFormat.BLOCK_SIZE, header, read(entriesFile.getChannel(), header.offset, header.length), dataByReference, dataIndexMaxBytes > 0);
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException
+    {
+        // positional reads don't move the channel's position so concurrent searches are safe
+        ByteBuffer      buffer = ByteBuffer.allocate(length);
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read(buffer, position + buffer.position()) < 0 )
+            {
+                throw new IOException("Unexpected end of index file");
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,504 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates the queries made by {@link QueryBuilder} against a columnar index. Path related
+ * clauses are resolved against the path dictionary once so that per-entry checks are a bit lookup
+ */
+class ColumnarQuery
+{
+    interface Matcher
+    {
+        /**
+         * @param header block summary
+         * @return false if no entry in the block can match
+         */
+        public boolean      mayMatch(ColumnarFormat.BlockHeader header);
+
+        public boolean      matches(ColumnarBlock block, int index) throws IOException;
+    }
+
+    private interface PathPredicate
+    {
+        public boolean      apply(String path);
+    }
+
+    private static final int        MAX_BLOOM_CHECKS = 64;
+
+    private static final Matcher    ALL = new Matcher()
+    {
+        @Override
+        public boolean mayMatch(ColumnarFormat.BlockHeader header)
+        {
+            return true;
+        }
+
+        @Override
+        public boolean matches(ColumnarBlock block, int index)
+        {
+            return true;
+        }
+    };
+
+    /**
+     * Convert the query into a matcher
+     *
+     * @param query the query or null for all entries
+     * @param search the index being searched
+     * @return matcher
+     * @throws IllegalArgumentException if the query can't be evaluated against a columnar index
+     */
+    static Matcher      compile(Query query, ColumnarLogSearch search)
+    {
+        if ( (query == null) || (query instanceof MatchAllDocsQuery) )
+        {
+            return ALL;
+        }
+
+        if ( query instanceof BooleanQuery )
+        {
+            return compileBoolean((BooleanQuery)query, search);
+        }
+
+        if ( query instanceof TermQuery )
+        {
+            return compileTerm(((TermQuery)query).getTerm().field(), ((TermQuery)query).getTerm().text(), search);
+        }
+
+        if ( query instanceof PrefixQuery )
+        {
+            final String    prefix = ((PrefixQuery)query).getPrefix().text();
+            if ( ((PrefixQuery)query).getPrefix().field().equals(FieldNames.PATH) )
+            {
+                return pathMatcher(search, new PathPredicate()
+                {
+                    @Override
+                    public boolean apply(String path)
+                    {
+                        return path.startsWith(prefix);
+                    }
+                });
+            }
+        }
+
+        if ( query instanceof WildcardQuery )
+        {
+            String          field = ((WildcardQuery)query).getTerm().field();
+            final Pattern   pattern = wildcardToPattern(((WildcardQuery)query).getTerm().text());
+            if ( field.equals(FieldNames.NAME) )
+            {
+                return pathMatcher(search, new PathPredicate()
+                {
+                    @Override
+                    public boolean apply(String path)
+                    {
+                        return pattern.matcher(PathHierarchy.getName(path)).matches();
+                    }
+                });
+            }
+            if ( field.equals(FieldNames.PATH) )
+            {
+                return pathMatcher(search, new PathPredicate()
+                {
+                    @Override
+                    public boolean apply(String path)
+                    {
+                        return pattern.matcher(path).matches();
+                    }
+                });
+            }
+        }
+
+        if ( query instanceof NumericRangeQuery )
+        {
+            return compileRange((NumericRangeQuery<?>)query, search);
+        }
+
+        throw new IllegalArgumentException("Query not supported by the columnar index: " + query);
+    }
+
+    private static Matcher compileBoolean(BooleanQuery query, ColumnarLogSearch search)
+    {
+        final List<Matcher>     musts = Lists.newArrayList();
+        final List<Matcher>     shoulds = Lists.newArrayList();
+        final List<Matcher>     mustNots = Lists.newArrayList();
+        Set<String>             dataTerms = Sets.newHashSet();
+        for ( BooleanClause clause : query.clauses() )
+        {
+            Query       subQuery = clause.getQuery();
+            if ( (clause.getOccur() == BooleanClause.Occur.MUST) && (subQuery instanceof TermQuery) && ((TermQuery)subQuery).getTerm().field().equals(FieldNames.DATA_TERMS) )
+            {
+                // check the block term filters once for all of the terms
+                dataTerms.add(((TermQuery)subQuery).getTerm().text());
+                continue;
+            }
+
+            Matcher     matcher = compile(subQuery, search);
+            switch ( clause.getOccur() )
+            {
+                case MUST:
+                {
+                    musts.add(matcher);
+                    break;
+                }
+
+                case SHOULD:
+                {
+                    shoulds.add(matcher);
+                    break;
+                }
+
+                case MUST_NOT:
+                {
+                    mustNots.add(matcher);
+                    break;
+                }
+            }
+        }
+        if ( dataTerms.size() > 0 )
+        {
+            musts.add(dataMatcher(search, dataTerms));
+        }
+
+        return new Matcher()
+        {
+            @Override
+            public boolean mayMatch(ColumnarFormat.BlockHeader header)
+            {
+                for ( Matcher matcher : musts )
+                {
+                    if ( !matcher.mayMatch(header) )
+                    {
+                        return false;
+                    }
+                }
+                if ( musts.size() > 0 )
+                {
+                    return true;
+                }
+                for ( Matcher matcher : shoulds )
+                {
+                    if ( matcher.mayMatch(header) )
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public boolean matches(ColumnarBlock block, int index) throws IOException
+            {
+                for ( Matcher matcher : musts )
+                {
+                    if ( !matcher.matches(block, index) )
+                    {
+                        return false;
+                    }
+                }
+                for ( Matcher matcher : mustNots )
+                {
+                    if ( matcher.matches(block, index) )
+                    {
+                        return false;
+                    }
+                }
+                if ( musts.size() > 0 )
+                {
+                    return true;
+                }
+                for ( Matcher matcher : shoulds )
+                {
+                    if ( matcher.matches(block, index) )
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    private static Matcher compileTerm(String field, final String text, ColumnarLogSearch search)
+    {
+        if ( field.equals(FieldNames.TYPE) )
+        {
+            EntryTypes      type = EntryTypes.getFromId(text);
+            final int       typeId = (type != null) ? type.getId() : -1;
+            return new Matcher()
+            {
+                @Override
+                public boolean mayMatch(ColumnarFormat.BlockHeader header)
+                {
+                    return (typeId >= 0) && header.hasType(typeId);
+                }
+
+                @Override
+                public boolean matches(ColumnarBlock block, int index)
+                {
+                    return block.types[index] == typeId;
+                }
+            };
+        }
+
+        if ( field.equals(FieldNames.PATH) )
+        {
+            return pathMatcher(search, new PathPredicate()
+            {
+                @Override
+                public boolean apply(String path)
+                {
+                    return path.equals(text);
+                }
+            });
+        }
+
+        if ( field.equals(FieldNames.ANCESTOR) )
+        {
+            return pathMatcher(search, new PathPredicate()
+            {
+                @Override
+                public boolean apply(String path)
+                {
+                    return PathHierarchy.getAncestors(path).contains(text);
+                }
+            });
+        }
+
+        if ( field.equals(FieldNames.NAME) )
+        {
+            return pathMatcher(search, new PathPredicate()
+            {
+                @Override
+                public boolean apply(String path)
+                {
+                    return PathHierarchy.getName(path).equals(text);
+                }
+            });
+        }
+
+        if ( field.equals(FieldNames.DATA_TERMS) )
+        {
+            return dataMatcher(search, Sets.newHashSet(text));
+        }
+
+        throw new IllegalArgumentException("Field not supported by the columnar index: " + field);
+    }
+
+    private static Matcher compileRange(NumericRangeQuery<?> query, ColumnarLogSearch search)
+    {
+        final long      min = getMin(query);
+        final long      max = getMax(query);
+        if ( query.getField().equals(FieldNames.DATE) )
+        {
+            return new Matcher()
+            {
+                @Override
+                public boolean mayMatch(ColumnarFormat.BlockHeader header)
+                {
+                    return (header.maxTime >= min) && (header.minTime <= max);
+                }
+
+                @Override
+                public boolean matches(ColumnarBlock block, int index)
+                {
+                    return (block.times[index] >= min) && (block.times[index] <= max);
+                }
+            };
+        }
+
+        if ( query.getField().equals(FieldNames.VERSION) )
+        {
+            return new Matcher()
+            {
+                @Override
+                public boolean mayMatch(ColumnarFormat.BlockHeader header)
+                {
+                    return header.hasType(EntryTypes.SET_DATA.getId());
+                }
+
+                @Override
+                public boolean matches(ColumnarBlock block, int index)
+                {
+                    return (block.types[index] == EntryTypes.SET_DATA.getId()) && (block.versions[index] >= min) && (block.versions[index] <= max);
+                }
+            };
+        }
+
+        if ( query.getField().equals(FieldNames.DEPTH) )
+        {
+            return pathMatcher(search, new PathPredicate()
+            {
+                @Override
+                public boolean apply(String path)
+                {
+                    int     depth = PathHierarchy.getDepth(path);
+                    return (depth >= min) && (depth <= max);
+                }
+            });
+        }
+
+        throw new IllegalArgumentException("Field not supported by the columnar index: " + query.getField());
+    }
+
+    private static Matcher pathMatcher(ColumnarLogSearch search, PathPredicate predicate)
+    {
+        String[]            paths = search.getPaths();
+        final BitSet        pathIds = new BitSet(paths.length);
+        for ( int i = 0; i < paths.length; ++i )
+        {
+            if ( predicate.apply(paths[i]) )
+            {
+                pathIds.set(i);
+            }
+        }
+        final int           cardinality = pathIds.cardinality();
+
+        return new Matcher()
+        {
+            @Override
+            public boolean mayMatch(ColumnarFormat.BlockHeader header)
+            {
+                if ( cardinality == 0 )
+                {
+                    return false;
+                }
+                if ( cardinality > MAX_BLOOM_CHECKS )
+                {
+                    return true;
+                }
+                for ( int i = pathIds.nextSetBit(0); i >= 0; i = pathIds.nextSetBit(i + 1) )
+                {
+                    if ( header.mayHavePath(i) )
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public boolean matches(ColumnarBlock block, int index)
+            {
+                return pathIds.get(block.pathIds[index]);
+            }
+        };
+    }
+
+    private static Matcher dataMatcher(ColumnarLogSearch search, Set<String> terms)
+    {
+        // same as Lucene - data isn't searchable unless it was enabled when indexing
+        boolean         isSearchable = search.getDataIndexMaxBytes() > 0;
+        final int[]     termIds = new int[terms.size()];
+        int             index = 0;
+        for ( String term : terms )
+        {
+            int     termId = search.getTermId(term);
+            isSearchable = isSearchable && (termId >= 0);   // a term no entry has matches nothing
+            termIds[index++] = termId;
+        }
+        final boolean   mayMatchAny = isSearchable;
+
+        return new Matcher()
+        {
+            @Override
+            public boolean mayMatch(ColumnarFormat.BlockHeader header)
+            {
+                if ( !mayMatchAny )
+                {
+                    return false;
+                }
+                for ( int termId : termIds )
+                {
+                    if ( !header.mayHaveTerm(termId) )
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public boolean matches(ColumnarBlock block, int index)
+            {
+                int[]       entryTermIds = block.termIds[index];
+                for ( int termId : termIds )
+                {
+                    if ( Arrays.binarySearch(entryTermIds, termId) < 0 )
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    private static long getMin(NumericRangeQuery<?> query)
+    {
+        Number      min = query.getMin();
+        if ( min == null )
+        {
+            return Long.MIN_VALUE;
+        }
+        return query.includesMin() ? min.longValue() : (min.longValue() + 1);
+    }
+
+    private static long getMax(NumericRangeQuery<?> query)
+    {
+        Number      max = query.getMax();
+        if ( max == null )
+        {
+            return Long.MAX_VALUE;
+        }
+        return query.includesMax() ? max.longValue() : (max.longValue() - 1);
+    }
+
+    private static Pattern wildcardToPattern(String wildcard)
+    {
+        StringBuilder       regex = new StringBuilder();
+        StringBuilder       literal = new StringBuilder();
+        for ( int i = 0; i < wildcard.length(); ++i )
+        {
+            char        c = wildcard.charAt(i);
+            if ( (c == '*') || (c == '?') )
+            {
+                if ( literal.length() > 0 )
+                {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append((c == '*') ? ".*" : ".");
+            }
+            else
+            {
+                literal.append(c);
+            }
+        }
+        if ( literal.length() > 0 )
+        {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private ColumnarQuery()
+    {
+    }
+}
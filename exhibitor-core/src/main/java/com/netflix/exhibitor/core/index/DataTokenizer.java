@@ -0,0 +1,240 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.collect.Sets;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts ZNode payloads into searchable terms. UTF-8 text is split into words, JSON
+ * is flattened into key paths and value words and anything else is indexed as byte n-grams
+ */
+class DataTokenizer
+{
+    static final int                NGRAM_SIZE = 4;
+
+    private static final int        MAX_TOKEN_LENGTH = 255;
+    private static final String     NGRAM_PREFIX = "0x";
+    private static final Charset    UTF8 = Charset.forName("UTF-8");
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Return the terms for the given payload
+     *
+     * @param data the payload
+     * @param maxBytes max number of payload bytes to consider
+     * @return terms
+     */
+    static Set<String>      tokenize(byte[] data, int maxBytes)
+    {
+        int         length = Math.min(data.length, maxBytes);
+        if ( length < data.length )
+        {
+            // don't split a multi-byte character
+            while ( (length > 0) && ((data[length] & 0xc0) == 0x80) )
+            {
+                --length;
+            }
+        }
+
+        String      text = decodeText(data, length);
+        if ( text == null )
+        {
+            return tokenizeBytes(data, length);
+        }
+
+        Set<String> terms = Sets.newLinkedHashSet();
+        String      trimmed = text.trim();
+        if ( trimmed.startsWith("{") || trimmed.startsWith("[") )
+        {
+            try
+            {
+                addJson(terms, "", mapper.readTree(trimmed));
+                return terms;
+            }
+            catch ( Exception ignore )
+            {
+                // not JSON (or truncated) - treat as plain text
+                terms.clear();
+            }
+        }
+        addText(terms, text);
+        return terms;
+    }
+
+    /**
+     * Return the word terms for the given text. Used for both indexing and searching
+     *
+     * @param text text
+     * @return terms
+     */
+    static Set<String>      tokenizeText(String text)
+    {
+        Set<String> terms = Sets.newLinkedHashSet();
+        addText(terms, text);
+        return terms;
+    }
+
+    /**
+     * Return the n-gram terms for the given bytes. Used for both indexing and searching
+     *
+     * @param bytes bytes
+     * @param length number of bytes to use
+     * @return terms
+     */
+    static Set<String>      tokenizeBytes(byte[] bytes, int length)
+    {
+        Set<String>     terms = Sets.newLinkedHashSet();
+        StringBuilder   str = new StringBuilder();
+        for ( int i = 0; (i + NGRAM_SIZE) <= length; ++i )
+        {
+            str.setLength(0);
+            str.append(NGRAM_PREFIX);
+            for ( int j = 0; j < NGRAM_SIZE; ++j )
+            {
+                int     b = bytes[i + j] & 0xff;
+                if ( b < 0x10 )
+                {
+                    str.append('0');
+                }
+                str.append(Integer.toHexString(b));
+            }
+            terms.add(str.toString());
+        }
+        return terms;
+    }
+
+    private static String decodeText(byte[] data, int length)
+    {
+        CharsetDecoder  decoder = UTF8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer      chars;
+        try
+        {
+            chars = decoder.decode(ByteBuffer.wrap(data, 0, length));
+        }
+        catch ( CharacterCodingException e )
+        {
+            return null;
+        }
+
+        for ( int i = 0; i < chars.length(); ++i )
+        {
+            char    c = chars.charAt(i);
+            if ( Character.isISOControl(c) && !Character.isWhitespace(c) )
+            {
+                return null;
+            }
+        }
+        return chars.toString();
+    }
+
+    private static void addJson(Set<String> terms, String keyPath, JsonNode node)
+    {
+        if ( node.isObject() )
+        {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.getFields();
+            while ( fields.hasNext() )
+            {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String                      thisKeyPath = (keyPath.length() > 0) ? (keyPath + "." + field.getKey()) : field.getKey();
+                addWord(terms, thisKeyPath.toLowerCase());
+                addJson(terms, thisKeyPath, field.getValue());
+            }
+        }
+        else if ( node.isArray() )
+        {
+            for ( JsonNode child : node )
+            {
+                addJson(terms, keyPath, child);
+            }
+        }
+        else if ( node.isValueNode() )
+        {
+            addText(terms, node.asText());
+        }
+    }
+
+    private static void addText(Set<String> terms, String text)
+    {
+        StringBuilder   word = new StringBuilder();
+        for ( int i = 0; i <= text.length(); ++i )
+        {
+            char    c = (i < text.length()) ? text.charAt(i) : ' ';
+            if ( Character.isLetterOrDigit(c) || isWordSeparator(c) )
+            {
+                word.append(Character.toLowerCase(c));
+            }
+            else if ( word.length() > 0 )
+            {
+                addWord(terms, word.toString());
+                word.setLength(0);
+            }
+        }
+    }
+
+    private static void addWord(Set<String> terms, String word)
+    {
+        // keep things like host names whole but also index their parts
+        String      trimmed = trimSeparators(word);
+        if ( trimmed.length() == 0 )
+        {
+            return;
+        }
+        addTerm(terms, trimmed);
+
+        int         start = 0;
+        for ( int i = 0; i <= trimmed.length(); ++i )
+        {
+            if ( (i == trimmed.length()) || isWordSeparator(trimmed.charAt(i)) )
+            {
+                if ( (i > start) && ((i - start) < trimmed.length()) )
+                {
+                    addTerm(terms, trimmed.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    private static String trimSeparators(String word)
+    {
+        int     start = 0;
+        int     end = word.length();
+        while ( (start < end) && isWordSeparator(word.charAt(start)) )
+        {
+            ++start;
+        }
+        while ( (end > start) && isWordSeparator(word.charAt(end - 1)) )
+        {
+            --end;
+        }
+        return word.substring(start, end);
+    }
+
+    private static void addTerm(Set<String> terms, String term)
+    {
+        if ( (term.length() > 0) && (term.length() <= MAX_TOKEN_LENGTH) )
+        {
+            terms.add(term);
+        }
+    }
+
+    private static boolean isWordSeparator(char c)
+    {
+        return (c == '.') || (c == '-') || (c == '_');
+    }
+
+    private DataTokenizer()
+    {
+    }
+}
@@ -1,5 +1,6 @@
 package com.netflix.exhibitor.core.index;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import java.io.BufferedInputStream;
 import java.io.File;
@@ -12,6 +13,7 @@ import java.util.List;
 public class DirectoryInputStream extends InputStream
 {
     private final List<File>    files;
+    private final List<File>    originalFiles;
     private final long          totalLength;
     private final File          directory;
 
@@ -23,6 +25,7 @@ public class DirectoryInputStream extends InputStream
     {
         this.directory = directory;
         files = Lists.newArrayList(Arrays.asList(directory.listFiles()));
+        originalFiles = ImmutableList.copyOf(files);
         
         int     length = 0;
         for ( File f : files )
@@ -37,6 +40,16 @@ public class DirectoryInputStream extends InputStream
         return directory;
     }
 
+    /**
+     * Return the files in the order they are read
+     *
+     * @return files
+     */
+    public List<File> getFiles()
+    {
+        return originalFiles;
+    }
+
     public long length()
     {
         return totalLength;
@@ -0,0 +1,26 @@
+package com.netflix.exhibitor.core.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the parsed log entries and writes them in an engine specific format. Closing
+ * the writer finishes the index
+ */
+interface EntryWriter extends Closeable
+{
+    /**
+     * Add an entry. Entries are added in log order
+     *
+     * @param type entry type
+     * @param zxid the transaction id
+     * @param time transaction time
+     * @param path the ZNode path
+     * @param version the data version or -1
+     * @param data the data or null
+     * @param entryOffset offset of the entry in the log sources - only stored if the writer references data
+     * @param entryLength length of the entry in the log sources
+     * @throws IOException errors
+     */
+    public void     add(EntryTypes type, long zxid, long time, String path, int version, byte[] data, long entryOffset, int entryLength) throws IOException;
+}
@@ -0,0 +1,90 @@
+package com.netflix.exhibitor.core.index;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.search.Scorer;
+import java.io.IOException;
+
+/**
+ * Collects date/type counts directly from the field cache - documents are never loaded
+ */
+class FacetCollector extends Collector
+{
+    private final long      startMs;
+    private final long      endMs;
+    private final long      bucketMs;
+    private final int[]     dateCounts;
+    private final int[]     typeCounts = new int[EntryTypes.values().length];
+
+    private static final int    MAX_BUCKETS = 1000;
+
+    // set per segment
+    private long[]          dates;
+    private int[]           types;
+
+    FacetCollector(long startMs, long endMs, int bucketQty)
+    {
+        this.startMs = startMs;
+        this.endMs = endMs;
+
+        if ( (bucketQty <= 0) || (bucketQty > MAX_BUCKETS) )
+        {
+            bucketQty = MAX_BUCKETS;
+        }
+
+        long    span = Math.max(1, (endMs - startMs) + 1);
+        bucketMs = Math.max(1, (span + bucketQty - 1) / bucketQty);
+        dateCounts = new int[(int)((span + bucketMs - 1) / bucketMs)];
+    }
+
+    SearchFacets getFacets()
+    {
+        return new SearchFacets(startMs, bucketMs, dateCounts, typeCounts);
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException
+    {
+        // scores aren't used
+    }
+
+    @Override
+    public void collect(int doc) throws IOException
+    {
+        count(dates[doc], types[doc]);
+    }
+
+    /**
+     * Count an entry directly - for index formats that don't use Lucene searching
+     *
+     * @param date entry date
+     * @param type entry type
+     */
+    void count(long date, int type)
+    {
+        if ( (type >= 0) && (type < typeCounts.length) )
+        {
+            ++typeCounts[type];
+        }
+
+        if ( (date >= startMs) && (date <= endMs) )
+        {
+            ++dateCounts[(int)((date - startMs) / bucketMs)];
+        }
+    }
+
+    @Override
+    public void setNextReader(IndexReader reader, int docBase) throws IOException
+    {
+        // the FieldCache keeps these arrays per segment reader so they're only built once for the life of the LogSearch
+        dates = FieldCache.DEFAULT.getLongs(reader, FieldNames.DATE, FieldCache.NUMERIC_UTILS_LONG_PARSER);
+        types = FieldCache.DEFAULT.getInts(reader, FieldNames.TYPE, FieldCache.DEFAULT_INT_PARSER);
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder()
+    {
+        return true;
+    }
+}
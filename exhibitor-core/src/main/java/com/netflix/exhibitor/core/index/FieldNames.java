@@ -4,8 +4,14 @@ class FieldNames
 {
     static final String      TYPE = "type";
     static final String      PATH = "path";
+    static final String      ANCESTOR = "ancestor";
+    static final String      DEPTH = "depth";
+    static final String      NAME = "name";
     static final String      DATE = "date";
     static final String      DATA = "data";
+    static final String      DATA_TERMS = "dataTerms";
+    static final String      SOURCE_OFFSET = "sourceOffset";
+    static final String      SOURCE_LENGTH = "sourceLength";
     static final String      VERSION = "version";
 
     private FieldNames()
@@ -1,17 +1,21 @@
 package com.netflix.exhibitor.core.index;
 
 import com.google.common.io.Closeables;
-import com.netflix.exhibitor.core.activity.Activity;
 import com.netflix.exhibitor.core.activity.ActivityLog;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
+import com.netflix.exhibitor.core.activity.KeyedActivity;
+import com.netflix.exhibitor.core.activity.ProgressActivity;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
-public class IndexActivity implements Activity
+public class IndexActivity implements KeyedActivity, ProgressActivity
 {
     private final LogIndexer indexer;
     private final ActivityLog log;
     private final CompletionListener completionListener;
+    private final String key;
+    private final ScheduledExecutorService progressScheduler;
 
     public interface CompletionListener
     {
@@ -20,9 +24,46 @@ public class IndexActivity implements Activity
 
     public IndexActivity(LogIndexer indexer, ActivityLog log, CompletionListener completionListener)
     {
+        this(indexer, log, completionListener, null);
+    }
+
+    /**
+     * @param indexer the indexer
+     * @param log the log
+     * @param completionListener listener or null
+     * @param key activities with the same key are coalesced - e.g. the path being indexed. Can be null
+     */
+    public IndexActivity(LogIndexer indexer, ActivityLog log, CompletionListener completionListener, String key)
+    {
+        this(indexer, log, completionListener, key, null);
+    }
+
+    /**
+     * @param indexer the indexer
+     * @param log the log
+     * @param completionListener listener or null
+     * @param key activities with the same key are coalesced - e.g. the path being indexed. Can be null
+     * @param progressScheduler shared scheduler used to log progress or null to use a thread per activity
+     */
+    public IndexActivity(LogIndexer indexer, ActivityLog log, CompletionListener completionListener, String key, ScheduledExecutorService progressScheduler)
+    {
+        this.progressScheduler = progressScheduler;
         this.indexer = indexer;
         this.log = log;
         this.completionListener = completionListener;
+        this.key = key;
+    }
+
+    @Override
+    public String getKey()
+    {
+        return key;
+    }
+
+    @Override
+    public int getPercentDone()
+    {
+        return indexer.getPercentDone();
     }
 
     @Override
@@ -38,40 +79,42 @@ public class IndexActivity implements Activity
     @Override
     public Boolean call() throws Exception
     {
-        ExecutorService     server = Executors.newSingleThreadExecutor();
-        server.submit
+        ScheduledExecutorService    scheduler = (progressScheduler != null) ? progressScheduler : Executors.newSingleThreadScheduledExecutor();
+        ScheduledFuture<?>          progressFuture = scheduler.scheduleWithFixedDelay
         (
-            new Callable<Object>()
+            new Runnable()
             {
                 @Override
-                public Object call() throws Exception
+                public void run()
                 {
-                    try
-                    {
-                        while ( !Thread.currentThread().isInterrupted() )
-                        {
-                            Thread.sleep(1000);
-                            log.add(ActivityLog.Type.INFO, "Indexing " + indexer.getLogSourceName() + " " + indexer.getPercentDone() + "%");
-                        }
-                    }
-                    catch ( InterruptedException e )
-                    {
-                        Thread.currentThread().interrupt();
-                    }
-                    return null;
+                    log.add(ActivityLog.Type.INFO, "Indexing " + indexer.getLogSourceName() + " " + indexer.getPercentDone() + "%");
                 }
-            }
+            },
+            1,
+            1,
+            TimeUnit.SECONDS
         );
+
+        boolean             result = true;
         try
         {
             indexer.index();
             log.add(ActivityLog.Type.INFO, "Indexing " + indexer.getLogSourceName() + " done");
         }
+        catch ( InterruptedException e )
+        {
+            log.add(ActivityLog.Type.INFO, "Indexing " + indexer.getLogSourceName() + " cancelled");
+            result = false;
+        }
         catch ( Exception e )
         {
             log.add(ActivityLog.Type.ERROR, "Indexing " + indexer.getLogSourceName(), e);
         }
-        server.shutdownNow();
-        return true;
+        progressFuture.cancel(false);
+        if ( scheduler != progressScheduler )
+        {
+            scheduler.shutdownNow();
+        }
+        return result;
     }
 }
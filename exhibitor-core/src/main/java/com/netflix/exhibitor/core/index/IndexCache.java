@@ -36,6 +36,7 @@ public class IndexCache implements Closeable
     private final ConcurrentMap<File, LogSearchHolder>  indexCache = Maps.newConcurrentMap();
     private final AtomicBoolean                         isOpen = new AtomicBoolean(true);
     private final ActivityLog                           log;
+    private final LogSourceRestorer                     restorer;
 
     private static class LogSearchHolder
     {
@@ -49,8 +50,18 @@ public class IndexCache implements Closeable
     private static final int        MAX_CACHE_MS = (int)TimeUnit.MILLISECONDS.convert(5, TimeUnit.MINUTES);
 
     public IndexCache(ActivityLog log)
+    {
+        this(log, null);
+    }
+
+    /**
+     * @param log the log
+     * @param restorer used by indexes that reference log data to recover logs that no longer exist - can be null
+     */
+    public IndexCache(ActivityLog log, LogSourceRestorer restorer)
     {
         this.log = log;
+        this.restorer = restorer;
     }
 
     @Override
@@ -93,7 +104,7 @@ public class IndexCache implements Closeable
             if ( holder.logSearch == null )
             {
                 Preconditions.checkArgument(holder.useCount == 0, "use count is non zero but instance is null: " + holder.useCount);
-                holder.logSearch = new LogSearch(indexDirectory);
+                holder.logSearch = getMetaData(indexDirectory).getEngine().open(indexDirectory, restorer);
             }
 
             ++holder.useCount;
@@ -0,0 +1,95 @@
+package com.netflix.exhibitor.core.index;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The available index formats
+ */
+public enum IndexEngines
+{
+    /**
+     * A full Lucene index - supports any query and is the most flexible
+     */
+    LUCENE("lucene")
+    {
+        @Override
+        EntryWriter newWriter(File indexDirectory, int dataIndexMaxBytes, boolean dataByReference) throws IOException
+        {
+            return new LuceneEntryWriter(indexDirectory, dataIndexMaxBytes, dataByReference);
+        }
+
+        @Override
+        public LogSearch open(File indexDirectory, LogSourceRestorer restorer) throws Exception
+        {
+            return new LuceneLogSearch(indexDirectory, restorer);
+        }
+    },
+
+    /**
+     * Time ordered blocks of compressed columns - much smaller and faster to build. Searches
+     * scan the blocks that can't be skipped via the per-block summaries
+     */
+    COLUMNAR("columnar")
+    {
+        @Override
+        EntryWriter newWriter(File indexDirectory, int dataIndexMaxBytes, boolean dataByReference) throws IOException
+        {
+            return new ColumnarEntryWriter(indexDirectory, dataIndexMaxBytes, dataByReference);
+        }
+
+        @Override
+        public LogSearch open(File indexDirectory, LogSourceRestorer restorer) throws Exception
+        {
+            return new ColumnarLogSearch(indexDirectory, restorer);
+        }
+    }
+    ;
+
+    private final String name;
+
+    /**
+     * Return the engine with the given name. Unknown/empty names return {@link #LUCENE}
+     *
+     * @param name name
+     * @return engine
+     */
+    public static IndexEngines  fromName(String name)
+    {
+        for ( IndexEngines engine : values() )
+        {
+            if ( engine.name.equalsIgnoreCase(name.trim()) )
+            {
+                return engine;
+            }
+        }
+        return LUCENE;
+    }
+
+    public String       getName()
+    {
+        return name;
+    }
+
+    /**
+     * @param indexDirectory where to write
+     * @param dataIndexMaxBytes max bytes of each ZNode's data to make searchable
+     * @param dataByReference if true, store the location of each entry in the source logs instead of its data
+     * @return writer
+     * @throws IOException errors
+     */
+    abstract EntryWriter newWriter(File indexDirectory, int dataIndexMaxBytes, boolean dataByReference) throws IOException;
+
+    /**
+     * @param indexDirectory the index
+     * @param restorer used to recover source logs that no longer exist (for indexes that reference data) or null
+     * @return search instance
+     * @throws Exception errors
+     */
+    public abstract LogSearch open(File indexDirectory, LogSourceRestorer restorer) throws Exception;
+
+    private IndexEngines(String name)
+    {
+        this.name = name;
+    }
+}
@@ -17,6 +17,7 @@ public class IndexMetaData
     private final Date  from;
     private final Date  to;
     private final int   entryCount;
+    private final IndexEngines engine;
 
     private static final String         META_DATA_FILE_EXTENSION = ".properties";
 
@@ -26,6 +27,7 @@ public class IndexMetaData
     private static final String     PROPERTY_TO = "to";
     private static final String     PROPERTY_COUNT = "count";
     private static final String     PROPERTY_VERSION = "version";
+    private static final String     PROPERTY_ENGINE = "engine";
 
     public static boolean isValid(File indexDirectory)
     {
@@ -46,6 +48,7 @@ public class IndexMetaData
         properties.setProperty(PROPERTY_TO, format.format(meta.to));
         properties.setProperty(PROPERTY_VERSION, Integer.toString(VERSION));
         properties.setProperty(PROPERTY_COUNT, Integer.toString(meta.entryCount));
+        properties.setProperty(PROPERTY_ENGINE, meta.engine.getName());
         
         OutputStream    out = new BufferedOutputStream(new FileOutputStream(to));
         try
@@ -83,15 +86,22 @@ public class IndexMetaData
         (
             format.parse(properties.getProperty(PROPERTY_FROM)),
             format.parse(properties.getProperty(PROPERTY_TO)),
-            Integer.parseInt(properties.getProperty(PROPERTY_COUNT))
+            Integer.parseInt(properties.getProperty(PROPERTY_COUNT)),
+            IndexEngines.fromName(properties.getProperty(PROPERTY_ENGINE, ""))  // indexes written before there was a choice are Lucene
         );
     }
 
     public IndexMetaData(Date from, Date to, int entryCount)
+    {
+        this(from, to, entryCount, IndexEngines.LUCENE);
+    }
+
+    public IndexMetaData(Date from, Date to, int entryCount, IndexEngines engine)
     {
         this.from = from;
         this.to = to;
         this.entryCount = entryCount;
+        this.engine = engine;
     }
 
     public Date getFrom()
@@ -108,4 +118,9 @@ public class IndexMetaData
     {
         return entryCount;
     }
+
+    public IndexEngines getEngine()
+    {
+        return engine;
+    }
 }
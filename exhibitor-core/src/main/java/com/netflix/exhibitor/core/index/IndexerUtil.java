@@ -1,9 +1,11 @@
 package com.netflix.exhibitor.core.index;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.InputSupplier;
 import com.netflix.exhibitor.core.Exhibitor;
 import com.netflix.exhibitor.core.activity.QueueGroups;
 import com.netflix.exhibitor.core.config.InstanceConfig;
+import com.netflix.exhibitor.core.config.IntConfigs;
 import com.netflix.exhibitor.core.config.StringConfigs;
 import java.io.BufferedInputStream;
 import java.io.File;
@@ -20,6 +22,23 @@ public class IndexerUtil
 
     public static void      startIndexing(Exhibitor exhibitor, final File path, IndexActivity.CompletionListener listener) throws Exception
     {
+        startIndexing(exhibitor, path, null, 0, listener);
+    }
+
+    /**
+     * Index a log file that was restored from a backup. If the index references ZNode data instead of copying it,
+     * the data is read back from the backup once the restored file is gone
+     *
+     * @param exhibitor instance
+     * @param path the restored file
+     * @param backupName name of the backup
+     * @param backupModifiedDate modified date of the backup
+     * @param listener completion listener or null
+     * @throws Exception errors
+     */
+    public static void      startIndexing(Exhibitor exhibitor, final File path, String backupName, long backupModifiedDate, IndexActivity.CompletionListener listener) throws Exception
+    {
+        boolean     dataByReference = exhibitor.getConfigManager().getConfig().getInt(IntConfigs.LOG_INDEX_DATA_BY_REFERENCE) != 0;
         if ( path.isDirectory() )
         {
             final DirectoryInputStream      stream = new DirectoryInputStream(path);    // doesn't actually open any streams until reading starts
@@ -31,7 +50,8 @@ public class IndexerUtil
                     return stream;
                 }
             };
-            startIndexing(exhibitor, source, path.getName(), stream.length(), listener);
+            LogSources                      dataSources = dataByReference ? LogSources.forFiles(stream.getFiles()) : null;
+            startIndexing(exhibitor, source, path, stream.length(), dataSources, listener);
         }
         else
         {
@@ -43,11 +63,16 @@ public class IndexerUtil
                     return new BufferedInputStream(new FileInputStream(path));
                 }
             };
-            startIndexing(exhibitor, source, path.getName(), path.length(), listener);
+            LogSources                  dataSources = null;
+            if ( dataByReference )
+            {
+                dataSources = (backupName != null) ? LogSources.forBackup(path, backupName, backupModifiedDate) : LogSources.forFiles(ImmutableList.of(path));
+            }
+            startIndexing(exhibitor, source, path, path.length(), dataSources, listener);
         }
     }
 
-    private static void      startIndexing(Exhibitor exhibitor, InputSupplier<InputStream> source, String name, long length, IndexActivity.CompletionListener listener) throws Exception
+    private static void      startIndexing(Exhibitor exhibitor, InputSupplier<InputStream> source, File path, long length, LogSources dataSources, IndexActivity.CompletionListener listener) throws Exception
     {
         InstanceConfig  config = exhibitor.getConfigManager().getConfig();
 
@@ -56,7 +81,8 @@ public class IndexerUtil
         LogIndexer      logIndexer;
         try
         {
-            logIndexer = new LogIndexer(source, name, length, indexDirectory);
+            IndexEngines    engine = IndexEngines.fromName(config.getString(StringConfigs.LOG_INDEX_ENGINE));
+            logIndexer = new LogIndexer(source, path.getName(), length, indexDirectory, engine, config.getInt(IntConfigs.LOG_INDEX_DATA_MAX_BYTES), dataSources);
         }
         catch ( Exception e )
         {
@@ -68,8 +94,8 @@ public class IndexerUtil
         }
         if ( logIndexer.isValid() )
         {
-            IndexActivity   activity = new IndexActivity(logIndexer, exhibitor.getLog(), listener);
-            exhibitor.getActivityQueue().add(QueueGroups.MAIN, activity);
+            IndexActivity   activity = new IndexActivity(logIndexer, exhibitor.getLog(), listener, "index-" + path.getAbsolutePath(), exhibitor.getExecutorFactory().getScheduler());
+            exhibitor.getActivityQueue().add(QueueGroups.BULK, activity);
         }
         else if ( listener != null )
         {
@@ -2,17 +2,9 @@ package com.netflix.exhibitor.core.index;
 
 import com.google.common.io.Closeables;
 import com.google.common.io.CountingInputStream;
+import com.google.common.io.Files;
 import com.google.common.io.InputSupplier;
 import org.apache.jute.Record;
-import org.apache.lucene.analysis.KeywordAnalyzer;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.NumericField;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.store.NIOFSDirectory;
-import org.apache.lucene.store.SingleInstanceLockFactory;
-import org.apache.lucene.util.Version;
 import org.apache.zookeeper.txn.CreateTxn;
 import org.apache.zookeeper.txn.DeleteTxn;
 import org.apache.zookeeper.txn.SetDataTxn;
@@ -30,38 +22,46 @@ public class LogIndexer implements Closeable
 {
     private final File indexDirectory;
     private final CountingInputStream inputStream;
-    private final IndexWriter writer;
-    private final NIOFSDirectory directory;
+    private final int dataIndexMaxBytes;
     private final ZooKeeperLogParser logParser;
     private final long sourceLength;
     private final String sourceName;
+    private final IndexEngines engine;
+    private final LogSources dataSources;
 
     public LogIndexer(InputSupplier<InputStream> source, String sourceName, long sourceLength, File indexDirectory) throws Exception
     {
-        if ( !indexDirectory.exists() && !indexDirectory.mkdirs() )
-        {
-            throw new IOException("Could not make: " + indexDirectory);
-        }
+        this(source, sourceName, sourceLength, indexDirectory, IndexEngines.LUCENE, 0, null);
+    }
+
+    public LogIndexer(InputSupplier<InputStream> source, String sourceName, long sourceLength, File indexDirectory, IndexEngines engine, int dataIndexMaxBytes) throws Exception
+    {
+        this(source, sourceName, sourceLength, indexDirectory, engine, dataIndexMaxBytes, null);
+    }
+
+    /**
+     * @param source log source
+     * @param sourceName display name of the source
+     * @param sourceLength length of the source in bytes
+     * @param indexDirectory where to write the index
+     * @param engine the index format to write
+     * @param dataIndexMaxBytes max bytes of each ZNode's data to make searchable - 0 means data isn't searchable
+     * @param dataSources if not null, the files that make up the source - the index will reference ZNode data
+     *                    in these files instead of copying it. Pass null to copy the data into the index
+     * @throws Exception errors
+     */
+    public LogIndexer(InputSupplier<InputStream> source, String sourceName, long sourceLength, File indexDirectory, IndexEngines engine, int dataIndexMaxBytes, LogSources dataSources) throws Exception
+    {
         this.sourceLength = sourceLength;
         this.sourceName = sourceName;
+        this.engine = engine;
+        this.dataSources = dataSources;
+        this.dataIndexMaxBytes = dataIndexMaxBytes;
 
         this.indexDirectory = indexDirectory;
         inputStream = new CountingInputStream(new BufferedInputStream(source.getInput()));
 
-        IndexWriter     localWriter = null;
-        NIOFSDirectory  localDirectory = null;
-
         logParser = new ZooKeeperLogParser(inputStream);
-        if ( logParser.isValid() )
-        {
-            IndexWriterConfig conf = new IndexWriterConfig(Version.LUCENE_35, new KeywordAnalyzer())
-                .setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-
-            localDirectory = new NIOFSDirectory(indexDirectory, new SingleInstanceLockFactory());
-            localWriter = new IndexWriter(localDirectory, conf);
-        }
-        writer = localWriter;
-        directory = localDirectory;
     }
 
     @Override
@@ -75,16 +75,31 @@ public class LogIndexer implements Closeable
         return logParser.isValid();
     }
 
+    /**
+     * Index the log. Stops with an {@link InterruptedException} if the thread is interrupted - the partial
+     * index is deleted
+     *
+     * @throws Exception errors
+     */
     public void index() throws Exception
     {
         if ( !logParser.isValid() )
         {
             return;
         }
-        
+
+        // the index directory isn't created until indexing starts so that an indexer that never runs leaves nothing behind
+        boolean     createdDirectory = !indexDirectory.exists();
+        if ( createdDirectory && !indexDirectory.mkdirs() )
+        {
+            throw new IOException("Could not make: " + indexDirectory);
+        }
+
+        final EntryWriter           writer = engine.newWriter(indexDirectory, dataIndexMaxBytes, dataSources != null);
         final AtomicInteger         count = new AtomicInteger(0);
         final AtomicLong            from = new AtomicLong(Long.MAX_VALUE);
         final AtomicLong            to = new AtomicLong(Long.MIN_VALUE);
+        boolean                     success = false;
         try
         {
             logParser.parse
@@ -94,18 +109,34 @@ public class LogIndexer implements Closeable
                     @Override
                     public void receiveEntry(TxnHeader header, Record record) throws Exception
                     {
-                        indexRecord(header, record, count, from, to);
+                        if ( Thread.currentThread().isInterrupted() )
+                        {
+                            throw new InterruptedException("Indexing cancelled");
+                        }
+                        indexRecord(writer, header, record, count, from, to);
                     }
                 }
             );
 
-            IndexMetaData       metaData = new IndexMetaData(new Date(from.get()), new Date(to.get()), count.get());
+            writer.close();
+
+            if ( dataSources != null )
+            {
+                dataSources.write(indexDirectory);
+            }
+
+            IndexMetaData       metaData = new IndexMetaData(new Date(from.get()), new Date(to.get()), count.get(), engine);
             IndexMetaData.write(metaData, IndexMetaData.getMetaDataFile(indexDirectory));
+            success = true;
         }
         finally
         {
             Closeables.closeQuietly(writer);
-            Closeables.closeQuietly(directory);
+            if ( !success && createdDirectory )
+            {
+                // don't leave a partial index behind
+                Files.deleteRecursively(indexDirectory);
+            }
         }
     }
 
@@ -122,51 +153,30 @@ public class LogIndexer implements Closeable
         return sourceName;
     }
 
-    private void indexRecord(TxnHeader header, Record record, AtomicInteger count, AtomicLong from, AtomicLong to) throws IOException
+    private void indexRecord(EntryWriter writer, TxnHeader header, Record record, AtomicInteger count, AtomicLong from, AtomicLong to) throws IOException
     {
         if ( record instanceof CreateTxn )
         {
             CreateTxn   createTxn = (CreateTxn)record;
 
             EntryTypes type = createTxn.getEphemeral() ? EntryTypes.CREATE_EPHEMERAL: EntryTypes.CREATE_PERSISTENT;
-            Document document = makeDocument(header, type, count, from, to);
-            addPath(document, createTxn.getPath());
-            addData(document, createTxn.getData());
-            writer.addDocument(document);
+            addEntry(writer, header, type, createTxn.getPath(), -1, createTxn.getData(), count, from, to);
         }
         else if ( record instanceof DeleteTxn )
         {
             DeleteTxn   deleteTxn = (DeleteTxn)record;
 
-            Document document = makeDocument(header, EntryTypes.DELETE, count, from, to);
-            addPath(document, deleteTxn.getPath());
-            writer.addDocument(document);
+            addEntry(writer, header, EntryTypes.DELETE, deleteTxn.getPath(), -1, null, count, from, to);
         }
         else if ( record instanceof SetDataTxn )
         {
             SetDataTxn   setDataTxn = (SetDataTxn)record;
 
-            NumericField versionField = new NumericField(FieldNames.VERSION, Field.Store.YES, true);
-            versionField.setIntValue(setDataTxn.getVersion());
-
-            Document document = makeDocument(header, EntryTypes.SET_DATA, count, from, to);
-            addPath(document, setDataTxn.getPath());
-            addData(document, setDataTxn.getData());
-            document.add(versionField);
+            addEntry(writer, header, EntryTypes.SET_DATA, setDataTxn.getPath(), setDataTxn.getVersion(), setDataTxn.getData(), count, from, to);
         }
     }
 
-    private void addData(Document document, byte[] data)
-    {
-        document.add(new Field(FieldNames.DATA, data));
-    }
-
-    private void addPath(Document document, String path)
-    {
-        document.add(new Field(FieldNames.PATH, path, Field.Store.YES, Field.Index.NOT_ANALYZED));
-    }
-
-    private Document makeDocument(TxnHeader header, EntryTypes type, AtomicInteger count, AtomicLong from, AtomicLong to)
+    private void addEntry(EntryWriter writer, TxnHeader header, EntryTypes type, String path, int version, byte[] data, AtomicInteger count, AtomicLong from, AtomicLong to) throws IOException
     {
         count.incrementAndGet();
         if ( header.getTime() < from.get() )
@@ -178,12 +188,6 @@ public class LogIndexer implements Closeable
             to.set(header.getTime());
         }
 
-        NumericField dateField = new NumericField(FieldNames.DATE, Field.Store.YES, true);
-        dateField.setLongValue(header.getTime());
-
-        Document    document = new Document();
-        document.add(new Field(FieldNames.TYPE, Integer.toString(type.getId()), Field.Store.YES, Field.Index.NOT_ANALYZED));
-        document.add(dateField);
-        return document;
+        writer.add(type, header.getZxid(), header.getTime(), path, version, data, logParser.getEntryOffset(), logParser.getEntryLength());
     }
 }
@@ -1,118 +1,54 @@
 package com.netflix.exhibitor.core.index;
 
-import com.google.common.io.Closeables;
-import com.netflix.exhibitor.core.temp.CacheBuilder;
-import com.netflix.exhibitor.core.temp.LoadingCache;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Fieldable;
-import org.apache.lucene.document.NumericField;
-import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.Sort;
-import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.NIOFSDirectory;
-import org.apache.lucene.store.NativeFSLockFactory;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.Date;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
-public class LogSearch implements Closeable
+/**
+ * Searches an indexed log. Queries are built with {@link QueryBuilder}. Document ids are
+ * only meaningful to the instance that returned them
+ */
+public interface LogSearch extends Closeable
 {
-    private final Directory directory;
-    private final IndexReader reader;
-    private final IndexSearcher searcher;
-    private final File file;
-    private final LoadingCache<String, TopDocs> cache = CacheBuilder.newBuilder()
-        .expireAfterAccess(5, TimeUnit.MINUTES) // does this need to be configurable?
-        .build();
+    public File         getFile();
 
-    private static final int            MAX_RESULTS = 5000; // does this need to be configurable?
+    public int          getDocQty();
 
-    public LogSearch(File file) throws Exception
-    {
-        this.file = file;
-        directory = new NIOFSDirectory(file, new NativeFSLockFactory());
-        reader = IndexReader.open(directory);
-        searcher = new IndexSearcher(reader);
-    }
+    public void         releaseCache(String id);
 
-    public File getFile()
-    {
-        return file;
-    }
+    public String       cacheSearch(Query query, String reuseId, int maxResults) throws IOException;
 
-    public int      getDocQty()
-    {
-        return reader.numDocs();
-    }
+    public CachedSearch getCachedSearch(String id);
 
-    public void     releaseCache(String id)
-    {
-        cache.invalidate(id);
-    }
+    /**
+     * Return matching entries, newest first
+     *
+     * @param query the query
+     * @param maxResults max entries to return
+     * @return matches
+     * @throws IOException errors
+     */
+    public TopDocs      search(Query query, int maxResults) throws IOException;
 
-    public String    cacheSearch(Query query, String reuseId, int maxResults) throws IOException
-    {
-        if ( (maxResults <= 0) || (maxResults > MAX_RESULTS) )
-        {
-            maxResults = MAX_RESULTS;
-        }
-        
-        String      id = ((reuseId != null) && (reuseId.length() > 0)) ? reuseId : UUID.randomUUID().toString();
-        if ( query != null )    // otherwise it's an All Docs search which is the default
-        {
-            TopDocs docs = search(query, maxResults);
-            docs.totalHits = Math.min(maxResults, docs.totalHits);
-            cache.put(id, docs);
-        }
-        return id;
-    }
-    
-    public CachedSearch getCachedSearch(String id)
-    {
-        return new CachedSearch(cache.getIfPresent(id), getDocQty());
-    }
+    /**
+     * Count the entries matching the query per time bucket and per type
+     *
+     * @param query the query or null for all docs
+     * @param startDate start of the time range to bucket
+     * @param endDate end of the time range to bucket
+     * @param bucketQty number of time buckets
+     * @return facet counts
+     * @throws IOException errors
+     */
+    public SearchFacets getFacets(Query query, Date startDate, Date endDate, int bucketQty) throws IOException;
 
-    public TopDocs   search(Query query, int maxResults) throws IOException
-    {
-        Sort sort = new Sort(new SortField(FieldNames.DATE, SortField.LONG, true));
-        return searcher.search(query, maxResults, sort);
-    }
+    public SearchItem   toResult(int documentId) throws IOException;
 
-    public SearchItem toResult(int documentId) throws IOException
-    {
-        Document        document = searcher.doc(documentId);
-
-        String          type = document.getFieldable(FieldNames.TYPE).stringValue();
-        NumericField    date = (NumericField)document.getFieldable(FieldNames.DATE);
-        Fieldable       path = document.getFieldable(FieldNames.PATH);
-        NumericField    version = (NumericField)document.getFieldable(FieldNames.VERSION);
-        return new SearchItem
-        (
-            Integer.parseInt(type),
-            path.stringValue(),
-            (version != null) ? version.getNumericValue().intValue() : -1,
-            new Date(date.getNumericValue().longValue())
-        );
-    }
-
-    public byte[]           toData(int documentId) throws IOException
-    {
-        Document document = searcher.doc(documentId);
-        return document.getBinaryValue(FieldNames.DATA);
-    }
+    public byte[]       toData(int documentId) throws IOException;
 
     @Override
-    public void close()
-    {
-        Closeables.closeQuietly(searcher);
-        Closeables.closeQuietly(reader);
-        Closeables.closeQuietly(directory);
-    }
+    public void         close();
 }
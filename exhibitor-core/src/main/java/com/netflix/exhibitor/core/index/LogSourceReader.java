@@ -0,0 +1,196 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import org.apache.jute.BinaryInputArchive;
+import org.apache.jute.Record;
+import org.apache.zookeeper.server.util.SerializeUtils;
+import org.apache.zookeeper.txn.CreateTxn;
+import org.apache.zookeeper.txn.SetDataTxn;
+import org.apache.zookeeper.txn.TxnHeader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Adler32;
+
+/**
+ * Reads ZNode data directly from the logs an index was built from. If a log is gone or has changed,
+ * its backup is restored into the index directory (once) and read instead
+ */
+class LogSourceReader implements Closeable
+{
+    private final File indexDirectory;
+    private final List<LogSources.Source> sources;
+    private final long[] startOffsets;
+    private final LogSourceRestorer restorer;
+    private final Map<Integer, RandomAccessFile> openFiles = Maps.newHashMap();
+
+    private static final int        ENTRY_OVERHEAD = 8 + 4 + 1; // crc + length + EOR marker
+    private static final String     RESTORED_FILE_PREFIX = "restored-source-";
+
+    /**
+     * @param indexDirectory the index
+     * @param sources the index's sources
+     * @param restorer used to recover missing sources or null
+     */
+    LogSourceReader(File indexDirectory, LogSources sources, LogSourceRestorer restorer)
+    {
+        this.indexDirectory = indexDirectory;
+        this.sources = sources.getSources();
+        this.restorer = restorer;
+
+        startOffsets = new long[this.sources.size()];
+        long        offset = 0;
+        for ( int i = 0; i < startOffsets.length; ++i )
+        {
+            startOffsets[i] = offset;
+            offset += this.sources.get(i).getLength();
+        }
+    }
+
+    /**
+     * Return the ZNode data of the given entry
+     *
+     * @param entryOffset offset of the entry in the sources as returned by {@link ZooKeeperLogParser#getEntryOffset()}
+     * @param entryLength length as returned by {@link ZooKeeperLogParser#getEntryLength()}
+     * @return the data or null if the entry doesn't have data
+     * @throws IOException if the data can't be read from the source or its backup
+     */
+    synchronized byte[]     readData(long entryOffset, int entryLength) throws IOException
+    {
+        int         sourceIndex = getSourceIndex(entryOffset);
+        long        localOffset = entryOffset - startOffsets[sourceIndex];
+
+        byte[]      entry = readEntry(getFile(sourceIndex, false), localOffset, entryLength);
+        if ( entry == null )
+        {
+            entry = readEntry(getFile(sourceIndex, true), localOffset, entryLength);
+        }
+        if ( entry == null )
+        {
+            throw new IOException("The log data is no longer available: " + sources.get(sourceIndex).getFile());
+        }
+
+        Record      record = SerializeUtils.deserializeTxn(BinaryInputArchive.getArchive(new ByteArrayInputStream(entry)), new TxnHeader());
+        if ( record instanceof CreateTxn )
+        {
+            return ((CreateTxn)record).getData();
+        }
+        if ( record instanceof SetDataTxn )
+        {
+            return ((SetDataTxn)record).getData();
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        for ( RandomAccessFile file : openFiles.values() )
+        {
+            Closeables.closeQuietly(file);
+        }
+        openFiles.clear();
+    }
+
+    private int getSourceIndex(long entryOffset) throws IOException
+    {
+        for ( int i = startOffsets.length - 1; i >= 0; --i )
+        {
+            if ( entryOffset >= startOffsets[i] )
+            {
+                return i;
+            }
+        }
+        throw new IOException("Bad entry offset: " + entryOffset);
+    }
+
+    private RandomAccessFile getFile(int sourceIndex, boolean restored) throws IOException
+    {
+        int                 key = restored ? -(sourceIndex + 1) : sourceIndex;
+        RandomAccessFile    file = openFiles.get(key);
+        if ( file == null )
+        {
+            File    path = restored ? restore(sourceIndex) : sources.get(sourceIndex).getFile();
+            if ( (path == null) || !path.exists() )
+            {
+                return null;
+            }
+            file = new RandomAccessFile(path, "r");
+            openFiles.put(key, file);
+        }
+        return file;
+    }
+
+    private File restore(int sourceIndex) throws IOException
+    {
+        File                    restoredFile = new File(indexDirectory, RESTORED_FILE_PREFIX + sourceIndex);
+        LogSources.Source       source = sources.get(sourceIndex);
+        if ( !restoredFile.exists() && (restorer != null) && (source.getBackupName() != null) )
+        {
+            File        tempFile = new File(indexDirectory, restoredFile.getName() + ".tmp");
+            try
+            {
+                if ( restorer.restore(source.getBackupName(), source.getBackupModifiedDate(), tempFile) && !tempFile.renameTo(restoredFile) )
+                {
+                    throw new IOException("Could not rename: " + tempFile);
+                }
+            }
+            catch ( IOException e )
+            {
+                throw e;
+            }
+            catch ( Exception e )
+            {
+                throw new IOException(e);
+            }
+            finally
+            {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        }
+        return restoredFile;
+    }
+
+    private byte[] readEntry(RandomAccessFile file, long localOffset, int entryLength) throws IOException
+    {
+        if ( (file == null) || ((localOffset + entryLength + ENTRY_OVERHEAD) > file.length()) )
+        {
+            return null;
+        }
+
+        ByteBuffer      buffer = ByteBuffer.allocate(entryLength + ENTRY_OVERHEAD);
+        while ( buffer.hasRemaining() )
+        {
+            if ( file.getChannel().read(buffer, localOffset + buffer.position()) < 0 )
+            {
+                return null;
+            }
+        }
+
+        // make sure the file hasn't been replaced or rewritten since it was indexed
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        long            crcValue = in.readLong();
+        int             length = in.readInt();
+        if ( length != entryLength )
+        {
+            return null;
+        }
+        byte[]          entry = new byte[entryLength];
+        in.readFully(entry);
+        Adler32         crc = new Adler32();
+        crc.update(entry, 0, entry.length);
+        if ( (crc.getValue() != crcValue) || (in.readByte() != 'B') )
+        {
+            return null;
+        }
+        return entry;
+    }
+}
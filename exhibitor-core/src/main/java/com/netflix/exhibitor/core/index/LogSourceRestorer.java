@@ -0,0 +1,20 @@
+package com.netflix.exhibitor.core.index;
+
+import java.io.File;
+
+/**
+ * Used to recover a log file that an index references but that no longer exists (e.g. it was purged)
+ */
+public interface LogSourceRestorer
+{
+    /**
+     * Restore the backup of a log file
+     *
+     * @param backupName name of the backup
+     * @param minModifiedDate the backup must be at least this recent
+     * @param destination file to restore to
+     * @return true if a backup was found and restored
+     * @throws Exception errors
+     */
+    public boolean      restore(String backupName, long minModifiedDate, File destination) throws Exception;
+}
@@ -0,0 +1,174 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The log files that an index was built from, in the order they were read. Indexes that
+ * reference data instead of copying it store offsets into the concatenation of these files
+ */
+public class LogSources
+{
+    private final List<Source>  sources;
+
+    private static final String     FILE_NAME = "sources.properties";
+
+    private static final String     PROPERTY_COUNT = "count";
+    private static final String     PROPERTY_FILE = "file.";
+    private static final String     PROPERTY_LENGTH = "length.";
+    private static final String     PROPERTY_BACKUP_NAME = "backup-name.";
+    private static final String     PROPERTY_BACKUP_MODIFIED = "backup-modified.";
+
+    public static class Source
+    {
+        private final File      file;
+        private final long      length;
+        private final String    backupName;
+        private final long      backupModifiedDate;
+
+        /**
+         * @param file the log file
+         * @param length length of the file when indexed
+         * @param backupName name of the backup of this file
+         * @param backupModifiedDate modified date of the backup of this file
+         */
+        public Source(File file, long length, String backupName, long backupModifiedDate)
+        {
+            this.file = file;
+            this.length = length;
+            this.backupName = backupName;
+            this.backupModifiedDate = backupModifiedDate;
+        }
+
+        public File getFile()
+        {
+            return file;
+        }
+
+        public long getLength()
+        {
+            return length;
+        }
+
+        public String getBackupName()
+        {
+            return backupName;
+        }
+
+        public long getBackupModifiedDate()
+        {
+            return backupModifiedDate;
+        }
+    }
+
+    /**
+     * Sources for ZooKeeper log files. The backup keys match the ones used by the backup manager
+     *
+     * @param files the files in read order
+     * @return sources
+     */
+    public static LogSources    forFiles(List<File> files)
+    {
+        ImmutableList.Builder<Source>   builder = ImmutableList.builder();
+        for ( File f : files )
+        {
+            builder.add(new Source(f, f.length(), f.getName(), f.lastModified()));
+        }
+        return new LogSources(builder.build());
+    }
+
+    /**
+     * Source for a backup that has been restored to a temp file
+     *
+     * @param restoredFile the temp file
+     * @param backupName name of the backup
+     * @param backupModifiedDate modified date of the backup
+     * @return sources
+     */
+    public static LogSources    forBackup(File restoredFile, String backupName, long backupModifiedDate)
+    {
+        return new LogSources(ImmutableList.of(new Source(restoredFile, restoredFile.length(), backupName, backupModifiedDate)));
+    }
+
+    static boolean      exists(File indexDirectory)
+    {
+        return new File(indexDirectory, FILE_NAME).exists();
+    }
+
+    static LogSources   read(File indexDirectory) throws Exception
+    {
+        Properties      properties = new Properties();
+        InputStream     in = new BufferedInputStream(new FileInputStream(new File(indexDirectory, FILE_NAME)));
+        try
+        {
+            properties.load(in);
+        }
+        finally
+        {
+            Closeables.closeQuietly(in);
+        }
+
+        ImmutableList.Builder<Source>   builder = ImmutableList.builder();
+        int                             count = Integer.parseInt(properties.getProperty(PROPERTY_COUNT, "0"));
+        for ( int i = 0; i < count; ++i )
+        {
+            builder.add
+            (
+                new Source
+                (
+                    new File(properties.getProperty(PROPERTY_FILE + i)),
+                    Long.parseLong(properties.getProperty(PROPERTY_LENGTH + i)),
+                    properties.getProperty(PROPERTY_BACKUP_NAME + i),
+                    Long.parseLong(properties.getProperty(PROPERTY_BACKUP_MODIFIED + i, "0"))
+                )
+            );
+        }
+        return new LogSources(builder.build());
+    }
+
+    void                write(File indexDirectory) throws Exception
+    {
+        Properties      properties = new Properties();
+        properties.setProperty(PROPERTY_COUNT, Integer.toString(sources.size()));
+        for ( int i = 0; i < sources.size(); ++i )
+        {
+            Source      source = sources.get(i);
+            properties.setProperty(PROPERTY_FILE + i, source.getFile().getPath());
+            properties.setProperty(PROPERTY_LENGTH + i, Long.toString(source.getLength()));
+            if ( source.getBackupName() != null )
+            {
+                properties.setProperty(PROPERTY_BACKUP_NAME + i, source.getBackupName());
+                properties.setProperty(PROPERTY_BACKUP_MODIFIED + i, Long.toString(source.getBackupModifiedDate()));
+            }
+        }
+
+        OutputStream    out = new BufferedOutputStream(new FileOutputStream(new File(indexDirectory, FILE_NAME)));
+        try
+        {
+            properties.store(out, "Auto-generated by Exhibitor");
+        }
+        finally
+        {
+            Closeables.closeQuietly(out);
+        }
+    }
+
+    List<Source>        getSources()
+    {
+        return sources;
+    }
+
+    private LogSources(List<Source> sources)
+    {
+        this.sources = sources;
+    }
+}
@@ -0,0 +1,116 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.io.Closeables;
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.SingleInstanceLockFactory;
+import org.apache.lucene.util.Version;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes each entry as a Lucene document
+ */
+class LuceneEntryWriter implements EntryWriter
+{
+    private final NIOFSDirectory directory;
+    private final IndexWriter writer;
+    private final int dataIndexMaxBytes;
+    private final boolean dataByReference;
+
+    LuceneEntryWriter(File indexDirectory, int dataIndexMaxBytes, boolean dataByReference) throws IOException
+    {
+        this.dataIndexMaxBytes = dataIndexMaxBytes;
+        this.dataByReference = dataByReference;
+
+        IndexWriterConfig conf = new IndexWriterConfig(Version.LUCENE_35, new KeywordAnalyzer())
+            .setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+
+        directory = new NIOFSDirectory(indexDirectory, new SingleInstanceLockFactory());
+        writer = new IndexWriter(directory, conf);
+    }
+
+    @Override
+    public void add(EntryTypes type, long zxid, long time, String path, int version, byte[] data, long entryOffset, int entryLength) throws IOException
+    {
+        NumericField dateField = new NumericField(FieldNames.DATE, Field.Store.YES, true);
+        dateField.setLongValue(time);
+
+        Document    document = new Document();
+        document.add(new Field(FieldNames.TYPE, Integer.toString(type.getId()), Field.Store.YES, Field.Index.NOT_ANALYZED));
+        document.add(dateField);
+        addPath(document, path);
+        if ( (data != null) && dataByReference )
+        {
+            addDataReference(document, data, dataIndexMaxBytes, entryOffset, entryLength);
+        }
+        else if ( data != null )
+        {
+            addData(document, data, dataIndexMaxBytes);
+        }
+        if ( version >= 0 )
+        {
+            NumericField versionField = new NumericField(FieldNames.VERSION, Field.Store.YES, true);
+            versionField.setIntValue(version);
+            document.add(versionField);
+        }
+        writer.addDocument(document);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        Closeables.closeQuietly(writer);
+        Closeables.closeQuietly(directory);
+    }
+
+    static void addData(Document document, byte[] data, int dataIndexMaxBytes)
+    {
+        document.add(new Field(FieldNames.DATA, data));
+        addDataTerms(document, data, dataIndexMaxBytes);
+    }
+
+    private static void addDataReference(Document document, byte[] data, int dataIndexMaxBytes, long entryOffset, int entryLength)
+    {
+        NumericField    offsetField = new NumericField(FieldNames.SOURCE_OFFSET, Field.Store.YES, false);
+        offsetField.setLongValue(entryOffset);
+        document.add(offsetField);
+
+        NumericField    lengthField = new NumericField(FieldNames.SOURCE_LENGTH, Field.Store.YES, false);
+        lengthField.setIntValue(entryLength);
+        document.add(lengthField);
+
+        addDataTerms(document, data, dataIndexMaxBytes);
+    }
+
+    private static void addDataTerms(Document document, byte[] data, int dataIndexMaxBytes)
+    {
+        if ( (dataIndexMaxBytes > 0) && (data != null) && (data.length > 0) )
+        {
+            Field       termsField = new Field(FieldNames.DATA_TERMS, new TermsTokenStream(DataTokenizer.tokenize(data, dataIndexMaxBytes)));
+            termsField.setOmitNorms(true);
+            document.add(termsField);
+        }
+    }
+
+    static void addPath(Document document, String path)
+    {
+        document.add(new Field(FieldNames.PATH, path, Field.Store.YES, Field.Index.NOT_ANALYZED));
+
+        // each ancestor is a separate term so that hierarchy searches are single term lookups instead of prefix expansions
+        for ( String ancestor : PathHierarchy.getAncestors(path) )
+        {
+            document.add(new Field(FieldNames.ANCESTOR, ancestor, Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS));
+        }
+        document.add(new Field(FieldNames.NAME, PathHierarchy.getName(path), Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS));
+
+        NumericField depthField = new NumericField(FieldNames.DEPTH, Field.Store.NO, true);
+        depthField.setIntValue(PathHierarchy.getDepth(path));
+        document.add(depthField);
+    }
+}
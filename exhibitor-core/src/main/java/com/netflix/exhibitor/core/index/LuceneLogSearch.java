@@ -0,0 +1,141 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.io.Closeables;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Fieldable;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.NativeFSLockFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Searches an index written by {@link LuceneEntryWriter}
+ */
+public class LuceneLogSearch implements LogSearch
+{
+    private final Directory directory;
+    private final IndexReader reader;
+    private final IndexSearcher searcher;
+    private final File file;
+    private final SearchCache cache = new SearchCache();
+    private final LogSourceReader sourceReader;
+
+    public LuceneLogSearch(File file) throws Exception
+    {
+        this(file, null);
+    }
+
+    /**
+     * @param file the index
+     * @param restorer used to recover source logs that no longer exist or null
+     * @throws Exception errors
+     */
+    public LuceneLogSearch(File file, LogSourceRestorer restorer) throws Exception
+    {
+        this.file = file;
+        directory = new NIOFSDirectory(file, new NativeFSLockFactory());
+        reader = IndexReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        sourceReader = LogSources.exists(file) ? new LogSourceReader(file, LogSources.read(file), restorer) : null;
+    }
+
+    @Override
+    public File getFile()
+    {
+        return file;
+    }
+
+    @Override
+    public int      getDocQty()
+    {
+        return reader.numDocs();
+    }
+
+    @Override
+    public void     releaseCache(String id)
+    {
+        cache.release(id);
+    }
+
+    @Override
+    public String    cacheSearch(Query query, String reuseId, int maxResults) throws IOException
+    {
+        return cache.cacheSearch(this, query, reuseId, maxResults);
+    }
+
+    @Override
+    public CachedSearch getCachedSearch(String id)
+    {
+        return cache.getCachedSearch(id, getDocQty());
+    }
+
+    @Override
+    public TopDocs   search(Query query, int maxResults) throws IOException
+    {
+        Sort sort = new Sort(new SortField(FieldNames.DATE, SortField.LONG, true));
+        return searcher.search(query, maxResults, sort);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Documents are not loaded - values come from the per-segment field cache
+     */
+    @Override
+    public SearchFacets getFacets(Query query, Date startDate, Date endDate, int bucketQty) throws IOException
+    {
+        FacetCollector      collector = new FacetCollector(startDate.getTime(), endDate.getTime(), bucketQty);
+        searcher.search((query != null) ? query : new MatchAllDocsQuery(), collector);
+        return collector.getFacets();
+    }
+
+    @Override
+    public SearchItem toResult(int documentId) throws IOException
+    {
+        Document        document = searcher.doc(documentId);
+
+        String          type = document.getFieldable(FieldNames.TYPE).stringValue();
+        NumericField    date = (NumericField)document.getFieldable(FieldNames.DATE);
+        Fieldable       path = document.getFieldable(FieldNames.PATH);
+        NumericField    version = (NumericField)document.getFieldable(FieldNames.VERSION);
+        return new SearchItem
+        (
+            Integer.parseInt(type),
+            path.stringValue(),
+            (version != null) ? version.getNumericValue().intValue() : -1,
+            new Date(date.getNumericValue().longValue())
+        );
+    }
+
+    @Override
+    public byte[]           toData(int documentId) throws IOException
+    {
+        Document        document = searcher.doc(documentId);
+        NumericField    sourceOffset = (NumericField)document.getFieldable(FieldNames.SOURCE_OFFSET);
+        if ( (sourceOffset != null) && (sourceReader != null) )
+        {
+            NumericField    sourceLength = (NumericField)document.getFieldable(FieldNames.SOURCE_LENGTH);
+            return sourceReader.readData(sourceOffset.getNumericValue().longValue(), sourceLength.getNumericValue().intValue());
+        }
+        return document.getBinaryValue(FieldNames.DATA);
+    }
+
+    @Override
+    public void close()
+    {
+        Closeables.closeQuietly(searcher);
+        Closeables.closeQuietly(reader);
+        Closeables.closeQuietly(directory);
+        Closeables.closeQuietly(sourceReader);
+    }
+}
@@ -0,0 +1,93 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+
+/**
+ * Splits ZNode paths into the hierarchy values that get indexed
+ */
+class PathHierarchy
+{
+    private static final String     SEPARATOR = "/";
+
+    /**
+     * Remove any trailing separator (except for the root)
+     *
+     * @param path path
+     * @return normalized path
+     */
+    static String       normalize(String path)
+    {
+        while ( (path.length() > 1) && path.endsWith(SEPARATOR) )
+        {
+            path = path.substring(0, path.length() - 1);
+        }
+        return (path.length() > 0) ? path : SEPARATOR;
+    }
+
+    /**
+     * Return the ancestors of the given path from the root down, not including the path itself. i.e.
+     * "/a/b/c" returns "/", "/a", "/a/b"
+     *
+     * @param path path
+     * @return ancestors
+     */
+    static List<String> getAncestors(String path)
+    {
+        path = normalize(path);
+
+        ImmutableList.Builder<String>   builder = ImmutableList.builder();
+        if ( !path.equals(SEPARATOR) )
+        {
+            builder.add(SEPARATOR);
+            int     index = path.indexOf(SEPARATOR, 1);
+            while ( index > 0 )
+            {
+                builder.add(path.substring(0, index));
+                index = path.indexOf(SEPARATOR, index + 1);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Return the number of path components. The root is 0, "/a" is 1, "/a/b" is 2, etc.
+     *
+     * @param path path
+     * @return depth
+     */
+    static int          getDepth(String path)
+    {
+        path = normalize(path);
+
+        int     depth = 0;
+        if ( !path.equals(SEPARATOR) )
+        {
+            int     index = path.indexOf(SEPARATOR);
+            while ( index >= 0 )
+            {
+                ++depth;
+                index = path.indexOf(SEPARATOR, index + 1);
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Return the last component of the path
+     *
+     * @param path path
+     * @return node name ("" for the root)
+     */
+    static String       getName(String path)
+    {
+        path = normalize(path);
+
+        int     index = path.lastIndexOf(SEPARATOR);
+        return (index >= 0) ? path.substring(index + 1) : path;
+    }
+
+    private PathHierarchy()
+    {
+    }
+}
@@ -1,6 +1,7 @@
 package com.netflix.exhibitor.core.index;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
@@ -9,12 +10,15 @@ import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
 import java.util.Collection;
 import java.util.Date;
 
 public class QueryBuilder
 {
     private final Collection<Query> queries;
+
+    private static final int        MAX_DATA_TERMS = 64;
     
     public static QueryBuilder      builder()
     {
@@ -59,6 +63,87 @@ public class QueryBuilder
         return this;
     }
 
+    /**
+     * Match the direct children of the given path
+     *
+     * @param parentPath parent
+     * @return this
+     */
+    public QueryBuilder     childrenOf(String parentPath)
+    {
+        return descendantsOf(parentPath, 1);
+    }
+
+    /**
+     * Match all paths below the given path
+     *
+     * @param ancestorPath ancestor
+     * @return this
+     */
+    public QueryBuilder     descendantsOf(String ancestorPath)
+    {
+        Term            term = new Term(FieldNames.ANCESTOR, PathHierarchy.normalize(ancestorPath));
+        queries.add(new TermQuery(term));
+        return this;
+    }
+
+    /**
+     * Match paths below the given path that are no more than <code>maxDepth</code> levels deeper
+     *
+     * @param ancestorPath ancestor
+     * @param maxDepth max levels below the ancestor (1 means children only)
+     * @return this
+     */
+    public QueryBuilder     descendantsOf(String ancestorPath, int maxDepth)
+    {
+        Preconditions.checkArgument(maxDepth > 0, "maxDepth must be greater than 0");
+
+        int             ancestorDepth = PathHierarchy.getDepth(ancestorPath);
+        BooleanQuery    query = new BooleanQuery();
+        query.add(new TermQuery(new Term(FieldNames.ANCESTOR, PathHierarchy.normalize(ancestorPath))), BooleanClause.Occur.MUST);
+        query.add(NumericRangeQuery.newIntRange(FieldNames.DEPTH, ancestorDepth + 1, ancestorDepth + maxDepth, true, true), BooleanClause.Occur.MUST);
+        queries.add(query);
+        return this;
+    }
+
+    /**
+     * Match the last component of the path using wildcards (<code>*</code> and <code>?</code>)
+     *
+     * @param namePattern pattern
+     * @return this
+     */
+    public QueryBuilder     nameWildcard(String namePattern)
+    {
+        Term            term = new Term(FieldNames.NAME, namePattern);
+        queries.add(new WildcardQuery(term));
+        return this;
+    }
+
+    /**
+     * Match entries whose data contains all the words of the given text. The index must
+     * have been built with data searching enabled
+     *
+     * @param text text to search for
+     * @return this
+     */
+    public QueryBuilder     dataContains(String text)
+    {
+        return addDataTerms(DataTokenizer.tokenizeText(text));
+    }
+
+    /**
+     * Match entries whose (binary) data contains the given bytes. The index must
+     * have been built with data searching enabled
+     *
+     * @param bytes bytes to search for - must be at least 4 bytes
+     * @return this
+     */
+    public QueryBuilder     dataContains(byte[] bytes)
+    {
+        Preconditions.checkArgument(bytes.length >= DataTokenizer.NGRAM_SIZE, "At least %s bytes are needed", DataTokenizer.NGRAM_SIZE);
+        return addDataTerms(DataTokenizer.tokenizeBytes(bytes, bytes.length));
+    }
+
     public QueryBuilder     versionRange(int startVersion, int endVersion)
     {
         NumericRangeQuery<Integer> query = NumericRangeQuery.newIntRange(FieldNames.VERSION, startVersion, endVersion, true, false);
@@ -80,6 +165,19 @@ public class QueryBuilder
         return this;
     }
 
+    private QueryBuilder addDataTerms(Collection<String> terms)
+    {
+        Preconditions.checkArgument(terms.size() > 0, "Nothing to search for");
+
+        BooleanQuery    query = new BooleanQuery();
+        for ( String term : Iterables.limit(terms, MAX_DATA_TERMS) )   // more terms only narrow the match slightly - keep the query small
+        {
+            query.add(new TermQuery(new Term(FieldNames.DATA_TERMS, term)), BooleanClause.Occur.MUST);
+        }
+        queries.add(query);
+        return this;
+    }
+
     private QueryBuilder()
     {
         queries = Lists.newArrayList();
@@ -2,11 +2,12 @@ package com.netflix.exhibitor.core.index;
 
 import com.netflix.curator.framework.CuratorFramework;
 import com.netflix.exhibitor.core.Exhibitor;
-import com.netflix.exhibitor.core.activity.Activity;
 import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.activity.KeyedActivity;
 import org.apache.zookeeper.KeeperException;
+import java.security.MessageDigest;
 
-public class RestoreActivity implements Activity
+public class RestoreActivity implements KeyedActivity
 {
     private final Exhibitor exhibitor;
     private final EntryTypes type;
@@ -21,6 +22,13 @@ public class RestoreActivity implements Activity
         this.data = data;
     }
 
+    @Override
+    public String getKey()
+    {
+        // only identical restores are coalesced - different data for the same path must still be applied in order
+        return "restore-" + type + "-" + path + "-" + digest(data);
+    }
+
     @Override
     public void completed(boolean wasSuccessful)
     {
@@ -77,4 +85,25 @@ public class RestoreActivity implements Activity
         exhibitor.getLog().add(ActivityLog.Type.INFO, "Completed recovering path " + path);
         return true;
     }
+
+    private static String digest(byte[] data)
+    {
+        if ( data == null )
+        {
+            return "";
+        }
+        try
+        {
+            StringBuilder   str = new StringBuilder();
+            for ( byte b : MessageDigest.getInstance("SHA-1").digest(data) )
+            {
+                str.append(String.format("%02x", b & 0xff));
+            }
+            return str.toString();
+        }
+        catch ( Exception e )
+        {
+            throw new RuntimeException(e);  // SHA-1 is always available
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package com.netflix.exhibitor.core.index;
+
+import com.netflix.exhibitor.core.temp.CacheBuilder;
+import com.netflix.exhibitor.core.temp.LoadingCache;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the results of searches so that they can be paged through by id
+ */
+class SearchCache
+{
+    private final LoadingCache<String, TopDocs> cache = CacheBuilder.newBuilder()
+        .expireAfterAccess(5, TimeUnit.MINUTES) // does this need to be configurable?
+        .build();
+
+    private static final int            MAX_RESULTS = 5000; // does this need to be configurable?
+
+    void            release(String id)
+    {
+        cache.invalidate(id);
+    }
+
+    String          cacheSearch(LogSearch logSearch, Query query, String reuseId, int maxResults) throws IOException
+    {
+        if ( (maxResults <= 0) || (maxResults > MAX_RESULTS) )
+        {
+            maxResults = MAX_RESULTS;
+        }
+
+        String      id = ((reuseId != null) && (reuseId.length() > 0)) ? reuseId : UUID.randomUUID().toString();
+        if ( query != null )    // otherwise it's an All Docs search which is the default
+        {
+            TopDocs docs = logSearch.search(query, maxResults);
+            docs.totalHits = Math.min(maxResults, docs.totalHits);
+            cache.put(id, docs);
+        }
+        return id;
+    }
+
+    CachedSearch    getCachedSearch(String id, int docQty)
+    {
+        return new CachedSearch(cache.getIfPresent(id), docQty);
+    }
+}
@@ -0,0 +1,68 @@
+package com.netflix.exhibitor.core.index;
+
+import java.util.Date;
+
+/**
+ * Counts of matching entries per time bucket and per entry type
+ */
+public class SearchFacets
+{
+    private final long      startMs;
+    private final long      bucketMs;
+    private final int[]     dateCounts;
+    private final int[]     typeCounts;
+
+    SearchFacets(long startMs, long bucketMs, int[] dateCounts, int[] typeCounts)
+    {
+        this.startMs = startMs;
+        this.bucketMs = bucketMs;
+        this.dateCounts = dateCounts;
+        this.typeCounts = typeCounts;
+    }
+
+    /**
+     * @return the start of the first bucket
+     */
+    public Date getStartDate()
+    {
+        return new Date(startMs);
+    }
+
+    /**
+     * @return width of each bucket in ms
+     */
+    public long getBucketMs()
+    {
+        return bucketMs;
+    }
+
+    /**
+     * @return number of time buckets
+     */
+    public int getBucketQty()
+    {
+        return dateCounts.length;
+    }
+
+    /**
+     * Return the number of matching entries in the given time bucket
+     *
+     * @param bucket bucket index
+     * @return count
+     */
+    public int getDateCount(int bucket)
+    {
+        return dateCounts[bucket];
+    }
+
+    /**
+     * Return the number of matching entries of the given type
+     *
+     * @param type entry type
+     * @return count
+     */
+    public int getTypeCount(EntryTypes type)
+    {
+        return typeCounts[type.getId()];
+    }
+}
@@ -0,0 +1,32 @@
+package com.netflix.exhibitor.core.index;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import java.util.Iterator;
+
+/**
+ * Feeds an already tokenized set of terms to the index writer
+ */
+final class TermsTokenStream extends TokenStream
+{
+    private final Iterator<String>      terms;
+    private final CharTermAttribute     termAttribute = addAttribute(CharTermAttribute.class);
+
+    TermsTokenStream(Iterable<String> terms)
+    {
+        this.terms = terms.iterator();
+    }
+
+    @Override
+    public boolean incrementToken()
+    {
+        if ( !terms.hasNext() )
+        {
+            return false;
+        }
+
+        clearAttributes();
+        termAttribute.setEmpty().append(terms.next());
+        return true;
+    }
+}
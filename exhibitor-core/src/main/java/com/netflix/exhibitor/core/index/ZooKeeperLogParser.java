@@ -1,6 +1,7 @@
 package com.netflix.exhibitor.core.index;
 
 import com.google.common.io.Closeables;
+import com.google.common.io.CountingInputStream;
 import org.apache.jute.BinaryInputArchive;
 import org.apache.jute.InputArchive;
 import org.apache.jute.Record;
@@ -21,11 +22,16 @@ import java.util.zip.Checksum;
 public class ZooKeeperLogParser
 {
     private final BinaryInputArchive logStream;
+    private final CountingInputStream counter;
     private final boolean            validHeader;
 
+    private long                     entryOffset = -1;
+    private int                      entryLength = -1;
+
     public ZooKeeperLogParser(InputStream log) throws IOException
     {
-        logStream = BinaryInputArchive.getArchive(log);
+        counter = new CountingInputStream(log);
+        logStream = BinaryInputArchive.getArchive(counter);
 
         FileHeader fhdr = new FileHeader();
         fhdr.deserialize(logStream, "fileheader");
@@ -37,6 +43,27 @@ public class ZooKeeperLogParser
         return validHeader;
     }
 
+    /**
+     * The offset within the log of the entry currently being passed to the receiver. The entry
+     * starts with its CRC - see {@link LogSourceReader}
+     *
+     * @return offset
+     */
+    public long getEntryOffset()
+    {
+        return entryOffset;
+    }
+
+    /**
+     * The length of the serialized transaction of the entry currently being passed to the receiver
+     *
+     * @return length
+     */
+    public int getEntryLength()
+    {
+        return entryLength;
+    }
+
     public void parse(LogEntryReceiver receiver) throws Exception
     {
         if ( !validHeader )
@@ -48,6 +75,7 @@ public class ZooKeeperLogParser
         {
             long crcValue;
             byte[] bytes;
+            long offset = counter.getCount();
             try
             {
                 crcValue = logStream.readLong("crcvalue");
@@ -81,6 +109,8 @@ public class ZooKeeperLogParser
                 break;  // partial transaction
             }
 
+            entryOffset = offset;
+            entryLength = bytes.length;
             receiver.receiveEntry(hdr, record);
         }
     }
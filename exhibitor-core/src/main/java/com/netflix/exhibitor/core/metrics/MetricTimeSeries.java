@@ -0,0 +1,203 @@
+package com.netflix.exhibitor.core.metrics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * <p>
+ *     Fixed memory time series for a single metric. Samples go into a ring buffer. Every <code>downsampleFactor</code>
+ *     points of a tier are summarized (average, min, max) into one point of the next, coarser, tier - so older
+ *     history is kept at lower resolution.
+ * </p>
+ *
+ * <p>
+ *     e.g. with 240 points per tier, a factor of 15 and 3 tiers, sampling every 2 seconds keeps 8 minutes at
+ *     full resolution, 2 hours at 30 seconds and 30 hours at 7.5 minutes.
+ * </p>
+ */
+public class MetricTimeSeries
+{
+    private final Tier[]        tiers;
+    private final int           downsampleFactor;
+
+    /**
+     * A point in the series. Raw samples have the same average, min and max
+     */
+    public static class Point
+    {
+        private final long      time;
+        private final double    average;
+        private final double    min;
+        private final double    max;
+
+        public Point(long time, double average, double min, double max)
+        {
+            this.time = time;
+            this.average = average;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long getTime()
+        {
+            return time;
+        }
+
+        public double getAverage()
+        {
+            return average;
+        }
+
+        public double getMin()
+        {
+            return min;
+        }
+
+        public double getMax()
+        {
+            return max;
+        }
+    }
+
+    private static class Tier
+    {
+        final long[]        times;
+        final double[]      averages;
+        final double[]      mins;
+        final double[]      maxes;
+        int                 count = 0;
+        int                 next = 0;
+
+        // summary of the points not yet rolled into the next tier
+        int                 pendingCount = 0;
+        long                pendingTime = 0;
+        double              pendingSum = 0;
+        double              pendingMin = 0;
+        double              pendingMax = 0;
+
+        Tier(int size)
+        {
+            times = new long[size];
+            averages = new double[size];
+            mins = new double[size];
+            maxes = new double[size];
+        }
+
+        void        add(long time, double average, double min, double max)
+        {
+            times[next] = time;
+            averages[next] = average;
+            mins[next] = min;
+            maxes[next] = max;
+            next = (next + 1) % times.length;
+            count = Math.min(count + 1, times.length);
+        }
+
+        int         index(int i)
+        {
+            // i == 0 is the oldest point
+            return (next - count + i + times.length) % times.length;
+        }
+    }
+
+    /**
+     * @param pointsPerTier points kept at each resolution
+     * @param downsampleFactor points of one tier that make one point of the next
+     * @param tierQty number of resolutions
+     */
+    public MetricTimeSeries(int pointsPerTier, int downsampleFactor, int tierQty)
+    {
+        Preconditions.checkArgument(pointsPerTier > 0);
+        Preconditions.checkArgument(downsampleFactor > 1);
+        Preconditions.checkArgument(tierQty > 0);
+
+        this.downsampleFactor = downsampleFactor;
+        tiers = new Tier[tierQty];
+        for ( int i = 0; i < tierQty; ++i )
+        {
+            tiers[i] = new Tier(pointsPerTier);
+        }
+    }
+
+    /**
+     * Add a sample
+     *
+     * @param time sample time
+     * @param value sample value
+     */
+    public synchronized void add(long time, double value)
+    {
+        add(0, time, value, value, value);
+    }
+
+    /**
+     * @return the most recent sample or null if there are none
+     */
+    public synchronized Point getLatest()
+    {
+        Tier        tier = tiers[0];
+        if ( tier.count == 0 )
+        {
+            return null;
+        }
+        int         index = tier.index(tier.count - 1);
+        return new Point(tier.times[index], tier.averages[index], tier.mins[index], tier.maxes[index]);
+    }
+
+    /**
+     * Return the points since the given time from the finest resolution that goes back that far
+     *
+     * @param fromTime oldest time of interest
+     * @return points, oldest first
+     */
+    public synchronized ImmutableList<Point> getPoints(long fromTime)
+    {
+        Tier        selected = tiers[tiers.length - 1];
+        for ( Tier tier : tiers )
+        {
+            // a tier that has never wrapped holds everything since the start
+            if ( (tier.count > 0) && ((tier.times[tier.index(0)] <= fromTime) || (tier.count < tier.times.length)) )
+            {
+                selected = tier;
+                break;
+            }
+        }
+
+        ImmutableList.Builder<Point>    builder = ImmutableList.builder();
+        for ( int i = 0; i < selected.count; ++i )
+        {
+            int     index = selected.index(i);
+            if ( selected.times[index] >= fromTime )
+            {
+                builder.add(new Point(selected.times[index], selected.averages[index], selected.mins[index], selected.maxes[index]));
+            }
+        }
+        return builder.build();
+    }
+
+    private void add(int tierIndex, long time, double average, double min, double max)
+    {
+        Tier        tier = tiers[tierIndex];
+        tier.add(time, average, min, max);
+        if ( (tierIndex + 1) >= tiers.length )
+        {
+            return;
+        }
+
+        if ( tier.pendingCount == 0 )
+        {
+            tier.pendingTime = time;
+            tier.pendingMin = min;
+            tier.pendingMax = max;
+            tier.pendingSum = 0;
+        }
+        tier.pendingSum += average;
+        tier.pendingMin = Math.min(tier.pendingMin, min);
+        tier.pendingMax = Math.max(tier.pendingMax, max);
+        if ( ++tier.pendingCount == downsampleFactor )
+        {
+            tier.pendingCount = 0;
+            add(tierIndex + 1, tier.pendingTime, tier.pendingSum / downsampleFactor, tier.pendingMin, tier.pendingMax);
+        }
+    }
+}
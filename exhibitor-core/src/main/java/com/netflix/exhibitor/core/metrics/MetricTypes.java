@@ -0,0 +1,40 @@
+package com.netflix.exhibitor.core.metrics;
+
+/**
+ * The ZooKeeper metrics that are collected. Each has its <code>mntr</code> key - the
+ * <code>srvr</code> fallback (for servers without <code>mntr</code>) is handled by {@link MetricsParser}
+ */
+public enum MetricTypes
+{
+    AVG_LATENCY("zk_avg_latency"),
+    MIN_LATENCY("zk_min_latency"),
+    MAX_LATENCY("zk_max_latency"),
+    OUTSTANDING_REQUESTS("zk_outstanding_requests"),
+    PACKETS_RECEIVED("zk_packets_received"),
+    PACKETS_SENT("zk_packets_sent"),
+    ALIVE_CONNECTIONS("zk_num_alive_connections"),
+    ZNODE_COUNT("zk_znode_count"),
+    WATCH_COUNT("zk_watch_count"),
+    EPHEMERALS_COUNT("zk_ephemerals_count"),
+    APPROXIMATE_DATA_SIZE("zk_approximate_data_size"),
+    FOLLOWERS("zk_followers"),
+    SYNCED_FOLLOWERS("zk_synced_followers")
+    ;
+
+    private final String mntrKey;
+
+    private MetricTypes(String mntrKey)
+    {
+        this.mntrKey = mntrKey;
+    }
+
+    public String getMntrKey()
+    {
+        return mntrKey;
+    }
+
+    public String getDescription()
+    {
+        return name().toLowerCase().replace("_", " ");
+    }
+}
@@ -0,0 +1,132 @@
+package com.netflix.exhibitor.core.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.netflix.exhibitor.core.Exhibitor;
+import com.netflix.exhibitor.core.activity.Activity;
+import com.netflix.exhibitor.core.activity.QueueGroups;
+import com.netflix.exhibitor.core.activity.RepeatingActivity;
+import com.netflix.exhibitor.core.config.ConfigDelta;
+import com.netflix.exhibitor.core.config.ConfigListener;
+import com.netflix.exhibitor.core.config.InstanceConfig;
+import com.netflix.exhibitor.core.config.IntConfigs;
+import com.netflix.exhibitor.core.state.FourLetterWord;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Periodically scrapes the local ZooKeeper server's metrics (<code>mntr</code> or, for servers that
+ * don't support it, <code>srvr</code>) into a {@link MetricTimeSeries} per metric
+ */
+public class MetricsCollector implements Closeable
+{
+    private final Exhibitor                                 exhibitor;
+    private final RepeatingActivity                         repeatingActivity;
+    private final Map<MetricTypes, MetricTimeSeries>        series;
+
+    private static final int        POINTS_PER_TIER = 240;
+    private static final int        DOWNSAMPLE_FACTOR = 15;
+    private static final int        TIER_QTY = 3;
+
+    public MetricsCollector(Exhibitor exhibitor)
+    {
+        this.exhibitor = exhibitor;
+
+        Map<MetricTypes, MetricTimeSeries>  localSeries = Maps.newEnumMap(MetricTypes.class);
+        for ( MetricTypes type : MetricTypes.values() )
+        {
+            localSeries.put(type, new MetricTimeSeries(POINTS_PER_TIER, DOWNSAMPLE_FACTOR, TIER_QTY));
+        }
+        series = ImmutableMap.copyOf(localSeries);
+
+        Activity    activity = new Activity()
+        {
+            @Override
+            public void completed(boolean wasSuccessful)
+            {
+                // NOP
+            }
+
+            @Override
+            public Boolean call() throws Exception
+            {
+                collect();
+                return true;
+            }
+        };
+        repeatingActivity = new RepeatingActivity(null, exhibitor.getActivityQueue(), QueueGroups.HEALTH_CHECK, activity, exhibitor.getConfigManager().getConfig().getInt(IntConfigs.CHECK_MS));
+    }
+
+    public void start()
+    {
+        repeatingActivity.start();
+        exhibitor.getConfigManager().addConfigListener
+        (
+            new ConfigListener()
+            {
+                @Override
+                public void configUpdated(ConfigDelta delta)
+                {
+                    if ( delta.isChanged(IntConfigs.CHECK_MS) )
+                    {
+                        repeatingActivity.setTimePeriodMs(delta.getNew().getInt(IntConfigs.CHECK_MS));
+                    }
+                }
+            }
+        );
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        repeatingActivity.close();
+    }
+
+    /**
+     * @param type metric
+     * @return the metric's time series
+     */
+    public MetricTimeSeries getSeries(MetricTypes type)
+    {
+        return series.get(type);
+    }
+
+    void collect() throws Exception
+    {
+        InstanceConfig              config = exhibitor.getConfigManager().getConfig();
+        int                         port = config.getInt(IntConfigs.CLIENT_PORT);
+        long                        now = System.currentTimeMillis();
+
+        Map<MetricTypes, Double>    values = null;
+        FourLetterWord              mntr = exhibitor.getFourLetterWordClient().get(FourLetterWord.Word.MNTR, "localhost", port, exhibitor.getConnectionTimeOutMs());
+        if ( mntr.getStatus() == FourLetterWord.Status.SUCCESS )
+        {
+            values = MetricsParser.parseMntr(mntr.getResponseLines());
+        }
+        if ( (values == null) || values.isEmpty() )
+        {
+            // older servers close the connection without a response (or return an error line) for mntr
+            if ( mntr.getStatus() == FourLetterWord.Status.CONNECTION_REFUSED )
+            {
+                return;
+            }
+            FourLetterWord      srvr = exhibitor.getFourLetterWordClient().get(FourLetterWord.Word.SRVR, "localhost", port, exhibitor.getConnectionTimeOutMs());
+            if ( srvr.getStatus() != FourLetterWord.Status.SUCCESS )
+            {
+                return;
+            }
+            values = MetricsParser.parseSrvr(srvr.getResponseLines());
+        }
+
+        add(now, values);
+    }
+
+    void add(long time, Map<MetricTypes, Double> values)
+    {
+        for ( Map.Entry<MetricTypes, Double> entry : values.entrySet() )
+        {
+            series.get(entry.getKey()).add(time, entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.netflix.exhibitor.core.metrics;
+
+import com.google.common.collect.Maps;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses four letter word responses into typed metric values
+ */
+public class MetricsParser
+{
+    /**
+     * Parse a <code>mntr</code> response - lines of "key[tab]value"
+     *
+     * @param lines response lines
+     * @return the metrics found
+     */
+    public static Map<MetricTypes, Double> parseMntr(List<String> lines)
+    {
+        Map<String, String>         values = Maps.newHashMap();
+        for ( String line : lines )
+        {
+            int     tabIndex = line.indexOf('\t');
+            if ( tabIndex > 0 )
+            {
+                values.put(line.substring(0, tabIndex).trim(), line.substring(tabIndex + 1).trim());
+            }
+        }
+
+        Map<MetricTypes, Double>    metrics = Maps.newEnumMap(MetricTypes.class);
+        for ( MetricTypes type : MetricTypes.values() )
+        {
+            put(metrics, type, values.get(type.getMntrKey()));
+        }
+        return metrics;
+    }
+
+    /**
+     * Parse a <code>srvr</code> or <code>stat</code> response. These have fewer metrics than <code>mntr</code>
+     * but are supported by all server versions
+     *
+     * @param lines response lines
+     * @return the metrics found
+     */
+    public static Map<MetricTypes, Double> parseSrvr(List<String> lines)
+    {
+        Map<MetricTypes, Double>    metrics = Maps.newEnumMap(MetricTypes.class);
+        for ( String line : lines )
+        {
+            int     colonIndex = line.indexOf(':');
+            if ( colonIndex <= 0 )
+            {
+                continue;
+            }
+            String  name = line.substring(0, colonIndex).trim().toLowerCase();
+            String  value = line.substring(colonIndex + 1).trim();
+
+            if ( name.equals("latency min/avg/max") )
+            {
+                String[]    parts = value.split("/");
+                if ( parts.length == 3 )
+                {
+                    put(metrics, MetricTypes.MIN_LATENCY, parts[0]);
+                    put(metrics, MetricTypes.AVG_LATENCY, parts[1]);
+                    put(metrics, MetricTypes.MAX_LATENCY, parts[2]);
+                }
+            }
+            else if ( name.equals("received") )
+            {
+                put(metrics, MetricTypes.PACKETS_RECEIVED, value);
+            }
+            else if ( name.equals("sent") )
+            {
+                put(metrics, MetricTypes.PACKETS_SENT, value);
+            }
+            else if ( name.equals("outstanding") )
+            {
+                put(metrics, MetricTypes.OUTSTANDING_REQUESTS, value);
+            }
+            else if ( name.equals("node count") )
+            {
+                put(metrics, MetricTypes.ZNODE_COUNT, value);
+            }
+            else if ( name.equals("connections") )
+            {
+                put(metrics, MetricTypes.ALIVE_CONNECTIONS, value);
+            }
+        }
+        return metrics;
+    }
+
+    private static void put(Map<MetricTypes, Double> metrics, MetricTypes type, String value)
+    {
+        if ( value == null )
+        {
+            return;
+        }
+
+        try
+        {
+            metrics.put(type, Double.parseDouble(value));
+        }
+        catch ( NumberFormatException ignore )
+        {
+            // not a number - skip it
+        }
+    }
+
+    private MetricsParser()
+    {
+    }
+}
@@ -0,0 +1,209 @@
+package com.netflix.exhibitor.core.processes;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.netflix.exhibitor.core.activity.ActivityLog;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>
+ *     In-process version of ZooKeeper's PurgeTxnLog. The newest snapshots are kept along with the
+ *     transaction logs needed to replay from the oldest of them. Everything older is deleted.
+ * </p>
+ *
+ * <p>
+ *     Large files are truncated a chunk at a time with pauses in between before being deleted so that
+ *     freeing their blocks doesn't stall ZooKeeper's fsyncs. Transaction logs are only deleted if
+ *     <code>canPurgeLog</code> allows it (i.e. they have been backed up).
+ * </p>
+ */
+class LogPurger
+{
+    private final File              directory;
+    private final int               snapshotsToKeep;
+    private final Predicate<File>   canPurgeLog;
+
+    /**
+     * Same minimum as PurgeTxnLog
+     */
+    static final int                MIN_SNAPSHOTS_TO_KEEP = 3;
+
+    static final String             SNAPSHOT_PREFIX = "snapshot.";
+    static final String             LOG_PREFIX = "log.";
+
+    private static final long       TRUNCATE_CHUNK_BYTES = 8 * 1024 * 1024;
+    private static final long       MAX_BYTES_PER_SECOND = 16 * 1024 * 1024;
+
+    private static class ZxidFile
+    {
+        final File      file;
+        final long      zxid;
+
+        ZxidFile(File file, long zxid)
+        {
+            this.file = file;
+            this.zxid = zxid;
+        }
+    }
+
+    private static final Comparator<ZxidFile>   ZXID_ORDER = new Comparator<ZxidFile>()
+    {
+        @Override
+        public int compare(ZxidFile file1, ZxidFile file2)
+        {
+            return (file1.zxid < file2.zxid) ? -1 : ((file1.zxid == file2.zxid) ? 0 : 1);
+        }
+    };
+
+    /**
+     * @param directory the ZK "version-2" directory
+     * @param snapshotsToKeep number of snapshots to keep
+     * @param canPurgeLog returns true if the given transaction log can be deleted
+     */
+    LogPurger(File directory, int snapshotsToKeep, Predicate<File> canPurgeLog)
+    {
+        this.directory = directory;
+        this.snapshotsToKeep = Math.max(snapshotsToKeep, MIN_SNAPSHOTS_TO_KEEP);
+        this.canPurgeLog = canPurgeLog;
+    }
+
+    /**
+     * @return the files that would be deleted, oldest first
+     */
+    List<File> getFilesToPurge()
+    {
+        List<ZxidFile>      snapshots = Lists.newArrayList();
+        List<ZxidFile>      logs = Lists.newArrayList();
+        File[]              files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File f : files )
+            {
+                if ( f.getName().startsWith(SNAPSHOT_PREFIX) )
+                {
+                    addZxidFile(snapshots, f, SNAPSHOT_PREFIX);
+                }
+                else if ( f.getName().startsWith(LOG_PREFIX) )
+                {
+                    addZxidFile(logs, f, LOG_PREFIX);
+                }
+            }
+        }
+
+        List<File>          purge = Lists.newArrayList();
+        if ( snapshots.size() <= snapshotsToKeep )
+        {
+            return purge;
+        }
+
+        Collections.sort(snapshots, ZXID_ORDER);
+        Collections.sort(logs, ZXID_ORDER);
+
+        List<ZxidFile>      oldSnapshots = snapshots.subList(0, snapshots.size() - snapshotsToKeep);
+        long                leastZxidToKeep = snapshots.get(oldSnapshots.size()).zxid;
+
+        // the newest log that starts at or before the oldest kept snapshot has the transactions that follow it
+        int                 firstLogToKeep = 0;
+        for ( int i = 0; i < logs.size(); ++i )
+        {
+            if ( logs.get(i).zxid <= leastZxidToKeep )
+            {
+                firstLogToKeep = i;
+            }
+        }
+
+        for ( ZxidFile log : logs.subList(0, firstLogToKeep) )
+        {
+            if ( canPurgeLog.apply(log.file) )
+            {
+                purge.add(log.file);
+            }
+        }
+        for ( ZxidFile snapshot : oldSnapshots )
+        {
+            purge.add(snapshot.file);
+        }
+        return purge;
+    }
+
+    /**
+     * Delete the old files
+     *
+     * @param log the log
+     * @return number of files deleted
+     * @throws InterruptedException if interrupted while pausing
+     */
+    int purge(ActivityLog log) throws InterruptedException
+    {
+        int     count = 0;
+        for ( File f : getFilesToPurge() )
+        {
+            if ( delete(f, log) )
+            {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    private boolean delete(File f, ActivityLog log) throws InterruptedException
+    {
+        long        length = f.length();
+        if ( length > TRUNCATE_CHUNK_BYTES )
+        {
+            RandomAccessFile    raf = null;
+            try
+            {
+                raf = new RandomAccessFile(f, "rw");
+                for ( long size = length - TRUNCATE_CHUNK_BYTES; size > 0; size -= TRUNCATE_CHUNK_BYTES )
+                {
+                    raf.setLength(size);
+                    pause(TRUNCATE_CHUNK_BYTES);
+                }
+            }
+            catch ( IOException e )
+            {
+                log.add(ActivityLog.Type.ERROR, "Truncating: " + f, e);
+            }
+            finally
+            {
+                Closeables.closeQuietly(raf);
+            }
+        }
+
+        if ( !f.delete() )
+        {
+            log.add(ActivityLog.Type.ERROR, "Could not delete: " + f);
+            return false;
+        }
+        pause(Math.min(length, TRUNCATE_CHUNK_BYTES));
+        return true;
+    }
+
+    private static void pause(long bytes) throws InterruptedException
+    {
+        long        ms = (bytes * 1000) / MAX_BYTES_PER_SECOND;
+        if ( ms > 0 )
+        {
+            Thread.sleep(ms);
+        }
+    }
+
+    private static void addZxidFile(List<ZxidFile> files, File f, String prefix)
+    {
+        try
+        {
+            files.add(new ZxidFile(f, Long.parseLong(f.getName().substring(prefix.length()), 16)));
+        }
+        catch ( NumberFormatException ignore )
+        {
+            // not a ZK file
+        }
+    }
+}
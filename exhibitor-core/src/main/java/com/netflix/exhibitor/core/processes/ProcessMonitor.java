@@ -11,18 +11,18 @@ import java.io.InputStreamReader;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ProcessMonitor implements Closeable
 {
-    private final ExecutorService   service = Executors.newCachedThreadPool();
+    private final ExecutorService   service;
     private final Exhibitor         exhibitor;
     private final Map<ProcessTypes, ProcessHolder> processes = Maps.newConcurrentMap();
 
     public ProcessMonitor(Exhibitor exhibitor)
     {
         this.exhibitor = exhibitor;
+        service = exhibitor.getExecutorFactory().newExecutor("process-monitor");
     }
 
     @Override
@@ -1,6 +1,9 @@
 package com.netflix.exhibitor.core.processes;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
 import com.google.common.io.Files;
 import com.netflix.exhibitor.core.Exhibitor;
@@ -8,6 +11,7 @@ import com.netflix.exhibitor.core.activity.ActivityLog;
 import com.netflix.exhibitor.core.config.InstanceConfig;
 import com.netflix.exhibitor.core.config.IntConfigs;
 import com.netflix.exhibitor.core.config.StringConfigs;
+import com.netflix.exhibitor.core.index.ZooKeeperLogFiles;
 import com.netflix.exhibitor.core.state.ServerList;
 import com.netflix.exhibitor.core.state.ServerSpec;
 import java.io.BufferedOutputStream;
@@ -17,12 +21,18 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
 
 public class StandardProcessOperations implements ProcessOperations
 {
-    private final Exhibitor exhibitor;
+    private final Exhibitor                 exhibitor;
+    private final ZooKeeperProcessLocator   locator = new ZooKeeperProcessLocator();
+
+    private static final int        GRACEFUL_STOP_MS = 10000;
+    private static final int        STOP_POLL_MS = 100;
 
     public StandardProcessOperations(Exhibitor exhibitor) throws IOException
     {
@@ -32,26 +42,40 @@ public class StandardProcessOperations implements ProcessOperations
     @Override
     public void cleanupInstance() throws Exception
     {
-        Details             details = new Details(exhibitor);
-        if ( !details.isValid() )
+        if ( exhibitor.getConfigManager().getConfig().getString(StringConfigs.ZOOKEEPER_DATA_DIRECTORY).length() == 0 )
+        {
+            return;
+        }
+        File                directory = ZooKeeperLogFiles.getDataDir(exhibitor);
+        if ( !directory.isDirectory() )
         {
             return;
         }
 
         // see http://zookeeper.apache.org/doc/r3.3.3/zookeeperAdmin.html#Ongoing+Data+Directory+Cleanup
-        ProcessBuilder      builder = new ProcessBuilder
+        LogPurger           purger = new LogPurger
         (
-            "java",
-            "-cp",
-            String.format("%s:%s:%s", details.zooKeeperJarPath.getPath(), details.log4jJarPath.getPath(), details.configDirectory.getPath()),
-            "org.apache.zookeeper.server.PurgeTxnLog",
-            details.dataDirectory.getPath(),
-            details.dataDirectory.getPath(),
-            "-n",
-            Integer.toString(exhibitor.getConfigManager().getConfig().getInt(IntConfigs.CLEANUP_MAX_FILES))
+            directory,
+            exhibitor.getConfigManager().getConfig().getInt(IntConfigs.CLEANUP_MAX_FILES),
+            new Predicate<File>()
+            {
+                @Override
+                public boolean apply(File log)
+                {
+                    try
+                    {
+                        return exhibitor.getBackupManager().isBackedUp(log);
+                    }
+                    catch ( Exception e )
+                    {
+                        exhibitor.getLog().add(ActivityLog.Type.ERROR, "Checking backup of: " + log, e);
+                        return false;
+                    }
+                }
+            }
         );
-
-        exhibitor.getProcessMonitor().monitor(ProcessTypes.CLEANUP, builder.start(), "Cleanup task completed", ProcessMonitor.Mode.DESTROY_ON_INTERRUPT, ProcessMonitor.Streams.ERROR);
+        int                 count = purger.purge(exhibitor.getLog());
+        exhibitor.getLog().add(ActivityLog.Type.INFO, "Cleanup task completed - files deleted: " + count);
     }
 
     @Override
@@ -61,52 +85,38 @@ public class StandardProcessOperations implements ProcessOperations
 
         exhibitor.getProcessMonitor().destroy(ProcessTypes.ZOOKEEPER);
 
-        ProcessBuilder          builder = new ProcessBuilder("jps");
-        Process                 jpsProcess = builder.start();
-        String                  pid = null;
-        try
+        String      dataDirectoryPath = exhibitor.getConfigManager().getConfig().getString(StringConfigs.ZOOKEEPER_DATA_DIRECTORY);
+        String      pid;
+        if ( locator.isSupported() )
         {
-            BufferedReader in = new BufferedReader(new InputStreamReader(jpsProcess.getInputStream()));
-            for(;;)
-            {
-                String  line = in.readLine();
-                if ( line == null )
-                {
-                    break;
-                }
-                String[]  components = line.split("[ \t]");
-                if ( (components.length == 2) && components[1].equals("QuorumPeerMain") )
-                {
-                    pid = components[0];
-                    break;
-                }
-            }
+            pid = locator.findPid((dataDirectoryPath.length() > 0) ? new File(dataDirectoryPath) : null);
         }
-        finally
+        else
         {
-            jpsProcess.destroy();
+            pid = findPidWithJps();
         }
 
         if ( pid == null )
         {
-            exhibitor.getLog().add(ActivityLog.Type.INFO, "jps didn't find instance - assuming ZK is not running");
+            exhibitor.getLog().add(ActivityLog.Type.INFO, "Didn't find instance - assuming ZK is not running");
+            return;
         }
-        else
+
+        // give ZK a chance to shut down cleanly before resorting to -9
+        runKill(pid);
+        long        startMs = System.currentTimeMillis();
+        while ( isRunning(pid) )
         {
-            builder = new ProcessBuilder("kill", "-9", pid);
-            try
+            if ( (System.currentTimeMillis() - startMs) >= GRACEFUL_STOP_MS )
             {
-                int     result = builder.start().waitFor();
+                exhibitor.getLog().add(ActivityLog.Type.INFO, "Instance didn't stop within " + GRACEFUL_STOP_MS + " ms - killing");
+                int     result = runKill("-9", pid);
                 exhibitor.getLog().add(ActivityLog.Type.INFO, "Kill attempted result: " + result);
+                break;
             }
-            catch ( InterruptedException e )
-            {
-                // don't reset thread interrupted status
-
-                exhibitor.getLog().add(ActivityLog.Type.ERROR, "Process interrupted while running: kill -9 " + pid);
-                throw e;
-            }
+            Thread.sleep(STOP_POLL_MS);
         }
+        locator.reset();
     }
 
     @Override
@@ -124,11 +134,65 @@ public class StandardProcessOperations implements ProcessOperations
         exhibitor.getLog().add(ActivityLog.Type.INFO, "Process started via: " + startScript.getPath());
     }
 
+    private boolean isRunning(String pid) throws Exception
+    {
+        if ( locator.isSupported() )
+        {
+            return locator.isZooKeeper(pid);
+        }
+        return runKill("-0", pid) == 0;
+    }
+
+    private int runKill(String... args) throws Exception
+    {
+        List<String>    command = Lists.newArrayList("kill");
+        command.addAll(Arrays.asList(args));
+        try
+        {
+            return new ProcessBuilder(command).start().waitFor();
+        }
+        catch ( InterruptedException e )
+        {
+            // don't reset thread interrupted status
+
+            exhibitor.getLog().add(ActivityLog.Type.ERROR, "Process interrupted while running: " + Joiner.on(' ').join(command));
+            throw e;
+        }
+    }
+
+    private String findPidWithJps() throws IOException
+    {
+        ProcessBuilder          builder = new ProcessBuilder("jps");
+        Process                 jpsProcess = builder.start();
+        try
+        {
+            BufferedReader in = new BufferedReader(new InputStreamReader(jpsProcess.getInputStream()));
+            for(;;)
+            {
+                String  line = in.readLine();
+                if ( line == null )
+                {
+                    break;
+                }
+                String[]  components = line.split("[ \t]");
+                if ( (components.length == 2) && components[1].equals("QuorumPeerMain") )
+                {
+                    return components[0];
+                }
+            }
+        }
+        finally
+        {
+            jpsProcess.destroy();
+        }
+        return null;
+    }
+
     private void prepConfigFile(Details details) throws IOException
     {
         InstanceConfig          config = exhibitor.getConfigManager().getConfig();
 
-        ServerList serverList = new ServerList(config.getString(StringConfigs.SERVERS_SPEC));
+        ServerList serverList = exhibitor.getConfigManager().getSnapshot().getServerList();
 
         File                    idFile = new File(details.dataDirectory, "myid");
         ServerSpec us = Iterables.find(serverList.getSpecs(), ServerList.isUs(exhibitor.getThisJVMHostname()), null);
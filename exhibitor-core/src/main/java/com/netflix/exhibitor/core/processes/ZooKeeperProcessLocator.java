@@ -0,0 +1,142 @@
+package com.netflix.exhibitor.core.processes;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds the pid of the ZooKeeper server without forking a process. The pid file that zkServer.sh writes
+ * to the data directory is tried first, then all processes are scanned via /proc. Candidates are always
+ * checked against their /proc command line so that a stale pid file can't cause the wrong process to be
+ * killed. Where there's no /proc (i.e. not Linux) nothing is found and callers must fall back to jps.
+ */
+class ZooKeeperProcessLocator
+{
+    private final File                      procDirectory;
+    private final AtomicReference<String>   lastPid = new AtomicReference<String>();
+
+    static final String     MAIN_CLASS = "org.apache.zookeeper.server.quorum.QuorumPeerMain";
+    static final String     PID_FILE_NAME = "zookeeper_server.pid";
+
+    ZooKeeperProcessLocator()
+    {
+        this(new File("/proc"));
+    }
+
+    ZooKeeperProcessLocator(File procDirectory)
+    {
+        this.procDirectory = procDirectory;
+    }
+
+    /**
+     * @return true if processes can be found via /proc
+     */
+    boolean isSupported()
+    {
+        return procDirectory.isDirectory();
+    }
+
+    /**
+     * @param dataDirectory ZK data directory (where zkServer.sh writes its pid file) or null
+     * @return the ZK pid or null if it isn't running or can't be found
+     */
+    String findPid(File dataDirectory)
+    {
+        if ( !isSupported() )
+        {
+            return null;
+        }
+
+        String      pid = lastPid.get();
+        if ( (pid == null) || !isZooKeeper(pid) )
+        {
+            pid = readPidFile(dataDirectory);
+            if ( (pid == null) || !isZooKeeper(pid) )
+            {
+                pid = scan();
+            }
+        }
+        lastPid.set(pid);
+        return pid;
+    }
+
+    /**
+     * Forget the previously found pid - call when ZK is (re)started
+     */
+    void reset()
+    {
+        lastPid.set(null);
+    }
+
+    /**
+     * @param pid the pid
+     * @return true if the pid is a running ZK server
+     */
+    boolean isZooKeeper(String pid)
+    {
+        File        cmdlineFile = new File(new File(procDirectory, pid), "cmdline");
+        try
+        {
+            // arguments are separated by NULs
+            String  cmdline = Files.toString(cmdlineFile, Charsets.UTF_8).replace('\0', ' ');
+            return cmdline.contains(MAIN_CLASS);
+        }
+        catch ( IOException e )
+        {
+            return false;   // process is gone or can't be read
+        }
+    }
+
+    private String readPidFile(File dataDirectory)
+    {
+        if ( dataDirectory == null )
+        {
+            return null;
+        }
+
+        File        pidFile = new File(dataDirectory, PID_FILE_NAME);
+        try
+        {
+            String  pid = Files.toString(pidFile, Charsets.UTF_8).trim();
+            return isPid(pid) ? pid : null;
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+    }
+
+    private String scan()
+    {
+        String[]    names = procDirectory.list();
+        if ( names != null )
+        {
+            for ( String name : names )
+            {
+                if ( isPid(name) && isZooKeeper(name) )
+                {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPid(String s)
+    {
+        if ( s.length() == 0 )
+        {
+            return false;
+        }
+        for ( int i = 0; i < s.length(); ++i )
+        {
+            if ( !Character.isDigit(s.charAt(i)) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
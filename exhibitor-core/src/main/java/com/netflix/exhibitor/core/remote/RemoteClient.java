@@ -0,0 +1,157 @@
+package com.netflix.exhibitor.core.remote;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
+import javax.ws.rs.core.MediaType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     Shared HTTP client for calls from this Exhibitor instance to the others in the ensemble. One client
+ *     is used for all hosts so that the JDK's keep-alive cache can reuse connections - responses are always
+ *     read fully so that their connections are returned to it.
+ * </p>
+ *
+ * <p>
+ *     Concurrent requests to any one host are bounded and each host's latencies are tracked.
+ * </p>
+ */
+public class RemoteClient implements Closeable
+{
+    private final Client                        client;
+    private final int                           connectTimeoutMs;
+    private final int                           readTimeoutMs;
+    private final int                           maxConnectionsPerHost;
+    private final ConcurrentMap<String, Host>   hosts = Maps.newConcurrentMap();
+
+    public static final int     DEFAULT_CONNECT_TIMEOUT_MS = 5000;
+    public static final int     DEFAULT_READ_TIMEOUT_MS = 30000;
+
+    // matches the JDK's default keep-alive cache size per destination (http.maxConnections)
+    public static final int     DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+
+    private static class Host
+    {
+        final Semaphore         permits;
+        final RemoteHostStats   stats = new RemoteHostStats();
+
+        Host(int maxConnections)
+        {
+            permits = new Semaphore(maxConnections);
+        }
+    }
+
+    /**
+     * @param connectTimeoutMs connect timeout - also the max time to wait for a free connection to a host
+     * @param readTimeoutMs default read timeout
+     * @param maxConnectionsPerHost max concurrent requests to any one host
+     * @param gzip if true, ask for compressed responses
+     */
+    public RemoteClient(int connectTimeoutMs, int readTimeoutMs, int maxConnectionsPerHost, boolean gzip)
+    {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+
+        client = Client.create();
+        client.setConnectTimeout(connectTimeoutMs);
+        client.setReadTimeout(readTimeoutMs);
+        if ( gzip )
+        {
+            client.addFilter(new GZIPContentEncodingFilter(false));
+        }
+    }
+
+    /**
+     * GET the given URI using the default read timeout
+     *
+     * @param uri the URI
+     * @param accept media type to accept
+     * @return the response
+     * @throws Exception errors
+     */
+    public String get(URI uri, MediaType accept) throws Exception
+    {
+        return get(uri, accept, readTimeoutMs);
+    }
+
+    /**
+     * GET the given URI
+     *
+     * @param uri the URI
+     * @param accept media type to accept
+     * @param readTimeoutMs read timeout for this request
+     * @return the response
+     * @throws Exception errors
+     */
+    public String get(URI uri, MediaType accept, int readTimeoutMs) throws Exception
+    {
+        String      hostKey = uri.getHost() + ":" + uri.getPort();
+        Host        host = getHost(hostKey);
+        if ( !host.permits.tryAcquire(connectTimeoutMs, TimeUnit.MILLISECONDS) )
+        {
+            host.stats.record(0, false);
+            throw new IOException("Too many concurrent requests to: " + hostKey);
+        }
+
+        long        startMs = System.currentTimeMillis();
+        boolean     success = false;
+        try
+        {
+            WebResource     resource = client.resource(uri);
+            resource.setProperty(ClientConfig.PROPERTY_READ_TIMEOUT, readTimeoutMs);
+            String          response = resource.accept(accept).get(String.class);
+            success = true;
+            return response;
+        }
+        finally
+        {
+            host.permits.release();
+            host.stats.record(System.currentTimeMillis() - startMs, success);
+        }
+    }
+
+    /**
+     * @return "host:port" to stats for each host that has been called
+     */
+    public Map<String, RemoteHostStats> getHostStats()
+    {
+        ImmutableMap.Builder<String, RemoteHostStats>   builder = ImmutableMap.builder();
+        for ( Map.Entry<String, Host> entry : hosts.entrySet() )
+        {
+            builder.put(entry.getKey(), entry.getValue().stats);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        client.destroy();
+    }
+
+    private Host getHost(String hostKey)
+    {
+        Host        host = hosts.get(hostKey);
+        if ( host == null )
+        {
+            Host    newHost = new Host(maxConnectionsPerHost);
+            host = hosts.putIfAbsent(hostKey, newHost);
+            if ( host == null )
+            {
+                host = newHost;
+            }
+        }
+        return host;
+    }
+}
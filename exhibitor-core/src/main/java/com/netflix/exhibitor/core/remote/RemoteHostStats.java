@@ -0,0 +1,61 @@
+package com.netflix.exhibitor.core.remote;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request counts and latencies for calls to one remote Exhibitor instance
+ */
+public class RemoteHostStats
+{
+    private final AtomicLong    requestCount = new AtomicLong(0);
+    private final AtomicLong    errorCount = new AtomicLong(0);
+    private final AtomicLong    totalLatencyMs = new AtomicLong(0);
+    private final AtomicLong    maxLatencyMs = new AtomicLong(0);
+    private final AtomicLong    lastLatencyMs = new AtomicLong(0);
+
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    public long getErrorCount()
+    {
+        return errorCount.get();
+    }
+
+    public long getAverageLatencyMs()
+    {
+        long        count = requestCount.get();
+        return (count > 0) ? (totalLatencyMs.get() / count) : 0;
+    }
+
+    public long getMaxLatencyMs()
+    {
+        return maxLatencyMs.get();
+    }
+
+    public long getLastLatencyMs()
+    {
+        return lastLatencyMs.get();
+    }
+
+    void        record(long latencyMs, boolean success)
+    {
+        requestCount.incrementAndGet();
+        if ( !success )
+        {
+            errorCount.incrementAndGet();
+        }
+        totalLatencyMs.addAndGet(latencyMs);
+        lastLatencyMs.set(latencyMs);
+
+        long        max;
+        while ( latencyMs > (max = maxLatencyMs.get()) )
+        {
+            if ( maxLatencyMs.compareAndSet(max, latencyMs) )
+            {
+                break;
+            }
+        }
+    }
+}
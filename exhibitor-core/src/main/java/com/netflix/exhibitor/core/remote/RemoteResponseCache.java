@@ -0,0 +1,130 @@
+package com.netflix.exhibitor.core.remote;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <p>
+ *     Short lived cache of responses keyed by host and endpoint. However many UI viewers there are, each
+ *     (host, endpoint) is fetched at most once per TTL. Concurrent requests for an entry that is being
+ *     fetched wait for that fetch rather than starting another one.
+ * </p>
+ *
+ * <p>
+ *     Failures are not cached. Callers that change a host's state must call {@link #invalidateHost(String)}.
+ * </p>
+ */
+public class RemoteResponseCache
+{
+    private final ConcurrentMap<String, Entry>  entries = Maps.newConcurrentMap();
+    private final long                          ttlMs;
+
+    public static final long        DEFAULT_TTL_MS = 2000;
+
+    private static final String     KEY_SEPARATOR = "|";
+
+    private static class Entry
+    {
+        final SettableFuture<String>    future = SettableFuture.create();
+        volatile long                   expires = Long.MAX_VALUE;   // never expires while in flight
+    }
+
+    /**
+     * @param ttlMs how long a response is reused for
+     */
+    public RemoteResponseCache(long ttlMs)
+    {
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Return the cached response or call <code>proc</code> to get it
+     *
+     * @param hostname the host
+     * @param endpoint the endpoint on the host
+     * @param proc fetches the response
+     * @return response
+     * @throws Exception errors from <code>proc</code>
+     */
+    public String get(String hostname, String endpoint, Callable<String> proc) throws Exception
+    {
+        String      key = hostname + KEY_SEPARATOR + endpoint;
+        for(;;)
+        {
+            Entry       entry = entries.get(key);
+            if ( (entry != null) && (entry.expires > System.currentTimeMillis()) )
+            {
+                return getResult(entry);
+            }
+
+            Entry       newEntry = new Entry();
+            boolean     installed = (entry == null) ? (entries.putIfAbsent(key, newEntry) == null) : entries.replace(key, entry, newEntry);
+            if ( !installed )
+            {
+                continue;   // someone else started a fetch - wait for theirs
+            }
+
+            try
+            {
+                String      result = proc.call();
+                newEntry.expires = System.currentTimeMillis() + ttlMs;
+                newEntry.future.set(result);
+                return result;
+            }
+            catch ( Exception e )
+            {
+                failed(key, newEntry, e);
+                throw e;
+            }
+            catch ( Error e )
+            {
+                failed(key, newEntry, e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Remove all entries for the given host
+     *
+     * @param hostname the host
+     */
+    public void invalidateHost(String hostname)
+    {
+        String              prefix = hostname + KEY_SEPARATOR;
+        Iterator<String>    iterator = entries.keySet().iterator();
+        while ( iterator.hasNext() )
+        {
+            if ( iterator.next().startsWith(prefix) )
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void failed(String key, Entry entry, Throwable e)
+    {
+        entries.remove(key, entry);
+        entry.future.setException(e);
+    }
+
+    private static String getResult(Entry entry) throws Exception
+    {
+        try
+        {
+            return entry.future.get();
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof Exception )
+            {
+                throw (Exception)e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.netflix.exhibitor.core.rest;
+
+import com.netflix.exhibitor.core.activity.ActivityHandle;
+import com.netflix.exhibitor.core.entities.Result;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ContextResolver;
+
+/**
+ * REST calls for viewing and cancelling queued activities
+ */
+@Path("exhibitor/v1/ui/activities")
+public class ActivityResource
+{
+    private final UIContext context;
+
+    public ActivityResource(@Context ContextResolver<UIContext> resolver)
+    {
+        context = resolver.getContext(UIContext.class);
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getActivities() throws Exception
+    {
+        ObjectMapper        mapper = new ObjectMapper();
+        ArrayNode           node = mapper.getNodeFactory().arrayNode();
+        long                now = System.currentTimeMillis();
+        for ( ActivityHandle handle : context.getExhibitor().getActivityQueue().getHandles() )
+        {
+            // read the state once so that the timings are consistent with the status
+            ActivityHandle.Status   status;
+            long                    startTime;
+            long                    endTime;
+            synchronized(handle)
+            {
+                status = handle.getStatus();
+                startTime = handle.getStartTime();
+                endTime = handle.getEndTime();
+            }
+
+            ObjectNode      n = mapper.getNodeFactory().objectNode();
+            n.put("id", handle.getId());
+            n.put("group", handle.getGroup().name());
+            n.put("name", handle.getName());
+            n.put("status", status.name());
+            n.put("percentDone", handle.getPercentDone());
+            n.put("queuedTime", handle.getQueuedTime());
+            n.put("startTime", startTime);
+            n.put("endTime", endTime);
+            n.put("waitMs", ((startTime != 0) ? startTime : ((endTime != 0) ? endTime : now)) - handle.getQueuedTime());
+            n.put("runMs", (startTime != 0) ? (((endTime != 0) ? endTime : now) - startTime) : 0);
+
+            node.add(n);
+        }
+
+        return mapper.writer().writeValueAsString(node);
+    }
+
+    @Path("{id}")
+    @DELETE
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response cancelActivity(@PathParam("id") long id)
+    {
+        ActivityHandle      handle = context.getExhibitor().getActivityQueue().getHandle(id);
+        if ( handle == null )
+        {
+            return Response.ok(new Result("Not found", false)).build();
+        }
+        boolean             cancelled = handle.cancel();
+        return Response.ok(new Result(cancelled ? "OK" : "Already completed", cancelled)).build();
+    }
+}
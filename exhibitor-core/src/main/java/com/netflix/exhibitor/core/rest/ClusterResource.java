@@ -1,32 +1,39 @@
 package com.netflix.exhibitor.core.rest;
 
-import com.google.common.cache.CacheLoader;
+import com.google.common.collect.Lists;
+import com.netflix.exhibitor.core.activity.ActivityPriority;
 import com.netflix.exhibitor.core.activity.QueueGroups;
 import com.netflix.exhibitor.core.config.InstanceConfig;
+import com.netflix.exhibitor.core.config.IntConfigs;
 import com.netflix.exhibitor.core.controlpanel.ControlPanelTypes;
 import com.netflix.exhibitor.core.entities.Result;
+import com.netflix.exhibitor.core.remote.RemoteHostStats;
 import com.netflix.exhibitor.core.state.FourLetterWord;
 import com.netflix.exhibitor.core.state.InstanceStateTypes;
 import com.netflix.exhibitor.core.state.KillRunningInstance;
-import com.netflix.exhibitor.core.temp.CacheBuilder;
-import com.netflix.exhibitor.core.temp.LoadingCache;
-import com.sun.jersey.api.client.Client;
-import com.sun.jersey.api.client.WebResource;
+import com.netflix.exhibitor.core.state.ServerSpec;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.ObjectNode;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ContextResolver;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST calls for dealing with indexed (via Lucene) log files
@@ -36,25 +43,14 @@ import java.util.concurrent.Callable;
 public class ClusterResource
 {
     private final UIContext context;
-    private final Client client;
-    private final LoadingCache<URI, WebResource> webResources = CacheBuilder.newBuilder()
-        .softValues()
-        .build
-        (
-            new CacheLoader<URI, WebResource>()
-            {
-                @Override
-                public WebResource load(URI remoteUri) throws Exception
-                {
-                    return client.resource(remoteUri);
-                }
-            }
-        );
+
+    private static final ObjectMapper   mapper = new ObjectMapper();  // thread safe once configured
+    private static final int            MAX_ENSEMBLE_TIMEOUT_MS = 60000;
+    private static final String         STATE_ENDPOINT = "state";
 
     public ClusterResource(@Context ContextResolver<UIContext> resolver)
     {
         context = resolver.getContext(UIContext.class);
-        client = Client.create();
     }
 
     @Path("state/{hostname}")
@@ -66,6 +62,7 @@ public class ClusterResource
         (
             uriInfo,
             hostname,
+            STATE_ENDPOINT,
             new Callable<String>()
             {
                 @Override
@@ -77,15 +74,101 @@ public class ClusterResource
         );
     }
 
+    /**
+     * Get the state of every server in the ensemble at once. Servers are queried concurrently and any that
+     * don't answer within the timeout are reported as failed rather than holding up the others
+     *
+     * @param uriInfo uri context
+     * @param timeoutMs max time to wait for each server
+     * @return each server's state in the same format as {@link #remoteGetStatus(UriInfo, String)} plus its hostname and id
+     * @throws Exception errors
+     */
+    @Path("ensemble-state")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public String   getEnsembleStatus(@Context final UriInfo uriInfo, @QueryParam("timeout") @DefaultValue("5000") int timeoutMs) throws Exception
+    {
+        int                     localTimeoutMs = Math.max(1, Math.min(timeoutMs, MAX_ENSEMBLE_TIMEOUT_MS));
+        List<ServerSpec>        specs = context.getExhibitor().getConfigManager().getSnapshot().getServerList().getSpecs();
+
+        // abandoned requests can't be interrupted - the read timeout makes sure they finish
+        final int               readTimeoutMs = localTimeoutMs;
+        List<Callable<ObjectNode>>  tasks = Lists.newArrayList();
+        for ( final ServerSpec spec : specs )
+        {
+            tasks.add
+            (
+                new Callable<ObjectNode>()
+                {
+                    @Override
+                    public ObjectNode call() throws Exception
+                    {
+                        return getHostStatus(uriInfo, spec.getHostname(), readTimeoutMs);
+                    }
+                }
+            );
+        }
+
+        long                    startMs = System.currentTimeMillis();
+        List<Future<ObjectNode>>    futures = context.getExhibitor().getExecutorFactory().invokeAll("ensemble-state", tasks, localTimeoutMs, TimeUnit.MILLISECONDS);
+
+        ArrayNode               serversNode = mapper.getNodeFactory().arrayNode();
+        for ( int i = 0; i < specs.size(); ++i )
+        {
+            ObjectNode      node;
+            try
+            {
+                node = futures.get(i).get();
+            }
+            catch ( CancellationException e )
+            {
+                node = newResponseNode(mapper.getNodeFactory().objectNode(), "Timed out after " + localTimeoutMs + " ms");
+            }
+            catch ( ExecutionException e )
+            {
+                node = newResponseNode(mapper.getNodeFactory().objectNode(), getErrorMessage(e.getCause()));
+            }
+            node.put("hostname", specs.get(i).getHostname());
+            node.put("serverId", specs.get(i).getServerId());
+            serversNode.add(node);
+        }
+
+        ObjectNode              mainNode = mapper.getNodeFactory().objectNode();
+        mainNode.put("servers", serversNode);
+        mainNode.put("elapsedMs", System.currentTimeMillis() - startMs);
+        return mapper.writer().writeValueAsString(mainNode);
+    }
+
+    @Path("remote-stats")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public String   getRemoteStats() throws Exception
+    {
+        ObjectNode          mainNode = mapper.getNodeFactory().objectNode();
+        for ( Map.Entry<String, RemoteHostStats> entry : context.getExhibitor().getRemoteClient().getHostStats().entrySet() )
+        {
+            RemoteHostStats     stats = entry.getValue();
+            ObjectNode          node = mapper.getNodeFactory().objectNode();
+            node.put("requestCount", stats.getRequestCount());
+            node.put("errorCount", stats.getErrorCount());
+            node.put("averageLatencyMs", stats.getAverageLatencyMs());
+            node.put("maxLatencyMs", stats.getMaxLatencyMs());
+            node.put("lastLatencyMs", stats.getLastLatencyMs());
+            mainNode.put(entry.getKey(), node);
+        }
+        return mapper.writer().writeValueAsString(mainNode);
+    }
+
     @Path("set/{type}/{value}/{hostname}")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public String remoteSetControlPanelSetting(@Context UriInfo uriInfo, @PathParam("hostname") String hostname, final @PathParam("type") String typeStr, final @PathParam("value") boolean newValue) throws Exception
     {
-        return makeRemoteRequest
+        String      response = makeRemoteRequest
         (
-            uriInfo, 
+            uriInfo,
             hostname,
+            null,
             new Callable<String>()
             {
                 @Override
@@ -95,6 +178,8 @@ public class ClusterResource
                 }
             }
         );
+        context.getExhibitor().getRemoteResponseCache().invalidateHost(hostname);
+        return response;
     }
 
     @Path("restart/{hostname}")
@@ -102,10 +187,11 @@ public class ClusterResource
     @Produces(MediaType.APPLICATION_JSON)
     public String remoteStopStartZooKeeper(@Context UriInfo uriInfo, @PathParam("hostname") String hostname) throws Exception
     {
-        return makeRemoteRequest
+        String      response = makeRemoteRequest
         (
             uriInfo,
             hostname,
+            null,
             new Callable<String>()
             {
                 @Override
@@ -115,6 +201,8 @@ public class ClusterResource
                 }
             }
         );
+        context.getExhibitor().getRemoteResponseCache().invalidateHost(hostname);
+        return response;
     }
 
     @Path("4ltr/{word}/{hostname}")
@@ -127,6 +215,7 @@ public class ClusterResource
             uriInfo,
             hostname,
             false,
+            "4ltr/" + word.toLowerCase(),
             new Callable<String>()
             {
                 @Override
@@ -148,6 +237,7 @@ public class ClusterResource
             uriInfo,
             hostname,
             false,
+            "log",
             new Callable<String>()
             {
                 @Override
@@ -178,7 +268,7 @@ public class ClusterResource
         try
         {
             FourLetterWord.Word wordEnum = FourLetterWord.Word.valueOf(word.toUpperCase());
-            value = new FourLetterWord(wordEnum, config, context.getExhibitor().getConnectionTimeOutMs()).getResponse();
+            value = context.getExhibitor().getFourLetterWordClient().get(wordEnum, "localhost", config.getInt(IntConfigs.CLIENT_PORT), context.getExhibitor().getConnectionTimeOutMs()).getResponse();
         }
         catch ( IllegalArgumentException e )
         {
@@ -192,10 +282,11 @@ public class ClusterResource
     @Produces(MediaType.APPLICATION_JSON)
     public String stopStartZooKeeper() throws Exception
     {
-        context.getExhibitor().getActivityQueue().add(QueueGroups.MAIN, new KillRunningInstance(context.getExhibitor(), true));
+        context.getExhibitor().getActivityQueue().add(QueueGroups.MAIN, new KillRunningInstance(context.getExhibitor(), true), ActivityPriority.HIGH);
+        invalidateThisHost();
 
         Result result = new Result("OK", true);
-        return new ObjectMapper().writer().writeValueAsString(result);
+        return mapper.writer().writeValueAsString(result);
     }
 
     @Path("set/{type}/{value}")
@@ -218,13 +309,14 @@ public class ClusterResource
         if ( type != null )
         {
             context.getExhibitor().getControlPanelValues().set(type, newValue);
+            invalidateThisHost();
             result = new Result("OK", true);
         }
         else
         {
             result = new Result("Not found", false);
         }
-        return new ObjectMapper().writer().writeValueAsString(result);
+        return mapper.writer().writeValueAsString(result);
     }
 
     @Path("state")
@@ -232,7 +324,6 @@ public class ClusterResource
     @Produces(MediaType.APPLICATION_JSON)
     public String   getStatus() throws Exception
     {
-        ObjectMapper        mapper = new ObjectMapper();
         ObjectNode          mainNode = mapper.getNodeFactory().objectNode();
 
         ObjectNode          switchesNode = mapper.getNodeFactory().objectNode();
@@ -245,54 +336,65 @@ public class ClusterResource
         InstanceStateTypes      state = context.getExhibitor().getMonitorRunningInstance().getCurrentInstanceState();
         mainNode.put("state", state.getCode());
         mainNode.put("description", state.getDescription());
+        mainNode.put("mode", context.getExhibitor().getMonitorRunningInstance().getCurrentMode());
 
         return mapper.writer().writeValueAsString(mainNode);
     }
 
-    private String    makeRemoteRequest(UriInfo uriInfo, String hostname, Callable<String> proc) throws Exception
+    private String    makeRemoteRequest(UriInfo uriInfo, String hostname, String cacheEndpoint, Callable<String> proc) throws Exception
     {
-        return makeRemoteRequest(uriInfo, hostname, true, proc);
+        return makeRemoteRequest(uriInfo, hostname, true, cacheEndpoint, proc);
     }
 
-    private String    makeRemoteRequest(UriInfo uriInfo, String hostname, boolean responseIsJson, Callable<String> proc) throws Exception
+    /**
+     * @param uriInfo uri context
+     * @param hostname host to call
+     * @param responseIsJson true if the response is JSON
+     * @param cacheEndpoint key for caching the response or null for calls that must not be cached
+     * @param proc does the call when the host is this host
+     * @return response
+     * @throws Exception errors
+     */
+    private String    makeRemoteRequest(final UriInfo uriInfo, final String hostname, boolean responseIsJson, String cacheEndpoint, Callable<String> proc) throws Exception
     {
         String      remoteResponse;
         String      errorMessage;
-        if ( hostname.equals("localhost") || hostname.equals(context.getExhibitor().getThisJVMHostname()) )
+        if ( isThisHost(hostname) )
         {
-            remoteResponse = proc.call();
+            remoteResponse = getCached(hostname, cacheEndpoint, proc);
             errorMessage = "";
         }
         else
         {
             try
             {
-                String      thisPath = uriInfo.getPath();
-                if ( !thisPath.endsWith(hostname) )
+                Callable<String>    remoteProc = new Callable<String>()
                 {
-                    throw new IllegalStateException("Unknown path format: " + thisPath);
-                }
-                String      remotePath = thisPath.substring(0, thisPath.length() - hostname.length());
-                UriBuilder  builder = uriInfo.getRequestUriBuilder();
-                List<PathSegment> segments = uriInfo.getPathSegments();
-                URI         remoteUri = builder.replacePath(remotePath).host(hostname).build();
+                    @Override
+                    public String call() throws Exception
+                    {
+                        String      thisPath = uriInfo.getPath();
+                        if ( !thisPath.endsWith(hostname) )
+                        {
+                            throw new IllegalStateException("Unknown path format: " + thisPath);
+                        }
+                        String      remotePath = thisPath.substring(0, thisPath.length() - hostname.length());
+                        UriBuilder  builder = uriInfo.getRequestUriBuilder();
+                        URI         remoteUri = builder.replacePath(remotePath).host(hostname).build();
 
-                WebResource         resource = webResources.get(remoteUri);
-                remoteResponse = resource.accept(MediaType.APPLICATION_JSON_TYPE).get(String.class);
+                        return context.getExhibitor().getRemoteClient().get(remoteUri, MediaType.APPLICATION_JSON_TYPE);
+                    }
+                };
+                remoteResponse = getCached(hostname, cacheEndpoint, remoteProc);
                 errorMessage = "";
             }
             catch ( Exception e )
             {
                 remoteResponse = "{}";
-                errorMessage = e.getMessage();
-                if ( errorMessage == null )
-                {
-                    errorMessage = "Unknown";
-                }
+                errorMessage = getErrorMessage(e);
             }
         }
 
-        ObjectMapper        mapper = new ObjectMapper();
         ObjectNode          node = mapper.getNodeFactory().objectNode();
         if ( responseIsJson )
         {
@@ -307,4 +409,69 @@ public class ClusterResource
 
         return mapper.writer().writeValueAsString(node);
     }
+
+    private ObjectNode  getHostStatus(final UriInfo uriInfo, final String hostname, final int readTimeoutMs)
+    {
+        ObjectNode      node = mapper.getNodeFactory().objectNode();
+        try
+        {
+            String      response = getCached
+            (
+                hostname,
+                STATE_ENDPOINT,
+                new Callable<String>()
+                {
+                    @Override
+                    public String call() throws Exception
+                    {
+                        if ( isThisHost(hostname) )
+                        {
+                            return getStatus();
+                        }
+                        URI     remoteUri = uriInfo.getBaseUriBuilder().path(ClusterResource.class).path("state").host(hostname).build();
+                        return context.getExhibitor().getRemoteClient().get(remoteUri, MediaType.APPLICATION_JSON_TYPE, readTimeoutMs);
+                    }
+                }
+            );
+            node.put("response", mapper.readTree(response));
+            return newResponseNode(node, "");
+        }
+        catch ( Exception e )
+        {
+            return newResponseNode(node, getErrorMessage(e));
+        }
+    }
+
+    private ObjectNode  newResponseNode(ObjectNode node, String errorMessage)
+    {
+        if ( !node.has("response") )
+        {
+            node.put("response", mapper.getNodeFactory().objectNode());
+        }
+        node.put("errorMessage", errorMessage);
+        node.put("success", errorMessage.length() == 0);
+        return node;
+    }
+
+    private String      getCached(String hostname, String cacheEndpoint, Callable<String> proc) throws Exception
+    {
+        return (cacheEndpoint != null) ? context.getExhibitor().getRemoteResponseCache().get(hostname, cacheEndpoint, proc) : proc.call();
+    }
+
+    private void        invalidateThisHost()
+    {
+        context.getExhibitor().getRemoteResponseCache().invalidateHost("localhost");
+        context.getExhibitor().getRemoteResponseCache().invalidateHost(context.getExhibitor().getThisJVMHostname());
+    }
+
+    private boolean     isThisHost(String hostname)
+    {
+        return hostname.equals("localhost") || hostname.equals(context.getExhibitor().getThisJVMHostname());
+    }
+
+    private static String getErrorMessage(Throwable e)
+    {
+        String      errorMessage = e.getMessage();
+        return (errorMessage != null) ? errorMessage : "Unknown";
+    }
 }
@@ -97,6 +97,11 @@ public class ExplorerResource
         {
             context.getExhibitor().resetLocalConnection();
             context.getExhibitor().getLog().add(ActivityLog.Type.ERROR, "getNode: " + key, e);
+            if ( !(e instanceof KeeperException.NoNodeException) )
+            {
+                // the instance may be down - don't wait for the next scheduled check
+                context.getExhibitor().getMonitorRunningInstance().checkNow();
+            }
 
             ObjectNode  node = children.addObject();
             node.put("title", "* Exception *");
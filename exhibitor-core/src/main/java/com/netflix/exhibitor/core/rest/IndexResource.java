@@ -4,6 +4,7 @@ import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
 import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.activity.ActivityPriority;
 import com.netflix.exhibitor.core.activity.QueueGroups;
 import com.netflix.exhibitor.core.backup.BackupMetaData;
 import com.netflix.exhibitor.core.backup.RestoreAndIndex;
@@ -22,6 +23,7 @@ import org.codehaus.jackson.node.JsonNodeFactory;
 import org.codehaus.jackson.node.ObjectNode;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -41,6 +43,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * REST calls for dealing with indexed (via Lucene) log files
@@ -52,6 +55,7 @@ public class IndexResource
 
     private static final int        MAX_PATH = 50;
     private static final String     DATE_FORMAT_STR = "MM/dd/yyyy-HH:ss";
+    private static final Pattern    HEX_BYTES = Pattern.compile("0x([0-9a-fA-F]{2}){4,}");  // binary data searches are written as hex - e.g. 0xcafebabe
 
     public IndexResource(@Context ContextResolver<UIContext> resolver)
     {
@@ -67,7 +71,7 @@ public class IndexResource
         if ( request.getType().equals("backup") )
         {
             RestoreAndIndex     restoreAndIndex = new RestoreAndIndex(context.getExhibitor(), new BackupMetaData(request.getBackup().getName(), request.getBackup().getModifiedDate()));
-            context.getExhibitor().getActivityQueue().add(QueueGroups.IO, restoreAndIndex);
+            context.getExhibitor().getActivityQueue().add(QueueGroups.IO, restoreAndIndex, ActivityPriority.HIGH);
         }
         else
         {
@@ -180,7 +184,7 @@ public class IndexResource
 
         byte[]          bytes = logSearch.toData(docId);
         EntryTypes      type = EntryTypes.getFromId(item.getType());
-        context.getExhibitor().getActivityQueue().add(QueueGroups.IO, new RestoreActivity(context.getExhibitor(), type, item.getPath(), bytes));
+        context.getExhibitor().getActivityQueue().add(QueueGroups.MAIN, new RestoreActivity(context.getExhibitor(), type, item.getPath(), bytes));
 
         return Response.ok(new Result("OK", true)).build();
     }
@@ -317,50 +321,137 @@ public class IndexResource
         SearchId    searchHandle;
         try
         {
-            boolean         hasTerms = false;
-            QueryBuilder    builder = QueryBuilder.builder();
-            if ( request.getPathPrefix().length() > 0 )
+            Query       query = buildQuery(request);
+            String      id = logSearch.cacheSearch(query, request.getReuseHandle(), request.getMaxResults());
+            searchHandle = new SearchId(id);
+        }
+        finally
+        {
+            context.getExhibitor().getIndexCache().releaseLogSearch(logSearch.getFile());
+        }
+        return Response.ok(searchHandle).build();
+    }
+
+    @Path("facets")
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getFacets(SearchRequest request, @QueryParam("buckets") @DefaultValue("100") int buckets) throws Exception
+    {
+        LogSearch   logSearch = getLogSearch(request.getIndexName());
+        if ( logSearch == null )
+        {
+            return "{}";
+        }
+
+        ObjectNode          node;
+        try
+        {
+            Date[]          dateRange = getDateRange(request);
+            if ( dateRange == null )
             {
-                hasTerms = true;
-                builder.pathPrefix(request.getPathPrefix());
+                IndexMetaData   metaData = context.getExhibitor().getIndexCache().getMetaData(logSearch.getFile());
+                dateRange = new Date[]{metaData.getFrom(), metaData.getTo()};
             }
-            if ( request.getOperationType() >= 0 )
+
+            SearchFacets    facets = logSearch.getFacets(buildQuery(request), dateRange[0], dateRange[1], buckets);
+
+            ArrayNode       datesTab = JsonNodeFactory.instance.arrayNode();
+            for ( int i = 0; i < facets.getBucketQty(); ++i )
             {
-                hasTerms = true;
-                builder.operationType(request.getOperationType());
+                datesTab.add(facets.getDateCount(i));
             }
-            if ( (request.getFirstDate() != null) && (request.getSecondDate() != null) )
+
+            ObjectNode      typesNode = JsonNodeFactory.instance.objectNode();
+            for ( EntryTypes type : EntryTypes.values() )
             {
-                hasTerms = true;
-                Date        startDate;
-                Date        endDate;
-                if ( request.getFirstDate().before(request.getSecondDate()) )
-                {
-                    startDate = request.getFirstDate();
-                    endDate = request.getSecondDate();
-                }
-                else
-                {
-                    startDate = request.getSecondDate();
-                    endDate = request.getFirstDate();
-                }
-                Calendar      endOfDayEndDate = Calendar.getInstance();
-                endOfDayEndDate.setTime(endDate);
-                endOfDayEndDate.set(Calendar.HOUR_OF_DAY, 23);
-                endOfDayEndDate.set(Calendar.MINUTE, 59);
-                endOfDayEndDate.set(Calendar.SECOND, 59);
-                endDate = endOfDayEndDate.getTime();
-                builder.dateRange(startDate, endDate);
+                typesNode.put(getTypeName(type), facets.getTypeCount(type));
             }
-            Query       query = hasTerms ? builder.build(QueryBuilder.Type.AND) : null;
-            String      id = logSearch.cacheSearch(query, request.getReuseHandle(), request.getMaxResults());
-            searchHandle = new SearchId(id);
+
+            node = JsonNodeFactory.instance.objectNode();
+            node.put("startMs", facets.getStartDate().getTime());
+            node.put("bucketMs", facets.getBucketMs());
+            node.put("dates", datesTab);
+            node.put("types", typesNode);
         }
         finally
         {
             context.getExhibitor().getIndexCache().releaseLogSearch(logSearch.getFile());
         }
-        return Response.ok(searchHandle).build();
+
+        return node.toString();
+    }
+
+    private Query buildQuery(SearchRequest request)
+    {
+        boolean         hasTerms = false;
+        QueryBuilder    builder = QueryBuilder.builder();
+        if ( request.getPathPrefix().length() > 0 )
+        {
+            hasTerms = true;
+            builder.pathPrefix(request.getPathPrefix());
+        }
+        if ( request.getOperationType() >= 0 )
+        {
+            hasTerms = true;
+            builder.operationType(request.getOperationType());
+        }
+        Date[]          dateRange = getDateRange(request);
+        if ( dateRange != null )
+        {
+            hasTerms = true;
+            builder.dateRange(dateRange[0], dateRange[1]);
+        }
+        String          dataContains = (request.getDataContains() != null) ? request.getDataContains().trim() : "";
+        if ( HEX_BYTES.matcher(dataContains).matches() )
+        {
+            hasTerms = true;
+            builder.dataContains(hexToBytes(dataContains.substring(2)));
+        }
+        else if ( dataContains.length() > 0 )
+        {
+            hasTerms = true;
+            builder.dataContains(dataContains);
+        }
+        return hasTerms ? builder.build(QueryBuilder.Type.AND) : null;
+    }
+
+    private static byte[] hexToBytes(String hex)
+    {
+        byte[]      bytes = new byte[hex.length() / 2];
+        for ( int i = 0; i < bytes.length; ++i )
+        {
+            bytes[i] = (byte)Integer.parseInt(hex.substring(i * 2, (i * 2) + 2), 16);
+        }
+        return bytes;
+    }
+
+    private Date[] getDateRange(SearchRequest request)
+    {
+        if ( (request.getFirstDate() == null) || (request.getSecondDate() == null) )
+        {
+            return null;
+        }
+
+        Date        startDate;
+        Date        endDate;
+        if ( request.getFirstDate().before(request.getSecondDate()) )
+        {
+            startDate = request.getFirstDate();
+            endDate = request.getSecondDate();
+        }
+        else
+        {
+            startDate = request.getSecondDate();
+            endDate = request.getFirstDate();
+        }
+        Calendar      endOfDayEndDate = Calendar.getInstance();
+        endOfDayEndDate.setTime(endDate);
+        endOfDayEndDate.set(Calendar.HOUR_OF_DAY, 23);
+        endOfDayEndDate.set(Calendar.MINUTE, 59);
+        endOfDayEndDate.set(Calendar.SECOND, 59);
+        endDate = endOfDayEndDate.getTime();
+        return new Date[]{startDate, endDate};
     }
 
     private String trimPath(String path)
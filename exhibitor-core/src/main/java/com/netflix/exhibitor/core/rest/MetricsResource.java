@@ -0,0 +1,140 @@
+package com.netflix.exhibitor.core.rest;
+
+import com.netflix.exhibitor.core.metrics.MetricTimeSeries;
+import com.netflix.exhibitor.core.metrics.MetricTypes;
+import com.netflix.exhibitor.core.metrics.MetricsCollector;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.ContextResolver;
+import java.util.List;
+
+/**
+ * REST calls for the collected ZooKeeper metrics
+ */
+@Path("exhibitor/v1/ui/metrics")
+public class MetricsResource
+{
+    private final UIContext context;
+
+    private static final long       DEFAULT_RANGE_MS = 60 * 60 * 1000;
+    private static final long       CHART_RANGE_MS = 10 * 60 * 1000;
+    private static final int        CHART_WIDTH = 60;
+    private static final String     CHART_LEVELS = "_.-:=+*#%@";
+
+    public MetricsResource(@Context ContextResolver<UIContext> resolver)
+    {
+        context = resolver.getContext(UIContext.class);
+    }
+
+    /**
+     * @param fromTime oldest point to return - default is the last hour
+     * @return each metric's latest value and points as [time, average, min, max]
+     * @throws Exception errors
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getMetrics(@QueryParam("from") @DefaultValue("-1") long fromTime) throws Exception
+    {
+        if ( fromTime < 0 )
+        {
+            fromTime = System.currentTimeMillis() - DEFAULT_RANGE_MS;
+        }
+
+        MetricsCollector    collector = context.getExhibitor().getMetricsCollector();
+        ObjectMapper        mapper = new ObjectMapper();
+        ObjectNode          mainNode = mapper.getNodeFactory().objectNode();
+        for ( MetricTypes type : MetricTypes.values() )
+        {
+            MetricTimeSeries        series = collector.getSeries(type);
+            MetricTimeSeries.Point  latest = series.getLatest();
+            if ( latest == null )
+            {
+                continue;
+            }
+
+            ArrayNode               pointsNode = mapper.getNodeFactory().arrayNode();
+            for ( MetricTimeSeries.Point point : series.getPoints(fromTime) )
+            {
+                ArrayNode   pointNode = mapper.getNodeFactory().arrayNode();
+                pointNode.add(point.getTime());
+                pointNode.add(point.getAverage());
+                pointNode.add(point.getMin());
+                pointNode.add(point.getMax());
+                pointsNode.add(pointNode);
+            }
+
+            ObjectNode              node = mapper.getNodeFactory().objectNode();
+            node.put("latest", latest.getAverage());
+            node.put("latestTime", latest.getTime());
+            node.put("points", pointsNode);
+            mainNode.put(UIResource.fixName(type), node);
+        }
+
+        return mapper.writer().writeValueAsString(mainNode);
+    }
+
+    /**
+     * Text chart of the recent metrics for the Metrics tab
+     *
+     * @param context context
+     * @return chart
+     */
+    static String getChart(UIContext context)
+    {
+        MetricsCollector    collector = context.getExhibitor().getMetricsCollector();
+        long                fromTime = System.currentTimeMillis() - CHART_RANGE_MS;
+        StringBuilder       str = new StringBuilder();
+        for ( MetricTypes type : MetricTypes.values() )
+        {
+            MetricTimeSeries        series = collector.getSeries(type);
+            MetricTimeSeries.Point  latest = series.getLatest();
+            if ( latest == null )
+            {
+                continue;
+            }
+
+            List<MetricTimeSeries.Point>    points = series.getPoints(fromTime);
+            if ( points.size() > CHART_WIDTH )
+            {
+                points = points.subList(points.size() - CHART_WIDTH, points.size());
+            }
+            double                          min = Double.MAX_VALUE;
+            double                          max = -Double.MAX_VALUE;
+            for ( MetricTimeSeries.Point point : points )
+            {
+                min = Math.min(min, point.getAverage());
+                max = Math.max(max, point.getAverage());
+            }
+            if ( points.isEmpty() )
+            {
+                // nothing in the chart range (e.g. collection has stalled) - the latest value is all there is
+                min = latest.getAverage();
+                max = latest.getAverage();
+            }
+
+            StringBuilder                   chart = new StringBuilder();
+            for ( MetricTimeSeries.Point point : points )
+            {
+                int     level = (max > min) ? (int)(((point.getAverage() - min) / (max - min)) * (CHART_LEVELS.length() - 1)) : 0;
+                chart.append(CHART_LEVELS.charAt(level));
+            }
+
+            str.append(String.format("%-24s %12s  [%s]  min %s  max %s%n", type.getDescription(), format(latest.getAverage()), chart, format(min), format(max)));
+        }
+
+        return (str.length() > 0) ? str.toString() : "No metrics have been collected";
+    }
+
+    private static String format(double value)
+    {
+        return (value == Math.rint(value)) ? Long.toString((long)value) : String.format("%.2f", value);
+    }
+}
@@ -1,11 +1,15 @@
 package com.netflix.exhibitor.core.rest;
 
 import com.google.common.base.Function;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
+import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.activity.ActivityLogStore;
+import com.netflix.exhibitor.core.activity.EventPublisher;
 import com.netflix.exhibitor.core.config.EncodedConfigParser;
 import com.netflix.exhibitor.core.backup.BackupConfigSpec;
 import com.netflix.exhibitor.core.state.ServerList;
@@ -21,11 +25,13 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.ObjectNode;
 import javax.activation.MimetypesFileTypeMap;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
@@ -36,9 +42,12 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -50,6 +59,9 @@ public class UIResource
     private final UIContext context;
     private final List<UITab> tabs;
 
+    private static final int        MAX_POLL_WAIT_MS = 30000;
+    private static final int        MAX_HISTORY_ENTRIES = 10000;
+
     public UIResource(@Context ContextResolver<UIContext> resolver)
     {
         context = resolver.getContext(UIContext.class);
@@ -179,8 +191,8 @@ public class UIResource
     {
         InstanceConfig              config = context.getExhibitor().getConfigManager().getConfig();
 
-        String                      response = new FourLetterWord(FourLetterWord.Word.RUOK, config, context.getExhibitor().getConnectionTimeOutMs()).getResponse();
-        ServerList                  serverList = new ServerList(config.getString(StringConfigs.SERVERS_SPEC));
+        String                      response = context.getExhibitor().getFourLetterWordClient().get(FourLetterWord.Word.RUOK, "localhost", config.getInt(IntConfigs.CLIENT_PORT), context.getExhibitor().getConnectionTimeOutMs()).getResponse();
+        ServerList                  serverList = context.getExhibitor().getConfigManager().getSnapshot().getServerList();
         ServerSpec us = Iterables.find(serverList.getSpecs(), ServerList.isUs(context.getExhibitor().getThisJVMHostname()), null);
 
         ObjectMapper                mapper = new ObjectMapper();
@@ -202,9 +214,8 @@ public class UIResource
             configNode.put(fixName(c), config.getInt(c));
         }
 
-        EncodedConfigParser     zooCfgParser = new EncodedConfigParser(config.getString(StringConfigs.ZOO_CFG_EXTRA));
         ObjectNode              zooCfgNode = mapper.getNodeFactory().objectNode();
-        for ( Map.Entry<String, String> entry : zooCfgParser.getValues().entrySet() )
+        for ( Map.Entry<String, String> entry : context.getExhibitor().getConfigManager().getSnapshot().getZooCfgExtra().entrySet() )
         {
             zooCfgNode.put(entry.getKey(), entry.getValue());
         }
@@ -325,11 +336,104 @@ public class UIResource
         {
             result = new Result("Another process has updated the config.", false);
         }
-        context.getExhibitor().resetLocalConnection();
 
         return Response.ok(result).build();
     }
 
+    @Path("log-entries")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getLogEntries(@QueryParam("after") @DefaultValue("-1") long afterSequence, @QueryParam("max") @DefaultValue("1000") int maxEntries, @QueryParam("wait") @DefaultValue("0") int waitMs) throws Exception
+    {
+        ActivityLog                 log = context.getExhibitor().getLog();
+        List<ActivityLog.Entry>     entries;
+        if ( waitMs > 0 )
+        {
+            entries = log.waitForEntriesAfter(afterSequence, maxEntries, Math.min(waitMs, MAX_POLL_WAIT_MS), TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            entries = log.getEntriesAfter(afterSequence, maxEntries);
+        }
+
+        ObjectMapper        mapper = new ObjectMapper();
+        ObjectNode          mainNode = mapper.getNodeFactory().objectNode();
+        mainNode.put("entries", toLogNode(mapper, entries));
+        mainNode.put("lastSequence", getLastSequence(log, afterSequence, entries));
+
+        return mapper.writer().writeValueAsString(mainNode);
+    }
+
+    @Path("log-history")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLogHistory(@QueryParam("from") @DefaultValue("0") long fromTime, @QueryParam("to") @DefaultValue("" + Long.MAX_VALUE) long toTime, @QueryParam("type") String types, @QueryParam("max") @DefaultValue("1000") int maxEntries) throws Exception
+    {
+        ObjectMapper        mapper = new ObjectMapper();
+        ObjectNode          mainNode = mapper.getNodeFactory().objectNode();
+        ActivityLogStore    store = context.getExhibitor().getActivityLogStore();
+        mainNode.put("enabled", store != null);
+        if ( store != null )
+        {
+            Set<ActivityLog.Type>   typeSet = null;
+            if ( (types != null) && (types.trim().length() > 0) )
+            {
+                typeSet = EnumSet.noneOf(ActivityLog.Type.class);
+                for ( String type : Splitter.on(',').trimResults().omitEmptyStrings().split(types) )
+                {
+                    try
+                    {
+                        typeSet.add(ActivityLog.Type.valueOf(type.toUpperCase()));
+                    }
+                    catch ( IllegalArgumentException dummy )
+                    {
+                        return Response.status(Response.Status.BAD_REQUEST).entity("Unknown type: " + type).build();
+                    }
+                }
+            }
+            mainNode.put("entries", toLogNode(mapper, store.query(fromTime, toTime, typeSet, Math.min(maxEntries, MAX_HISTORY_ENTRIES))));
+            mainNode.put("droppedCount", store.getDroppedCount());
+        }
+
+        return Response.ok(mapper.writer().writeValueAsString(mainNode)).build();
+    }
+
+    @Path("events")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getEvents(@QueryParam("log-after") @DefaultValue("-1") long logAfterSequence, @QueryParam("event-after") @DefaultValue("-1") long eventAfterSequence, @QueryParam("max") @DefaultValue("1000") int maxEntries, @QueryParam("wait") @DefaultValue("0") int waitMs) throws Exception
+    {
+        ActivityLog         log = context.getExhibitor().getLog();
+        EventPublisher      publisher = context.getExhibitor().getEventPublisher();
+        if ( waitMs > 0 )
+        {
+            publisher.waitForChange(logAfterSequence, eventAfterSequence, Math.min(waitMs, MAX_POLL_WAIT_MS), TimeUnit.MILLISECONDS);
+        }
+
+        List<ActivityLog.Entry>         entries = log.getEntriesAfter(logAfterSequence, maxEntries);
+        List<EventPublisher.Event>      events = publisher.getEventsAfter(eventAfterSequence);
+
+        ObjectMapper        mapper = new ObjectMapper();
+        ObjectNode          mainNode = mapper.getNodeFactory().objectNode();
+        mainNode.put("log", toLogNode(mapper, entries));
+        mainNode.put("logLastSequence", getLastSequence(log, logAfterSequence, entries));
+
+        ArrayNode           eventsNode = mapper.getNodeFactory().arrayNode();
+        for ( EventPublisher.Event event : events )
+        {
+            ObjectNode      n = mapper.getNodeFactory().objectNode();
+            n.put("sequence", event.getSequence());
+            n.put("time", event.getTime());
+            n.put("type", event.getType().name());
+            n.put("data", event.getData());
+            eventsNode.add(n);
+        }
+        mainNode.put("events", eventsNode);
+        mainNode.put("eventLastSequence", events.isEmpty() ? Math.min(eventAfterSequence, publisher.getLastSequence()) : events.get(events.size() - 1).getSequence());
+
+        return mapper.writer().writeValueAsString(mainNode);
+    }
+
     static String getLog(UIContext context)
     {
         List<String> log = context.getExhibitor().getLog().toDisplayList("\t");
@@ -342,6 +446,27 @@ public class UIResource
         return str.toString();
     }
 
+    private static ArrayNode toLogNode(ObjectMapper mapper, List<ActivityLog.Entry> entries)
+    {
+        ArrayNode           entriesNode = mapper.getNodeFactory().arrayNode();
+        for ( ActivityLog.Entry entry : entries )
+        {
+            ObjectNode      n = mapper.getNodeFactory().objectNode();
+            n.put("sequence", entry.getSequence());
+            n.put("date", entry.getFormattedDate());
+            n.put("type", entry.getType().name());
+            n.put("text", entry.getText());
+            entriesNode.add(n);
+        }
+        return entriesNode;
+    }
+
+    private static long getLastSequence(ActivityLog log, long afterSequence, List<ActivityLog.Entry> entries)
+    {
+        // if the caller is ahead of the log (e.g. the server restarted) this tells it to start over
+        return entries.isEmpty() ? Math.min(afterSequence, log.getLastSequence()) : entries.get(entries.size() - 1).getSequence();
+    }
+
     private ImmutableList<UITab> buildTabs()
     {
         ImmutableList.Builder<UITab> builder = ImmutableList.builder();
@@ -357,6 +482,17 @@ public class UIResource
                 }
             }
         );
+        builder.add
+        (
+            new UITabImpl("Metrics")
+            {
+                @Override
+                public String getContent(UriInfo info) throws Exception
+                {
+                    return MetricsResource.getChart(context);
+                }
+            }
+        );
         Collection<UITab> additionalUITabs = context.getExhibitor().getAdditionalUITabs();
         if ( additionalUITabs != null )
         {
@@ -1,11 +1,14 @@
 package com.netflix.exhibitor.core.rest.jersey;
 
 import com.google.common.collect.Sets;
+import com.netflix.exhibitor.core.rest.ActivityResource;
 import com.netflix.exhibitor.core.rest.ClusterResource;
 import com.netflix.exhibitor.core.rest.ExplorerResource;
 import com.netflix.exhibitor.core.rest.IndexResource;
+import com.netflix.exhibitor.core.rest.MetricsResource;
 import com.netflix.exhibitor.core.rest.UIContext;
 import com.netflix.exhibitor.core.rest.UIResource;
+import com.sun.jersey.api.container.filter.GZIPContentEncodingFilter;
 import com.sun.jersey.api.core.DefaultResourceConfig;
 import com.sun.jersey.api.core.ResourceConfig;
 import java.util.Set;
@@ -35,7 +38,7 @@ public class JerseySupport
         final Set<Object> singletons = getSingletons(context);
         final Set<Class<?>> classes = getClasses();
 
-        return new DefaultResourceConfig()
+        DefaultResourceConfig   config = new DefaultResourceConfig()
         {
             @Override
             public Set<Class<?>> getClasses()
@@ -49,6 +52,10 @@ public class JerseySupport
                 return singletons;
             }
         };
+
+        // compress responses for clients that ask for it (e.g. other Exhibitor instances with gzip enabled)
+        config.getProperties().put(ResourceConfig.PROPERTY_CONTAINER_RESPONSE_FILTERS, GZIPContentEncodingFilter.class.getName());
+        return config;
     }
 
     private static Set<Class<?>> getClasses()
@@ -58,6 +65,8 @@ public class JerseySupport
         classes.add(IndexResource.class);
         classes.add(ExplorerResource.class);
         classes.add(ClusterResource.class);
+        classes.add(ActivityResource.class);
+        classes.add(MetricsResource.class);
         return classes;
     }
 
@@ -12,6 +12,8 @@ public interface S3Client
 
     public S3Object getObject(String bucket, String key) throws Exception;
 
+    public ObjectMetadata getObjectMetadata(String bucket, String key) throws Exception;
+
     public ObjectListing listObjects(ListObjectsRequest request) throws Exception;
 
     public PutObjectResult putObject(PutObjectRequest request) throws Exception;
@@ -30,6 +30,12 @@ public class S3ClientFactoryImpl implements S3ClientFactory
                 return client.getObject(bucket, key);
             }
 
+            @Override
+            public ObjectMetadata getObjectMetadata(String bucket, String key) throws Exception
+            {
+                return client.getObjectMetadata(bucket, key);
+            }
+
             @Override
             public ObjectListing listObjects(ListObjectsRequest request) throws Exception
             {
@@ -1,9 +1,10 @@
 package com.netflix.exhibitor.core.state;
 
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.netflix.exhibitor.core.Exhibitor;
 import com.netflix.exhibitor.core.config.InstanceConfig;
-import com.netflix.exhibitor.core.config.StringConfigs;
+import com.netflix.exhibitor.core.config.IntConfigs;
 import com.netflix.exhibitor.core.controlpanel.ControlPanelTypes;
 import java.util.List;
 
@@ -15,6 +16,8 @@ public class Checker
     private final Exhibitor exhibitor;
     private final String hostname;
 
+    private String mode = "";
+
     public Checker(Exhibitor exhibitor)
     {
         this(exhibitor, "localhost");
@@ -31,7 +34,7 @@ public class Checker
         InstanceConfig          config = exhibitor.getConfigManager().getConfig();
 
         InstanceStateTypes      potentialState = InstanceStateTypes.DOWN;
-        ServerList              serverList = new ServerList(config.getString(StringConfigs.SERVERS_SPEC));
+        ServerList              serverList = exhibitor.getConfigManager().getSnapshot().getServerList();
         ServerSpec              us = Iterables.find(serverList.getSpecs(), ServerList.isUs(exhibitor.getThisJVMHostname()), null);
         if ( us != null )
         {
@@ -48,14 +51,22 @@ public class Checker
             }
         }
 
+        FourLetterWordClient                client = exhibitor.getFourLetterWordClient();
+        int                                 port = config.getInt(IntConfigs.CLIENT_PORT);
+        ListenableFuture<FourLetterWord>    ruokFuture = client.send(FourLetterWord.Word.RUOK, hostname, port, exhibitor.getConnectionTimeOutMs());
+
         InstanceStateTypes      actualState = potentialState;
-        String                  ruok = new FourLetterWord(FourLetterWord.Word.RUOK, hostname, config, exhibitor.getConnectionTimeOutMs()).getResponse();
+        String                  ruok = FourLetterWordClient.getResult(ruokFuture).getResponse();
+        mode = "";
         if ( "imok".equals(ruok) )
         {
+            // srvr is only sent once ruok succeeds so that a dead server doesn't cost a second connect timeout
+            ListenableFuture<FourLetterWord>    srvrFuture = client.send(FourLetterWord.Word.SRVR, hostname, port, exhibitor.getConnectionTimeOutMs());
+
             // The following code depends on inside knowledge of the "srvr" response. If they change it
             // this code might break
 
-            List<String> lines = new FourLetterWord(FourLetterWord.Word.SRVR, hostname, config, exhibitor.getConnectionTimeOutMs()).getResponseLines();
+            List<String> lines = FourLetterWordClient.getResult(srvrFuture).getResponseLines();
             for ( String line : lines )
             {
                 if ( line.contains("not currently serving") )
@@ -66,6 +77,8 @@ public class Checker
 
                 if ( line.toLowerCase().startsWith("mode") )
                 {
+                    int     colonIndex = line.indexOf(':');
+                    mode = (colonIndex >= 0) ? line.substring(colonIndex + 1).trim() : "";
                     actualState = InstanceStateTypes.SERVING;
                     break;
                 }
@@ -74,4 +87,13 @@ public class Checker
 
         return actualState;
     }
+
+    /**
+     * @return the server's mode (e.g. leader, follower or standalone) as of the last {@link #calculateState()} or
+     * an empty string if it wasn't serving
+     */
+    public String getMode()
+    {
+        return mode;
+    }
 }
@@ -3,8 +3,10 @@ package com.netflix.exhibitor.core.state;
 import com.netflix.exhibitor.core.Exhibitor;
 import com.netflix.exhibitor.core.activity.Activity;
 import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.activity.ActivityPriority;
 import com.netflix.exhibitor.core.activity.QueueGroups;
 import com.netflix.exhibitor.core.activity.RepeatingActivity;
+import com.netflix.exhibitor.core.config.ConfigDelta;
 import com.netflix.exhibitor.core.config.ConfigListener;
 import com.netflix.exhibitor.core.config.IntConfigs;
 import com.netflix.exhibitor.core.controlpanel.ControlPanelTypes;
@@ -48,7 +50,7 @@ public class CleanupManager implements Closeable
             }
         };
 
-        repeatingActivity = new RepeatingActivity(null, exhibitor.getActivityQueue(), QueueGroups.IO, activity, exhibitor.getConfigManager().getConfig().getInt(IntConfigs.CLEANUP_PERIOD_MS));
+        repeatingActivity = new RepeatingActivity(null, exhibitor.getActivityQueue(), QueueGroups.IO, ActivityPriority.LOW, activity, exhibitor.getConfigManager().getConfig().getInt(IntConfigs.CLEANUP_PERIOD_MS));
     }
 
     public void start()
@@ -59,9 +61,12 @@ public class CleanupManager implements Closeable
             new ConfigListener()
             {
                 @Override
-                public void configUpdated()
+                public void configUpdated(ConfigDelta delta)
                 {
-                    repeatingActivity.setTimePeriodMs(exhibitor.getConfigManager().getConfig().getInt(IntConfigs.CLEANUP_PERIOD_MS));
+                    if ( delta.isChanged(IntConfigs.CLEANUP_PERIOD_MS) )
+                    {
+                        repeatingActivity.setTimePeriodMs(delta.getNew().getInt(IntConfigs.CLEANUP_PERIOD_MS));
+                    }
                 }
             }
         );
@@ -10,13 +10,30 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.net.ConnectException;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
 import java.util.List;
 import java.util.Map;
 
 public class FourLetterWord
 {
     private final String response;
+    private final Status status;
+
+    /**
+     * Outcome of sending the word
+     */
+    public enum Status
+    {
+        SUCCESS,
+        CONNECTION_REFUSED,
+        UNKNOWN_HOST,
+        TIMEOUT,
+        INVALID_RESPONSE,   // nothing was returned or the response was too large
+        ERROR
+    }
 
     public enum Word
     {
@@ -29,7 +46,8 @@ public class FourLetterWord
         SRVR,
         WCHS,
         WCHC,
-        WCHP
+        WCHP,
+        MNTR
     }
 
     public FourLetterWord(Word word, InstanceConfig config, int connectionTimeOutMs)
@@ -42,6 +60,7 @@ public class FourLetterWord
         Preconditions.checkNotNull(word);
 
         String  localResponse = "";
+        Status  localStatus;
         Socket  s = null;
         try
         {
@@ -53,10 +72,12 @@ public class FourLetterWord
             s.getOutputStream().flush();
 
             localResponse = CharStreams.toString(new InputStreamReader(s.getInputStream()));
+            localStatus = (localResponse.length() > 0) ? Status.SUCCESS : Status.INVALID_RESPONSE;
         }
         catch ( Exception e )
         {
-            // ignore - treat as server not running
+            // treat as server not running
+            localStatus = toStatus(e);
         }
         finally
         {
@@ -74,6 +95,31 @@ public class FourLetterWord
         }
 
         response = localResponse;
+        status = localStatus;
+    }
+
+    FourLetterWord(Word word, Status status, String response)
+    {
+        Preconditions.checkNotNull(word);
+        this.status = status;
+        this.response = response;
+    }
+
+    static Status toStatus(Exception e)
+    {
+        if ( e instanceof ConnectException )
+        {
+            return Status.CONNECTION_REFUSED;
+        }
+        if ( e instanceof SocketTimeoutException )
+        {
+            return Status.TIMEOUT;
+        }
+        if ( e instanceof UnknownHostException )
+        {
+            return Status.UNKNOWN_HOST;
+        }
+        return Status.ERROR;
     }
 
     public List<String> getResponseLines()
@@ -120,4 +166,12 @@ public class FourLetterWord
     {
         return response;
     }
+
+    /**
+     * @return outcome of sending the word - the response is empty unless this is {@link Status#SUCCESS}
+     */
+    public Status getStatus()
+    {
+        return status;
+    }
 }
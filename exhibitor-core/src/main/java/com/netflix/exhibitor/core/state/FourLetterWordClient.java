@@ -0,0 +1,337 @@
+package com.netflix.exhibitor.core.state;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <p>
+ *     Sends four letter words to any number of ZooKeeper servers concurrently from a single selector thread.
+ *     Each command has its own timeout and the result's {@link FourLetterWord.Status} tells connection refused,
+ *     timeouts and bad responses apart.
+ * </p>
+ *
+ * <p>
+ *     ZooKeeper closes the connection after answering a four letter word so connections can't be
+ *     reused - each command gets its own non-blocking connection.
+ * </p>
+ */
+public class FourLetterWordClient implements Closeable
+{
+    private static final Logger log = LoggerFactory.getLogger(FourLetterWordClient.class);
+
+    private final Selector                  selector;
+    private final Thread                    selectorThread;
+    private final Queue<Request>            newRequests = new ConcurrentLinkedQueue<Request>();
+    private final Set<Request>              activeRequests = Sets.newLinkedHashSet();   // only accessed by the selector thread
+    private volatile boolean                isOpen = true;
+
+    private static final int        READ_BUFFER_SIZE = 8192;
+    private static final int        MAX_RESPONSE_BYTES = 16 * 1024 * 1024;
+    private static final long       MAX_SELECT_MS = 1000;
+
+    private static class Request
+    {
+        final FourLetterWord.Word               word;
+        final InetSocketAddress                 address;
+        final long                              deadline;
+        final SettableFuture<FourLetterWord>    future = SettableFuture.create();
+        final ByteBuffer                        command;
+        final ByteArrayOutputStream             response = new ByteArrayOutputStream();
+
+        SocketChannel                           channel;
+
+        Request(FourLetterWord.Word word, InetSocketAddress address, int timeoutMs)
+        {
+            this.word = word;
+            this.address = address;
+            deadline = System.currentTimeMillis() + timeoutMs;
+            command = ByteBuffer.wrap(word.name().toLowerCase().getBytes(Charsets.US_ASCII));
+        }
+    }
+
+    public FourLetterWordClient() throws IOException
+    {
+        selector = Selector.open();
+        selectorThread = new ThreadFactoryBuilder().setNameFormat("four-letter-word-client-%d").setDaemon(true).build().newThread
+        (
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    runSelector();
+                }
+            }
+        );
+        selectorThread.start();
+    }
+
+    /**
+     * Send a four letter word. The returned future always completes (by the timeout at the latest) and never
+     * fails - check the result's status. NOTE: listeners added to the future with the same thread executor are
+     * run on the selector thread and must not block.
+     *
+     * @param word the word
+     * @param hostname server
+     * @param port server's client port
+     * @param timeoutMs max time for the whole command - connect, send and read
+     * @return future result
+     */
+    public ListenableFuture<FourLetterWord> send(FourLetterWord.Word word, String hostname, int port, int timeoutMs)
+    {
+        // resolving here keeps DNS lookups off the selector thread
+        InetSocketAddress   address = new InetSocketAddress(hostname, port);
+        if ( address.isUnresolved() )
+        {
+            SettableFuture<FourLetterWord>  future = SettableFuture.create();
+            future.set(new FourLetterWord(word, FourLetterWord.Status.UNKNOWN_HOST, ""));
+            return future;
+        }
+
+        Request             request = new Request(word, address, timeoutMs);
+        newRequests.add(request);
+        if ( !isOpen && newRequests.remove(request) )
+        {
+            request.future.set(new FourLetterWord(word, FourLetterWord.Status.ERROR, ""));
+        }
+        else
+        {
+            selector.wakeup();
+        }
+        return request.future;
+    }
+
+    /**
+     * Send a four letter word to several servers at once
+     *
+     * @param word the word
+     * @param hostnames servers
+     * @param port servers' client port
+     * @param timeoutMs max time for each command
+     * @return hostname to future result
+     */
+    public ImmutableMap<String, ListenableFuture<FourLetterWord>> sendAll(FourLetterWord.Word word, Collection<String> hostnames, int port, int timeoutMs)
+    {
+        ImmutableMap.Builder<String, ListenableFuture<FourLetterWord>>  builder = ImmutableMap.builder();
+        for ( String hostname : Sets.newLinkedHashSet(hostnames) )
+        {
+            builder.put(hostname, send(word, hostname, port, timeoutMs));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Send a four letter word and wait for the result
+     *
+     * @param word the word
+     * @param hostname server
+     * @param port server's client port
+     * @param timeoutMs max time for the command
+     * @return result
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public FourLetterWord get(FourLetterWord.Word word, String hostname, int port, int timeoutMs) throws InterruptedException
+    {
+        return getResult(send(word, hostname, port, timeoutMs));
+    }
+
+    /**
+     * Wait for a future returned by {@link #send(FourLetterWord.Word, String, int, int)}
+     *
+     * @param future the future
+     * @return result
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static FourLetterWord getResult(ListenableFuture<FourLetterWord> future) throws InterruptedException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( ExecutionException e )
+        {
+            throw new RuntimeException(e.getCause());  // futures from this client are never failed
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        isOpen = false;
+        selector.wakeup();
+        try
+        {
+            selectorThread.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        for ( Request request : Lists.newArrayList(activeRequests) )
+        {
+            complete(request, FourLetterWord.Status.ERROR);
+        }
+        Request     request;
+        while ( (request = newRequests.poll()) != null )
+        {
+            complete(request, FourLetterWord.Status.ERROR);
+        }
+        selector.close();
+    }
+
+    private void        runSelector()
+    {
+        while ( isOpen )
+        {
+            try
+            {
+                registerNewRequests();
+                selector.select(getSelectTimeout());
+
+                Iterator<SelectionKey>  iterator = selector.selectedKeys().iterator();
+                while ( iterator.hasNext() )
+                {
+                    SelectionKey    key = iterator.next();
+                    iterator.remove();
+                    handle(key);
+                }
+
+                expireRequests();
+            }
+            catch ( Throwable e )
+            {
+                log.error("Unexpected error in four letter word selector", e);
+            }
+        }
+    }
+
+    private void        registerNewRequests()
+    {
+        Request     request;
+        while ( (request = newRequests.poll()) != null )
+        {
+            activeRequests.add(request);
+            try
+            {
+                request.channel = SocketChannel.open();
+                request.channel.configureBlocking(false);
+                request.channel.socket().setTcpNoDelay(true);
+                boolean     connected = request.channel.connect(request.address);
+                request.channel.register(selector, connected ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT, request);
+            }
+            catch ( IOException e )
+            {
+                complete(request, FourLetterWord.toStatus(e));
+            }
+        }
+    }
+
+    private void        handle(SelectionKey key)
+    {
+        Request     request = (Request)key.attachment();
+        try
+        {
+            if ( key.isConnectable() )
+            {
+                request.channel.finishConnect();
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+            else if ( key.isWritable() )
+            {
+                request.channel.write(request.command);
+                if ( !request.command.hasRemaining() )
+                {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+            else if ( key.isReadable() )
+            {
+                ByteBuffer  buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+                int         count;
+                while ( (count = request.channel.read(buffer)) > 0 )
+                {
+                    request.response.write(buffer.array(), 0, count);
+                    buffer.clear();
+                }
+
+                if ( request.response.size() > MAX_RESPONSE_BYTES )
+                {
+                    complete(request, FourLetterWord.Status.INVALID_RESPONSE);
+                }
+                else if ( count < 0 )
+                {
+                    // the server closes the connection once it has written the whole response
+                    complete(request, (request.response.size() > 0) ? FourLetterWord.Status.SUCCESS : FourLetterWord.Status.INVALID_RESPONSE);
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            complete(request, FourLetterWord.toStatus(e));
+        }
+    }
+
+    private long        getSelectTimeout()
+    {
+        long        now = System.currentTimeMillis();
+        long        timeout = MAX_SELECT_MS;
+        for ( Request request : activeRequests )
+        {
+            timeout = Math.min(timeout, request.deadline - now);
+        }
+        return Math.max(timeout, 1);    // 0 means forever
+    }
+
+    private void        expireRequests()
+    {
+        long        now = System.currentTimeMillis();
+        for ( Request request : Lists.newArrayList(activeRequests) )
+        {
+            if ( now >= request.deadline )
+            {
+                complete(request, FourLetterWord.Status.TIMEOUT);
+            }
+        }
+    }
+
+    private void        complete(Request request, FourLetterWord.Status status)
+    {
+        activeRequests.remove(request);
+        if ( request.channel != null )
+        {
+            try
+            {
+                request.channel.close();    // also cancels its key
+            }
+            catch ( IOException ignore )
+            {
+                // ignore
+            }
+        }
+
+        String      response = (status == FourLetterWord.Status.SUCCESS) ? new String(request.response.toByteArray(), Charsets.UTF_8) : "";
+        request.future.set(new FourLetterWord(request.word, status, response));
+    }
+}
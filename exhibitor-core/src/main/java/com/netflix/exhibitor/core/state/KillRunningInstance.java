@@ -1,10 +1,10 @@
 package com.netflix.exhibitor.core.state;
 
 import com.netflix.exhibitor.core.Exhibitor;
-import com.netflix.exhibitor.core.activity.Activity;
 import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.activity.KeyedActivity;
 
-public class KillRunningInstance implements Activity
+public class KillRunningInstance implements KeyedActivity
 {
     private final Exhibitor exhibitor;
     private final boolean restart;
@@ -20,20 +20,16 @@ public class KillRunningInstance implements Activity
         this.restart = restart;
     }
 
+    @Override
+    public String getKey()
+    {
+        // repeated restart requests while one is pending should only restart once
+        return restart ? "restart-instance" : "kill-instance";
+    }
+
     @Override
     public void completed(boolean wasSuccessful)
     {
-        if ( wasSuccessful && restart )
-        {
-            try
-            {
-                exhibitor.getProcessOperations().startInstance();
-            }
-            catch ( Exception e )
-            {
-                exhibitor.getLog().add(ActivityLog.Type.ERROR, "Monitoring instance", e);
-            }
-        }
     }
 
     @Override
@@ -51,6 +47,19 @@ public class KillRunningInstance implements Activity
         {
             exhibitor.getLog().add(ActivityLog.Type.ERROR, "Trying to kill running instance", e);
         }
+
+        // done here rather than in completed() as completed() is also called for coalesced requests
+        if ( success && restart )
+        {
+            try
+            {
+                exhibitor.getProcessOperations().startInstance();
+            }
+            catch ( Exception e )
+            {
+                exhibitor.getLog().add(ActivityLog.Type.ERROR, "Monitoring instance", e);
+            }
+        }
         return success;
     }
 }
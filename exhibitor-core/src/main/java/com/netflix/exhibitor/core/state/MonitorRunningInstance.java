@@ -3,12 +3,15 @@ package com.netflix.exhibitor.core.state;
 import com.netflix.exhibitor.core.Exhibitor;
 import com.netflix.exhibitor.core.activity.Activity;
 import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.activity.ActivityPriority;
+import com.netflix.exhibitor.core.activity.EventPublisher;
 import com.netflix.exhibitor.core.activity.QueueGroups;
 import com.netflix.exhibitor.core.activity.RepeatingActivity;
+import com.netflix.exhibitor.core.config.ConfigDelta;
 import com.netflix.exhibitor.core.config.ConfigListener;
+import com.netflix.exhibitor.core.config.ConfigSnapshot;
 import com.netflix.exhibitor.core.config.InstanceConfig;
 import com.netflix.exhibitor.core.config.IntConfigs;
-import com.netflix.exhibitor.core.config.StringConfigs;
 import com.netflix.exhibitor.core.controlpanel.ControlPanelTypes;
 import java.io.Closeable;
 import java.io.IOException;
@@ -18,6 +21,8 @@ public class MonitorRunningInstance implements Closeable
 {
     private final Exhibitor                         exhibitor;
     private final AtomicReference<InstanceState>    currentInstanceState = new AtomicReference<InstanceState>();
+    private final AtomicReference<String>           currentMode = new AtomicReference<String>("");
+    private final AtomicReference<RollingRestart>   rollingRestart = new AtomicReference<RollingRestart>();
     private final RepeatingActivity                 repeatingActivity;
 
     public MonitorRunningInstance(Exhibitor exhibitor)
@@ -39,7 +44,7 @@ public class MonitorRunningInstance implements Closeable
             }
         };
 
-        repeatingActivity = new RepeatingActivity(null, exhibitor.getActivityQueue(), QueueGroups.MAIN, activity, exhibitor.getConfigManager().getConfig().getInt(IntConfigs.CHECK_MS));
+        repeatingActivity = new RepeatingActivity(null, exhibitor.getActivityQueue(), QueueGroups.HEALTH_CHECK, activity, getMinCheckMs(exhibitor.getConfigManager().getConfig()));
     }
 
     public void start()
@@ -50,9 +55,13 @@ public class MonitorRunningInstance implements Closeable
             new ConfigListener()
             {
                 @Override
-                public void configUpdated()
+                public void configUpdated(ConfigDelta delta)
                 {
-                    repeatingActivity.setTimePeriodMs(exhibitor.getConfigManager().getConfig().getInt(IntConfigs.CHECK_MS));
+                    // a server list change leads to a restart - check quickly again
+                    if ( delta.isChanged(IntConfigs.CHECK_MS) || delta.isChanged(IntConfigs.CHECK_MIN_MS) || delta.isServerListChanged() )
+                    {
+                        repeatingActivity.setTimePeriodMs(getMinCheckMs(delta.getNew()));
+                    }
                 }
             }
         );
@@ -64,29 +73,62 @@ public class MonitorRunningInstance implements Closeable
         repeatingActivity.close();
     }
 
+    /**
+     * Check the instance now instead of waiting for the current check period. Call this when
+     * a failure that might mean the instance is down is seen elsewhere.
+     */
+    public void     checkNow()
+    {
+        repeatingActivity.runNow();
+    }
+
     public InstanceStateTypes   getCurrentInstanceState()
     {
         InstanceState   state = currentInstanceState.get();
         return (state != null) ? state.getState() : InstanceStateTypes.LATENT;
     }
 
+    /**
+     * @return the server's mode (e.g. leader, follower or standalone) or an empty string if it isn't serving
+     */
+    public String   getCurrentMode()
+    {
+        return currentMode.get();
+    }
+
     private void doWork() throws Exception
     {
-        InstanceConfig  config = exhibitor.getConfigManager().getConfig();
+        ConfigSnapshot  config = exhibitor.getConfigManager().getSnapshot();
 
-        InstanceState   instanceState = new InstanceState(new ServerList(config.getString(StringConfigs.SERVERS_SPEC)), new Checker(exhibitor).calculateState());
+        Checker         checker = new Checker(exhibitor);
+        InstanceState   instanceState = new InstanceState(config.getServerList(), checker.calculateState());
+        currentMode.set(checker.getMode());
         InstanceState   localCurrentInstanceState = currentInstanceState.get();
+        boolean         isStable = isStable(localCurrentInstanceState, instanceState, rollingRestart.get() != null);
+        repeatingActivity.setNextTimePeriodMs(getNextCheckMs(repeatingActivity.getTimePeriodMs(), isStable, getMinCheckMs(config), config.getInt(IntConfigs.CHECK_MS)));
         if ( !instanceState.equals(localCurrentInstanceState) )
         {
             boolean         serverListChange = (localCurrentInstanceState != null) && !localCurrentInstanceState.getServerList().equals(instanceState.getServerList());
             currentInstanceState.set(instanceState);
 
             exhibitor.getLog().add(ActivityLog.Type.INFO, "State: " + instanceState.getState().getDescription());
+            exhibitor.getEventPublisher().publish(EventPublisher.Type.INSTANCE_STATE, instanceState.getState().getDescription());
 
             if ( serverListChange )
             {
-                exhibitor.getLog().add(ActivityLog.Type.INFO, "Server list has changed");
-                restartZooKeeper();
+                RollingRestart  newRollingRestart = new RollingRestart(exhibitor, instanceState.getServerList(), config.getLastModified());
+                rollingRestart.set(newRollingRestart);
+                if ( instanceState.getState() == InstanceStateTypes.DOWN )
+                {
+                    // not part of the quorum so there's nothing to wait for - it still records when it's done
+                    exhibitor.getLog().add(ActivityLog.Type.INFO, "Server list has changed - restarting now as this instance is down");
+                    restartZooKeeper(newRollingRestart);
+                }
+                else
+                {
+                    // restarting every instance at once would lose quorum - take turns
+                    exhibitor.getLog().add(ActivityLog.Type.INFO, "Server list has changed - restarting when it is this instance's turn");
+                }
             }
             else
             {
@@ -94,7 +136,8 @@ public class MonitorRunningInstance implements Closeable
                 {
                     case DOWN:
                     {
-                        restartZooKeeper();
+                        // a restart picks up the new server list so there's nothing to wait for
+                        restartZooKeeper(rollingRestart.get());
                         break;
                     }
 
@@ -106,15 +149,109 @@ public class MonitorRunningInstance implements Closeable
                 }
             }
         }
+
+        checkRollingRestart(instanceState.getState());
+    }
+
+    private void checkRollingRestart(InstanceStateTypes state) throws Exception
+    {
+        RollingRestart      localRollingRestart = rollingRestart.get();
+        if ( localRollingRestart == null )
+        {
+            return;
+        }
+
+        if ( !localRollingRestart.isRestartRequested() )
+        {
+            if ( localRollingRestart.isOurTurn() )
+            {
+                exhibitor.getLog().add(ActivityLog.Type.INFO, "Rolling restart: restarting this instance");
+                restartZooKeeper(localRollingRestart);
+            }
+        }
+        else if ( localRollingRestart.checkDone(state) )
+        {
+            exhibitor.getLog().add(ActivityLog.Type.INFO, "Rolling restart: this instance is done");
+            rollingRestart.compareAndSet(localRollingRestart, null);
+        }
     }
 
-    private void restartZooKeeper() throws Exception
+    /**
+     * The instance is stable if its state is the same as the last check - whatever that state is. A node
+     * that stays down or not serving has already been acted on so there's no need to keep checking it at
+     * the min period.
+     *
+     * @param previous state at the last check or null
+     * @param current state at this check
+     * @param isRollingRestart true if a rolling restart is in progress
+     * @return true if checks can back off
+     */
+    static boolean isStable(InstanceState previous, InstanceState current, boolean isRollingRestart)
     {
+        return current.equals(previous) && !isRollingRestart;
+    }
+
+    /**
+     * Checks back off exponentially from the min to the max period while the instance is stable.
+     * Anything else (state change, rolling restart) goes back to the min period.
+     *
+     * @param currentMs the current period
+     * @param isStable see {@link #isStable(InstanceState, InstanceState, boolean)}
+     * @param minMs min period
+     * @param maxMs max period
+     * @return the next period
+     */
+    static long getNextCheckMs(long currentMs, boolean isStable, int minMs, int maxMs)
+    {
+        if ( minMs >= maxMs )
+        {
+            return maxMs;
+        }
+        if ( !isStable )
+        {
+            return minMs;
+        }
+        return Math.min(Math.max(currentMs, minMs) * 2, maxMs);
+    }
+
+    /**
+     * @param config the config
+     * @return CHECK_MIN_MS or, if it's unset or not less than CHECK_MS, CHECK_MS - i.e. a fixed period
+     */
+    static int getMinCheckMs(InstanceConfig config)
+    {
+        int     minMs = config.getInt(IntConfigs.CHECK_MIN_MS);
+        return ((minMs > 0) && (minMs < config.getInt(IntConfigs.CHECK_MS))) ? minMs : config.getInt(IntConfigs.CHECK_MS);
+    }
+
+    private void restartZooKeeper(final RollingRestart localRollingRestart) throws Exception
+    {
+        if ( localRollingRestart != null )
+        {
+            localRollingRestart.setRestartRequested();
+        }
+
         if ( !exhibitor.getControlPanelValues().isSet(ControlPanelTypes.RESTARTS) )
         {
+            if ( localRollingRestart != null )
+            {
+                // this instance won't restart - don't hold up the others
+                localRollingRestart.setRestarted();
+            }
             return;
         }
 
-        exhibitor.getActivityQueue().add(QueueGroups.MAIN, new KillRunningInstance(exhibitor, true));
+        KillRunningInstance     killRunningInstance = new KillRunningInstance(exhibitor, true)
+        {
+            @Override
+            public void completed(boolean wasSuccessful)
+            {
+                if ( localRollingRestart != null )
+                {
+                    localRollingRestart.setRestarted();
+                }
+            }
+        };
+        exhibitor.getActivityQueue().add(QueueGroups.MAIN, killRunningInstance, ActivityPriority.HIGH);
     }
 }
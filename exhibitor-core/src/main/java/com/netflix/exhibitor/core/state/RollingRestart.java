@@ -0,0 +1,389 @@
+package com.netflix.exhibitor.core.state;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.netflix.curator.framework.CuratorFramework;
+import com.netflix.curator.utils.ZKPaths;
+import com.netflix.exhibitor.core.Exhibitor;
+import com.netflix.exhibitor.core.activity.ActivityLog;
+import com.netflix.exhibitor.core.config.IntConfigs;
+import org.apache.zookeeper.KeeperException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     Restarts the ensemble's instances one at a time after a server list change so that the ensemble
+ *     keeps quorum. Followers go first (in server id order) and the leader goes last. An instance only
+ *     restarts once every instance before it has restarted, is serving and has caught up with the leader.
+ * </p>
+ *
+ * <p>
+ *     Each instance records that it is done with a ZNode under {@link #BASE_PATH} in the ensemble itself. The
+ *     markers of each server list change are kept apart by the config's last modified value so that
+ *     markers left over from an earlier change (even to the same server list) are never counted.
+ *     Every instance before this one must have recorded that it's done - an instance that doesn't answer
+ *     "srvr" may be in the middle of its own restart so it isn't skipped. If the progress can't be read
+ *     the instance waits. If nothing is serving at all or the restart takes longer than {@link #MAX_WAIT_MS},
+ *     the instance restarts anyway.
+ * </p>
+ */
+class RollingRestart
+{
+    private final Exhibitor     exhibitor;
+    private final ServerList    serverList;
+    private final String        path;
+    private final long          startMs = System.currentTimeMillis();
+
+    private volatile boolean    restartRequested = false;
+    private volatile boolean    restarted = false;
+    private volatile boolean    timedOutLogged = false;
+    private long                leaderZxidAtRestart = -1;
+
+    static final String         BASE_PATH = "/exhibitor/rolling-restart";
+    static final long           MAX_WAIT_MS = TimeUnit.MILLISECONDS.convert(10, TimeUnit.MINUTES);
+
+    private static final String LEADER_MODE = "leader";
+
+    /**
+     * @param exhibitor the exhibitor
+     * @param serverList the new server list
+     * @param configLastModified last modified value of the config that has the new server list
+     */
+    RollingRestart(Exhibitor exhibitor, ServerList serverList, long configLastModified)
+    {
+        this.exhibitor = exhibitor;
+        this.serverList = serverList;
+        path = getPath(serverList, configLastModified);
+    }
+
+    ServerList getServerList()
+    {
+        return serverList;
+    }
+
+    boolean isRestartRequested()
+    {
+        return restartRequested;
+    }
+
+    /**
+     * Call when a restart of this instance has been queued
+     */
+    void setRestartRequested()
+    {
+        restartRequested = true;
+    }
+
+    /**
+     * Call when this instance has been restarted with the new server list
+     */
+    void setRestarted()
+    {
+        restarted = true;
+    }
+
+    /**
+     * @return true if all the instances before this one have restarted and caught up
+     * @throws Exception errors
+     */
+    boolean isOurTurn() throws Exception
+    {
+        ServerSpec              us = Iterables.find(serverList.getSpecs(), ServerList.isUs(exhibitor.getThisJVMHostname()), null);
+        if ( us == null )
+        {
+            return true;    // not part of the new ensemble
+        }
+        if ( isTimedOut() )
+        {
+            return true;
+        }
+
+        Map<String, Map<String, String>>    srvr = getSrvr();
+        if ( srvr.isEmpty() )
+        {
+            return true;    // nothing is serving - there's no quorum to keep
+        }
+
+        Set<String>     done = getDoneHostnames(exhibitor.getLocalConnection(), path);
+        if ( done == null )
+        {
+            exhibitor.getLog().add(ActivityLog.Type.ERROR, "Could not read rolling restart progress - waiting");
+            return false;
+        }
+        return isOurTurn(serverList, us, srvr, done);
+    }
+
+    /**
+     * @param serverList the server list
+     * @param us this instance
+     * @param srvr hostname to parsed "srvr" response for each serving instance
+     * @param done hostnames of the instances that have recorded they're done
+     * @return true if every instance before us in restart order is done
+     */
+    static boolean isOurTurn(ServerList serverList, ServerSpec us, Map<String, Map<String, String>> srvr, Set<String> done)
+    {
+        for ( ServerSpec spec : getOrder(serverList, getLeaderHostname(srvr)) )
+        {
+            if ( spec.equals(us) )
+            {
+                return true;
+            }
+            if ( !done.contains(spec.getHostname()) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Once this instance has restarted, check if it's serving and has caught up. If so, record that it's done
+     *
+     * @param state this instance's current state
+     * @return true if this instance is done
+     * @throws Exception errors
+     */
+    boolean checkDone(InstanceStateTypes state) throws Exception
+    {
+        if ( !restarted )
+        {
+            return false;
+        }
+        if ( isTimedOut() )
+        {
+            markDone();     // best effort - lets the cleanup run
+            return true;
+        }
+        if ( state != InstanceStateTypes.SERVING )
+        {
+            return false;
+        }
+
+        Map<String, Map<String, String>>    srvr = getSrvr();
+        Map<String, String>                 ours = srvr.get(exhibitor.getThisJVMHostname());
+        String                              leaderHostname = getLeaderHostname(srvr);
+        if ( (ours != null) && (leaderHostname != null) && !leaderHostname.equals(exhibitor.getThisJVMHostname()) )
+        {
+            // caught up once we've seen everything the leader had when we started serving
+            long        leaderZxid = getZxid(srvr.get(leaderHostname));
+            if ( leaderZxidAtRestart < 0 )
+            {
+                leaderZxidAtRestart = leaderZxid;
+            }
+            if ( getZxid(ours) < leaderZxidAtRestart )
+            {
+                return false;
+            }
+        }
+
+        markDone();
+        return true;
+    }
+
+    /**
+     * Sort the specs in restart order - followers in server id order then the leader
+     *
+     * @param serverList the server list
+     * @param leaderHostname the current leader or null
+     * @return restart order
+     */
+    static List<ServerSpec> getOrder(ServerList serverList, final String leaderHostname)
+    {
+        List<ServerSpec>    order = Lists.newArrayList(serverList.getSpecs());
+        Collections.sort
+        (
+            order,
+            new Comparator<ServerSpec>()
+            {
+                @Override
+                public int compare(ServerSpec spec1, ServerSpec spec2)
+                {
+                    boolean     isLeader1 = spec1.getHostname().equals(leaderHostname);
+                    boolean     isLeader2 = spec2.getHostname().equals(leaderHostname);
+                    if ( isLeader1 != isLeader2 )
+                    {
+                        return isLeader1 ? 1 : -1;
+                    }
+                    return (spec1.getServerId() < spec2.getServerId()) ? -1 : ((spec1.getServerId() == spec2.getServerId()) ? 0 : 1);
+                }
+            }
+        );
+        return order;
+    }
+
+    /**
+     * @param response parsed "srvr" response
+     * @return the zxid or -1
+     */
+    static long getZxid(Map<String, String> response)
+    {
+        String      zxid = response.get("zxid");
+        if ( zxid != null )
+        {
+            zxid = zxid.trim();
+            try
+            {
+                return zxid.startsWith("0x") ? Long.parseLong(zxid.substring(2), 16) : Long.parseLong(zxid);
+            }
+            catch ( NumberFormatException ignore )
+            {
+                // ignore
+            }
+        }
+        return -1;
+    }
+
+    private boolean isTimedOut()
+    {
+        if ( (System.currentTimeMillis() - startMs) > MAX_WAIT_MS )
+        {
+            if ( !timedOutLogged )
+            {
+                timedOutLogged = true;
+                exhibitor.getLog().add(ActivityLog.Type.INFO, "Rolling restart has taken more than " + MAX_WAIT_MS + " ms - continuing without waiting");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param client connection to the ensemble
+     * @param path this restart's path
+     * @return hostnames of the instances that have recorded they're done or null if the ensemble couldn't be asked
+     * @throws Exception errors
+     */
+    static Set<String> getDoneHostnames(CuratorFramework client, String path) throws Exception
+    {
+        try
+        {
+            return Sets.newHashSet(client.getChildren().forPath(path));
+        }
+        catch ( KeeperException.NoNodeException e )
+        {
+            return Sets.newHashSet();   // nothing is done yet
+        }
+        catch ( KeeperException e )
+        {
+            return null;
+        }
+    }
+
+    private void markDone() throws Exception
+    {
+        try
+        {
+            try
+            {
+                exhibitor.getLocalConnection().create().creatingParentsIfNeeded().forPath(ZKPaths.makePath(path, exhibitor.getThisJVMHostname()), new byte[0]);
+            }
+            catch ( KeeperException.NodeExistsException ignore )
+            {
+                // ignore
+            }
+
+            // the last instance cleans up
+            List<String>    done = exhibitor.getLocalConnection().getChildren().forPath(path);
+            if ( isAllDone(serverList, done) )
+            {
+                for ( String child : done )
+                {
+                    exhibitor.getLocalConnection().delete().forPath(ZKPaths.makePath(path, child));
+                }
+                exhibitor.getLocalConnection().delete().forPath(path);
+            }
+        }
+        catch ( KeeperException e )
+        {
+            exhibitor.getLog().add(ActivityLog.Type.ERROR, "Recording rolling restart progress", e);
+        }
+    }
+
+    /**
+     * @return hostname to parsed "srvr" response for each serving instance
+     * @throws InterruptedException if interrupted
+     */
+    private Map<String, Map<String, String>> getSrvr() throws InterruptedException
+    {
+        List<String>    hostnames = Lists.newArrayList();
+        for ( ServerSpec spec : serverList.getSpecs() )
+        {
+            hostnames.add(spec.getHostname());
+        }
+        if ( !hostnames.contains(exhibitor.getThisJVMHostname()) )
+        {
+            hostnames.add(exhibitor.getThisJVMHostname());
+        }
+
+        Map<String, ListenableFuture<FourLetterWord>>   futures = exhibitor.getFourLetterWordClient().sendAll(FourLetterWord.Word.SRVR, hostnames, exhibitor.getConfigManager().getConfig().getInt(IntConfigs.CLIENT_PORT), exhibitor.getConnectionTimeOutMs());
+        Map<String, Map<String, String>>                srvr = Maps.newHashMap();
+        for ( Map.Entry<String, ListenableFuture<FourLetterWord>> entry : futures.entrySet() )
+        {
+            FourLetterWord      word = FourLetterWordClient.getResult(entry.getValue());
+            Map<String, String> response = word.getResponseMap();
+            if ( (word.getStatus() == FourLetterWord.Status.SUCCESS) && response.containsKey("mode") )
+            {
+                srvr.put(entry.getKey(), response);
+            }
+        }
+        return srvr;
+    }
+
+    private static String getLeaderHostname(Map<String, Map<String, String>> srvr)
+    {
+        for ( Map.Entry<String, Map<String, String>> entry : srvr.entrySet() )
+        {
+            if ( LEADER_MODE.equals(entry.getValue().get("mode").trim()) )
+            {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param serverList the server list
+     * @param done hostnames that have recorded they're done
+     * @return true if every instance in the server list is done - hostnames that aren't in the list don't count
+     */
+    static boolean isAllDone(ServerList serverList, Collection<String> done)
+    {
+        for ( ServerSpec spec : serverList.getSpecs() )
+        {
+            if ( !done.contains(spec.getHostname()) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param serverList the new server list
+     * @param configLastModified last modified value of the config that has the new server list
+     * @return path for this change's done markers
+     */
+    static String getPath(ServerList serverList, long configLastModified)
+    {
+        return ZKPaths.makePath(BASE_PATH, Long.toHexString(configLastModified) + "-" + getId(serverList));
+    }
+
+    private static String getId(ServerList serverList)
+    {
+        StringBuilder   str = new StringBuilder();
+        for ( ServerSpec spec : serverList.getSpecs() )
+        {
+            str.append(spec.getServerId()).append(':').append(spec.getHostname()).append(',');
+        }
+        return Integer.toHexString(str.toString().hashCode());
+    }
+}
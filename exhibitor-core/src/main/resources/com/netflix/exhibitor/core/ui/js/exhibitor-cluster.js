@@ -215,6 +215,10 @@ function updateOneServerState(index, data, hostname)
         checkLightSwitch(domId + '-backups-enabled', data.response.switches.backups);
 
         statusMessage = data.response.description;
+        if ( data.response.mode )
+        {
+            statusMessage += " (" + data.response.mode + ")";
+        }
         switch ( data.response.state )
         {
             default:
@@ -266,22 +270,30 @@ function updateOneServerState(index, data, hostname)
 function updateServerState(serversList)
 {
     var localServerItemsVersion = serverItemsVersion;
-    for ( var i = 0; i < serversList.length; ++i )
-    {
-        var spec = serversList[i];
-        var thisHostname = spec.hostname;
-        if ( thisHostname === systemConfig.hostname )
+    $.getJSON('cluster/ensemble-state', function(data){
+        if ( serverItemsVersion !== localServerItemsVersion )
         {
-            thisHostname = "localhost";
+            return;
         }
-        var callback = function(index, hostname) {
-            return function(data) {
-                if ( serverItemsVersion === localServerItemsVersion )
-                {
-                    updateOneServerState(index, data, hostname);
-                }
-            };
-        };
-        $.getJSON('cluster/state/' + thisHostname, callback(i, thisHostname));
-    }
+
+        var states = {};
+        for ( var i = 0; i < data.servers.length; ++i )
+        {
+            states[data.servers[i].hostname] = data.servers[i];
+        }
+        for ( var j = 0; j < serversList.length; ++j )
+        {
+            var spec = serversList[j];
+            var thisHostname = spec.hostname;
+            var state = states[thisHostname];
+            if ( thisHostname === systemConfig.hostname )
+            {
+                thisHostname = "localhost";
+            }
+            if ( state )
+            {
+                updateOneServerState(j, state, thisHostname);
+            }
+        }
+    });
 }
@@ -400,6 +400,7 @@ function buildSearchRequestFromFilter(indexName, indexHandle)
         searchRequest.pathPrefix = $('#index-query-path').val().trim();
     searchRequest.operationType = ($('#index-query-type').val() === "") ? null : $('#index-query-type').val();
     searchRequest.maxResults = $('#index-query-max').val();
+    searchRequest.dataContains = $('#index-query-data').val().trim();
     searchRequest.firstDate = $('#index-query-from').datepicker("getDate");
     searchRequest.secondDate = $('#index-query-to').datepicker("getDate");
 
@@ -141,11 +141,15 @@ function submitConfigChanges()
     newConfig.zookeeperInstallDirectory = $('#config-zookeeper-install-dir').val();
     newConfig.zookeeperDataDirectory = $('#config-zookeeper-data-dir').val();
     newConfig.logIndexDirectory = $('#config-log-index-dir').val();
+    newConfig.logIndexEngine = $('#config-log-index-engine').val();
+    newConfig.logIndexDataMaxBytes = $('#config-log-index-data-max-bytes').val();
+    newConfig.logIndexDataByReference = $('#config-log-index-data-by-reference').val();
     newConfig.serversSpec = $('#config-servers-spec').val();
     newConfig.clientPort = $('#config-client-port').val();
     newConfig.connectPort = $('#config-connect-port').val();
     newConfig.electionPort = $('#config-election-port').val();
     newConfig.checkMs = $('#config-check-ms').val();
+    newConfig.checkMinMs = $('#config-check-min-ms').val();
     newConfig.cleanupPeriodMs = $('#config-cleanup-ms').val();
     newConfig.cleanupMaxFiles = $('#config-cleanup-max-files').val();
     newConfig.backupPeriodMs = $('#config-backup-ms').val();
@@ -201,12 +205,16 @@ function ableConfig(enable)
     $('#config-zookeeper-install-dir').prop('disabled', !enable);
     $('#config-zookeeper-data-dir').prop('disabled', !enable);
     $('#config-log-index-dir').prop('disabled', !enable);
+    $('#config-log-index-engine').prop('disabled', !enable);
+    $('#config-log-index-data-max-bytes').prop('disabled', !enable);
+    $('#config-log-index-data-by-reference').prop('disabled', !enable);
     $('#config-servers-spec').prop('disabled', !enable);
     $('#config-custom').prop('disabled', !enable);
     $('#config-client-port').prop('disabled', !enable);
     $('#config-connect-port').prop('disabled', !enable);
     $('#config-election-port').prop('disabled', !enable);
     $('#config-check-ms').prop('disabled', !enable);
+    $('#config-check-min-ms').prop('disabled', !enable);
     $('#config-cleanup-ms').prop('disabled', !enable);
     $('#config-cleanup-max-files').prop('disabled', !enable);
     $('#config-backup-ms').prop('disabled', !enable);
@@ -237,12 +245,16 @@ function updateConfig()
     $('#config-zookeeper-install-dir').val(systemConfig.zookeeperInstallDirectory);
     $('#config-zookeeper-data-dir').val(systemConfig.zookeeperDataDirectory);
     $('#config-log-index-dir').val(systemConfig.logIndexDirectory);
+    $('#config-log-index-engine').val(systemConfig.logIndexEngine ? systemConfig.logIndexEngine : 'lucene');
+    $('#config-log-index-data-max-bytes').val(systemConfig.logIndexDataMaxBytes);
+    $('#config-log-index-data-by-reference').val(systemConfig.logIndexDataByReference ? systemConfig.logIndexDataByReference : 0);
     $('#config-servers-spec').val(systemConfig.serversSpec);
     $('#config-custom').val(configExtra);
     $('#config-client-port').val(systemConfig.clientPort);
     $('#config-connect-port').val(systemConfig.connectPort);
     $('#config-election-port').val(systemConfig.electionPort);
     $('#config-check-ms').val(systemConfig.checkMs);
+    $('#config-check-min-ms').val(systemConfig.checkMinMs);
     $('#config-cleanup-ms').val(systemConfig.cleanupPeriodMs);
     $('#config-cleanup-max-files').val(systemConfig.cleanupMaxFiles);
     $('#config-backup-ms').val(systemConfig.backupPeriodMs);
@@ -313,7 +325,7 @@ function initExplorer()
     });
 }
 
-function refreshCurrentTab()
+function refreshCurrentTab(fromEvents)
 {
     var selected = $("#tabs").tabs("option", "selected");
     if ( selected == 3 )
@@ -324,10 +336,130 @@ function refreshCurrentTab()
     else if ( selected >= BUILTIN_TAB_QTY )
     {
         var index = selected - BUILTIN_TAB_QTY;
-        $("#" + customTabs[index].contentId).load(customTabs[index].url);
+        if ( customTabs[index].name == "Log" )
+        {
+            if ( !fromEvents )  // the event channel has already delivered the new entries
+            {
+                refreshLog(customTabs[index].contentId);
+            }
+        }
+        else
+        {
+            $("#" + customTabs[index].contentId).load(customTabs[index].url);
+        }
     }
 }
 
+var MAX_LOG_LINES = 5000;
+var EVENT_POLL_WAIT = 25000;
+var EVENT_POLL_DELAY = 500;
+var logLastSequence = -1;
+var logLines = new Array();
+var logContentId = null;
+function refreshLog(contentId)
+{
+    logContentId = contentId;
+    $.getJSON('log-entries?after=' + logLastSequence + '&max=' + MAX_LOG_LINES, function(data){
+        addLogEntries(data.lastSequence, data.entries);
+    });
+}
+
+function addLogEntries(lastSequence, entries)
+{
+    if ( lastSequence < logLastSequence )
+    {
+        // the server has restarted - start over on the next fetch
+        logLastSequence = -1;
+        logLines = new Array();
+        return;
+    }
+
+    for ( var i = 0; i < entries.length; ++i )
+    {
+        var entry = entries[i];
+        if ( entry.sequence > logLastSequence )
+        {
+            logLines.unshift(entry.date + "\t" + entry.type + "\t" + entry.text);
+        }
+    }
+    if ( logLines.length > MAX_LOG_LINES )
+    {
+        logLines.length = MAX_LOG_LINES;
+    }
+    logLastSequence = Math.max(logLastSequence, lastSequence);
+    if ( (entries.length > 0) && (logContentId != null) )
+    {
+        $("#" + logContentId).text(logLines.join("\n"));
+    }
+}
+
+// interval polling is only a fallback for when the event channel isn't working
+var pollingTimers = null;
+function startPolling()
+{
+    if ( pollingTimers == null )
+    {
+        pollingTimers = [
+            window.setInterval("updateState()", UPDATE_STATE_PERIOD),
+            window.setInterval("refreshCurrentTab()", AUTO_REFRESH_PERIOD)
+        ];
+    }
+}
+
+function stopPolling()
+{
+    if ( pollingTimers != null )
+    {
+        for ( var i = 0; i < pollingTimers.length; ++i )
+        {
+            window.clearInterval(pollingTimers[i]);
+        }
+        pollingTimers = null;
+    }
+}
+
+var eventLastSequence = -1;
+function pollEvents()
+{
+    $.ajax({
+        url: 'events',
+        data: {
+            'log-after': logLastSequence,
+            'event-after': eventLastSequence,
+            'max': MAX_LOG_LINES,
+            'wait': EVENT_POLL_WAIT
+        },
+        dataType: 'json',
+        cache: false,
+        success: function(data){
+            stopPolling();
+            addLogEntries(data.logLastSequence, data.log);
+            if ( data.eventLastSequence < eventLastSequence )
+            {
+                eventLastSequence = -1;  // the server has restarted
+                updateState();
+            }
+            else
+            {
+                eventLastSequence = data.eventLastSequence;
+                if ( data.events.length > 0 )
+                {
+                    updateState();
+                }
+            }
+            if ( (data.events.length > 0) || (data.log.length > 0) )
+            {
+                refreshCurrentTab(true);    // e.g. backups are logged - the restore list may have changed
+            }
+            window.setTimeout("pollEvents()", EVENT_POLL_DELAY);
+        },
+        error: function(){
+            startPolling();
+            window.setTimeout("pollEvents()", AUTO_REFRESH_PERIOD);
+        }
+    });
+}
+
 function updateCalculatorValue(lhs)
 {
     var lhsValue = parseInt($('#lhs-millisecond-calculator-value').val());
@@ -404,6 +536,7 @@ $(function ()
             tabData.id = 'tabs-custom-' + i;
             tabData.contentId = 'tabs-custom-content' + i;
             tabData.url = uiTabSpec[i].url;
+            tabData.name = uiTabSpec[i].name;
             customTabs[i] = tabData;
 
             $('#tabs').append('<div id="' + tabData.id + '" class="ui-helper-hidden"><div id="' + tabData.contentId + '" class="text"></div></div>')
@@ -486,7 +619,6 @@ $(function ()
     $('#not-connected-message').html("Not connected to " + $('#app-name').html() + " server");
     $('#page-title').html($('#app-name').html() + " for ZooKeeper");
 
-    window.setInterval("updateState()", UPDATE_STATE_PERIOD);
     updateState();
     ableConfig(false);
 
@@ -530,5 +662,5 @@ $(function ()
 
     $.get('able-backups/true');
     initRestoreUI();
-    window.setInterval("refreshCurrentTab()", AUTO_REFRESH_PERIOD);
+    pollEvents();
 });
@@ -0,0 +1,82 @@
+package com.netflix.exhibitor.core.activity;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TestActivityLog
+{
+    @Test
+    public void     testWindow() throws Exception
+    {
+        ActivityLog     log = new ActivityLog(10);
+        Assert.assertEquals(log.getLastSequence(), -1);
+        Assert.assertTrue(log.getEntriesAfter(-1, 100).isEmpty());
+
+        for ( int i = 0; i < 25; ++i )
+        {
+            log.add(ActivityLog.Type.INFO, Integer.toString(i));
+        }
+        Assert.assertEquals(log.getLastSequence(), 24);
+
+        List<ActivityLog.Entry>     entries = log.getEntriesAfter(-1, 100);
+        Assert.assertEquals(entries.size(), 10);
+        Assert.assertEquals(entries.get(0).getSequence(), 15);
+        Assert.assertEquals(entries.get(0).getText(), "15");
+        Assert.assertEquals(entries.get(9).getSequence(), 24);
+
+        entries = log.getEntriesAfter(21, 100);
+        Assert.assertEquals(entries.size(), 3);
+        Assert.assertEquals(entries.get(0).getSequence(), 22);
+
+        entries = log.getEntriesAfter(-1, 2);   // the newest are returned
+        Assert.assertEquals(entries.size(), 2);
+        Assert.assertEquals(entries.get(0).getSequence(), 23);
+
+        Assert.assertTrue(log.getEntriesAfter(24, 100).isEmpty());
+
+        List<String>                lines = log.toDisplayList("|");
+        Assert.assertEquals(lines.size(), 10);
+        Assert.assertTrue(lines.get(0).endsWith("|INFO|24"));
+    }
+
+    @Test
+    public void     testWait() throws Exception
+    {
+        final ActivityLog           log = new ActivityLog(10);
+        log.add(ActivityLog.Type.INFO, "first");
+
+        long                        start = System.currentTimeMillis();
+        Assert.assertTrue(log.waitForEntriesAfter(0, 10, 100, TimeUnit.MILLISECONDS).isEmpty());
+        Assert.assertTrue((System.currentTimeMillis() - start) >= 90);
+
+        ScheduledExecutorService    service = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            service.schedule
+            (
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        log.add(ActivityLog.Type.ERROR, "second");
+                    }
+                },
+                100,
+                TimeUnit.MILLISECONDS
+            );
+            List<ActivityLog.Entry>     entries = log.waitForEntriesAfter(0, 10, 10, TimeUnit.SECONDS);
+            Assert.assertEquals(entries.size(), 1);
+            Assert.assertEquals(entries.get(0).getText(), "second");
+            Assert.assertEquals(entries.get(0).getType(), ActivityLog.Type.ERROR);
+        }
+        finally
+        {
+            service.shutdownNow();
+        }
+    }
+}
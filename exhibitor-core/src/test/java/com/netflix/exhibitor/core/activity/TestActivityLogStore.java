@@ -0,0 +1,219 @@
+package com.netflix.exhibitor.core.activity;
+
+import com.google.common.io.Files;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class TestActivityLogStore
+{
+    @Test
+    public void     testRotateAndReopen() throws Exception
+    {
+        File        directory = Files.createTempDir();
+        try
+        {
+            ActivityLogStore    store = new ActivityLogStore(directory, 4096, 4);
+            ActivityLog         log = new ActivityLog(10, store);
+            for ( int i = 0; i < 500; ++i )
+            {
+                log.add((i % 10) == 0 ? ActivityLog.Type.ERROR : ActivityLog.Type.INFO, "This is entry number " + i + " of the activity log test");
+            }
+            store.close();
+
+            File[]      segmentFiles = directory.listFiles();
+            Assert.assertNotNull(segmentFiles);
+            int         segmentCount = 0;
+            for ( File file : segmentFiles )
+            {
+                if ( file.getName().endsWith(".log") )
+                {
+                    ++segmentCount;
+                }
+            }
+            Assert.assertEquals(segmentCount, 4);
+
+            store = new ActivityLogStore(directory, 4096, 4);
+            Assert.assertEquals(store.getNextSequence(), 500);
+
+            List<ActivityLog.Entry>     entries = store.query(0, Long.MAX_VALUE, null, Integer.MAX_VALUE);
+            Assert.assertTrue(entries.size() > 0);
+            Assert.assertTrue(entries.size() < 500);     // the oldest segments were deleted
+            Assert.assertEquals(entries.get(entries.size() - 1).getSequence(), 499);
+            Assert.assertEquals(entries.get(entries.size() - 1).getText(), "This is entry number 499 of the activity log test");
+            for ( int i = 1; i < entries.size(); ++i )
+            {
+                Assert.assertEquals(entries.get(i).getSequence(), entries.get(i - 1).getSequence() + 1);
+            }
+
+            List<ActivityLog.Entry>     errors = store.query(0, Long.MAX_VALUE, EnumSet.of(ActivityLog.Type.ERROR), Integer.MAX_VALUE);
+            Assert.assertTrue(errors.size() > 0);
+            for ( ActivityLog.Entry entry : errors )
+            {
+                Assert.assertEquals(entry.getType(), ActivityLog.Type.ERROR);
+                Assert.assertEquals(entry.getSequence() % 10, 0);
+            }
+
+            Assert.assertTrue(store.query(0, entries.get(0).getTime() - 1, null, Integer.MAX_VALUE).isEmpty());
+
+            // new entries continue the sequence in the reopened segment
+            log = new ActivityLog(10, store);
+            log.add(ActivityLog.Type.INFO, "after reopen");
+            store.close();
+
+            store = new ActivityLogStore(directory, 4096, 4);
+            entries = store.query(0, Long.MAX_VALUE, null, Integer.MAX_VALUE);
+            Assert.assertEquals(entries.get(entries.size() - 1).getSequence(), 500);
+            Assert.assertEquals(entries.get(entries.size() - 1).getText(), "after reopen");
+            store.close();
+        }
+        finally
+        {
+            Files.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void     testTornTail() throws Exception
+    {
+        File        directory = Files.createTempDir();
+        try
+        {
+            ActivityLogStore    store = new ActivityLogStore(directory, 4096, 4);
+            new ActivityLog(10, store).add(ActivityLog.Type.INFO, "first");     // a 30 byte record
+            store.close();
+
+            // simulate a crash part way through a write: no index, a torn length and, where the next record
+            // will end, bytes that look like a record
+            File                segmentFile = null;
+            for ( File file : directory.listFiles() )
+            {
+                if ( file.getName().endsWith(".idx") )
+                {
+                    Assert.assertTrue(file.delete());
+                }
+                else
+                {
+                    segmentFile = file;
+                }
+            }
+            Assert.assertNotNull(segmentFile);
+            RandomAccessFile    raf = new RandomAccessFile(segmentFile, "rw");
+            try
+            {
+                raf.seek(30);
+                raf.writeInt(Integer.MAX_VALUE);
+
+                ByteArrayOutputStream   bytes = new ByteArrayOutputStream();
+                DataOutputStream        out = new DataOutputStream(bytes);
+                out.writeLong(999);
+                out.writeLong(System.currentTimeMillis());
+                out.writeByte(0);
+                out.write("bogus".getBytes("UTF-8"));
+                CRC32                   crc = new CRC32();
+                crc.update(bytes.toByteArray());
+                raf.seek(30 + 30);
+                raf.writeInt(30);
+                raf.writeInt((int)crc.getValue());
+                raf.write(bytes.toByteArray());
+            }
+            finally
+            {
+                raf.close();
+            }
+
+            store = new ActivityLogStore(directory, 4096, 4);
+            new ActivityLog(10, store).add(ActivityLog.Type.INFO, "after");
+            store.close();
+            for ( File file : directory.listFiles() )
+            {
+                if ( file.getName().endsWith(".idx") )
+                {
+                    Assert.assertTrue(file.delete());
+                }
+            }
+
+            store = new ActivityLogStore(directory, 4096, 4);
+            List<ActivityLog.Entry>     entries = store.query(0, Long.MAX_VALUE, null, Integer.MAX_VALUE);
+            Assert.assertEquals(entries.size(), 2);
+            Assert.assertEquals(entries.get(0).getText(), "first");
+            Assert.assertEquals(entries.get(1).getText(), "after");
+            store.close();
+        }
+        finally
+        {
+            Files.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void     testCorruptRecords() throws Exception
+    {
+        File        directory = Files.createTempDir();
+        try
+        {
+            ActivityLogStore    store = new ActivityLogStore(directory, 4096, 4);
+            ActivityLog         activityLog = new ActivityLog(10, store);
+            activityLog.add(ActivityLog.Type.INFO, "one__");    // 30 byte records
+            activityLog.add(ActivityLog.Type.INFO, "two__");
+            activityLog.add(ActivityLog.Type.INFO, "three");
+            store.close();
+
+            File                segmentFile = null;
+            for ( File file : directory.listFiles() )
+            {
+                if ( !file.getName().endsWith(".idx") )
+                {
+                    segmentFile = file;
+                }
+            }
+            Assert.assertNotNull(segmentFile);
+
+            // an unknown type ends the segment instead of failing the query
+            RandomAccessFile    raf = new RandomAccessFile(segmentFile, "rw");
+            try
+            {
+                raf.seek(30 + 24);
+                raf.writeByte(99);
+            }
+            finally
+            {
+                raf.close();
+            }
+            store = new ActivityLogStore(directory, 4096, 4);
+            List<ActivityLog.Entry>     entries = store.query(0, Long.MAX_VALUE, null, Integer.MAX_VALUE);
+            Assert.assertEquals(entries.size(), 1);
+            Assert.assertEquals(entries.get(0).getText(), "one__");
+            store.close();
+
+            // so does a CRC mismatch
+            raf = new RandomAccessFile(segmentFile, "rw");
+            try
+            {
+                raf.seek(30 + 24);
+                raf.writeByte(ActivityLog.Type.INFO.ordinal());
+                raf.seek(30 + 25);
+                raf.write('x');
+            }
+            finally
+            {
+                raf.close();
+            }
+            store = new ActivityLogStore(directory, 4096, 4);
+            entries = store.query(0, Long.MAX_VALUE, null, Integer.MAX_VALUE);
+            Assert.assertEquals(entries.size(), 1);
+            Assert.assertEquals(entries.get(0).getText(), "one__");
+            store.close();
+        }
+        finally
+        {
+            Files.deleteRecursively(directory);
+        }
+    }
+}
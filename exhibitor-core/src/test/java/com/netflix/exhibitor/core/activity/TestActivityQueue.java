@@ -1,9 +1,12 @@
 package com.netflix.exhibitor.core.activity;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -122,6 +125,365 @@ public class TestActivityQueue
         }
     }
 
+    @Test
+    public void testPriority() throws Exception
+    {
+        ActivityQueue queue = new ActivityQueue();
+        queue.start();
+        try
+        {
+            final CountDownLatch    blockerLatch = new CountDownLatch(1);
+            final CountDownLatch    doneLatch = new CountDownLatch(3);
+            final List<String>      order = Collections.synchronizedList(Lists.<String>newArrayList());
+            queue.add(QueueGroups.MAIN, new Activity()
+            {
+                @Override
+                public void completed(boolean wasSuccessful)
+                {
+                }
+
+                @Override
+                public Boolean call() throws Exception
+                {
+                    blockerLatch.await();
+                    return true;
+                }
+            });
+
+            for ( final ActivityPriority priority : new ActivityPriority[]{ActivityPriority.LOW, ActivityPriority.NORMAL, ActivityPriority.HIGH} )
+            {
+                queue.add(QueueGroups.MAIN, new Activity()
+                {
+                    @Override
+                    public void completed(boolean wasSuccessful)
+                    {
+                    }
+
+                    @Override
+                    public Boolean call() throws Exception
+                    {
+                        order.add(priority.name());
+                        doneLatch.countDown();
+                        return true;
+                    }
+                }, priority);
+            }
+            blockerLatch.countDown();
+
+            Assert.assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(order, Arrays.asList("HIGH", "NORMAL", "LOW"));
+        }
+        finally
+        {
+            Closeables.closeQuietly(queue);
+        }
+    }
+
+    @Test
+    public void testParallelWorkers() throws Exception
+    {
+        ActivityQueue queue = new ActivityQueue(ImmutableMap.of(QueueGroups.IO, 3, QueueGroups.MAIN, 3));
+        Assert.assertEquals(queue.getWorkerCount(QueueGroups.MAIN), 1);  // serial
+        queue.start();
+        try
+        {
+            final CountDownLatch    latch = new CountDownLatch(3);
+            for ( int i = 0; i < 3; ++i )
+            {
+                queue.add(QueueGroups.IO, new Activity()
+                {
+                    @Override
+                    public void completed(boolean wasSuccessful)
+                    {
+                    }
+
+                    @Override
+                    public Boolean call() throws Exception
+                    {
+                        // each one waits for the others - only completes if all 3 run at the same time
+                        latch.countDown();
+                        return latch.await(5, TimeUnit.SECONDS);
+                    }
+                });
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            Closeables.closeQuietly(queue);
+        }
+    }
+
+    @Test
+    public void testDelayedWhileOtherWorkerBusy() throws Exception
+    {
+        ActivityQueue queue = new ActivityQueue(ImmutableMap.of(QueueGroups.IO, 2));
+        queue.start();
+        try
+        {
+            Thread.sleep(100);  // both workers idle
+
+            final CountDownLatch    blockerLatch = new CountDownLatch(1);
+            final CountDownLatch    delayedLatch = new CountDownLatch(1);
+            queue.add(QueueGroups.IO, new Activity()
+            {
+                @Override
+                public void completed(boolean wasSuccessful)
+                {
+                }
+
+                @Override
+                public Boolean call() throws Exception
+                {
+                    return blockerLatch.await(10, TimeUnit.SECONDS);
+                }
+            }, 100, TimeUnit.MILLISECONDS);
+            queue.add(QueueGroups.IO, new Activity()
+            {
+                @Override
+                public void completed(boolean wasSuccessful)
+                {
+                }
+
+                @Override
+                public Boolean call() throws Exception
+                {
+                    delayedLatch.countDown();
+                    return true;
+                }
+            }, 300, TimeUnit.MILLISECONDS);
+
+            // the worker that was waiting for the first deadline is now busy - the other must take over the wait
+            Assert.assertTrue(delayedLatch.await(2, TimeUnit.SECONDS));
+            blockerLatch.countDown();
+        }
+        finally
+        {
+            Closeables.closeQuietly(queue);
+        }
+    }
+
+    @Test
+    public void testManyReplaceAndCancel() throws Exception
+    {
+        final int       QTY = 20000;
+
+        ActivityQueue queue = new ActivityQueue();
+        queue.start();
+        try
+        {
+            final AtomicInteger     count = new AtomicInteger(0);
+            final CountDownLatch    latch = new CountDownLatch(QTY / 2);
+            List<Activity>          activities = Lists.newArrayList();
+            for ( int i = 0; i < QTY; ++i )
+            {
+                activities.add(new Activity()
+                {
+                    @Override
+                    public void completed(boolean wasSuccessful)
+                    {
+                    }
+
+                    @Override
+                    public Boolean call() throws Exception
+                    {
+                        count.incrementAndGet();
+                        latch.countDown();
+                        return true;
+                    }
+                });
+            }
+
+            long        start = System.nanoTime();
+            for ( Activity activity : activities )
+            {
+                queue.add(QueueGroups.IO, activity, 1, TimeUnit.HOURS);
+            }
+            for ( int i = 0; i < QTY; ++i )
+            {
+                if ( (i % 2) == 0 )
+                {
+                    queue.replace(QueueGroups.IO, activities.get(i));
+                }
+                else
+                {
+                    Assert.assertTrue(queue.cancel(QueueGroups.IO, activities.get(i)));
+                }
+            }
+            long        elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assert.assertTrue(elapsedMs < 5000, "add/replace/cancel of " + QTY + " activities took " + elapsedMs + " ms");
+
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            Assert.assertEquals(count.get(), QTY / 2);
+            Assert.assertEquals(queue.getQueuedCount(QueueGroups.IO), 0);
+            Assert.assertFalse(queue.cancel(QueueGroups.IO, activities.get(1)));
+        }
+        finally
+        {
+            Closeables.closeQuietly(queue);
+        }
+    }
+
+    @Test
+    public void testCoalesce() throws Exception
+    {
+        ActivityQueue queue = new ActivityQueue();
+        queue.start();
+        try
+        {
+            final CountDownLatch    startedLatch = new CountDownLatch(1);
+            final CountDownLatch    blockerLatch = new CountDownLatch(1);
+            final CountDownLatch    completedLatch = new CountDownLatch(4);
+            final AtomicInteger     callCount = new AtomicInteger(0);
+            final AtomicInteger     successCount = new AtomicInteger(0);
+            List<KeyedActivity>     activities = Lists.newArrayList();
+            for ( int i = 0; i < 4; ++i )
+            {
+                final String    key = (i < 3) ? "running" : "pending";
+                activities.add(new KeyedActivity()
+                {
+                    @Override
+                    public String getKey()
+                    {
+                        return key;
+                    }
+
+                    @Override
+                    public void completed(boolean wasSuccessful)
+                    {
+                        if ( wasSuccessful )
+                        {
+                            successCount.incrementAndGet();
+                        }
+                        completedLatch.countDown();
+                    }
+
+                    @Override
+                    public Boolean call() throws Exception
+                    {
+                        callCount.incrementAndGet();
+                        startedLatch.countDown();
+                        blockerLatch.await();
+                        return true;
+                    }
+                });
+            }
+
+            ActivityHandle      running = queue.add(QueueGroups.MAIN, activities.get(0));
+            Assert.assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+            Assert.assertSame(queue.add(QueueGroups.MAIN, activities.get(1)), running);    // coalesced into the running one
+            ActivityHandle      pending = queue.add(QueueGroups.MAIN, activities.get(3));
+            Assert.assertNotSame(pending, running);
+            Assert.assertSame(queue.add(QueueGroups.MAIN, activities.get(2)), running);    // coalesced into the running one
+            Assert.assertNotSame(queue.add(QueueGroups.IO, activities.get(1)), running);   // keys are per group
+            blockerLatch.countDown();
+
+            Assert.assertTrue(completedLatch.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            Assert.assertEquals(callCount.get(), 3);
+            Assert.assertEquals(successCount.get(), 5);
+        }
+        finally
+        {
+            Closeables.closeQuietly(queue);
+        }
+    }
+
+    @Test
+    public void testHandles() throws Exception
+    {
+        ActivityQueue queue = new ActivityQueue();
+        queue.start();
+        try
+        {
+            final CountDownLatch    startedLatch = new CountDownLatch(1);
+            final AtomicBoolean     wasInterrupted = new AtomicBoolean(false);
+            final List<Boolean>     results = Collections.synchronizedList(Lists.<Boolean>newArrayList());
+            Activity                blocker = new ProgressActivity()
+            {
+                @Override
+                public int getPercentDone()
+                {
+                    return 42;
+                }
+
+                @Override
+                public void completed(boolean wasSuccessful)
+                {
+                    results.add(wasSuccessful);
+                }
+
+                @Override
+                public Boolean call() throws Exception
+                {
+                    startedLatch.countDown();
+                    try
+                    {
+                        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        wasInterrupted.set(true);
+                        return false;
+                    }
+                    return true;
+                }
+            };
+            Activity                waiter = new Activity()
+            {
+                @Override
+                public void completed(boolean wasSuccessful)
+                {
+                    results.add(wasSuccessful);
+                }
+
+                @Override
+                public Boolean call() throws Exception
+                {
+                    return true;
+                }
+            };
+
+            ActivityHandle      running = queue.add(QueueGroups.MAIN, blocker);
+            ActivityHandle      queued = queue.add(QueueGroups.MAIN, waiter);
+            Assert.assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(running.getStatus(), ActivityHandle.Status.RUNNING);
+            Assert.assertEquals(running.getPercentDone(), 42);
+            Assert.assertEquals(queued.getStatus(), ActivityHandle.Status.QUEUED);
+            Assert.assertEquals(queue.getHandles(), Arrays.asList(running, queued));
+
+            Assert.assertTrue(queued.cancel());
+            Assert.assertTrue(queued.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(queued.getStatus(), ActivityHandle.Status.CANCELLED);
+            Assert.assertEquals(queue.getQueuedCount(QueueGroups.MAIN), 0);
+
+            Assert.assertTrue(running.cancel());
+            Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(wasInterrupted.get());
+            Assert.assertEquals(running.getStatus(), ActivityHandle.Status.CANCELLED);
+            Assert.assertFalse(running.cancel());
+            Assert.assertEquals(results, Arrays.asList(false, false));
+
+            // cancelling by activity completes it the same as cancelling by handle
+            ActivityHandle      delayed = queue.add(QueueGroups.MAIN, waiter, 1, TimeUnit.MINUTES);
+            Assert.assertTrue(queue.cancel(QueueGroups.MAIN, waiter));
+            Assert.assertEquals(delayed.getStatus(), ActivityHandle.Status.CANCELLED);
+            Assert.assertEquals(results, Arrays.asList(false, false, false));
+
+            // the worker must not carry the interrupt into the next activity
+            ActivityHandle      next = queue.add(QueueGroups.MAIN, waiter);
+            Assert.assertTrue(next.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(next.getStatus(), ActivityHandle.Status.SUCCEEDED);
+            Assert.assertTrue(next.getEndTime() >= next.getStartTime());
+            Assert.assertEquals(queue.getHandle(queued.getId()), queued);
+        }
+        finally
+        {
+            Closeables.closeQuietly(queue);
+        }
+    }
+
     @Test
     public void testReplace() throws Exception
     {
@@ -194,6 +556,18 @@ public class TestActivityQueue
 
             Assert.assertTrue(times.size() >= 3);
 
+            // only the latest execution is kept in the recent handles - wait for the last queued execution to finish first
+            Thread.sleep(DELAY * 2);
+            int         doneQty = 0;
+            for ( ActivityHandle handle : queue.getHandles() )
+            {
+                if ( handle.isDone() )
+                {
+                    ++doneQty;
+                }
+            }
+            Assert.assertEquals(doneQty, 1);
+
             long        check = start;
             for ( int i = 0; i < 3; ++i )
             {
@@ -210,6 +584,54 @@ public class TestActivityQueue
         }
     }
     
+    @Test
+    public void testCancelRepeating() throws Exception
+    {
+        RepeatingActivity       repeating = null;
+        ActivityQueue           queue = new ActivityQueue();
+        queue.start();
+        try
+        {
+            final CountDownLatch    latch = new CountDownLatch(1);
+            Activity                activity = new Activity()
+            {
+                @Override
+                public void completed(boolean wasSuccessful)
+                {
+                }
+
+                @Override
+                public Boolean call() throws Exception
+                {
+                    latch.countDown();
+                    return true;
+                }
+            };
+            repeating = new RepeatingActivity(null, queue, QueueGroups.MAIN, activity, 500);
+            repeating.start();
+
+            ActivityHandle          queued = null;
+            for ( ActivityHandle handle : queue.getHandles() )
+            {
+                if ( handle.getStatus() == ActivityHandle.Status.QUEUED )
+                {
+                    queued = handle;
+                }
+            }
+            Assert.assertNotNull(queued);
+            Assert.assertTrue(queued.cancel());
+            Assert.assertEquals(queued.getStatus(), ActivityHandle.Status.CANCELLED);
+
+            // cancelling skips an execution - it doesn't stop the activity
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            Closeables.closeQuietly(repeating);
+            Closeables.closeQuietly(queue);
+        }
+    }
+
     @Test
     public void testDelay() throws Exception
     {
@@ -0,0 +1,69 @@
+package com.netflix.exhibitor.core.activity;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TestEventPublisher
+{
+    @Test
+    public void     testWakeups() throws Exception
+    {
+        final ActivityLog           log = new ActivityLog(10);
+        final EventPublisher        publisher = new EventPublisher(log, 2);
+        Assert.assertFalse(publisher.waitForChange(-1, -1, 50, TimeUnit.MILLISECONDS));
+
+        ScheduledExecutorService    service = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            service.schedule
+            (
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        log.add(ActivityLog.Type.INFO, "hey");
+                    }
+                },
+                100,
+                TimeUnit.MILLISECONDS
+            );
+            Assert.assertTrue(publisher.waitForChange(-1, -1, 10, TimeUnit.SECONDS));
+            Assert.assertEquals(log.getLastSequence(), 0);
+
+            service.schedule
+            (
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        publisher.publish(EventPublisher.Type.CONFIG, null);
+                        publisher.publish(EventPublisher.Type.INSTANCE_STATE, "serving");
+                        publisher.publish(EventPublisher.Type.INSTANCE_STATE, "down");
+                    }
+                },
+                100,
+                TimeUnit.MILLISECONDS
+            );
+            Assert.assertTrue(publisher.waitForChange(0, -1, 10, TimeUnit.SECONDS));
+            Thread.sleep(100);
+
+            List<EventPublisher.Event>  events = publisher.getEventsAfter(-1);   // window of 2
+            Assert.assertEquals(events.size(), 2);
+            Assert.assertEquals(events.get(0).getSequence(), 1);
+            Assert.assertEquals(events.get(1).getData(), "down");
+            Assert.assertTrue(publisher.getEventsAfter(2).isEmpty());
+
+            Assert.assertTrue(publisher.waitForChange(0, 5, 10, TimeUnit.SECONDS));   // subscriber is ahead - e.g. after a restart
+        }
+        finally
+        {
+            service.shutdownNow();
+        }
+    }
+}
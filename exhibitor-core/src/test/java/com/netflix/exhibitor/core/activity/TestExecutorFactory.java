@@ -0,0 +1,65 @@
+package com.netflix.exhibitor.core.activity;
+
+import com.google.common.io.Closeables;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TestExecutorFactory
+{
+    @Test
+    public void     testMode() throws Exception
+    {
+        ExecutorFactory     factory = new ExecutorFactory(ThreadingModes.VIRTUAL);
+        try
+        {
+            Assert.assertEquals(factory.getMode(), ExecutorFactory.isVirtualSupported() ? ThreadingModes.VIRTUAL : ThreadingModes.PLATFORM);
+        }
+        finally
+        {
+            Closeables.closeQuietly(factory);
+        }
+    }
+
+    @Test
+    public void     testInvokeAll() throws Exception
+    {
+        ExecutorFactory     factory = new ExecutorFactory(ThreadingModes.VIRTUAL);
+        try
+        {
+            Callable<String>    fast = new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    return "fast";
+                }
+            };
+            Callable<String>    slow = new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    return "slow";
+                }
+            };
+
+            long                    start = System.currentTimeMillis();
+            List<Future<String>>    futures = factory.invokeAll("test", Arrays.asList(fast, slow, fast), 1, TimeUnit.SECONDS);
+            Assert.assertTrue((System.currentTimeMillis() - start) < TimeUnit.SECONDS.toMillis(30));
+            Assert.assertEquals(futures.size(), 3);
+            Assert.assertEquals(futures.get(0).get(), "fast");
+            Assert.assertTrue(futures.get(1).isCancelled());
+            Assert.assertEquals(futures.get(2).get(), "fast");
+        }
+        finally
+        {
+            Closeables.closeQuietly(factory);
+        }
+    }
+}
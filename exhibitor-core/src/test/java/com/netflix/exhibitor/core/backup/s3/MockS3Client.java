@@ -52,6 +52,12 @@ public class MockS3Client implements S3Client
         return object;
     }
 
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucket, String key) throws Exception
+    {
+        return (object != null) ? object.getObjectMetadata() : null;
+    }
+
     @Override
     public ObjectListing listObjects(ListObjectsRequest request) throws Exception
     {
@@ -0,0 +1,67 @@
+package com.netflix.exhibitor.core.config;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestConfigManager
+{
+    @Test
+    public void     testLoadIfChanged() throws Exception
+    {
+        final AtomicLong            lastModified = new AtomicLong(1);
+        final AtomicInteger         loadCount = new AtomicInteger(0);
+        LastModifiedConfigProvider  provider = new LastModifiedConfigProvider()
+        {
+            @Override
+            public long getLastModified() throws Exception
+            {
+                return lastModified.get();
+            }
+
+            @Override
+            public LoadedInstanceConfig loadConfig() throws Exception
+            {
+                loadCount.incrementAndGet();
+                return new LoadedInstanceConfig(new PropertyBasedInstanceConfig(new Properties(), new Properties()), lastModified.get());
+            }
+
+            @Override
+            public LoadedInstanceConfig storeConfig(InstanceConfig config, long compareLastModified) throws Exception
+            {
+                return null;
+            }
+        };
+
+        // unchanged - not loaded
+        Assert.assertNull(ConfigManager.loadIfChanged(provider, 1));
+        Assert.assertEquals(loadCount.get(), 0);
+
+        lastModified.set(2);
+        LoadedInstanceConfig        loaded = ConfigManager.loadIfChanged(provider, 1);
+        Assert.assertNotNull(loaded);
+        Assert.assertEquals(loaded.getLastModified(), 2);
+        Assert.assertEquals(loadCount.get(), 1);
+
+        // a provider that can't tell is always loaded
+        ConfigProvider              plainProvider = new ConfigProvider()
+        {
+            @Override
+            public LoadedInstanceConfig loadConfig() throws Exception
+            {
+                loadCount.incrementAndGet();
+                return new LoadedInstanceConfig(new PropertyBasedInstanceConfig(new Properties(), new Properties()), 1);
+            }
+
+            @Override
+            public LoadedInstanceConfig storeConfig(InstanceConfig config, long compareLastModified) throws Exception
+            {
+                return null;
+            }
+        };
+        Assert.assertNotNull(ConfigManager.loadIfChanged(plainProvider, 1));
+        Assert.assertEquals(loadCount.get(), 2);
+    }
+}
@@ -0,0 +1,39 @@
+package com.netflix.exhibitor.core.config;
+
+import com.netflix.exhibitor.core.state.ServerSpec;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.Arrays;
+import java.util.Properties;
+
+public class TestConfigSnapshot
+{
+    @Test
+    public void     testSnapshotAndDelta()
+    {
+        Properties      properties = new Properties();
+        properties.setProperty("com.netflix.exhibitor.servers-spec", "1:a,2:b");
+        properties.setProperty("com.netflix.exhibitor.zoo-cfg-extra", "tickTime=2000&initLimit=10");
+        properties.setProperty("com.netflix.exhibitor.check-ms", "5000");
+        ConfigSnapshot  snapshot = new ConfigSnapshot(new LoadedInstanceConfig(new PropertyBasedInstanceConfig(properties, new Properties()), 1));
+
+        Assert.assertEquals(snapshot.getServerList().getSpecs(), Arrays.asList(new ServerSpec("a", 1), new ServerSpec("b", 2)));
+        Assert.assertEquals(snapshot.getZooCfgExtra().get("tickTime"), "2000");
+        Assert.assertTrue(snapshot.getBackupExtra().isEmpty());
+        Assert.assertEquals(snapshot.getInt(IntConfigs.CHECK_MS), 5000);
+        Assert.assertEquals(snapshot.getString(StringConfigs.BACKUP_EXTRA), "");
+
+        Assert.assertTrue(new ConfigDelta(snapshot, snapshot).isEmpty());
+
+        properties.setProperty("com.netflix.exhibitor.servers-spec", "1:a, 2:b");
+        properties.setProperty("com.netflix.exhibitor.check-ms", "6000");
+        ConfigSnapshot  newSnapshot = new ConfigSnapshot(new LoadedInstanceConfig(new PropertyBasedInstanceConfig(properties, new Properties()), 2));
+        ConfigDelta     delta = new ConfigDelta(snapshot, newSnapshot);
+        Assert.assertFalse(delta.isEmpty());
+        Assert.assertTrue(delta.isChanged(IntConfigs.CHECK_MS));
+        Assert.assertFalse(delta.isChanged(IntConfigs.CLIENT_PORT));
+        Assert.assertTrue(delta.isChanged(StringConfigs.SERVERS_SPEC));
+        Assert.assertFalse(delta.isServerListChanged());     // formatting only
+        Assert.assertFalse(delta.isChanged(StringConfigs.ZOO_CFG_EXTRA));
+    }
+}
@@ -0,0 +1,136 @@
+package com.netflix.exhibitor.core.config.zookeeper;
+
+import com.google.common.io.Files;
+import com.netflix.curator.test.TestingServer;
+import com.netflix.exhibitor.core.config.IntConfigs;
+import com.netflix.exhibitor.core.config.LoadedInstanceConfig;
+import com.netflix.exhibitor.core.config.PropertyBasedInstanceConfig;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.io.File;
+import java.util.Properties;
+
+public class TestZookeeperConfigProvider
+{
+    private static final String     PATH = "/exhibitor/config";
+    private static final int        TIMEOUT_MS = 1000;
+
+    @Test
+    public void     testCompareAndSetAndCache() throws Exception
+    {
+        File                        tempDirectory = Files.createTempDir();
+        File                        cacheFile = new File(tempDirectory, "cache.properties");
+        TestingServer               server = new TestingServer();
+        ZookeeperConfigProvider     provider1 = new ZookeeperConfigProvider(server.getConnectString(), TIMEOUT_MS, PATH, cacheFile, new Properties());
+        ZookeeperConfigProvider     provider2 = new ZookeeperConfigProvider(server.getConnectString(), TIMEOUT_MS, PATH, new File(tempDirectory, "cache2.properties"), new Properties());
+        try
+        {
+            LoadedInstanceConfig    loaded = provider1.loadConfig();
+            Assert.assertEquals(loaded.getLastModified(), ZookeeperConfigProvider.NO_NODE_VERSION);
+            Assert.assertEquals(provider1.getLastModified(), ZookeeperConfigProvider.NO_NODE_VERSION);
+
+            LoadedInstanceConfig    stored = provider1.storeConfig(makeConfig(1000), ZookeeperConfigProvider.NO_NODE_VERSION);
+            Assert.assertNotNull(stored);
+            Assert.assertEquals(stored.getLastModified(), 0);
+            Assert.assertNull(provider2.storeConfig(makeConfig(2000), ZookeeperConfigProvider.NO_NODE_VERSION));
+
+            loaded = provider2.loadConfig();
+            Assert.assertEquals(loaded.getLastModified(), 0);
+            Assert.assertEquals(loaded.getConfig().getInt(IntConfigs.CHECK_MS), 1000);
+
+            stored = provider2.storeConfig(makeConfig(3000), 0);
+            Assert.assertNotNull(stored);
+            Assert.assertEquals(stored.getLastModified(), 1);
+            Assert.assertNull(provider1.storeConfig(makeConfig(4000), 0));   // stale
+
+            // the watch fires asynchronously
+            long        startMs = System.currentTimeMillis();
+            while ( (provider1.getLastModified() != 1) && ((System.currentTimeMillis() - startMs) < 10000) )
+            {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(provider1.getLastModified(), 1);
+            Assert.assertEquals(provider1.loadConfig().getConfig().getInt(IntConfigs.CHECK_MS), 3000);
+        }
+        finally
+        {
+            provider1.close();
+            provider2.close();
+            server.close();
+        }
+
+        // ZK is gone - the cache is used
+        ZookeeperConfigProvider     provider = new ZookeeperConfigProvider(server.getConnectString(), TIMEOUT_MS, PATH, cacheFile, new Properties());
+        try
+        {
+            LoadedInstanceConfig    loaded = provider.loadConfig();
+            Assert.assertEquals(loaded.getLastModified(), ZookeeperConfigProvider.CACHE_VERSION);
+            Assert.assertEquals(loaded.getConfig().getInt(IntConfigs.CHECK_MS), 3000);
+            Assert.assertEquals(tempDirectory.list().length, 2);    // no temp files left behind
+        }
+        finally
+        {
+            provider.close();
+        }
+    }
+
+    @Test
+    public void     testFirstBoot() throws Exception
+    {
+        File                        tempDirectory = Files.createTempDir();
+        TestingServer               server = new TestingServer();
+        int                         port = server.getPort();
+        server.close();
+
+        // no ZNode and no cache - and ZK isn't running yet
+        ZookeeperConfigProvider     provider1 = new ZookeeperConfigProvider(server.getConnectString(), TIMEOUT_MS, PATH, new File(tempDirectory, "cache.properties"), new Properties());
+        ZookeeperConfigProvider     provider2 = new ZookeeperConfigProvider(server.getConnectString(), TIMEOUT_MS, PATH, new File(tempDirectory, "cache2.properties"), new Properties());
+        try
+        {
+            long                    startMs = System.currentTimeMillis();
+            LoadedInstanceConfig    loaded = provider1.loadConfig();
+            Assert.assertEquals(loaded.getLastModified(), ZookeeperConfigProvider.CACHE_VERSION);
+            Assert.assertEquals(provider1.getLastModified(), ZookeeperConfigProvider.CACHE_VERSION);
+            Assert.assertTrue((System.currentTimeMillis() - startMs) < (10 * TIMEOUT_MS));
+
+            // not stored while ZK is down
+            Assert.assertNull(provider1.storeConfig(makeConfig(1000), loaded.getLastModified()));
+
+            // once ZK is up the first write creates the ZNode
+            server = new TestingServer(port);
+            waitForConnection(provider1);
+            waitForConnection(provider2);
+            LoadedInstanceConfig    stored = provider1.storeConfig(makeConfig(1000), loaded.getLastModified());
+            Assert.assertNotNull(stored);
+            Assert.assertEquals(stored.getLastModified(), 0);
+
+            // a write based on a stale cache doesn't replace it
+            Assert.assertNull(provider2.storeConfig(makeConfig(2000), ZookeeperConfigProvider.CACHE_VERSION));
+            Assert.assertEquals(provider2.loadConfig().getConfig().getInt(IntConfigs.CHECK_MS), 1000);
+        }
+        finally
+        {
+            provider1.close();
+            provider2.close();
+            server.close();
+        }
+    }
+
+    private void waitForConnection(ZookeeperConfigProvider provider) throws Exception
+    {
+        // the check only gets past the cache version once it has reached ZK
+        long        startMs = System.currentTimeMillis();
+        while ( (provider.getLastModified() == ZookeeperConfigProvider.CACHE_VERSION) && ((System.currentTimeMillis() - startMs) < 10000) )
+        {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(provider.getLastModified(), ZookeeperConfigProvider.NO_NODE_VERSION);
+    }
+
+    private PropertyBasedInstanceConfig makeConfig(int checkMs)
+    {
+        Properties      properties = new Properties();
+        properties.setProperty("com.netflix.exhibitor.check-ms", Integer.toString(checkMs));
+        return new PropertyBasedInstanceConfig(properties, new Properties());
+    }
+}
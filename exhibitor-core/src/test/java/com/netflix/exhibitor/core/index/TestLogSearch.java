@@ -0,0 +1,380 @@
+package com.netflix.exhibitor.core.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.google.common.io.InputSupplier;
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.SingleInstanceLockFactory;
+import org.apache.lucene.util.Version;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.server.persistence.FileTxnLog;
+import org.apache.zookeeper.txn.CreateTxn;
+import org.apache.zookeeper.txn.SetDataTxn;
+import org.apache.zookeeper.txn.TxnHeader;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+public class TestLogSearch
+{
+    private File        indexDirectory;
+
+    @BeforeMethod
+    public void     setup() throws Exception
+    {
+        indexDirectory = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void     teardown() throws Exception
+    {
+        Files.deleteRecursively(indexDirectory);
+    }
+
+    @Test
+    public void     testFacets() throws Exception
+    {
+        NIOFSDirectory  directory = new NIOFSDirectory(indexDirectory, new SingleInstanceLockFactory());
+        IndexWriter     writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_35, new KeywordAnalyzer()));
+        try
+        {
+            for ( int i = 0; i < 100; ++i )
+            {
+                writer.addDocument(makeDocument((i % 2 == 0) ? EntryTypes.CREATE_PERSISTENT : EntryTypes.DELETE, "/a/" + i, i * 10));
+                if ( i == 50 )
+                {
+                    writer.commit();    // make sure there's more than one segment
+                }
+            }
+        }
+        finally
+        {
+            writer.close();
+            directory.close();
+        }
+
+        LogSearch       logSearch = new LuceneLogSearch(indexDirectory);
+        try
+        {
+            SearchFacets    facets = logSearch.getFacets(null, new Date(0), new Date(999), 10);
+            Assert.assertEquals(facets.getBucketQty(), 10);
+            Assert.assertEquals(facets.getBucketMs(), 100);
+            for ( int i = 0; i < facets.getBucketQty(); ++i )
+            {
+                Assert.assertEquals(facets.getDateCount(i), 10);
+            }
+            Assert.assertEquals(facets.getTypeCount(EntryTypes.CREATE_PERSISTENT), 50);
+            Assert.assertEquals(facets.getTypeCount(EntryTypes.DELETE), 50);
+            Assert.assertEquals(facets.getTypeCount(EntryTypes.SET_DATA), 0);
+
+            facets = logSearch.getFacets(QueryBuilder.builder().operationType(EntryTypes.DELETE.getId()).build(QueryBuilder.Type.AND), new Date(0), new Date(499), 5);
+            Assert.assertEquals(facets.getBucketQty(), 5);
+            for ( int i = 0; i < facets.getBucketQty(); ++i )
+            {
+                Assert.assertEquals(facets.getDateCount(i), 5);
+            }
+            Assert.assertEquals(facets.getTypeCount(EntryTypes.CREATE_PERSISTENT), 0);
+            Assert.assertEquals(facets.getTypeCount(EntryTypes.DELETE), 50);
+        }
+        finally
+        {
+            logSearch.close();
+        }
+    }
+
+    @Test
+    public void     testHierarchy() throws Exception
+    {
+        String[]        paths = {"/", "/brokers", "/brokers/topics", "/brokers/topics/a", "/brokers/topics/a/partitions", "/brokers/topics/b", "/brokers/ids", "/brokers/topicsx", "/consumers"};
+
+        NIOFSDirectory  directory = new NIOFSDirectory(indexDirectory, new SingleInstanceLockFactory());
+        IndexWriter     writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_35, new KeywordAnalyzer()));
+        try
+        {
+            for ( String path : paths )
+            {
+                writer.addDocument(makeDocument(EntryTypes.CREATE_PERSISTENT, path, 0));
+            }
+        }
+        finally
+        {
+            writer.close();
+            directory.close();
+        }
+
+        LogSearch       logSearch = new LuceneLogSearch(indexDirectory);
+        try
+        {
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().descendantsOf("/brokers/topics")), Sets.newHashSet("/brokers/topics/a", "/brokers/topics/a/partitions", "/brokers/topics/b"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().descendantsOf("/brokers/topics/")), Sets.newHashSet("/brokers/topics/a", "/brokers/topics/a/partitions", "/brokers/topics/b"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().childrenOf("/brokers/topics")), Sets.newHashSet("/brokers/topics/a", "/brokers/topics/b"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().childrenOf("/")), Sets.newHashSet("/brokers", "/consumers"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().descendantsOf("/brokers", 2)), Sets.newHashSet("/brokers/topics", "/brokers/topics/a", "/brokers/topics/b", "/brokers/ids", "/brokers/topicsx"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().nameWildcard("topic*")), Sets.newHashSet("/brokers/topics", "/brokers/topicsx"));
+        }
+        finally
+        {
+            logSearch.close();
+        }
+    }
+
+    @Test
+    public void     testDataContains() throws Exception
+    {
+        NIOFSDirectory  directory = new NIOFSDirectory(indexDirectory, new SingleInstanceLockFactory());
+        IndexWriter     writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_35, new KeywordAnalyzer()));
+        try
+        {
+            addDataDocument(writer, "/text", "server host-xyz.example.com is up".getBytes("UTF-8"), 1024);
+            addDataDocument(writer, "/json", "{\"broker\": {\"host\": \"abc.example.com\", \"port\": 9092}}".getBytes("UTF-8"), 1024);
+            addDataDocument(writer, "/binary", new byte[]{0, 1, 2, (byte)0xca, (byte)0xfe, (byte)0xba, (byte)0xbe, 3}, 1024);
+            addDataDocument(writer, "/capped", "first words then xyz".getBytes("UTF-8"), 11);
+            addDataDocument(writer, "/disabled", "xyz".getBytes("UTF-8"), 0);
+        }
+        finally
+        {
+            writer.close();
+            directory.close();
+        }
+
+        LogSearch       logSearch = new LuceneLogSearch(indexDirectory);
+        try
+        {
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().dataContains("xyz")), Sets.newHashSet("/text"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().dataContains("host-xyz.example.com")), Sets.newHashSet("/text"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().dataContains("Example")), Sets.newHashSet("/text", "/json"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().dataContains("broker.host")), Sets.newHashSet("/json"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().dataContains("9092")), Sets.newHashSet("/json"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().dataContains("words")), Sets.newHashSet("/capped"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().dataContains(new byte[]{(byte)0xca, (byte)0xfe, (byte)0xba, (byte)0xbe})), Sets.newHashSet("/binary"));
+            Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().dataContains(new byte[]{(byte)0xfe, (byte)0xca, (byte)0xba, (byte)0xbe})), Sets.<String>newHashSet());
+        }
+        finally
+        {
+            logSearch.close();
+        }
+    }
+
+    @Test
+    public void     testColumnarMatchesLucene() throws Exception
+    {
+        File            luceneDirectory = new File(indexDirectory, "lucene");
+        File            columnarDirectory = new File(indexDirectory, "columnar");
+        Assert.assertTrue(luceneDirectory.mkdirs() && columnarDirectory.mkdirs());
+
+        EntryWriter     luceneWriter = IndexEngines.LUCENE.newWriter(luceneDirectory, 1024, false);
+        EntryWriter     columnarWriter = IndexEngines.COLUMNAR.newWriter(columnarDirectory, 1024, false);
+        try
+        {
+            for ( int i = 0; i < 10000; ++i )   // more than one block
+            {
+                EntryTypes  type = EntryTypes.values()[i % EntryTypes.values().length];
+                String      path = "/brokers/b" + (i % 50) + "/n" + (i % 7);
+                int         version = (type == EntryTypes.SET_DATA) ? (i % 10) : -1;
+                byte[]      data = (type == EntryTypes.DELETE) ? null : ("value v" + (i % 13)).getBytes("UTF-8");
+                luceneWriter.add(type, i, i * 10, path, version, data, -1, -1);
+                columnarWriter.add(type, i, i * 10, path, version, data, -1, -1);
+            }
+        }
+        finally
+        {
+            luceneWriter.close();
+            columnarWriter.close();
+        }
+
+        LogSearch       luceneSearch = IndexEngines.LUCENE.open(luceneDirectory, null);
+        LogSearch       columnarSearch = IndexEngines.COLUMNAR.open(columnarDirectory, null);
+        try
+        {
+            Assert.assertEquals(columnarSearch.getDocQty(), luceneSearch.getDocQty());
+
+            List<QueryBuilder>  builders = Arrays.asList
+            (
+                QueryBuilder.builder().pathExact("/brokers/b3/n3"),
+                QueryBuilder.builder().pathPrefix("/brokers/b1"),
+                QueryBuilder.builder().operationType(EntryTypes.SET_DATA.getId()).versionRange(2, 5),
+                QueryBuilder.builder().dateRange(new Date(5000), new Date(60000)).operationType(EntryTypes.DELETE.getId()),
+                QueryBuilder.builder().descendantsOf("/brokers/b7"),
+                QueryBuilder.builder().childrenOf("/brokers"),
+                QueryBuilder.builder().nameWildcard("n?"),
+                QueryBuilder.builder().dataContains("v12").pathPrefix("/brokers/b2"),
+                QueryBuilder.builder().dataContains("value v3"),
+                QueryBuilder.builder().dataContains("missing")
+            );
+            for ( QueryBuilder builder : builders )
+            {
+                Query       query = builder.build(QueryBuilder.Type.AND);
+                Assert.assertEquals(getResults(columnarSearch, query), getResults(luceneSearch, query), query.toString());
+
+                SearchFacets    luceneFacets = luceneSearch.getFacets(query, new Date(0), new Date(99999), 20);
+                SearchFacets    columnarFacets = columnarSearch.getFacets(query, new Date(0), new Date(99999), 20);
+                for ( int i = 0; i < luceneFacets.getBucketQty(); ++i )
+                {
+                    Assert.assertEquals(columnarFacets.getDateCount(i), luceneFacets.getDateCount(i), query.toString());
+                }
+                for ( EntryTypes type : EntryTypes.values() )
+                {
+                    Assert.assertEquals(columnarFacets.getTypeCount(type), luceneFacets.getTypeCount(type), query.toString());
+                }
+            }
+
+            Query       query = QueryBuilder.builder().pathExact("/brokers/b11/n3").operationType(EntryTypes.SET_DATA.getId()).build(QueryBuilder.Type.AND);
+            TopDocs     docs = columnarSearch.search(query, 1);
+            Assert.assertEquals(new String(columnarSearch.toData(docs.scoreDocs[0].doc), "UTF-8"), new String(luceneSearch.toData(luceneSearch.search(query, 1).scoreDocs[0].doc), "UTF-8"));
+        }
+        finally
+        {
+            luceneSearch.close();
+            columnarSearch.close();
+        }
+    }
+
+    @Test
+    public void     testDataByReference() throws Exception
+    {
+        File            logDirectory = new File(indexDirectory, "logs");
+        final File      savedLog = new File(indexDirectory, "saved-log");
+        Assert.assertTrue(logDirectory.mkdirs());
+
+        FileTxnLog.setPreallocSize(1024);
+        FileTxnLog      txnLog = new FileTxnLog(logDirectory);
+        try
+        {
+            for ( int i = 0; i < 100; ++i )
+            {
+                byte[]      data = ("value " + i).getBytes("UTF-8");
+                if ( (i % 2) == 0 )
+                {
+                    txnLog.append(new TxnHeader(1, i, i + 1, i * 10, ZooDefs.OpCode.create), new CreateTxn("/a/" + i, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, false));
+                }
+                else
+                {
+                    txnLog.append(new TxnHeader(1, i, i + 1, i * 10, ZooDefs.OpCode.setData), new SetDataTxn("/a/" + (i - 1), data, 1));
+                }
+            }
+            txnLog.commit();
+        }
+        finally
+        {
+            txnLog.close();
+        }
+        final File      logFile = logDirectory.listFiles()[0];
+        Files.copy(logFile, savedLog);
+
+        LogSourceRestorer   restorer = new LogSourceRestorer()
+        {
+            @Override
+            public boolean restore(String backupName, long minModifiedDate, File destination) throws Exception
+            {
+                Assert.assertEquals(backupName, logFile.getName());
+                Files.copy(savedLog, destination);
+                return true;
+            }
+        };
+
+        for ( IndexEngines engine : IndexEngines.values() )
+        {
+            File                        engineDirectory = new File(indexDirectory, engine.getName());
+            InputSupplier<InputStream>  source = new InputSupplier<InputStream>()
+            {
+                @Override
+                public InputStream getInput() throws IOException
+                {
+                    return new FileInputStream(logFile);
+                }
+            };
+            LogIndexer                  indexer = new LogIndexer(source, logFile.getName(), logFile.length(), engineDirectory, engine, 1024, LogSources.forFiles(Arrays.asList(logFile)));
+            try
+            {
+                indexer.index();
+            }
+            finally
+            {
+                indexer.close();
+            }
+        }
+        Assert.assertTrue(logFile.delete());    // i.e. purged - data must come from the backup
+
+        for ( IndexEngines engine : IndexEngines.values() )
+        {
+            LogSearch   logSearch = engine.open(new File(indexDirectory, engine.getName()), restorer);
+            try
+            {
+                Assert.assertEquals(getPaths(logSearch, QueryBuilder.builder().dataContains("51")), Sets.newHashSet("/a/50"), engine.getName());
+
+                Query       query = QueryBuilder.builder().pathExact("/a/50").build(QueryBuilder.Type.AND);
+                Set<String> values = Sets.newHashSet();
+                for ( ScoreDoc scoreDoc : logSearch.search(query, 10).scoreDocs )
+                {
+                    values.add(new String(logSearch.toData(scoreDoc.doc), "UTF-8"));
+                }
+                Assert.assertEquals(values, Sets.newHashSet("value 50", "value 51"), engine.getName());
+            }
+            finally
+            {
+                logSearch.close();
+            }
+        }
+    }
+
+    private List<String> getResults(LogSearch logSearch, Query query) throws Exception
+    {
+        List<String>    results = Lists.newArrayList();
+        TopDocs         docs = logSearch.search(query, 100);
+        results.add(Integer.toString(docs.totalHits));
+        for ( ScoreDoc scoreDoc : docs.scoreDocs )
+        {
+            results.add(logSearch.toResult(scoreDoc.doc).toString());
+        }
+        return results;
+    }
+
+    private void addDataDocument(IndexWriter writer, String path, byte[] data, int dataIndexMaxBytes) throws Exception
+    {
+        Document document = makeDocument(EntryTypes.SET_DATA, path, 0);
+        LuceneEntryWriter.addData(document, data, dataIndexMaxBytes);
+        writer.addDocument(document);
+    }
+
+    private Set<String> getPaths(LogSearch logSearch, QueryBuilder builder) throws Exception
+    {
+        Set<String>     paths = Sets.newHashSet();
+        TopDocs         docs = logSearch.search(builder.build(QueryBuilder.Type.AND), 1000);
+        for ( ScoreDoc scoreDoc : docs.scoreDocs )
+        {
+            paths.add(logSearch.toResult(scoreDoc.doc).getPath());
+        }
+        return paths;
+    }
+
+    private Document makeDocument(EntryTypes type, String path, long time)
+    {
+        NumericField dateField = new NumericField(FieldNames.DATE, Field.Store.YES, true);
+        dateField.setLongValue(time);
+
+        Document    document = new Document();
+        document.add(new Field(FieldNames.TYPE, Integer.toString(type.getId()), Field.Store.YES, Field.Index.NOT_ANALYZED));
+        LuceneEntryWriter.addPath(document, path);
+        document.add(dateField);
+        return document;
+    }
+}
@@ -0,0 +1,84 @@
+package com.netflix.exhibitor.core.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class TestMetrics
+{
+    @Test
+    public void     testParse()
+    {
+        Map<MetricTypes, Double>    mntr = MetricsParser.parseMntr
+        (
+            Arrays.asList
+            (
+                "zk_version\t3.4.5-1392090, built on 09/30/2012 17:52 GMT",
+                "zk_avg_latency\t2",
+                "zk_max_latency\t114",
+                "zk_min_latency\t0",
+                "zk_outstanding_requests\t0",
+                "zk_znode_count\t1543",
+                "zk_watch_count\t67",
+                "zk_server_state\tleader",
+                "zk_followers\t4"
+            )
+        );
+        Assert.assertEquals(mntr.get(MetricTypes.AVG_LATENCY), 2.0);
+        Assert.assertEquals(mntr.get(MetricTypes.MAX_LATENCY), 114.0);
+        Assert.assertEquals(mntr.get(MetricTypes.ZNODE_COUNT), 1543.0);
+        Assert.assertEquals(mntr.get(MetricTypes.WATCH_COUNT), 67.0);
+        Assert.assertEquals(mntr.get(MetricTypes.FOLLOWERS), 4.0);
+        Assert.assertFalse(mntr.containsKey(MetricTypes.SYNCED_FOLLOWERS));
+
+        Map<MetricTypes, Double>    srvr = MetricsParser.parseSrvr
+        (
+            Arrays.asList
+            (
+                "Zookeeper version: 3.3.3-1073969, built on 02/23/2011 22:27 GMT",
+                "Latency min/avg/max: 1/5/32",
+                "Received: 1000",
+                "Sent: 999",
+                "Outstanding: 3",
+                "Zxid: 0x100000004",
+                "Mode: follower",
+                "Node count: 12"
+            )
+        );
+        Assert.assertEquals(srvr.get(MetricTypes.MIN_LATENCY), 1.0);
+        Assert.assertEquals(srvr.get(MetricTypes.AVG_LATENCY), 5.0);
+        Assert.assertEquals(srvr.get(MetricTypes.MAX_LATENCY), 32.0);
+        Assert.assertEquals(srvr.get(MetricTypes.PACKETS_RECEIVED), 1000.0);
+        Assert.assertEquals(srvr.get(MetricTypes.OUTSTANDING_REQUESTS), 3.0);
+        Assert.assertEquals(srvr.get(MetricTypes.ZNODE_COUNT), 12.0);
+    }
+
+    @Test
+    public void     testTimeSeries()
+    {
+        MetricTimeSeries    series = new MetricTimeSeries(10, 5, 2);
+        Assert.assertNull(series.getLatest());
+        Assert.assertTrue(series.getPoints(0).isEmpty());
+
+        for ( int i = 0; i < 100; ++i )
+        {
+            series.add(i * 1000, i);
+        }
+        Assert.assertEquals(series.getLatest().getTime(), 99000);
+
+        // the raw tier only has the last 10 samples
+        List<MetricTimeSeries.Point>    points = series.getPoints(95000);
+        Assert.assertEquals(points.size(), 5);
+        Assert.assertEquals(points.get(0).getAverage(), 95.0);
+
+        // older history comes from the downsampled tier
+        points = series.getPoints(0);
+        Assert.assertEquals(points.size(), 10);
+        Assert.assertEquals(points.get(0).getTime(), 50000);
+        Assert.assertEquals(points.get(0).getAverage(), 52.0);
+        Assert.assertEquals(points.get(0).getMin(), 50.0);
+        Assert.assertEquals(points.get(0).getMax(), 54.0);
+    }
+}
@@ -0,0 +1,70 @@
+package com.netflix.exhibitor.core.processes;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.io.File;
+import java.util.Set;
+
+public class TestLogPurger
+{
+    @Test
+    public void     testFilesToPurge() throws Exception
+    {
+        File        directory = Files.createTempDir();
+        try
+        {
+            for ( String name : new String[]{"log.1", "log.50", "log.a0", "log.100", "log.180", "snapshot.40", "snapshot.90", "snapshot.110", "snapshot.150", "snapshot.190", "currentEpoch"} )
+            {
+                Files.touch(new File(directory, name));
+            }
+
+            // names are hex zxids - keeps snapshots 110, 150, 190 and log.100 (which starts before snapshot 110) onwards
+            LogPurger       purger = new LogPurger(directory, 3, Predicates.<File>alwaysTrue());
+            Assert.assertEquals(names(purger), Sets.newHashSet("log.1", "log.50", "log.a0", "snapshot.40", "snapshot.90"));
+
+            // below the minimum still keeps 3
+            purger = new LogPurger(directory, 1, Predicates.<File>alwaysTrue());
+            Assert.assertEquals(names(purger), Sets.newHashSet("log.1", "log.50", "log.a0", "snapshot.40", "snapshot.90"));
+
+            // logs that haven't been backed up are kept
+            purger = new LogPurger
+            (
+                directory,
+                3,
+                new Predicate<File>()
+                {
+                    @Override
+                    public boolean apply(File log)
+                    {
+                        return !log.getName().equals("log.50");
+                    }
+                }
+            );
+            Assert.assertEquals(names(purger), Sets.newHashSet("log.1", "log.a0", "snapshot.40", "snapshot.90"));
+
+            purger = new LogPurger(directory, 4, Predicates.<File>alwaysTrue());
+            Assert.assertEquals(names(purger), Sets.newHashSet("log.1", "snapshot.40"));
+
+            purger = new LogPurger(directory, 5, Predicates.<File>alwaysTrue());
+            Assert.assertTrue(purger.getFilesToPurge().isEmpty());
+        }
+        finally
+        {
+            Files.deleteRecursively(directory);
+        }
+    }
+
+    private Set<String> names(LogPurger purger)
+    {
+        Set<String>     names = Sets.newHashSet();
+        for ( File f : purger.getFilesToPurge() )
+        {
+            names.add(f.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,57 @@
+package com.netflix.exhibitor.core.processes;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.io.File;
+
+public class TestZooKeeperProcessLocator
+{
+    @Test
+    public void     testFind() throws Exception
+    {
+        File        tempDirectory = Files.createTempDir();
+        try
+        {
+            File                        procDirectory = new File(tempDirectory, "proc");
+            File                        dataDirectory = new File(tempDirectory, "data");
+            ZooKeeperProcessLocator     locator = new ZooKeeperProcessLocator(procDirectory);
+            Assert.assertFalse(locator.isSupported());
+            Assert.assertNull(locator.findPid(dataDirectory));
+
+            makeProcess(procDirectory, "10", "/bin/bash\0zkServer.sh\0start");
+            makeProcess(procDirectory, "20", "java\0-cp\0zookeeper.jar\0" + ZooKeeperProcessLocator.MAIN_CLASS + "\0/zk/conf/zoo.cfg");
+            Assert.assertTrue(locator.isSupported());
+
+            // found by scanning
+            Assert.assertEquals(locator.findPid(dataDirectory), "20");
+
+            // a stale pid file is ignored
+            dataDirectory.mkdirs();
+            Files.write("10\n", new File(dataDirectory, ZooKeeperProcessLocator.PID_FILE_NAME), Charsets.UTF_8);
+            locator.reset();
+            Assert.assertEquals(locator.findPid(dataDirectory), "20");
+
+            makeProcess(procDirectory, "30", "java\0" + ZooKeeperProcessLocator.MAIN_CLASS);
+            Files.write("30\n", new File(dataDirectory, ZooKeeperProcessLocator.PID_FILE_NAME), Charsets.UTF_8);
+            locator.reset();
+            Assert.assertEquals(locator.findPid(dataDirectory), "30");
+
+            Files.deleteRecursively(new File(procDirectory, "30"));
+            Files.deleteRecursively(new File(procDirectory, "20"));
+            Assert.assertNull(locator.findPid(dataDirectory));
+        }
+        finally
+        {
+            Files.deleteRecursively(tempDirectory);
+        }
+    }
+
+    private void makeProcess(File procDirectory, String pid, String cmdline) throws Exception
+    {
+        File        directory = new File(procDirectory, pid);
+        directory.mkdirs();
+        Files.write(cmdline, new File(directory, "cmdline"), Charsets.UTF_8);
+    }
+}
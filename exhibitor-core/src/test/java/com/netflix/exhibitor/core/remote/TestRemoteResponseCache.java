@@ -0,0 +1,123 @@
+package com.netflix.exhibitor.core.remote;
+
+import com.google.common.collect.Lists;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestRemoteResponseCache
+{
+    @Test
+    public void     testSingleFlight() throws Exception
+    {
+        final RemoteResponseCache   cache = new RemoteResponseCache(60000);
+        final AtomicInteger         callCount = new AtomicInteger(0);
+        final CountDownLatch        release = new CountDownLatch(1);
+        final Callable<String>      proc = new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                callCount.incrementAndGet();
+                release.await();
+                return "response";
+            }
+        };
+
+        ExecutorService     service = Executors.newCachedThreadPool();
+        try
+        {
+            List<Future<String>>    futures = Lists.newArrayList();
+            for ( int i = 0; i < 5; ++i )
+            {
+                futures.add
+                (
+                    service.submit
+                    (
+                        new Callable<String>()
+                        {
+                            @Override
+                            public String call() throws Exception
+                            {
+                                return cache.get("host", "state", proc);
+                            }
+                        }
+                    )
+                );
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for ( Future<String> future : futures )
+            {
+                Assert.assertEquals(future.get(5, TimeUnit.SECONDS), "response");
+            }
+            Assert.assertEquals(callCount.get(), 1);
+
+            // cached until invalidated
+            Assert.assertEquals(cache.get("host", "state", proc), "response");
+            Assert.assertEquals(callCount.get(), 1);
+            cache.get("host", "log", proc);
+            Assert.assertEquals(callCount.get(), 2);
+
+            cache.invalidateHost("host");
+            cache.get("host", "state", proc);
+            Assert.assertEquals(callCount.get(), 3);
+        }
+        finally
+        {
+            service.shutdownNow();
+        }
+    }
+
+    @Test
+    public void     testFailuresNotCached() throws Exception
+    {
+        RemoteResponseCache     cache = new RemoteResponseCache(60000);
+        try
+        {
+            cache.get
+            (
+                "host",
+                "state",
+                new Callable<String>()
+                {
+                    @Override
+                    public String call() throws Exception
+                    {
+                        throw new IllegalStateException("down");
+                    }
+                }
+            );
+            Assert.fail();
+        }
+        catch ( IllegalStateException expected )
+        {
+            // expected
+        }
+
+        Assert.assertEquals
+        (
+            cache.get
+            (
+                "host",
+                "state",
+                new Callable<String>()
+                {
+                    @Override
+                    public String call() throws Exception
+                    {
+                        return "up";
+                    }
+                }
+            ),
+            "up"
+        );
+    }
+}
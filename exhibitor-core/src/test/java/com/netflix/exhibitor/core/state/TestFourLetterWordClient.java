@@ -0,0 +1,100 @@
+package com.netflix.exhibitor.core.state;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+public class TestFourLetterWordClient
+{
+    @Test
+    public void     testStatuses() throws Exception
+    {
+        ServerSocket    okServer = new ServerSocket(0);
+        ServerSocket    silentServer = new ServerSocket(0);
+        ServerSocket    refusedServer = new ServerSocket(0);
+        int             refusedPort = refusedServer.getLocalPort();
+        refusedServer.close();
+
+        Thread          okThread = startServer(okServer, "imok");
+        Thread          silentThread = startServer(silentServer, null);
+        FourLetterWordClient    client = new FourLetterWordClient();
+        try
+        {
+            ListenableFuture<FourLetterWord>    ok = client.send(FourLetterWord.Word.RUOK, "localhost", okServer.getLocalPort(), 5000);
+            ListenableFuture<FourLetterWord>    silent = client.send(FourLetterWord.Word.RUOK, "localhost", silentServer.getLocalPort(), 500);
+            ListenableFuture<FourLetterWord>    refused = client.send(FourLetterWord.Word.RUOK, "localhost", refusedPort, 5000);
+
+            FourLetterWord      result = FourLetterWordClient.getResult(ok);
+            Assert.assertEquals(result.getStatus(), FourLetterWord.Status.SUCCESS);
+            Assert.assertEquals(result.getResponse(), "imok");
+
+            result = FourLetterWordClient.getResult(silent);
+            Assert.assertEquals(result.getStatus(), FourLetterWord.Status.TIMEOUT);
+            Assert.assertEquals(result.getResponse(), "");
+
+            Assert.assertEquals(FourLetterWordClient.getResult(refused).getStatus(), FourLetterWord.Status.CONNECTION_REFUSED);
+
+            ImmutableMap<String, ListenableFuture<FourLetterWord>>  all = client.sendAll(FourLetterWord.Word.RUOK, Arrays.asList("localhost", "localhost", "no-such-host.invalid"), okServer.getLocalPort(), 5000);
+            Assert.assertEquals(all.size(), 2);
+            Assert.assertEquals(FourLetterWordClient.getResult(all.get("localhost")).getResponse(), "imok");
+            Assert.assertEquals(FourLetterWordClient.getResult(all.get("no-such-host.invalid")).getStatus(), FourLetterWord.Status.UNKNOWN_HOST);
+        }
+        finally
+        {
+            client.close();
+            okServer.close();
+            silentServer.close();
+            okThread.join();
+            silentThread.join();
+        }
+
+        Assert.assertEquals(client.get(FourLetterWord.Word.RUOK, "localhost", refusedPort, 1000).getStatus(), FourLetterWord.Status.ERROR);
+    }
+
+    private static Thread startServer(final ServerSocket server, final String response)
+    {
+        Thread      thread = new Thread
+        (
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for(;;)
+                        {
+                            Socket      socket = server.accept();
+                            if ( response != null )
+                            {
+                                InputStream     in = socket.getInputStream();
+                                byte[]          word = new byte[4];
+                                int             offset = 0;
+                                while ( offset < word.length )
+                                {
+                                    offset += in.read(word, offset, word.length - offset);
+                                }
+                                OutputStream    out = socket.getOutputStream();
+                                out.write(response.getBytes("US-ASCII"));
+                                socket.close();
+                            }
+                        }
+                    }
+                    catch ( Exception ignore )
+                    {
+                        // server closed
+                    }
+                }
+            }
+        );
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
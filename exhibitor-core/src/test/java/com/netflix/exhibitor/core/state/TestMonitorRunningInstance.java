@@ -0,0 +1,71 @@
+package com.netflix.exhibitor.core.state;
+
+import com.netflix.exhibitor.core.config.DefaultProperties;
+import com.netflix.exhibitor.core.config.PropertyBasedInstanceConfig;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.Properties;
+
+public class TestMonitorRunningInstance
+{
+    @Test
+    public void     testNextCheckMs()
+    {
+        long        checkMs = 1000;
+        checkMs = MonitorRunningInstance.getNextCheckMs(checkMs, true, 1000, 30000);
+        Assert.assertEquals(checkMs, 2000);
+        checkMs = MonitorRunningInstance.getNextCheckMs(checkMs, true, 1000, 30000);
+        Assert.assertEquals(checkMs, 4000);
+        for ( int i = 0; i < 10; ++i )
+        {
+            checkMs = MonitorRunningInstance.getNextCheckMs(checkMs, true, 1000, 30000);
+        }
+        Assert.assertEquals(checkMs, 30000);
+
+        // any change goes straight back to the min
+        Assert.assertEquals(MonitorRunningInstance.getNextCheckMs(checkMs, false, 1000, 30000), 1000);
+
+        // min >= max means a fixed period
+        Assert.assertEquals(MonitorRunningInstance.getNextCheckMs(5000, false, 30000, 30000), 30000);
+        Assert.assertEquals(MonitorRunningInstance.getNextCheckMs(5000, true, 30000, 30000), 30000);
+    }
+
+    @Test
+    public void     testUnchangedStateBacksOff()
+    {
+        ServerList      serverList = new ServerList("1:a,2:b,3:c");
+        InstanceState   down = new InstanceState(serverList, InstanceStateTypes.DOWN);
+        InstanceState   serving = new InstanceState(serverList, InstanceStateTypes.SERVING);
+
+        // a node that stays down backs off the same as one that stays serving
+        long            checkMs = 1000;
+        for ( int i = 0; i < 10; ++i )
+        {
+            boolean     isStable = MonitorRunningInstance.isStable(down, new InstanceState(serverList, InstanceStateTypes.DOWN), false);
+            Assert.assertTrue(isStable);
+            checkMs = MonitorRunningInstance.getNextCheckMs(checkMs, isStable, 1000, 30000);
+        }
+        Assert.assertEquals(checkMs, 30000);
+
+        // a change, the first check or a rolling restart goes back to the min
+        Assert.assertFalse(MonitorRunningInstance.isStable(down, serving, false));
+        Assert.assertFalse(MonitorRunningInstance.isStable(null, serving, false));
+        Assert.assertFalse(MonitorRunningInstance.isStable(serving, serving, true));
+        Assert.assertFalse(MonitorRunningInstance.isStable(serving, new InstanceState(new ServerList("1:a,2:b"), InstanceStateTypes.SERVING), false));
+    }
+
+    @Test
+    public void     testMinCheckMs()
+    {
+        // configs without CHECK_MIN_MS keep the fixed CHECK_MS period
+        Properties      properties = new Properties();
+        properties.setProperty("com.netflix.exhibitor.check-ms", "60000");
+        Assert.assertEquals(MonitorRunningInstance.getMinCheckMs(new PropertyBasedInstanceConfig(properties, DefaultProperties.get())), 60000);
+
+        properties.setProperty("com.netflix.exhibitor.check-min-ms", "1000");
+        Assert.assertEquals(MonitorRunningInstance.getMinCheckMs(new PropertyBasedInstanceConfig(properties, DefaultProperties.get())), 1000);
+
+        properties.setProperty("com.netflix.exhibitor.check-min-ms", "90000");
+        Assert.assertEquals(MonitorRunningInstance.getMinCheckMs(new PropertyBasedInstanceConfig(properties, DefaultProperties.get())), 60000);
+    }
+}
@@ -0,0 +1,99 @@
+package com.netflix.exhibitor.core.state;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.curator.framework.CuratorFramework;
+import com.netflix.curator.framework.CuratorFrameworkFactory;
+import com.netflix.curator.retry.RetryOneTime;
+import com.netflix.curator.test.TestingServer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.util.Arrays;
+import java.util.Map;
+
+public class TestRollingRestart
+{
+    @Test
+    public void     testOrder()
+    {
+        ServerList      serverList = new ServerList("3:c,1:a,2:b");
+        Assert.assertEquals(RollingRestart.getOrder(serverList, null), Arrays.asList(new ServerSpec("a", 1), new ServerSpec("b", 2), new ServerSpec("c", 3)));
+
+        // leader goes last
+        Assert.assertEquals(RollingRestart.getOrder(serverList, "a"), Arrays.asList(new ServerSpec("b", 2), new ServerSpec("c", 3), new ServerSpec("a", 1)));
+        Assert.assertEquals(RollingRestart.getOrder(serverList, "b"), Arrays.asList(new ServerSpec("a", 1), new ServerSpec("c", 3), new ServerSpec("b", 2)));
+    }
+
+    @Test
+    public void     testZxid()
+    {
+        Assert.assertEquals(RollingRestart.getZxid(ImmutableMap.of("zxid", " 0x100000004")), 0x100000004L);
+        Assert.assertEquals(RollingRestart.getZxid(ImmutableMap.of("zxid", "12")), 12);
+        Assert.assertEquals(RollingRestart.getZxid(ImmutableMap.of("zxid", "bad")), -1);
+        Assert.assertEquals(RollingRestart.getZxid(ImmutableMap.<String, String>of()), -1);
+    }
+
+    @Test
+    public void     testTurn()
+    {
+        ServerList                          serverList = new ServerList("1:a,2:b,3:c");
+        Map<String, String>                 follower = ImmutableMap.of("mode", "follower");
+        Map<String, String>                 leader = ImmutableMap.of("mode", "leader");
+        ServerSpec                          b = new ServerSpec("b", 2);
+
+        // a is restarting so doesn't answer srvr - it still holds up b
+        Map<String, Map<String, String>>    srvr = ImmutableMap.of("b", follower, "c", leader);
+        Assert.assertFalse(RollingRestart.isOurTurn(serverList, b, srvr, ImmutableSet.<String>of()));
+
+        // a is serving but not done
+        srvr = ImmutableMap.of("a", follower, "b", follower, "c", leader);
+        Assert.assertFalse(RollingRestart.isOurTurn(serverList, b, srvr, ImmutableSet.<String>of()));
+
+        Assert.assertTrue(RollingRestart.isOurTurn(serverList, b, srvr, ImmutableSet.of("a")));
+        Assert.assertTrue(RollingRestart.isOurTurn(serverList, new ServerSpec("a", 1), srvr, ImmutableSet.<String>of()));
+
+        // the leader waits for everyone else
+        Assert.assertFalse(RollingRestart.isOurTurn(serverList, new ServerSpec("c", 3), srvr, ImmutableSet.of("a")));
+        Assert.assertTrue(RollingRestart.isOurTurn(serverList, new ServerSpec("c", 3), srvr, ImmutableSet.of("a", "b")));
+    }
+
+    @Test
+    public void     testMarkers()
+    {
+        ServerList      serverList = new ServerList("1:a,2:b");
+
+        // the same server list coming back is a new round
+        Assert.assertNotEquals(RollingRestart.getPath(serverList, 1), RollingRestart.getPath(serverList, 2));
+        Assert.assertNotEquals(RollingRestart.getPath(serverList, 1), RollingRestart.getPath(new ServerList("1:a,2:c"), 1));
+
+        // markers from hosts that aren't in the list don't count
+        Assert.assertFalse(RollingRestart.isAllDone(serverList, Arrays.asList("a", "x")));
+        Assert.assertTrue(RollingRestart.isAllDone(serverList, Arrays.asList("a", "b", "x")));
+    }
+
+    @Test
+    public void     testDoneHostnames() throws Exception
+    {
+        TestingServer       server = new TestingServer();
+        CuratorFramework    client = CuratorFrameworkFactory.newClient(server.getConnectString(), 10000, 1000, new RetryOneTime(1));
+        try
+        {
+            client.start();
+
+            String      path = RollingRestart.BASE_PATH + "/test";
+            Assert.assertEquals(RollingRestart.getDoneHostnames(client, path), ImmutableSet.<String>of());
+
+            client.create().creatingParentsIfNeeded().forPath(path + "/a", new byte[0]);
+            Assert.assertEquals(RollingRestart.getDoneHostnames(client, path), ImmutableSet.of("a"));
+
+            // the ensemble can't be asked - fail closed
+            server.close();
+            Assert.assertNull(RollingRestart.getDoneHostnames(client, path));
+        }
+        finally
+        {
+            client.close();
+            server.close();
+        }
+    }
+}
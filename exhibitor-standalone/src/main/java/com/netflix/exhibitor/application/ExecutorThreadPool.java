@@ -0,0 +1,96 @@
+package com.netflix.exhibitor.application;
+
+import com.netflix.exhibitor.core.activity.ExecutorFactory;
+import org.mortbay.component.AbstractLifeCycle;
+import org.mortbay.thread.ThreadPool;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jetty thread pool that runs each request on a thread from {@link ExecutorFactory} - i.e. on a virtual
+ * thread in virtual mode so that requests blocked on remote calls don't hold platform threads
+ */
+class ExecutorThreadPool extends AbstractLifeCycle implements ThreadPool
+{
+    private final ExecutorFactory       executorFactory;
+    private final AtomicInteger         activeCount = new AtomicInteger(0);
+    private volatile ExecutorService    executor;
+
+    ExecutorThreadPool(ExecutorFactory executorFactory)
+    {
+        this.executorFactory = executorFactory;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        executor = executorFactory.newExecutor("http");
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean dispatch(final Runnable job)
+    {
+        try
+        {
+            executor.execute
+            (
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        activeCount.incrementAndGet();
+                        try
+                        {
+                            job.run();
+                        }
+                        finally
+                        {
+                            activeCount.decrementAndGet();
+                        }
+                    }
+                }
+            );
+            return true;
+        }
+        catch ( RejectedExecutionException e )
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public void join() throws InterruptedException
+    {
+        while ( !executor.awaitTermination(1, TimeUnit.MINUTES) )
+        {
+            // keep waiting
+        }
+    }
+
+    @Override
+    public int getThreads()
+    {
+        return activeCount.get();
+    }
+
+    @Override
+    public int getIdleThreads()
+    {
+        return 0;   // threads are created per request
+    }
+
+    @Override
+    public boolean isLowOnThreads()
+    {
+        return false;
+    }
+}
@@ -1,6 +1,11 @@
 package com.netflix.exhibitor.application;
 
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
 import com.netflix.exhibitor.core.Exhibitor;
+import com.netflix.exhibitor.core.activity.ExecutorFactory;
+import com.netflix.exhibitor.core.activity.QueueGroups;
+import com.netflix.exhibitor.core.activity.ThreadingModes;
 import com.netflix.exhibitor.core.backup.BackupProvider;
 import com.netflix.exhibitor.core.backup.filesystem.FileSystemBackupProvider;
 import com.netflix.exhibitor.core.backup.s3.S3BackupProvider;
@@ -9,6 +14,8 @@ import com.netflix.exhibitor.core.config.DefaultProperties;
 import com.netflix.exhibitor.core.config.filesystem.FileSystemConfigProvider;
 import com.netflix.exhibitor.core.config.s3.S3ConfigArguments;
 import com.netflix.exhibitor.core.config.s3.S3ConfigProvider;
+import com.netflix.exhibitor.core.config.zookeeper.ZookeeperConfigProvider;
+import com.netflix.exhibitor.core.remote.RemoteClient;
 import com.netflix.exhibitor.core.s3.PropertyBasedS3Credential;
 import com.netflix.exhibitor.core.s3.S3ClientFactoryImpl;
 import com.netflix.exhibitor.core.rest.UIContext;
@@ -27,15 +34,20 @@ import org.mortbay.jetty.servlet.ServletHolder;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 
 public class ExhibitorMain implements Closeable
 {
     private final Server server;
+    private final ConfigProvider configProvider;
 
     private static final String FILESYSTEMCONFIG = "filesystemconfig";
     private static final String S3_CREDENTIALS = "s3credentials";
     private static final String S3_BACKUP = "s3backup";
     private static final String S3_CONFIG = "s3config";
+    private static final String ZK_CONFIG_CONNECT = "zkconfigconnect";
+    private static final String ZK_CONFIG_PATH = "zkconfigpath";
+    private static final String ZK_CONFIG_CACHE = "zkconfigcache";
     private static final String FILESYSTEMBACKUP = "filesystembackup";
     private static final String TIMEOUT = "timeout";
     private static final String LOGLINES = "loglines";
@@ -44,6 +56,12 @@ public class ExhibitorMain implements Closeable
     private static final String HELP = "help";
     private static final String ALT_HELP = "?";
     private static final String HTTP_PORT = "port";
+    private static final String QUEUE_WORKERS = "queueworkers";
+    private static final String THREADING = "threading";
+    private static final String ACTIVITY_LOG_DIR = "activitylogdir";
+    private static final String REMOTE_CONNECT_TIMEOUT_MS = "remoteconnecttimeoutms";
+    private static final String REMOTE_READ_TIMEOUT_MS = "remotereadtimeoutms";
+    private static final String REMOTE_GZIP = "remotegzip";
 
     public static void main(String[] args) throws Exception
     {
@@ -54,12 +72,21 @@ public class ExhibitorMain implements Closeable
         options.addOption(null, S3_CREDENTIALS, true, "Required if you use s3backup or s3config. Argument is the path to an AWS credential properties file with two properties: " + PropertyBasedS3Credential.PROPERTY_S3_KEY_ID + " and " + PropertyBasedS3Credential.PROPERTY_S3_SECRET_KEY);
         options.addOption(null, S3_BACKUP, true, "If true, enables AWS S3 backup of ZooKeeper log files (s3credentials must be provided as well).");
         options.addOption(null, S3_CONFIG, true, "Enables AWS S3 shared config files as opposed to file system config files (s3credentials must be provided as well). Argument is [bucket name]:[key].");
+        options.addOption(null, ZK_CONFIG_CONNECT, true, "Enables ZooKeeper shared config as opposed to file system config files. Argument is the connection string of the ensemble to store the config in - either the ensemble being managed or a separate bootstrap ensemble.");
+        options.addOption(null, ZK_CONFIG_PATH, true, "Used with zkconfigconnect. Path of the ZNode to store the config in. Default is /exhibitor/config");
+        options.addOption(null, ZK_CONFIG_CACHE, true, "Used with zkconfigconnect. Local copy of the config that is used when ZooKeeper can't be reached (e.g. on first boot). Default is exhibitor-config-cache.properties in the working directory.");
         options.addOption(null, FILESYSTEMBACKUP, true, "If true, enables file system backup of ZooKeeper log files.");
         options.addOption(null, TIMEOUT, true, "Connection timeout (ms) for ZK connections. Default is 30000.");
         options.addOption(null, LOGLINES, true, "Max lines of logging to keep in memory for display. Default is 1000.");
         options.addOption(null, HOSTNAME, true, "Hostname to use for this JVM. Default is: " + hostname);
-        options.addOption(null, CONFIGCHECKMS, true, "Period (ms) to check config file. Default is: 30000");
+        options.addOption(null, CONFIGCHECKMS, true, "Period (ms) to check for config changes. Default is: 1000 for a config file or ZooKeeper, 30000 for S3");
         options.addOption(null, HTTP_PORT, true, "Port for the HTTP Server. Default is: 8080");
+        options.addOption(null, QUEUE_WORKERS, true, "Worker threads for activity queue groups as a comma separated list of group=count (e.g. IO=4,BULK=2). " + QueueGroups.MAIN + " is serial and always has one worker. Defaults are: " + getDefaultQueueWorkers());
+        options.addOption(null, THREADING, true, "Threads for blocking background work and HTTP requests: platform or virtual. virtual requires a JDK with virtual threads (" + (ExecutorFactory.isVirtualSupported() ? "supported" : "not supported") + " by this JDK) - platform is used otherwise. Default is platform.");
+        options.addOption(null, ACTIVITY_LOG_DIR, true, "If set, the activity log is also written to segment files in this directory so that it survives restarts and can be queried by time. Default is to only keep it in memory.");
+        options.addOption(null, REMOTE_CONNECT_TIMEOUT_MS, true, "Connect timeout (ms) for calls to the other Exhibitor instances. Default is " + RemoteClient.DEFAULT_CONNECT_TIMEOUT_MS + ".");
+        options.addOption(null, REMOTE_READ_TIMEOUT_MS, true, "Read timeout (ms) for calls to the other Exhibitor instances. Default is " + RemoteClient.DEFAULT_READ_TIMEOUT_MS + ".");
+        options.addOption(null, REMOTE_GZIP, true, "If true, ask the other Exhibitor instances for gzip compressed responses. Default is false.");
         options.addOption(ALT_HELP, HELP, false, "Print this help");
 
         CommandLine         commandLine;
@@ -87,6 +114,10 @@ public class ExhibitorMain implements Closeable
         {
             return;
         }
+        if ( !checkMutuallyExclusive(options, commandLine, ZK_CONFIG_CONNECT, FILESYSTEMCONFIG) || !checkMutuallyExclusive(options, commandLine, ZK_CONFIG_CONNECT, S3_CONFIG) )
+        {
+            return;
+        }
 
         PropertyBasedS3Credential   awsCredentials = null;
         if ( commandLine.hasOption(S3_CREDENTIALS) )
@@ -110,7 +141,10 @@ public class ExhibitorMain implements Closeable
             backupProvider = new FileSystemBackupProvider();
         }
 
+        int                 timeoutMs = Integer.parseInt(commandLine.getOptionValue(TIMEOUT, "30000"));
+
         ConfigProvider      provider;
+        String              defaultConfigCheckMs;
         if ( commandLine.hasOption(S3_CONFIG) )
         {
             if ( awsCredentials == null )
@@ -120,20 +154,60 @@ public class ExhibitorMain implements Closeable
                 return;
             }
             provider = new S3ConfigProvider(new S3ClientFactoryImpl(), awsCredentials, getS3Arguments(commandLine.getOptionValue(S3_CONFIG), options));
+            defaultConfigCheckMs = "30000";
+        }
+        else if ( commandLine.hasOption(ZK_CONFIG_CONNECT) )
+        {
+            File        cacheFile = new File(commandLine.getOptionValue(ZK_CONFIG_CACHE, "exhibitor-config-cache.properties"));
+            provider = new ZookeeperConfigProvider(commandLine.getOptionValue(ZK_CONFIG_CONNECT), timeoutMs, commandLine.getOptionValue(ZK_CONFIG_PATH, "/exhibitor/config"), cacheFile, DefaultProperties.get());
+            defaultConfigCheckMs = "1000";  // changes are watched - checks only go to ZooKeeper after a change
         }
         else
         {
             File        propertiesFile = commandLine.hasOption(FILESYSTEMCONFIG) ? new File(commandLine.getOptionValue(FILESYSTEMCONFIG)) : new File("exhibitor.properties");
             provider = new FileSystemConfigProvider(propertiesFile, DefaultProperties.get());
+            defaultConfigCheckMs = "1000";  // checking the file is just a stat
         }
-        
-        int         timeoutMs = Integer.parseInt(commandLine.getOptionValue(TIMEOUT, "30000"));
+
         int         logWindowSizeLines = Integer.parseInt(commandLine.getOptionValue(LOGLINES, "1000"));
-        int         configCheckMs = Integer.parseInt(commandLine.getOptionValue(CONFIGCHECKMS, "30000"));
+        int         configCheckMs = Integer.parseInt(commandLine.getOptionValue(CONFIGCHECKMS, defaultConfigCheckMs));
         String      useHostname = commandLine.getOptionValue(HOSTNAME, hostname);
         int         httpPort = Integer.parseInt(commandLine.getOptionValue(HTTP_PORT, "8080"));
 
-        Exhibitor.Arguments     arguments = new Exhibitor.Arguments(timeoutMs, logWindowSizeLines, useHostname, configCheckMs);
+        Map<QueueGroups, Integer>   queueWorkers = null;
+        if ( commandLine.hasOption(QUEUE_WORKERS) )
+        {
+            queueWorkers = getQueueWorkers(commandLine.getOptionValue(QUEUE_WORKERS), options);
+            if ( queueWorkers == null )
+            {
+                return;
+            }
+        }
+
+        ThreadingModes      threadingMode;
+        try
+        {
+            threadingMode = ThreadingModes.valueOf(commandLine.getOptionValue(THREADING, ThreadingModes.PLATFORM.name()).trim().toUpperCase());
+        }
+        catch ( IllegalArgumentException e )
+        {
+            System.err.println("Bad threading argument: " + commandLine.getOptionValue(THREADING));
+            printHelp(options);
+            return;
+        }
+
+        File        activityLogDirectory = commandLine.hasOption(ACTIVITY_LOG_DIR) ? new File(commandLine.getOptionValue(ACTIVITY_LOG_DIR)) : null;
+
+        int         remoteConnectTimeoutMs = Integer.parseInt(commandLine.getOptionValue(REMOTE_CONNECT_TIMEOUT_MS, Integer.toString(RemoteClient.DEFAULT_CONNECT_TIMEOUT_MS)));
+        int         remoteReadTimeoutMs = Integer.parseInt(commandLine.getOptionValue(REMOTE_READ_TIMEOUT_MS, Integer.toString(RemoteClient.DEFAULT_READ_TIMEOUT_MS)));
+        boolean     remoteGzip = "true".equalsIgnoreCase(commandLine.getOptionValue(REMOTE_GZIP, "false"));
+
+        Exhibitor.Arguments     arguments = new Exhibitor.Arguments(timeoutMs, logWindowSizeLines, useHostname, configCheckMs)
+            .queueWorkerCounts(queueWorkers)
+            .threadingMode(threadingMode)
+            .activityLogDirectory(activityLogDirectory)
+            .remoteTimeouts(remoteConnectTimeoutMs, remoteReadTimeoutMs)
+            .remoteGzip(remoteGzip);
         ExhibitorMain exhibitorMain = new ExhibitorMain(backupProvider, provider, arguments, httpPort);
         exhibitorMain.start();
         exhibitorMain.join();
@@ -162,14 +236,58 @@ public class ExhibitorMain implements Closeable
         return new S3ConfigArguments(parts[0].trim(), parts[1].trim());
     }
 
+    private static Map<QueueGroups, Integer> getQueueWorkers(String value, Options options)
+    {
+        Map<QueueGroups, Integer>   workers = Maps.newHashMap();
+        for ( String spec : value.split(",") )
+        {
+            String[]        parts = spec.split("=");
+            try
+            {
+                if ( parts.length != 2 )
+                {
+                    throw new IllegalArgumentException();
+                }
+                workers.put(QueueGroups.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+            }
+            catch ( IllegalArgumentException e )
+            {
+                System.err.println("Bad queueworkers argument: " + spec);
+                printHelp(options);
+                return null;
+            }
+        }
+        return workers;
+    }
+
+    private static String getDefaultQueueWorkers()
+    {
+        StringBuilder       str = new StringBuilder();
+        for ( QueueGroups group : QueueGroups.values() )
+        {
+            if ( str.length() > 0 )
+            {
+                str.append(",");
+            }
+            str.append(group).append("=").append(group.getDefaultWorkerCount());
+        }
+        return str.toString();
+    }
+
     public ExhibitorMain(BackupProvider backupProvider, ConfigProvider configProvider, Exhibitor.Arguments arguments, int httpPort) throws Exception
     {
+        this.configProvider = configProvider;
+
         Exhibitor               exhibitor = new Exhibitor(configProvider, null, backupProvider, arguments);
         exhibitor.start();
 
         DefaultResourceConfig   application = JerseySupport.newApplicationConfig(new UIContext(exhibitor));
         ServletContainer        container = new ServletContainer(application);
         server = new Server(httpPort);
+        if ( exhibitor.getExecutorFactory().getMode() == ThreadingModes.VIRTUAL )
+        {
+            server.setThreadPool(new ExecutorThreadPool(exhibitor.getExecutorFactory()));
+        }
         Context root = new Context(server, "/", Context.SESSIONS);
         root.addServlet(new ServletHolder(container), "/*");
     }
@@ -188,6 +306,10 @@ public class ExhibitorMain implements Closeable
     public void close() throws IOException
     {
         server.destroy();
+        if ( configProvider instanceof Closeable )
+        {
+            Closeables.closeQuietly((Closeable)configProvider);
+        }
     }
 
     private static void printHelp(Options options)